@@ -0,0 +1,76 @@
+package com.github.hansonhsc.loan;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the amortized loan calculations that are performed for every quote
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AmortizedLoanBenchmark {
+    /**
+     * Number of repayment periods, the same as the one used by the loan quote calculator
+     */
+    private static final int TERM = 36;
+
+    /**
+     * The loan amount in pounds sterling
+     */
+    @Param({"60", "1000", "15000"})
+    public int principal;
+
+    /**
+     * The annual interest rate in decimal format, the lowest and highest rates in market.csv
+     */
+    @Param({"0.069", "0.104"})
+    public String annualInterestRate;
+
+    private BigDecimal principalAsBigDecimal;
+
+    private BigDecimal annualInterestRateAsBigDecimal;
+
+    private long scaledAnnualInterestRate;
+
+    private double monthlyRepayment;
+
+    @Setup
+    public void setUp() {
+        principalAsBigDecimal = new BigDecimal(principal);
+        annualInterestRateAsBigDecimal = new BigDecimal(annualInterestRate);
+        scaledAnnualInterestRate = ScaledAmortizedLoan.toScaled(annualInterestRateAsBigDecimal);
+
+        monthlyRepayment = AmortizedLoan.getMonthlyRepayment(principalAsBigDecimal, annualInterestRateAsBigDecimal, TERM).doubleValue();
+    }
+
+    @Benchmark
+    public BigDecimal getMonthlyRepayment() {
+        return AmortizedLoan.getMonthlyRepayment(principalAsBigDecimal, annualInterestRateAsBigDecimal, TERM);
+    }
+
+    @Benchmark
+    public long getScaledMonthlyRepayment() {
+        return ScaledAmortizedLoan.getMonthlyRepayment(principal, scaledAnnualInterestRate, TERM);
+    }
+
+    @Benchmark
+    public double getApproximateAnnualInterestRate() {
+        return AmortizedLoan.getApproximateAnnualInterestRate(principal, TERM, monthlyRepayment);
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.hansonhsc.loan;
+
+import com.github.hansonhsc.loan.solver.RootSolution;
+import com.github.hansonhsc.loan.solver.RootSolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the solvers used to estimate the annual interest rate from the crude default guess
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnnualInterestRateBenchmark {
+    /**
+     * Number of repayment periods, the same as the one used by the loan quote calculator
+     */
+    private static final int TERM = 36;
+
+    /**
+     * The loan amount in pounds sterling, the quote of 1000 from market.csv
+     */
+    private static final int PRINCIPAL = 1000;
+
+    /**
+     * The monthly repayment of the quote of 1000 from market.csv
+     */
+    private static final double MONTHLY_REPAYMENT = 30.88;
+
+    /**
+     * The name of the solver in <code>AmortizedLoan</code>
+     */
+    @Param({"NEWTON_RAPHSON", "HALLEY", "BRENT"})
+    public String solver;
+
+    private RootSolver rootSolver;
+
+    private final RootSolution solution = new RootSolution();
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        rootSolver = (RootSolver) AmortizedLoan.class.getField(solver).get(null);
+    }
+
+    @Benchmark
+    public double getApproximateAnnualInterestRate() {
+        return AmortizedLoan.getApproximateAnnualInterestRate(PRINCIPAL, TERM, MONTHLY_REPAYMENT, rootSolver, solution);
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.hansonhsc.loan;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Entry point for the benchmarks jar. Accepts the same arguments as the standard JMH runner, but always attaches the
+ * GC profiler so that the allocation rate per operation is reported alongside throughput and average time
+ */
+public final class BenchmarkRunner {
+    /**
+     * Name of the JMH GC profiler as it would be specified by <code>-prof gc</code>
+     */
+    private static final String GC_PROFILER = "gc";
+
+    /**
+     * Runs the benchmarks
+     * @param args standard JMH command line arguments, e.g. a regular expression to select the benchmarks to run
+     * @throws CommandLineOptionException thrown if the arguments are not valid JMH options
+     * @throws RunnerException thrown if the benchmarks fail to run
+     * @throws IOException thrown if the help cannot be written to standard output
+     */
+    public static void main(final String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+        if (commandLineOptions.shouldHelp()) {
+            commandLineOptions.showHelp();
+
+            return;
+        }
+
+        final ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+
+        // avoid attaching the profiler twice if it has already been requested on the command line
+        final boolean gcProfilerRequested = commandLineOptions.getProfilers().stream()
+                .anyMatch(profiler -> GC_PROFILER.equals(profiler.getKlass()) || GCProfiler.class.getName().equals(profiler.getKlass()));
+
+        if (!gcProfilerRequested) {
+            options.addProfiler(GCProfiler.class);
+        }
+
+        final Runner runner = new Runner(options.build());
+
+        if (commandLineOptions.shouldList()) {
+            runner.list();
+        } else {
+            runner.run();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.hansonhsc.loan;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the discount factor of <code>AmortizedLoan.getMonthlyRepayment</code> approximated to a bounded precision
+ * against the exact power that it replaced, across terms
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiscountFactorBenchmark {
+    /**
+     * Number of repayment periods
+     */
+    @Param({"12", "36", "60", "120", "360", "600"})
+    public int term;
+
+    /**
+     * The annual interest rate in decimal format, the highest rate in market.csv
+     */
+    @Param({"0.104"})
+    public String annualInterestRate;
+
+    private BigDecimal monthlyInterestRate;
+
+    private BigDecimal principal;
+
+    @Setup
+    public void setUp() {
+        monthlyInterestRate = new BigDecimal(annualInterestRate).divide(new BigDecimal(12), 10, RoundingMode.HALF_UP);
+        principal = new BigDecimal(1000);
+    }
+
+    @Benchmark
+    public BigDecimal boundedDiscountFactor() {
+        return AmortizedLoan.getDiscountFactor(monthlyInterestRate, term);
+    }
+
+    @Benchmark
+    public BigDecimal exactDiscountFactor() {
+        return BigDecimal.ONE.divide(BigDecimal.ONE.add(monthlyInterestRate).pow(term), 10, RoundingMode.HALF_UP);
+    }
+
+    @Benchmark
+    public BigDecimal getMonthlyRepayment() {
+        return AmortizedLoan.getMonthlyRepayment(principal, new BigDecimal(annualInterestRate), term);
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.hansonhsc.loan;
+
+import com.github.hansonhsc.loan.solver.RootSolution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks estimating the annual interest rate from the crude default guess against starting from the rate looked
+ * up in an <code>InverseRateTable</code>, as well as the cost of building a table
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InverseRateTableBenchmark {
+    /**
+     * The loan amount in pounds sterling
+     */
+    private static final int PRINCIPAL = 1000;
+
+    /**
+     * The annual interest rate of the loan, the rate of the quote of 1000 from market.csv
+     */
+    private static final BigDecimal ANNUAL_INTEREST_RATE = new BigDecimal("0.07");
+
+    /**
+     * Number of repayment periods
+     */
+    @Param({"36", "600"})
+    public int term;
+
+    private double monthlyRepayment;
+
+    private InverseRateTable table;
+
+    private final AnnuityFunction function = new AnnuityFunction(1, 1, 1);
+
+    private final RootSolution solution = new RootSolution();
+
+    @Setup
+    public void setUp() {
+        monthlyRepayment = AmortizedLoan.getMonthlyRepayment(BigDecimal.valueOf(PRINCIPAL), ANNUAL_INTEREST_RATE, term).doubleValue();
+        table = InverseRateTable.forTerm(term);
+    }
+
+    @Benchmark
+    public double getApproximateAnnualInterestRate() {
+        return AmortizedLoan.getApproximateAnnualInterestRate(PRINCIPAL, term, monthlyRepayment, function, solution);
+    }
+
+    @Benchmark
+    public double getApproximateAnnualInterestRateFromTable() {
+        return AmortizedLoan.getApproximateAnnualInterestRate(PRINCIPAL, term, monthlyRepayment, table, function, solution);
+    }
+
+    @Benchmark
+    public Object createTable() {
+        return new InverseRateTable(term);
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.hansonhsc.loan;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks rounding the monthly and total repayments of a quote to pennies with <code>Money</code> against the
+ * BigDecimal arithmetic of <code>LoanQuoteCalculator.createQuote</code>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MoneyBenchmark {
+    private static final int TERM = 36;
+
+    private long monthlyRepayment;
+
+    private BigDecimal monthlyRepaymentAsBigDecimal;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 1000 at 7% over 36 months
+        monthlyRepayment = ScaledAmortizedLoan.getMonthlyRepayment(1000, ScaledAmortizedLoan.toScaled(new BigDecimal("0.07")), TERM);
+        monthlyRepaymentAsBigDecimal = ScaledAmortizedLoan.toBigDecimal(monthlyRepayment);
+    }
+
+    @Benchmark
+    public long money() {
+        return Money.toPennies(monthlyRepayment, RoundingMode.HALF_UP) + Money.toPennies(monthlyRepayment * TERM, RoundingMode.UP);
+    }
+
+    @Benchmark
+    public Object bigDecimal() {
+        return monthlyRepaymentAsBigDecimal.setScale(2, RoundingMode.HALF_UP)
+                .add(monthlyRepaymentAsBigDecimal.multiply(new BigDecimal(TERM)).setScale(2, RoundingMode.UP));
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks quoting every loan amount allowed by the application, shuffled, in a single batch against quoting each of
+ * them separately
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BatchQuoteBenchmark {
+    /**
+     * Either the bundled market CSV or the number of lenders in a synthetic market
+     */
+    @Param({Markets.MARKET_CSV, "10000", "1000000"})
+    public String market;
+
+    /**
+     * The engine used to calculate the monthly repayment towards each lender
+     */
+    @Param({"BIG_DECIMAL", "SCALED_LONG"})
+    public RepaymentEngine repaymentEngine;
+
+    private LoanQuoteCalculator loanQuoteCalculator;
+
+    private int[] loanAmounts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        loanQuoteCalculator = new LoanQuoteCalculator(Markets.create(market), repaymentEngine);
+
+        loanAmounts = new int[(LoanQuoteApplication.MAX_LOAN_AMOUNT - LoanQuoteApplication.MIN_LOAN_AMOUNT) / LoanQuoteApplication.LOAN_AMOUNT_INCREMENT + 1];
+
+        for (int i = 0; i < loanAmounts.length; i++) {
+            loanAmounts[i] = LoanQuoteApplication.MIN_LOAN_AMOUNT + i * LoanQuoteApplication.LOAN_AMOUNT_INCREMENT;
+        }
+
+        // the batch must not rely on the loan amounts being requested in order
+        final Random random = new Random(42);
+
+        for (int i = loanAmounts.length - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final int loanAmount = loanAmounts[i];
+
+            loanAmounts[i] = loanAmounts[j];
+            loanAmounts[j] = loanAmount;
+        }
+    }
+
+    @Benchmark
+    public Object getQuotes() {
+        return loanQuoteCalculator.getQuotes(loanAmounts);
+    }
+
+    @Benchmark
+    public Object getQuoteForEach() {
+        final Object[] quotes = new Object[loanAmounts.length];
+
+        for (int i = 0; i < loanAmounts.length; i++) {
+            try {
+                quotes[i] = loanQuoteCalculator.getQuote(loanAmounts[i]);
+            } catch (InsufficientLendersException e) {
+                quotes[i] = e;
+            }
+        }
+
+        return quotes;
+    }
+}
@@ -0,0 +1,227 @@
+package com.github.hansonhsc.loan.quote;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A closed loop load driver for <code>LoanQuoteServer</code>. Each client thread sends <code>GET /quote</code> requests
+ * for random loan amounts one after another over a keep-alive connection, and the driver reports the throughput and
+ * the latency percentiles of the requests sent after the warmup.
+ * <p>
+ * Usage: <code>java -cp target/benchmarks.jar com.github.hansonhsc.loan.quote.LoadDriver [url|market_file]
+ * [--clients clients] [--warmup seconds] [--duration seconds] [--executor fixed|virtual] [--threads threads]</code>
+ * <p>
+ * Given a URL such as <code>http://localhost:8080/quote</code>, the driver loads an existing server. Given a market
+ * file, it starts a server in the same JVM on any free port, using the executor options of <code>serve</code>
+ */
+public final class LoadDriver {
+    /**
+     * the address of the quote endpoint
+     */
+    private final String url;
+
+    /**
+     * the number of client threads
+     */
+    private final int clients;
+
+    private LoadDriver(final String url, final int clients) {
+        this.url = url;
+        this.clients = clients;
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length < 1 || args.length % 2 != 1) {
+            System.out.println("Usage: LoadDriver [url|market_file] [--clients clients] [--warmup seconds] [--duration seconds] [--executor fixed|virtual] [--threads threads]");
+
+            return;
+        }
+
+        int clients = 8;
+        int warmupSeconds = 5;
+        int durationSeconds = 10;
+        String executorName = LoanQuoteServer.FIXED_EXECUTOR;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 1; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--clients":
+                    clients = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--warmup":
+                    warmupSeconds = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--duration":
+                    durationSeconds = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--executor":
+                    executorName = args[i + 1];
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid option: " + args[i]);
+            }
+        }
+
+        if (args[0].startsWith("http://") || args[0].startsWith("https://")) {
+            new LoadDriver(args[0], clients).run(warmupSeconds, durationSeconds);
+
+            return;
+        }
+
+        // measure the server as the serve command runs it
+        LoanQuoteServer.enableTcpNoDelay();
+
+        final ExecutorService executor = LoanQuoteServer.createExecutor(executorName, threads);
+        final LoanQuoteServer server = new LoanQuoteServer(LoanQuoteApplication.createLoanQuoteCalculator(args[0]), new InetSocketAddress("localhost", 0), executor);
+        server.start();
+
+        try {
+            System.out.println("Started a server with the " + executorName + " executor on port " + server.getPort());
+
+            new LoadDriver("http://localhost:" + server.getPort() + LoanQuoteServer.QUOTE_PATH, clients).run(warmupSeconds, durationSeconds);
+        } finally {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Sends requests from every client for the warmup and then the measurement, and prints the results of the
+     * measurement
+     * @param warmupSeconds the time to send requests for before measuring, in seconds
+     * @param durationSeconds the time to measure for, in seconds
+     */
+    private void run(final int warmupSeconds, final int durationSeconds) throws Exception {
+        final long start = System.nanoTime();
+        final long measurementStart = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        final long end = measurementStart + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        final ExecutorService clientExecutor = Executors.newFixedThreadPool(clients);
+
+        try {
+            final List<Future<ClientResult>> futures = new ArrayList<>();
+
+            for (int i = 0; i < clients; i++) {
+                futures.add(clientExecutor.submit(() -> runClient(measurementStart, end)));
+            }
+
+            long[] latencies = new long[0];
+            long errors = 0;
+
+            for (final Future<ClientResult> future : futures) {
+                final ClientResult result = future.get();
+
+                final int offset = latencies.length;
+                latencies = Arrays.copyOf(latencies, offset + result.size);
+                System.arraycopy(result.latencies, 0, latencies, offset, result.size);
+
+                errors += result.errors;
+            }
+
+            Arrays.sort(latencies);
+
+            System.out.println(String.format(Locale.ROOT, "clients: %d, requests: %d, errors: %d, requests/s: %.0f",
+                    clients, latencies.length, errors, latencies.length / (double) durationSeconds));
+
+            if (latencies.length > 0) {
+                System.out.println(String.format(Locale.ROOT, "latency (us): p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f",
+                        getPercentile(latencies, 0.5), getPercentile(latencies, 0.9), getPercentile(latencies, 0.99),
+                        getPercentile(latencies, 0.999), latencies[latencies.length - 1] / 1000.0));
+            }
+        } finally {
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Sends requests one after another until the end of the measurement, recording the latency of those sent after
+     * the warmup
+     * @param measurementStart the time that the measurement starts, from <code>System.nanoTime</code>
+     * @param end the time that the measurement ends, from <code>System.nanoTime</code>
+     * @return the latencies and number of errors of the client during the measurement
+     */
+    private ClientResult runClient(final long measurementStart, final long end) {
+        final ClientResult result = new ClientResult();
+        final byte[] buffer = new byte[1024];
+
+        for (long now = System.nanoTime(); now < end; now = System.nanoTime()) {
+            final int loanAmount = LoanQuoteApplication.MIN_LOAN_AMOUNT + LoanQuoteApplication.LOAN_AMOUNT_INCREMENT
+                    * ThreadLocalRandom.current().nextInt((LoanQuoteApplication.MAX_LOAN_AMOUNT - LoanQuoteApplication.MIN_LOAN_AMOUNT) / LoanQuoteApplication.LOAN_AMOUNT_INCREMENT + 1);
+
+            boolean successful;
+
+            try {
+                final HttpURLConnection connection = (HttpURLConnection) new URL(url + "?amount=" + loanAmount).openConnection();
+                final int status = connection.getResponseCode();
+
+                // read the whole body, so that the connection is kept alive for the next request
+                try (InputStream input = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                    while (input != null && input.read(buffer) >= 0) {
+                        // discard the body
+                    }
+                }
+
+                // insufficient lenders is a valid answer for the larger loan amounts
+                successful = status == 200 || status == 422;
+            } catch (IOException e) {
+                successful = false;
+            }
+
+            final long latency = System.nanoTime() - now;
+
+            if (now >= measurementStart) {
+                if (successful) {
+                    result.add(latency);
+                } else {
+                    result.errors++;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets a percentile of sorted latencies
+     * @param latencies the latencies in nanoseconds, sorted in ascending order
+     * @param percentile the percentile between 0 and 1
+     * @return the latency at the percentile in microseconds
+     */
+    private static double getPercentile(final long[] latencies, final double percentile) {
+        return latencies[(int) Math.min(latencies.length - 1, Math.ceil(percentile * latencies.length) - 1)] / 1000.0;
+    }
+
+    /**
+     * The latencies and number of errors of a single client
+     */
+    private static final class ClientResult {
+        private long[] latencies = new long[1024];
+
+        private int size;
+
+        private long errors;
+
+        private void add(final long latency) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+
+            latencies[size++] = latency;
+        }
+    }
+}
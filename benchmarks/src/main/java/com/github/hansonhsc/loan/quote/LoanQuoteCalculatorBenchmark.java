@@ -0,0 +1,88 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks quoting against markets of increasing depth, from the 7-row market CSV up to millions of lenders
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class LoanQuoteCalculatorBenchmark {
+    /**
+     * Either the bundled market CSV or the number of lenders in a synthetic market
+     */
+    @Param({Markets.MARKET_CSV, "10000", "1000000", "5000000"})
+    public String market;
+
+    /**
+     * The smallest and largest loan amounts allowed by the application. Note that the market CSV cannot satisfy the
+     * largest amount, so that combination measures the insufficient lenders path
+     */
+    @Param({"1000", "15000"})
+    public int loanAmount;
+
+    /**
+     * The engine used to calculate the monthly repayment towards each lender
+     */
+    @Param({"BIG_DECIMAL", "SCALED_LONG"})
+    public RepaymentEngine repaymentEngine;
+
+    /**
+     * Whether the lenders are stored in a <code>ColumnarLenderBook</code> rather than a list of <code>Lender</code> objects
+     */
+    @Param({"false", "true"})
+    public boolean columnar;
+
+    private LoanQuoteCalculator loanQuoteCalculator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        loanQuoteCalculator = columnar
+                ? new LoanQuoteCalculator(ColumnarLenderBook.of(Markets.create(market)), repaymentEngine)
+                : new LoanQuoteCalculator(Markets.create(market), repaymentEngine);
+    }
+
+    @Benchmark
+    public Object getLendersForLoan() {
+        try {
+            return loanQuoteCalculator.getLendersForLoan(loanAmount);
+        } catch (InsufficientLendersException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object getLenderAllocation() {
+        try {
+            return loanQuoteCalculator.getLenderAllocation(loanAmount);
+        } catch (InsufficientLendersException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object getQuote() {
+        try {
+            return loanQuoteCalculator.getQuote(loanAmount);
+        } catch (InsufficientLendersException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the start up of the application, i.e. getting the first quote from a market file, when the market is
+ * loaded from a market CSV file against when it is quoted from a mapped market snapshot in place
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class MappedLenderBookBenchmark {
+    /**
+     * The number of lenders in the market
+     */
+    @Param({"10000", "1000000"})
+    public int lenders;
+
+    /**
+     * The loan amount of the first quote
+     */
+    private static final int LOAN_AMOUNT = 1000;
+
+    private Path marketFile;
+
+    private Path snapshotFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        marketFile = Markets.writeCsv(Markets.create(Integer.toString(lenders)));
+
+        snapshotFile = Files.createTempFile("market", ".snapshot");
+        MappedLenderBook.write(ColumnarLenderBook.of(Markets.create(Integer.toString(lenders))), snapshotFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(marketFile);
+        Files.delete(snapshotFile);
+    }
+
+    @Benchmark
+    public Object loadCsvAndQuote() throws IOException, MarketParseException, InsufficientLendersException {
+        return new LoanQuoteCalculator(ParallelMarketLoader.load(marketFile), RepaymentEngine.BIG_DECIMAL).getQuote(LOAN_AMOUNT);
+    }
+
+    @Benchmark
+    public Object openSnapshotAndQuote() throws IOException, MarketParseException, InsufficientLendersException {
+        return new LoanQuoteCalculator(MappedLenderBook.open(snapshotFile), RepaymentEngine.BIG_DECIMAL).getQuote(LOAN_AMOUNT);
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.hansonhsc.loan.quote;
+
+import com.opencsv.bean.CsvToBeanBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks loading a market CSV file with OpenCSV bean binding against the streaming <code>MarketCsvParser</code>, and
+ * against <code>ParallelMarketLoader</code> which also sorts the lenders
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class MarketCsvParserBenchmark {
+    /**
+     * The number of lenders in the market file
+     */
+    @Param({"10000", "1000000"})
+    public int lenders;
+
+    private Path marketFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        marketFile = Markets.writeCsv(Markets.create(Integer.toString(lenders)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(marketFile);
+    }
+
+    @Benchmark
+    public Object openCsv() throws IOException {
+        try (final Reader reader = Files.newBufferedReader(marketFile, StandardCharsets.UTF_8)) {
+            return new CsvToBeanBuilder<Lender>(reader)
+                    .withType(Lender.class)
+                    .withThrowExceptions(true)
+                    .build()
+                    .parse();
+        }
+    }
+
+    @Benchmark
+    public Object marketCsvParser() throws IOException, MarketParseException {
+        return MarketCsvParser.parse(marketFile);
+    }
+
+    @Benchmark
+    public Object marketCsvParserAndSort() throws IOException, MarketParseException {
+        final ColumnarLenderBook book = MarketCsvParser.parse(marketFile);
+        book.sort();
+
+        return book;
+    }
+
+    @Benchmark
+    public Object parallelMarketLoader() throws IOException, MarketParseException {
+        return ParallelMarketLoader.load(marketFile);
+    }
+}
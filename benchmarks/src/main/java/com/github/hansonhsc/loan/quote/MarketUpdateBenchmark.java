@@ -0,0 +1,95 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks reloading a market file into a <code>VersionedMarket</code> where only some of the offers changed, by
+ * applying only the changes with <code>update</code> against rebuilding the whole book with <code>replaceAll</code>.
+ * Each invocation flips the market between two sets of offers that differ by <code>changes</code> offers
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class MarketUpdateBenchmark {
+    /**
+     * The number of lenders in a synthetic market
+     */
+    @Param({"100000", "1000000"})
+    public String market;
+
+    /**
+     * The number of offers that are amended, added or withdrawn by each reload
+     */
+    @Param({"10", "1000"})
+    public int changes;
+
+    private List<Lender> lenders;
+
+    private List<Lender> changedLenders;
+
+    private VersionedMarket versionedMarket;
+
+    private boolean changed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        lenders = Markets.create(market);
+        changedLenders = new ArrayList<>(lenders);
+
+        final Random random = new Random(42);
+
+        // mostly amendments, with a few lenders joining and leaving
+        for (int i = 0; i < changes; i++) {
+            final int index = random.nextInt(changedLenders.size());
+            final Lender lender = changedLenders.get(index);
+
+            if (i % 10 == 0) {
+                changedLenders.set(index, new Lender("Newcomer" + i, lender.getRate(), lender.getAmount()));
+            } else {
+                changedLenders.set(index, new Lender(lender.getName(), BigDecimal.valueOf(400 + random.nextInt(800), 4), lender.getAmount()));
+            }
+        }
+
+        versionedMarket = new VersionedMarket(RepaymentEngine.SCALED_LONG);
+        versionedMarket.replaceAll(lenders);
+        changed = false;
+    }
+
+    private List<Lender> next() {
+        changed = !changed;
+
+        return changed ? changedLenders : lenders;
+    }
+
+    @Benchmark
+    public Object update() {
+        return versionedMarket.update(next());
+    }
+
+    @Benchmark
+    public Object replaceAll() {
+        versionedMarket.replaceAll(next());
+
+        return versionedMarket.getCurrentVersion();
+    }
+}
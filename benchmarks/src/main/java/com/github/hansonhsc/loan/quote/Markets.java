@@ -0,0 +1,107 @@
+package com.github.hansonhsc.loan.quote;
+
+import com.opencsv.bean.CsvToBeanBuilder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Creates the markets of lenders used by the benchmarks
+ */
+final class Markets {
+    /**
+     * Name of the 7-row market CSV that is bundled as a resource, the same one used by the tests
+     */
+    static final String MARKET_CSV = "market.csv";
+
+    /**
+     * Seed for the synthetic markets, so that every benchmark run sees exactly the same lenders
+     */
+    private static final long SEED = 42;
+
+    private Markets() {
+    }
+
+    /**
+     * Creates a market of lenders
+     * @param market either <code>MARKET_CSV</code>, or the number of lenders to generate for a synthetic market
+     * @return a new mutable list of lenders, in no particular order
+     */
+    static List<Lender> create(final String market) {
+        return MARKET_CSV.equals(market) ? loadMarketCsv() : generate(Integer.parseInt(market));
+    }
+
+    /**
+     * Parses the bundled market CSV with OpenCSV
+     * @return the lenders in the bundled market CSV
+     */
+    private static List<Lender> loadMarketCsv() {
+        try (final Reader reader = new InputStreamReader(Markets.class.getResourceAsStream("/" + MARKET_CSV), StandardCharsets.UTF_8)) {
+            //noinspection unchecked
+            return new CsvToBeanBuilder(reader)
+                    .withType(Lender.class)
+                    .withThrowExceptions(true)
+                    .build()
+                    .parse();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a market to a temporary CSV file, quoting every other name so that the quoted path is exercised too
+     * @param lenders the lenders to write
+     * @return the path of the temporary file, which the caller should delete
+     * @throws IOException thrown if the file cannot be written
+     */
+    static Path writeCsv(final List<Lender> lenders) throws IOException {
+        final Path path = Files.createTempFile("market", ".csv");
+
+        try (final BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("Lender,Rate,Available\n");
+
+            for (int i = 0; i < lenders.size(); i++) {
+                final Lender lender = lenders.get(i);
+
+                writer.write(i % 2 == 0 ? lender.getName() : "\"" + lender.getName() + "\"");
+                writer.write(',');
+                writer.write(lender.getRate().toPlainString());
+                writer.write(',');
+                writer.write(Integer.toString(lender.getAmount()));
+                writer.write('\n');
+            }
+        }
+
+        return path;
+    }
+
+    /**
+     * Generates a deep market of many small offers, so that a large loan spans dozens of lenders
+     * @param size number of lenders to generate
+     * @return the generated lenders
+     */
+    private static List<Lender> generate(final int size) {
+        final Random random = new Random(SEED);
+        final List<Lender> lenders = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            // rates between 4% and 12% to 2 decimal places of a percent, amounts between £10 and £1000
+            final BigDecimal rate = BigDecimal.valueOf(400 + random.nextInt(800), 4);
+            final int amount = 10 * (1 + random.nextInt(100));
+
+            lenders.add(new Lender("Lender" + i, rate, amount));
+        }
+
+        return lenders;
+    }
+}
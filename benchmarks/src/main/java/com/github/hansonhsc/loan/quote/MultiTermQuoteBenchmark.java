@@ -0,0 +1,90 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks quoting a loan amount over every term of the product line, with <code>getQuotesForTerms</code> against a
+ * separate calculator for each term, as when each term was served by its own deployment
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class MultiTermQuoteBenchmark {
+    /**
+     * The terms of the product line, in months
+     */
+    private static final int[] TERMS = {12, 24, 36, 48, 60};
+
+    /**
+     * Either the bundled market CSV or the number of lenders in a synthetic market
+     */
+    @Param({Markets.MARKET_CSV, "10000", "1000000"})
+    public String market;
+
+    /**
+     * The smallest and largest loan amounts allowed by the application, where the largest borrows from many more
+     * lenders of a synthetic market
+     */
+    @Param({"1000", "15000"})
+    public int loanAmount;
+
+    /**
+     * The engine used to calculate the monthly repayment towards each lender
+     */
+    @Param({"BIG_DECIMAL", "SCALED_LONG"})
+    public RepaymentEngine repaymentEngine;
+
+    private LoanQuoteCalculator loanQuoteCalculator;
+
+    private LoanQuoteCalculator[] loanQuoteCalculators;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        loanQuoteCalculator = new LoanQuoteCalculator(Markets.create(market), repaymentEngine);
+        loanQuoteCalculators = new LoanQuoteCalculator[TERMS.length];
+
+        for (int i = 0; i < TERMS.length; i++) {
+            loanQuoteCalculators[i] = new LoanQuoteCalculator(Markets.create(market), repaymentEngine, TERMS[i]);
+        }
+    }
+
+    @Benchmark
+    public Object getQuotesForTerms() {
+        try {
+            return loanQuoteCalculator.getQuotesForTerms(loanAmount, TERMS);
+        } catch (InsufficientLendersException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object getQuoteForEachTerm() {
+        final LoanQuote[] quotes = new LoanQuote[TERMS.length];
+
+        try {
+            for (int i = 0; i < TERMS.length; i++) {
+                quotes[i] = loanQuoteCalculators[i].getQuote(loanAmount);
+            }
+        } catch (InsufficientLendersException e) {
+            return e;
+        }
+
+        return quotes;
+    }
+}
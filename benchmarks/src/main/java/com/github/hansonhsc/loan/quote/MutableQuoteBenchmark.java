@@ -0,0 +1,105 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks filling in a reused <code>MutableLoanQuote</code> against creating a <code>LoanQuote</code> for every
+ * quote. Run with <code>main</code> to check that the steady state of the mutable quote allocates nothing
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class MutableQuoteBenchmark {
+    /**
+     * The largest allocation per operation in bytes that is reported as allocation free, which allows for the
+     * profiler spreading the odd allocation of the harness over every operation
+     */
+    private static final double MAXIMUM_ALLOCATION = 16;
+
+    /**
+     * Either the bundled market CSV or the number of lenders in a synthetic market
+     */
+    @Param({Markets.MARKET_CSV, "10000"})
+    public String market;
+
+    /**
+     * The smallest loan amount allowed by the application and an amount that every market can satisfy
+     */
+    @Param({"1000", "2000"})
+    public int loanAmount;
+
+    /**
+     * The engine used to calculate the monthly repayment towards each lender
+     */
+    @Param({"BIG_DECIMAL", "SCALED_LONG"})
+    public RepaymentEngine repaymentEngine;
+
+    private LoanQuoteCalculator loanQuoteCalculator;
+
+    private final MutableLoanQuote result = new MutableLoanQuote();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        loanQuoteCalculator = new LoanQuoteCalculator(ColumnarLenderBook.of(Markets.create(market)), repaymentEngine);
+    }
+
+    @Benchmark
+    public Object getQuote() throws InsufficientLendersException {
+        return loanQuoteCalculator.getQuote(loanAmount);
+    }
+
+    @Benchmark
+    public Object getMutableQuote() throws InsufficientLendersException {
+        return loanQuoteCalculator.getQuote(loanAmount, result);
+    }
+
+    /**
+     * Runs the mutable quote benchmarks with the GC profiler and fails if any of them allocates
+     * @param args not used
+     * @throws RunnerException thrown if the benchmarks fail to run
+     */
+    public static void main(final String[] args) throws RunnerException {
+        final Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(MutableQuoteBenchmark.class.getName() + ".getMutableQuote$")
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+
+        boolean allocated = false;
+
+        for (final RunResult runResult : results) {
+            final Result<?> allocation = runResult.getSecondaryResults().get("gc.alloc.rate.norm");
+
+            if (allocation == null || allocation.getScore() > MAXIMUM_ALLOCATION) {
+                System.err.println(runResult.getParams() + ": " + (allocation == null ? "no allocation rate" : allocation.getScore() + " bytes/op"));
+                allocated = true;
+            }
+        }
+
+        if (allocated) {
+            throw new IllegalStateException("Mutable quotes should not allocate more than " + MAXIMUM_ALLOCATION + " bytes/op");
+        }
+    }
+}
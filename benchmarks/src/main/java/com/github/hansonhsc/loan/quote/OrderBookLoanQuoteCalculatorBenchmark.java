@@ -0,0 +1,72 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks amending a single offer and quoting against the new state of the market, with an order book against
+ * rebuilding a <code>LoanQuoteCalculator</code> from the whole market
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class OrderBookLoanQuoteCalculatorBenchmark {
+    /**
+     * The number of lenders in a synthetic market
+     */
+    @Param({"10000", "1000000"})
+    public String market;
+
+    private final Random random = new Random(42);
+
+    private List<Lender> lenders;
+
+    private OrderBookLoanQuoteCalculator orderBook;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        lenders = Markets.create(market);
+        orderBook = new OrderBookLoanQuoteCalculator();
+
+        for (final Lender lender : lenders) {
+            orderBook.add(lender.getName(), lender.getRate(), lender.getAmount());
+        }
+    }
+
+    @Benchmark
+    public Object amendAndQuote() throws InsufficientLendersException {
+        final Lender lender = lenders.get(random.nextInt(lenders.size()));
+
+        orderBook.amend(lender.getName(), BigDecimal.valueOf(400 + random.nextInt(800), 4), lender.getAmount());
+
+        return orderBook.getQuote(LoanQuoteApplication.MIN_LOAN_AMOUNT);
+    }
+
+    @Benchmark
+    public Object amendAndRebuild() throws InsufficientLendersException {
+        final Lender lender = lenders.get(random.nextInt(lenders.size()));
+
+        lender.setRate(BigDecimal.valueOf(400 + random.nextInt(800), 4));
+
+        return new LoanQuoteCalculator(new ArrayList<>(lenders)).getQuote(LoanQuoteApplication.MIN_LOAN_AMOUNT);
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the cost of precomputing the quote grid when a market is loaded, and of looking up a quote afterwards
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PrecomputedLoanQuoteCalculatorBenchmark {
+    /**
+     * Either the bundled market CSV or the number of lenders in a synthetic market
+     */
+    @Param({Markets.MARKET_CSV, "10000", "1000000"})
+    public String market;
+
+    /**
+     * The engine used to calculate the monthly repayment towards each lender
+     */
+    @Param({"BIG_DECIMAL", "SCALED_LONG"})
+    public RepaymentEngine repaymentEngine;
+
+    private List<Lender> lenders;
+
+    private LoanQuoteCalculator loanQuoteCalculator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        lenders = Markets.create(market);
+        loanQuoteCalculator = new PrecomputedLoanQuoteCalculator(new ArrayList<>(lenders), repaymentEngine);
+    }
+
+    @Benchmark
+    public Object precomputeQuotes() {
+        return new PrecomputedLoanQuoteCalculator(new ArrayList<>(lenders), repaymentEngine);
+    }
+
+    @Benchmark
+    public Object getQuote() {
+        try {
+            return loanQuoteCalculator.getQuote(LoanQuoteApplication.MIN_LOAN_AMOUNT);
+        } catch (InsufficientLendersException e) {
+            return e;
+        }
+    }
+}
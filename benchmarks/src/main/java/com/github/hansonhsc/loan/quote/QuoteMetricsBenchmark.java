@@ -0,0 +1,80 @@
+package com.github.hansonhsc.loan.quote;
+
+import com.github.hansonhsc.loan.metrics.LogHistogram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the overhead of recording <code>QuoteMetrics</code>, by quoting with metrics recorded against quoting with
+ * metrics turned off, along with the cost of recording a single value into a <code>LogHistogram</code>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class QuoteMetricsBenchmark {
+    @State(Scope.Benchmark)
+    public static class Quoting {
+        /**
+         * Either the bundled market CSV or the number of lenders in a synthetic market
+         */
+        @Param({Markets.MARKET_CSV, "10000", "1000000"})
+        public String market;
+
+        /**
+         * The engine used to calculate the monthly repayment towards each lender
+         */
+        @Param({"BIG_DECIMAL", "SCALED_LONG"})
+        public RepaymentEngine repaymentEngine;
+
+        /**
+         * Whether metrics are recorded
+         */
+        @Param({"false", "true"})
+        public boolean enabled;
+
+        private LoanQuoteCalculator loanQuoteCalculator;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            loanQuoteCalculator = new LoanQuoteCalculator(Markets.create(market), repaymentEngine);
+            loanQuoteCalculator.setMetrics(new QuoteMetrics(enabled));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Recording {
+        private final LogHistogram histogram = new LogHistogram("nanoseconds");
+
+        private long value;
+    }
+
+    @Benchmark
+    public Object getQuote(final Quoting quoting) {
+        try {
+            return quoting.loanQuoteCalculator.getQuote(1000);
+        } catch (InsufficientLendersException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public void record(final Recording recording) {
+        // spread the values over many buckets, as latencies would be
+        recording.value = recording.value * 6364136223846793005L + 1442695040888963407L;
+        recording.histogram.record(recording.value >>> 40);
+    }
+}
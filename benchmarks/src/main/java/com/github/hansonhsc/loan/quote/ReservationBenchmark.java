@@ -0,0 +1,75 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks booking loans against a shared ledger from several threads at once. Every booking is cancelled so that
+ * the lenders never run out, which makes each operation a reservation followed by a release of the same lenders
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ReservationBenchmark {
+    /**
+     * The number of lenders in a synthetic market
+     */
+    @Param({"10000", "1000000"})
+    public String market;
+
+    private CapacityLedger ledger;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ledger = new CapacityLedger(new LoanQuoteCalculator(Markets.create(market), RepaymentEngine.SCALED_LONG));
+    }
+
+    private int nextLoanAmount() {
+        return LoanQuoteApplication.MIN_LOAN_AMOUNT + ThreadLocalRandom.current().nextInt(LoanQuoteApplication.MAX_LOAN_AMOUNT - LoanQuoteApplication.MIN_LOAN_AMOUNT);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object reserveAndCancel() throws InsufficientLendersException {
+        final Reservation reservation = ledger.reserve(nextLoanAmount());
+        reservation.cancel();
+
+        return reservation;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object reserveAndCancelContended() throws InsufficientLendersException {
+        final Reservation reservation = ledger.reserve(nextLoanAmount());
+        reservation.cancel();
+
+        return reservation;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object reserveQuoteAndCancelContended() throws InsufficientLendersException {
+        final Reservation reservation = ledger.reserve(nextLoanAmount());
+        final LoanQuote quote = reservation.getQuote();
+        reservation.cancel();
+
+        return quote;
+    }
+}
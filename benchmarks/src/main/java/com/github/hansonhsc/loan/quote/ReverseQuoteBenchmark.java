@@ -0,0 +1,73 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks finding the largest loan amount at or below a rate with a reverse query against quoting every loan amount
+ * allowed by <code>LoanQuoteApplication</code> in turn
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ReverseQuoteBenchmark {
+    /**
+     * The highest rate to quote at, in percentage format
+     */
+    private static final BigDecimal MAXIMUM_RATE = new BigDecimal("7.0");
+
+    /**
+     * Either the bundled market CSV or the number of lenders in a synthetic market
+     */
+    @Param({Markets.MARKET_CSV, "10000"})
+    public String market;
+
+    private LoanQuoteCalculator loanQuoteCalculator;
+
+    private final MutableLoanQuote result = new MutableLoanQuote();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        loanQuoteCalculator = new LoanQuoteCalculator(ColumnarLenderBook.of(Markets.create(market)), RepaymentEngine.SCALED_LONG);
+    }
+
+    @Benchmark
+    public int quoteEveryLoanAmount() {
+        int maximumLoanAmount = 0;
+
+        for (int loanAmount = LoanQuoteApplication.MIN_LOAN_AMOUNT; loanAmount <= LoanQuoteApplication.MAX_LOAN_AMOUNT;
+             loanAmount += LoanQuoteApplication.LOAN_AMOUNT_INCREMENT) {
+            try {
+                if (loanQuoteCalculator.getQuote(loanAmount, result).getRateInTenthsOfPercent() <= 70) {
+                    maximumLoanAmount = loanAmount;
+                }
+            } catch (InsufficientLendersException e) {
+                break;
+            }
+        }
+
+        return maximumLoanAmount;
+    }
+
+    @Benchmark
+    public OptionalInt getMaximumLoanAmountForRate() {
+        return loanQuoteCalculator.getMaximumLoanAmountForRate(MAXIMUM_RATE, LoanQuoteApplication.LOAN_AMOUNT_INCREMENT);
+    }
+}
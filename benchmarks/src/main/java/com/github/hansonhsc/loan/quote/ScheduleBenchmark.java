@@ -0,0 +1,177 @@
+package com.github.hansonhsc.loan.quote;
+
+import com.github.hansonhsc.loan.AmortizationScheduleGenerator;
+import com.github.hansonhsc.loan.AmortizedLoan;
+import com.github.hansonhsc.loan.ScheduleConsumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks generating the amortization schedule of a loan with a slice for each of its lenders, to a consumer that
+ * only adds up the rows and written as CSV to a writer that discards it, against a schedule calculated with BigDecimal
+ * arithmetic and a row object for every lender every month, as the servicing system did
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ScheduleBenchmark {
+    /**
+     * The number of lenders in a synthetic market
+     */
+    @Param({"10000"})
+    public String market;
+
+    /**
+     * The smallest and largest loan amounts allowed by the application, where the largest borrows from many more
+     * lenders
+     */
+    @Param({"1000", "15000"})
+    public int loanAmount;
+
+    /**
+     * The total number of repayment months of the loan
+     */
+    @Param({"36", "360"})
+    public int term;
+
+    private LoanQuoteCalculator loanQuoteCalculator;
+
+    private LenderAllocation allocation;
+
+    private final AmortizationScheduleGenerator generator = new AmortizationScheduleGenerator();
+
+    private final SummingConsumer consumer = new SummingConsumer();
+
+    private ScheduleWriter scheduleWriter;
+
+    private String input;
+
+    /**
+     * Discards everything that is written to it
+     */
+    private static final class NullWriter extends Writer {
+        @Override
+        public void write(final char[] buffer, final int offset, final int length) {
+        }
+
+        @Override
+        public void write(final String string) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Adds up every row, so that none of them can be eliminated
+     */
+    private static final class SummingConsumer implements ScheduleConsumer {
+        private long sum;
+
+        @Override
+        public void acceptSlice(final int slice, final int month, final long payment, final long interest,
+                                final long principal, final long balance) {
+            sum += payment + interest + principal + balance;
+        }
+
+        @Override
+        public void acceptLoan(final int month, final long payment, final long interest, final long principal,
+                               final long balance) {
+            sum += payment + interest + principal + balance;
+        }
+    }
+
+    /**
+     * A row of a schedule as the servicing system represented it
+     */
+    private static final class Row {
+        private final int month;
+        private final BigDecimal payment;
+        private final BigDecimal interest;
+        private final BigDecimal principal;
+        private final BigDecimal balance;
+
+        private Row(final int month, final BigDecimal payment, final BigDecimal interest, final BigDecimal principal,
+                    final BigDecimal balance) {
+            this.month = month;
+            this.payment = payment;
+            this.interest = interest;
+            this.principal = principal;
+            this.balance = balance;
+        }
+    }
+
+    private final NullWriter output = new NullWriter();
+
+    @Setup(Level.Trial)
+    public void setUp() throws InsufficientLendersException {
+        loanQuoteCalculator = new LoanQuoteCalculator(Markets.create(market), RepaymentEngine.SCALED_LONG, term);
+        allocation = loanQuoteCalculator.getLenderAllocation(loanAmount);
+        scheduleWriter = new ScheduleWriter(loanQuoteCalculator);
+        input = Integer.toString(loanAmount);
+    }
+
+    @Benchmark
+    public long generateSchedule() throws InsufficientLendersException, IOException {
+        loanQuoteCalculator.generateSchedule(loanAmount, generator, consumer);
+
+        return consumer.sum;
+    }
+
+    @Benchmark
+    public long writeSchedule() throws IOException {
+        return scheduleWriter.write(new BufferedReader(new StringReader(input)), output);
+    }
+
+    @Benchmark
+    public Object bigDecimalSchedule() {
+        final Row[] rows = new Row[allocation.size() * term];
+        final BigDecimal twelve = new BigDecimal(12);
+
+        for (int i = 0; i < allocation.size(); i++) {
+            final BigDecimal rate = allocation.getRate(i);
+            final BigDecimal monthlyInterestRate = rate.divide(twelve, 10, RoundingMode.HALF_UP);
+            final BigDecimal payment = AmortizedLoan.getMonthlyRepayment(new BigDecimal(allocation.getLoanAmount(i)), rate, term)
+                    .setScale(2, RoundingMode.HALF_UP);
+
+            BigDecimal balance = new BigDecimal(allocation.getLoanAmount(i)).setScale(2);
+
+            for (int month = 1; month <= term; month++) {
+                final BigDecimal interest = balance.multiply(monthlyInterestRate).setScale(2, RoundingMode.HALF_UP);
+                final BigDecimal monthPayment = month == term ? balance.add(interest) : payment;
+                final BigDecimal principal = monthPayment.subtract(interest);
+
+                balance = balance.subtract(principal);
+                rows[i * term + month - 1] = new Row(month, monthPayment, interest, principal, balance);
+            }
+        }
+
+        return rows;
+    }
+}
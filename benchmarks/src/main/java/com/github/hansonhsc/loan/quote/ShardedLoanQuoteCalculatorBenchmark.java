@@ -0,0 +1,88 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks quoting from a market split into shards, which are merged lazily for every quote, against quoting from
+ * a single sorted book of the same lenders
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ShardedLoanQuoteCalculatorBenchmark {
+    /**
+     * The number of lenders in the synthetic market
+     */
+    @Param({"100000"})
+    public String market;
+
+    /**
+     * The number of shards that the lenders are dealt between
+     */
+    @Param({"1", "4", "16"})
+    public int shardCount;
+
+    /**
+     * The smallest loan amount allowed by the application and the largest
+     */
+    @Param({"1000", "15000"})
+    public int loanAmount;
+
+    private LoanQuoteCalculator loanQuoteCalculator;
+
+    private ShardedLoanQuoteCalculator shardedLoanQuoteCalculator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final List<Lender> lenders = Markets.create(market);
+        final List<List<Lender>> shards = new ArrayList<>();
+
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < lenders.size(); i++) {
+            shards.get(i % shardCount).add(lenders.get(i));
+        }
+
+        final List<ColumnarLenderBook> books = new ArrayList<>();
+
+        for (final List<Lender> shard : shards) {
+            final ColumnarLenderBook book = ColumnarLenderBook.of(shard);
+
+            book.sort();
+            books.add(book);
+        }
+
+        loanQuoteCalculator = new LoanQuoteCalculator(ColumnarLenderBook.of(lenders), RepaymentEngine.SCALED_LONG);
+        shardedLoanQuoteCalculator = new ShardedLoanQuoteCalculator(books, RepaymentEngine.SCALED_LONG);
+    }
+
+    @Benchmark
+    public Object getQuote() throws InsufficientLendersException {
+        return loanQuoteCalculator.getQuote(loanAmount);
+    }
+
+    @Benchmark
+    public Object getShardedQuote() throws InsufficientLendersException {
+        return shardedLoanQuoteCalculator.getQuote(loanAmount);
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the throughput of quoting against a <code>VersionedMarket</code> from several threads, on its own and
+ * while another thread amends offers as fast as it can, against quoting the same lenders with a single immutable
+ * <code>LoanQuoteCalculator</code>. The quote throughput should be about the same in every group
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Group)
+public class VersionedMarketBenchmark {
+    /**
+     * The number of lenders in a synthetic market
+     */
+    @Param({"10000", "1000000"})
+    public String market;
+
+    private List<Lender> lenders;
+
+    private LoanQuoteCalculator loanQuoteCalculator;
+
+    private VersionedMarket versionedMarket;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        lenders = Markets.create(market);
+        loanQuoteCalculator = new LoanQuoteCalculator(lenders, RepaymentEngine.SCALED_LONG);
+
+        versionedMarket = new VersionedMarket(RepaymentEngine.SCALED_LONG);
+        versionedMarket.replaceAll(lenders);
+    }
+
+    private Object quote() {
+        try {
+            return versionedMarket.getQuote(LoanQuoteApplication.MAX_LOAN_AMOUNT);
+        } catch (InsufficientLendersException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    @Group("calculator")
+    @GroupThreads(3)
+    public Object calculatorQuote() {
+        try {
+            return loanQuoteCalculator.getQuote(LoanQuoteApplication.MAX_LOAN_AMOUNT);
+        } catch (InsufficientLendersException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    @Group("quoteOnly")
+    @GroupThreads(3)
+    public Object quoteOnlyQuote() {
+        return quote();
+    }
+
+    @Benchmark
+    @Group("quoteWhileUpdating")
+    @GroupThreads(3)
+    public Object quoteWhileUpdatingQuote() {
+        return quote();
+    }
+
+    @Benchmark
+    @Group("quoteWhileUpdating")
+    @GroupThreads(1)
+    public Object quoteWhileUpdatingAmend() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final Lender lender = lenders.get(random.nextInt(lenders.size()));
+
+        versionedMarket.amend(lender.getName(), BigDecimal.valueOf(400 + random.nextInt(800), 4), lender.getAmount());
+
+        return versionedMarket.getCurrentVersion();
+    }
+}
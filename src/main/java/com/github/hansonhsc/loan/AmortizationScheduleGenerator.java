@@ -0,0 +1,423 @@
+package com.github.hansonhsc.loan;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static java.math.RoundingMode.HALF_UP;
+
+/**
+ * Generates the month by month amortization schedule of a loan that is split into slices, e.g. one for each lender,
+ * with the interest, principal and remaining balance of every repayment of every slice and of the whole loan. Rows are
+ * passed to a <code>ScheduleConsumer</code> as they are generated, in pennies, so a schedule is never held in memory
+ * and no objects are created for a row. A generator is reused from one loan to the next with <code>reset</code>, and
+ * is not thread safe.
+ * <p>
+ * The exact monthly repayment of a loan is a fraction of a penny, so the monthly repayments of its schedule are whole
+ * pennies that add up to the total repayment of the quote, i.e. the exact monthly repayment multiplied by the term and
+ * rounded up to a penny. Rather than adjusting the last repayment, the pennies are spread over the term, so every
+ * repayment of the loan is within a penny of every other. The total of the loan is apportioned between its slices in
+ * proportion to their exact totals, and each repayment of the loan is apportioned between its slices so that each
+ * slice has repaid as close to its share of the loan as possible every month.
+ * <p>
+ * The interest of each repayment of a slice is its balance multiplied by the monthly interest rate, rounded half up to
+ * a penny, and the rest of the repayment repays the principal. The last repayment repays the remaining balance, so the
+ * rounding of every month is absorbed by the interest of the last repayment
+ */
+public final class AmortizationScheduleGenerator {
+    /**
+     * The number of pennies in a pound
+     */
+    private static final int PENNIES = 100;
+
+    /**
+     * The fixed point representation of a penny, see <code>ScaledAmortizedLoan</code>
+     */
+    private static final long SCALED_PENNY = ScaledAmortizedLoan.ONE / PENNIES;
+
+    /**
+     * The number of slices that the arrays are created for
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * the number of repayment months of the loan, or 0 if the generator has not been reset
+     */
+    private int numberOfPaymentPeriods;
+
+    /**
+     * the number of slices of the loan
+     */
+    private int size;
+
+    /**
+     * the principal of each slice in pennies
+     */
+    private long[] principals = new long[INITIAL_CAPACITY];
+
+    /**
+     * the fixed point monthly interest rate of each slice
+     */
+    private long[] monthlyInterestRates = new long[INITIAL_CAPACITY];
+
+    /**
+     * the exact fixed point monthly repayment of each slice
+     */
+    private long[] monthlyRepayments = new long[INITIAL_CAPACITY];
+
+    /**
+     * the total repayment of each slice in pennies, once apportioned
+     */
+    private long[] totalRepayments = new long[INITIAL_CAPACITY];
+
+    /**
+     * the amount each slice has repaid so far in pennies, while generating
+     */
+    private long[] repaid = new long[INITIAL_CAPACITY];
+
+    /**
+     * the remaining balance of each slice in pennies, while generating
+     */
+    private long[] balances = new long[INITIAL_CAPACITY];
+
+    /**
+     * the amount each slice is behind its share of the loan this month in 1/<code>numberOfPaymentPeriods</code> of a
+     * penny, while generating
+     */
+    private long[] deficits = new long[INITIAL_CAPACITY];
+
+    /**
+     * the repayment of each slice this month in pennies, while generating
+     */
+    private long[] payments = new long[INITIAL_CAPACITY];
+
+    /**
+     * the remainders and indices of the slices that are competing for a penny, packed into sortable longs
+     */
+    private long[] keys = new long[INITIAL_CAPACITY];
+
+    /**
+     * the total repayment of the loan in pennies, or -1 if it has not been apportioned between the slices
+     */
+    private long totalRepayment = -1;
+
+    /**
+     * Starts a new loan, removing every slice of the previous one
+     * @param numberOfPaymentPeriods number of repayment periods
+     * @throws IllegalArgumentException thrown if the number of payment periods is not positive
+     */
+    public void reset(final int numberOfPaymentPeriods) {
+        if (numberOfPaymentPeriods <= 0) {
+            throw new IllegalArgumentException("Number of payment periods must be positive");
+        }
+
+        this.numberOfPaymentPeriods = numberOfPaymentPeriods;
+        size = 0;
+        totalRepayment = -1;
+    }
+
+    /**
+     * Adds a slice to the loan, calculating its monthly repayment with <code>ScaledAmortizedLoan.getMonthlyRepayment</code>
+     * @param principal the initial loan amount of the slice in whole units
+     * @param annualInterestRate the fixed point annual interest rate of the slice in decimal form
+     * @throws IllegalArgumentException thrown if the principal or rate is negative
+     */
+    public void addSlice(final long principal, final long annualInterestRate) {
+        checkReset();
+
+        addSlice(principal, annualInterestRate, ScaledAmortizedLoan.getMonthlyRepayment(principal, annualInterestRate, numberOfPaymentPeriods));
+    }
+
+    /**
+     * Adds a slice to the loan whose monthly repayment is already known, e.g. from an <code>AnnuityFactor</code>
+     * @param principal the initial loan amount of the slice in whole units
+     * @param annualInterestRate the fixed point annual interest rate of the slice in decimal form
+     * @param monthlyRepayment the fixed point monthly repayment of the slice, as calculated by
+     *                         <code>ScaledAmortizedLoan.getMonthlyRepayment</code>
+     * @throws IllegalArgumentException thrown if the principal, rate or monthly repayment is negative
+     * @throws ArithmeticException thrown if the principal in pennies cannot be represented
+     */
+    public void addSlice(final long principal, final long annualInterestRate, final long monthlyRepayment) {
+        checkReset();
+
+        if (principal < 0) {
+            throw new IllegalArgumentException("Principal must be non-negative");
+        } else if (annualInterestRate < 0) {
+            throw new IllegalArgumentException("Annual interest rate must be non-negative");
+        } else if (monthlyRepayment < 0) {
+            throw new IllegalArgumentException("Monthly repayment must be non-negative");
+        }
+
+        if (size == principals.length) {
+            grow();
+        }
+
+        principals[size] = Math.multiplyExact(principal, PENNIES);
+        monthlyInterestRates[size] = ScaledAmortizedLoan.getMonthlyInterestRate(annualInterestRate);
+        monthlyRepayments[size] = monthlyRepayment;
+        size++;
+        totalRepayment = -1;
+    }
+
+    /**
+     * Gets the number of slices of the loan
+     * @return the number of slices added since the generator was reset
+     */
+    public int getSliceCount() {
+        return size;
+    }
+
+    /**
+     * Gets the total repayment of the loan, which is the sum of the exact monthly repayments of its slices multiplied
+     * by the term and rounded up to a penny, the same as the total repayment of a quote for the loan
+     * @return the total repayment of the loan in pennies
+     * @throws ArithmeticException thrown if the total repayment cannot be represented
+     */
+    public long getTotalRepayment() {
+        apportionTotalRepayment();
+
+        return totalRepayment;
+    }
+
+    /**
+     * Gets the total repayment of a slice, which is its share of the total repayment of the loan
+     * @param slice the index of the slice, in the order that the slices were added
+     * @return the total repayment of the slice in pennies
+     * @throws ArithmeticException thrown if the total repayment cannot be represented
+     */
+    public long getTotalRepayment(final int slice) {
+        checkSlice(slice);
+        apportionTotalRepayment();
+
+        return totalRepayments[slice];
+    }
+
+    /**
+     * Generates the schedule of the loan, passing each month the row of every slice, in the order that they were
+     * added, followed by the row of the whole loan to the consumer
+     * @param consumer the consumer of the rows
+     * @throws IOException thrown if the consumer cannot write a row
+     * @throws ArithmeticException thrown if the repayments cannot be represented, before any row is passed to the
+     * consumer
+     */
+    public void generate(final ScheduleConsumer consumer) throws IOException {
+        apportionTotalRepayment();
+
+        final int n = numberOfPaymentPeriods;
+
+        // the largest product of a total repayment and a month, so that a schedule fails before its first row rather
+        // than part of the way through
+        Math.multiplyExact(totalRepayment, n);
+
+        long loanBalance = 0;
+
+        for (int i = 0; i < size; i++) {
+            repaid[i] = 0;
+            balances[i] = principals[i];
+            loanBalance += principals[i];
+        }
+
+        for (int month = 1; month <= n; month++) {
+            // the loan has repaid floor(total * month / n) by the end of each month, so no repayment is a penny more than another
+            final long loanPayment = Math.multiplyExact(totalRepayment, month) / n - Math.multiplyExact(totalRepayment, month - 1) / n;
+
+            apportionPayment(month, loanPayment);
+
+            long loanInterest = 0;
+
+            for (int i = 0; i < size; i++) {
+                final long payment = payments[i];
+                final long balance = balances[i];
+                final long interest = month == n ? payment - balance : getInterest(balance, monthlyInterestRates[i]);
+                final long principal = payment - interest;
+
+                repaid[i] += payment;
+                balances[i] = balance - principal;
+                loanInterest += interest;
+
+                consumer.acceptSlice(i, month, payment, interest, principal, balance - principal);
+            }
+
+            loanBalance -= loanPayment - loanInterest;
+
+            consumer.acceptLoan(month, loanPayment, loanInterest, loanPayment - loanInterest, loanBalance);
+        }
+    }
+
+    /**
+     * Apportions the total repayment of the loan between its slices: each slice repays its exact total rounded down to a
+     * penny, and the pennies that the loan is rounded up by go to the slices with the largest fractions of a penny,
+     * then the lowest indices
+     */
+    private void apportionTotalRepayment() {
+        checkReset();
+
+        if (totalRepayment >= 0) {
+            return;
+        }
+
+        long total = 0;
+        long fractions = 0;
+
+        for (int i = 0; i < size; i++) {
+            final long exactTotal = Math.multiplyExact(monthlyRepayments[i], numberOfPaymentPeriods);
+
+            totalRepayments[i] = exactTotal / SCALED_PENNY;
+            deficits[i] = exactTotal % SCALED_PENNY;
+            total = Math.addExact(total, totalRepayments[i]);
+            fractions += deficits[i];
+        }
+
+        // the fractions add up to less than a penny for each slice, so this is at most the number of slices
+        final long roundedUpPennies = (fractions + SCALED_PENNY - 1) / SCALED_PENNY;
+        int count = 0;
+
+        for (int i = 0; i < size; i++) {
+            if (deficits[i] > 0) {
+                keys[count++] = pack(deficits[i], i);
+            }
+        }
+
+        Arrays.sort(keys, 0, count);
+
+        for (int j = count - 1; j >= count - roundedUpPennies; j--) {
+            totalRepayments[unpack(keys[j])]++;
+        }
+
+        totalRepayment = total + roundedUpPennies;
+    }
+
+    /**
+     * Apportions a repayment of the loan between its slices. A slice is owed <code>total * month / n</code> pennies by
+     * the end of the month, and each slice repays the whole pennies it is behind by, then the remaining pennies go to
+     * the slices that are furthest behind. A slice is never paid more than it is behind, rounded up to a penny, so no
+     * slice is ever a penny or more ahead of its share, and every slice repays exactly its total in the last month
+     * @param month the month of the repayment, from 1 to the term of the loan
+     * @param loanPayment the repayment of the loan in pennies
+     */
+    private void apportionPayment(final int month, final long loanPayment) {
+        final int n = numberOfPaymentPeriods;
+
+        long total = 0;
+
+        for (int i = 0; i < size; i++) {
+            final long deficit = Math.multiplyExact(totalRepayments[i], month) - repaid[i] * n;
+            final long payment = deficit > 0 ? deficit / n : 0;
+
+            deficits[i] = deficit;
+            payments[i] = payment;
+            total += payment;
+        }
+
+        if (total < loanPayment) {
+            // the slices with a fraction of a penny outstanding can take at least the remaining pennies between them
+            int count = 0;
+
+            for (int i = 0; i < size; i++) {
+                final long remainder = deficits[i] - payments[i] * n;
+
+                if (remainder > 0) {
+                    keys[count++] = pack(remainder, i);
+                }
+            }
+
+            Arrays.sort(keys, 0, count);
+
+            for (int j = count - 1; total < loanPayment; j--) {
+                payments[unpack(keys[j])]++;
+                total++;
+            }
+        }
+
+        // only when slices that are ahead of their share have left too few pennies for the rest
+        while (total > loanPayment) {
+            int count = 0;
+
+            for (int i = 0; i < size; i++) {
+                if (payments[i] > 0) {
+                    keys[count++] = pack(deficits[i] - payments[i] * n, i);
+                }
+            }
+
+            Arrays.sort(keys, 0, count);
+
+            for (int j = 0; j < count && total > loanPayment; j++) {
+                payments[unpack(keys[j])]--;
+                total--;
+            }
+        }
+    }
+
+    /**
+     * Calculates the interest of a month, rounded half up to a penny
+     * @param balance the balance at the start of the month in pennies
+     * @param monthlyInterestRate the fixed point monthly interest rate
+     * @return the interest in pennies
+     */
+    private static long getInterest(final long balance, final long monthlyInterestRate) {
+        try {
+            return ScaledAmortizedLoan.divideHalfUp(Math.multiplyExact(balance, monthlyInterestRate), ScaledAmortizedLoan.ONE);
+        } catch (ArithmeticException e) {
+            return BigDecimal.valueOf(balance).multiply(ScaledAmortizedLoan.toBigDecimal(monthlyInterestRate))
+                    .setScale(0, HALF_UP).longValueExact();
+        }
+    }
+
+    /**
+     * Packs a non-negative remainder and the index of its slice into a long that sorts by remainder, then by the
+     * lowest index last
+     * @param remainder the remainder, less than 2<sup>31</sup>
+     * @param index the index of the slice
+     * @return the packed long
+     */
+    private static long pack(final long remainder, final int index) {
+        return remainder << Integer.SIZE | (0xFFFF_FFFFL - index);
+    }
+
+    /**
+     * Gets the index of the slice from a packed long
+     * @param key the packed long, from <code>pack</code>
+     * @return the index of the slice
+     */
+    private static int unpack(final long key) {
+        return (int) (0xFFFF_FFFFL - (key & 0xFFFF_FFFFL));
+    }
+
+    /**
+     * Doubles the capacity of the arrays of the slices
+     */
+    private void grow() {
+        final int capacity = principals.length * 2;
+
+        principals = Arrays.copyOf(principals, capacity);
+        monthlyInterestRates = Arrays.copyOf(monthlyInterestRates, capacity);
+        monthlyRepayments = Arrays.copyOf(monthlyRepayments, capacity);
+        totalRepayments = Arrays.copyOf(totalRepayments, capacity);
+        repaid = Arrays.copyOf(repaid, capacity);
+        balances = Arrays.copyOf(balances, capacity);
+        deficits = Arrays.copyOf(deficits, capacity);
+        payments = Arrays.copyOf(payments, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+    }
+
+    /**
+     * Checks that the generator has been reset with a term
+     * @throws IllegalStateException thrown if <code>reset</code> has never been called
+     */
+    private void checkReset() {
+        if (numberOfPaymentPeriods == 0) {
+            throw new IllegalStateException("The generator must be reset with the number of payment periods first");
+        }
+    }
+
+    /**
+     * Checks the index of a slice
+     * @param slice the index of the slice
+     * @throws IndexOutOfBoundsException thrown if the slice has not been added
+     */
+    private void checkSlice(final int slice) {
+        if (slice < 0 || slice >= size) {
+            throw new IndexOutOfBoundsException("Slice: " + slice + ", slices: " + size);
+        }
+    }
+}
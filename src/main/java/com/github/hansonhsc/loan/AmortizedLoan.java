@@ -1,7 +1,14 @@
 package com.github.hansonhsc.loan;
 
+import com.github.hansonhsc.loan.solver.BrentSolver;
+import com.github.hansonhsc.loan.solver.HalleySolver;
+import com.github.hansonhsc.loan.solver.NewtonRaphsonSolver;
+import com.github.hansonhsc.loan.solver.RootSolution;
+import com.github.hansonhsc.loan.solver.RootSolver;
+
 import java.math.BigDecimal;
-import java.util.function.Function;
+import java.math.MathContext;
+import java.math.RoundingMode;
 
 import static java.math.RoundingMode.HALF_UP;
 
@@ -11,15 +18,43 @@ import static java.math.RoundingMode.HALF_UP;
 public final class AmortizedLoan {
 
     /**
-     * Used in <code>newtonRaphsonMethod</code> to progress towards zero
+     * The solvers stop once the absolute value of the annuity function is no greater than this
      */
     private static final double EPSILON = 0.00001;
 
+    /**
+     * The solvers only iterate a maximum of 1000 times, they should only iterate more than that if the interest rate is
+     * very high, but then we don't need that much accuracy
+     */
+    private static final int MAXIMUM_ITERATIONS = 1000;
+
     /**
      * The scale used in all BigDecimal calculations
      */
     private static final int SCALE = 10;
 
+    /**
+     * The number of significant digits beyond <code>SCALE</code> and the number of digits of the term that the
+     * discount factor is approximated to, so that its error is far smaller than the rounding to <code>SCALE</code>
+     */
+    private static final int GUARD_DIGITS = 5;
+
+    /**
+     * Solves for the interest rate using Newton-Raphson method, the default
+     */
+    public static final RootSolver NEWTON_RAPHSON = new NewtonRaphsonSolver(EPSILON, MAXIMUM_ITERATIONS);
+
+    /**
+     * Solves for the interest rate using Halley's method, which needs fewer iterations than Newton-Raphson method at the
+     * cost of evaluating the second derivative
+     */
+    public static final RootSolver HALLEY = new HalleySolver(EPSILON, MAXIMUM_ITERATIONS);
+
+    /**
+     * Solves for the interest rate using Brent's method, which cannot diverge as it always keeps the rate bracketed
+     */
+    public static final RootSolver BRENT = new BrentSolver(EPSILON, MAXIMUM_ITERATIONS);
+
     /**
      * Calculates an approximate annual interest rate using only the principal, term and monthly repayment
      * @param principal the initial loan amount
@@ -28,13 +63,39 @@ public final class AmortizedLoan {
      * @return an approximation of the annual interest rate in decimal format (i.e. 0.1 = 10%)
      */
     public static double getApproximateAnnualInterestRate(final double principal, final int term, final double monthlyPayment) {
-        if (principal <= 0) {
-            throw new IllegalArgumentException("Principal must be positive");
-        } else if (monthlyPayment < principal / term) {
-            throw new IllegalArgumentException("Monthly payment not enough to pay off principal in term even without interest");
-        } else if (term <= 0) {
-            throw new IllegalArgumentException("Term must be positive");
-        }
+        return getApproximateAnnualInterestRate(principal, term, monthlyPayment, new RootSolution());
+    }
+
+    /**
+     * Calculates an approximate annual interest rate using only the principal, term and monthly repayment, recording
+     * the outcome of the solve, e.g. to monitor the number of iterations
+     * @param principal the initial loan amount
+     * @param term number of repayment terms
+     * @param monthlyPayment amount of repayment per term
+     * @param solution the holder to record the monthly multiplier, the number of iterations and whether the solver
+     *                 converged
+     * @return an approximation of the annual interest rate in decimal format (i.e. 0.1 = 10%)
+     */
+    public static double getApproximateAnnualInterestRate(final double principal, final int term, final double monthlyPayment,
+                                                          final RootSolution solution) {
+        return getApproximateAnnualInterestRate(principal, term, monthlyPayment, new AnnuityFunction(principal, term, monthlyPayment), solution);
+    }
+
+    /**
+     * Calculates an approximate annual interest rate using only the principal, term and monthly repayment, in the same
+     * way as <code>getApproximateAnnualInterestRate(double, int, double, RootSolution)</code> but reusing the function
+     * that is solved, so that nothing is allocated
+     * @param principal the initial loan amount
+     * @param term number of repayment terms
+     * @param monthlyPayment amount of repayment per term
+     * @param function the function to reuse, which is changed to represent the loan
+     * @param solution the holder to record the monthly multiplier, the number of iterations and whether the solver
+     *                 converged
+     * @return an approximation of the annual interest rate in decimal format (i.e. 0.1 = 10%)
+     */
+    public static double getApproximateAnnualInterestRate(final double principal, final int term, final double monthlyPayment,
+                                                          final AnnuityFunction function, final RootSolution solution) {
+        validateAnnualInterestRateArguments(principal, term, monthlyPayment);
 
         // a decent guess at the interest rate is to just assume entire monthly payment is interest
         final double guessedMonthlyInterestRate = monthlyPayment / principal;
@@ -42,40 +103,115 @@ public final class AmortizedLoan {
         // each month, the new amount owed is calculated by multiplying (the amount currently owed (1) + guessedMonthlyInterestRate)
         final double guessedMonthlyMultiplier = 1 + guessedMonthlyInterestRate;
 
-        // use Newton-Raphson method to estimate the monthly multiplier
-        final double estimatedMonthlyMultiplier = newtonRaphsonMethod(
-                guessedMonthlyMultiplier,
+        function.set(principal, term, monthlyPayment);
 
-                // this is the function that we want to find roots of
-                m -> (principal + monthlyPayment) * Math.pow(m, term) - principal * Math.pow(m, term + 1) - monthlyPayment,
+        return solveAnnualInterestRate(principal, term, monthlyPayment, guessedMonthlyMultiplier, NEWTON_RAPHSON, function, solution);
+    }
 
-                // this is the derivative of the above
-                m -> (principal + monthlyPayment) * term * Math.pow(m, term - 1) - principal * (term + 1) * Math.pow(m, term)
-        );
+    /**
+     * Calculates an approximate annual interest rate using only the principal, term and monthly repayment, starting
+     * from the rate looked up in an inverse table of the term, so that the solver only needs a step or two. Loans
+     * outside the table start from the same guess as <code>getApproximateAnnualInterestRate(double, int, double)</code>
+     * @param principal the initial loan amount
+     * @param term number of repayment terms
+     * @param monthlyPayment amount of repayment per term
+     * @param table the inverse rate table of the term
+     * @param function the function to reuse, which is changed to represent the loan
+     * @param solution the holder to record the monthly multiplier, the number of iterations and whether the solver
+     *                 converged
+     * @return an approximation of the annual interest rate in decimal format (i.e. 0.1 = 10%)
+     * @throws IllegalArgumentException thrown if the table is not for the term
+     */
+    public static double getApproximateAnnualInterestRate(final double principal, final int term, final double monthlyPayment,
+                                                          final InverseRateTable table, final AnnuityFunction function,
+                                                          final RootSolution solution) {
+        validateAnnualInterestRateArguments(principal, term, monthlyPayment);
 
-        final double estimatedMonthlyInterestRate = estimatedMonthlyMultiplier - 1;
+        if (table.getTerm() != term) {
+            throw new IllegalArgumentException("Inverse rate table must be for the term of the loan");
+        }
 
-        // get the estimated annual interest rate
-        return 12 * estimatedMonthlyInterestRate;
+        final double paymentRatio = monthlyPayment / principal;
+        final double monthlyInterestRate = table.getMonthlyInterestRate(paymentRatio);
+
+        function.set(principal, term, monthlyPayment);
+
+        // the looked up rate can round to just below the lower bound of the solver, e.g. a loan over a single term whose
+        // root is the lower bound itself, which would otherwise start the solver from the upper bound
+        final double guessedMonthlyMultiplier = Double.isNaN(monthlyInterestRate) ? 1 + paymentRatio
+                : Math.max(1 + monthlyInterestRate, 1 + Math.max(0, paymentRatio - 1.0 / term));
+
+        return solveAnnualInterestRate(principal, term, monthlyPayment, guessedMonthlyMultiplier, NEWTON_RAPHSON,
+                function, solution);
     }
 
     /**
-     * Uses Newton-Raphson method to find an approximation of a root, given a function and its derivative
-     * @param guess the initial guess of the root
-     * @param f the function that tends to zero
-     * @param fPrime the derivative function of <code>f</code>
-     * @return an approximation of the root
+     * Calculates an approximate annual interest rate using only the principal, term and monthly repayment, in the same
+     * way as <code>getApproximateAnnualInterestRate(double, int, double, RootSolution)</code> but with the given solver
+     * @param principal the initial loan amount
+     * @param term number of repayment terms
+     * @param monthlyPayment amount of repayment per term
+     * @param solver the solver used to find the monthly multiplier, e.g. <code>NEWTON_RAPHSON</code>
+     * @param solution the holder to record the monthly multiplier, the number of iterations and whether the solver
+     *                 converged
+     * @return an approximation of the annual interest rate in decimal format (i.e. 0.1 = 10%)
      */
-    private static double newtonRaphsonMethod(final double guess, final Function<Double, Double> f, final Function<Double, Double> fPrime) {
-        double current = guess;
+    public static double getApproximateAnnualInterestRate(final double principal, final int term, final double monthlyPayment,
+                                                          final RootSolver solver, final RootSolution solution) {
+        validateAnnualInterestRateArguments(principal, term, monthlyPayment);
 
-        // only iterate a maximum of 1000 times, it should only iterate more than that if the interest rate is very high
-        // but then we don't need that much accuracy
-        for (int i = 0; i < 1000 && Math.abs(f.apply(current)) > EPSILON; i++) {
-            current = current - f.apply(current) / fPrime.apply(current);
+        return solveAnnualInterestRate(principal, term, monthlyPayment, 1 + monthlyPayment / principal, solver,
+                new AnnuityFunction(principal, term, monthlyPayment), solution);
+    }
+
+    /**
+     * Validates the arguments to calculate the approximate annual interest rate
+     * @param principal the initial loan amount
+     * @param term number of repayment terms
+     * @param monthlyPayment amount of repayment per term
+     */
+    private static void validateAnnualInterestRateArguments(final double principal, final int term, final double monthlyPayment) {
+        if (principal <= 0) {
+            throw new IllegalArgumentException("Principal must be positive");
+        } else if (monthlyPayment < principal / term) {
+            throw new IllegalArgumentException("Monthly payment not enough to pay off principal in term even without interest");
+        } else if (term <= 0) {
+            throw new IllegalArgumentException("Term must be positive");
         }
+    }
+
+    /**
+     * Solves for the monthly multiplier and converts it to the annual interest rate
+     * @param principal the initial loan amount
+     * @param term number of repayment terms
+     * @param monthlyPayment amount of repayment per term
+     * @param guessedMonthlyMultiplier the initial guess of the monthly multiplier
+     * @param solver the solver used to find the monthly multiplier
+     * @param function the annuity function of the loan
+     * @param solution the holder to record the monthly multiplier
+     * @return an approximation of the annual interest rate in decimal format
+     */
+    private static double solveAnnualInterestRate(final double principal, final int term, final double monthlyPayment,
+                                                  final double guessedMonthlyMultiplier, final RootSolver solver,
+                                                  final AnnuityFunction function, final RootSolution solution) {
+        // the monthly multiplier is bracketed: paying interest on the entire principal every month on top of paying
+        // back an equal share of the principal pays off the loan early, while paying the entire monthly payment as
+        // interest never pays off the loan
+        final double lowerBound = 1 + Math.max(0, monthlyPayment / principal - 1.0 / term);
+        final double upperBound = 1 + monthlyPayment / principal;
+
+        // the annuity function is also 0 when the multiplier is 1, and it rises from there before falling through the
+        // actual root, so a guess on the rising side would lead the solver towards 1 rather than towards the root
+        final double monthlyMultiplier = lowerBound <= guessedMonthlyMultiplier && guessedMonthlyMultiplier <= upperBound
+                && function.derivative(guessedMonthlyMultiplier) < 0 ? guessedMonthlyMultiplier : upperBound;
+
+        // use the solver to estimate the monthly multiplier
+        solver.solve(function, monthlyMultiplier, lowerBound, upperBound, solution);
 
-        return current;
+        final double estimatedMonthlyInterestRate = solution.getRoot() - 1;
+
+        // get the estimated annual interest rate
+        return 12 * estimatedMonthlyInterestRate;
     }
 
     /**
@@ -110,12 +246,83 @@ public final class AmortizedLoan {
         return principal.multiply(monthlyInterestRate)
                 .divide(
                         BigDecimal.ONE.subtract(
-                                BigDecimal.ONE.divide(
-                                        BigDecimal.ONE.add(monthlyInterestRate).pow(numberOfPaymentPeriods),
-                                        SCALE, HALF_UP
-                                )
+                                getDiscountFactor(monthlyInterestRate, numberOfPaymentPeriods)
                         ),
                         SCALE, HALF_UP
                 );
     }
+
+    /**
+     * Calculates <code>1/(1+r)^n</code> rounded half up to <code>SCALE</code> decimal places, with exactly the same
+     * result as <code>BigDecimal.ONE.divide(BigDecimal.ONE.add(r).pow(n), SCALE, HALF_UP)</code>. The exact power has
+     * <code>n</code> times as many decimal places as <code>r</code>, so it is approximated to a precision that only
+     * grows with the number of digits of <code>n</code>, unless the approximation is too close to a rounding boundary
+     * for its error to be ruled out, in which case the exact power is used instead
+     * @param monthlyInterestRate the positive monthly interest rate (r)
+     * @param numberOfPaymentPeriods the positive number of repayment periods (n)
+     * @return the discount factor over the entire term
+     */
+    static BigDecimal getDiscountFactor(final BigDecimal monthlyInterestRate, final int numberOfPaymentPeriods) {
+        // Math.log10 is exact for powers of ten, so this is the number of digits of n
+        final int termDigits = (int) Math.log10(numberOfPaymentPeriods) + 1;
+
+        return getDiscountFactor(monthlyInterestRate, numberOfPaymentPeriods, SCALE + termDigits + GUARD_DIGITS);
+    }
+
+    /**
+     * Calculates <code>1/(1+r)^n</code> rounded half up to <code>SCALE</code> decimal places, approximating it to the
+     * specified precision first
+     * @param monthlyInterestRate the positive monthly interest rate (r)
+     * @param numberOfPaymentPeriods the positive number of repayment periods (n)
+     * @param precision the number of significant digits of the approximation
+     * @return the discount factor over the entire term
+     */
+    static BigDecimal getDiscountFactor(final BigDecimal monthlyInterestRate, final int numberOfPaymentPeriods, final int precision) {
+        final BigDecimal base = BigDecimal.ONE.add(monthlyInterestRate);
+        final MathContext mathContext = new MathContext(precision, RoundingMode.HALF_EVEN);
+        final BigDecimal approximation = BigDecimal.ONE.divide(pow(base, numberOfPaymentPeriods, mathContext), mathContext);
+
+        // every rounding to the precision has a relative error of at most u = 5 * 10^-precision, so the relative error
+        // of the power is at most (1+u)^2n - 1, see pow, and with the division the relative error of the approximation
+        // is less than (2n+3)u, as (2n+3)u is tiny by the choice of precision. The discount factor is at most 1, so
+        // this also bounds the absolute error
+        final BigDecimal error = BigDecimal.valueOf(5L * (2L * numberOfPaymentPeriods + 3), precision);
+
+        // rounding is monotonic, so if both ends of the interval round to the same value, so does the exact value
+        final BigDecimal lower = approximation.subtract(error).setScale(SCALE, HALF_UP);
+
+        if (lower.compareTo(approximation.add(error).setScale(SCALE, HALF_UP)) == 0) {
+            return lower;
+        }
+
+        // too close to half a unit to know which way the exact value rounds
+        return BigDecimal.ONE.divide(base.pow(numberOfPaymentPeriods), SCALE, HALF_UP);
+    }
+
+    /**
+     * Raises a number to a power by repeated squaring, rounding the base and every product to the specified precision.
+     * If each rounding has a relative error of at most <code>u</code>, the error of the result relative to the exact
+     * power is at most <code>(1+u)^(2 * exponent - 1) - 1</code>, as the error of each square is raised to the power
+     * that the square contributes
+     * @param base the number to raise
+     * @param exponent the positive power to raise it to
+     * @param mathContext the precision and rounding of every product
+     * @return an approximation of <code>base^exponent</code>
+     */
+    static BigDecimal pow(final BigDecimal base, final int exponent, final MathContext mathContext) {
+        BigDecimal square = base.round(mathContext);
+        BigDecimal result = null;
+
+        for (int remaining = exponent; ; remaining >>>= 1) {
+            if ((remaining & 1) != 0) {
+                result = result == null ? square : result.multiply(square, mathContext);
+            }
+
+            if (remaining <= 1) {
+                return result;
+            }
+
+            square = square.multiply(square, mathContext);
+        }
+    }
 }
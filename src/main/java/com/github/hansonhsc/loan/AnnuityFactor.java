@@ -0,0 +1,129 @@
+package com.github.hansonhsc.loan;
+
+import java.math.BigDecimal;
+
+import static java.math.RoundingMode.HALF_UP;
+
+/**
+ * The parts of the monthly repayment of an amortized loan that only depend on its interest rate and term, i.e. the
+ * monthly interest rate <code>r</code> and the denominator <code>1-(1/(1+r)^n)</code>, so that the monthly repayment of
+ * any principal at that rate and term is a single multiplication and division. Raising <code>1+r</code> to the power
+ * of the term is by far the most expensive part of the monthly repayment, so a factor is worth computing once for each
+ * rate and term that is priced many times.
+ * <p>
+ * The monthly repayments are exactly the same as those of <code>AmortizedLoan.getMonthlyRepayment</code> and
+ * <code>ScaledAmortizedLoan.getMonthlyRepayment</code>
+ */
+public final class AnnuityFactor {
+    /**
+     * the fixed point annual interest rate in decimal form
+     */
+    private final long annualInterestRate;
+
+    /**
+     * the number of repayment periods
+     */
+    private final int numberOfPaymentPeriods;
+
+    /**
+     * the fixed point monthly interest rate, rounded half up to <code>ScaledAmortizedLoan.SCALE</code> decimal places
+     */
+    private final long monthlyInterestRate;
+
+    /**
+     * the fixed point denominator of the monthly repayment, or 0 if the loan is interest free
+     */
+    private final long denominator;
+
+    /**
+     * the monthly interest rate as a BigDecimal
+     */
+    private final BigDecimal monthlyInterestRateAsBigDecimal;
+
+    /**
+     * the denominator of the monthly repayment as a BigDecimal
+     */
+    private final BigDecimal denominatorAsBigDecimal;
+
+    /**
+     * the number of repayment periods as a BigDecimal
+     */
+    private final BigDecimal numberOfPaymentPeriodsAsBigDecimal;
+
+    private AnnuityFactor(final long annualInterestRate, final int numberOfPaymentPeriods, final long monthlyInterestRate, final long denominator) {
+        this.annualInterestRate = annualInterestRate;
+        this.numberOfPaymentPeriods = numberOfPaymentPeriods;
+        this.monthlyInterestRate = monthlyInterestRate;
+        this.denominator = denominator;
+
+        monthlyInterestRateAsBigDecimal = ScaledAmortizedLoan.toBigDecimal(monthlyInterestRate);
+        denominatorAsBigDecimal = ScaledAmortizedLoan.toBigDecimal(denominator);
+        numberOfPaymentPeriodsAsBigDecimal = new BigDecimal(numberOfPaymentPeriods);
+    }
+
+    /**
+     * Computes the annuity factor of a rate and term
+     * @param annualInterestRate the fixed point annual interest rate in decimal form, see <code>ScaledAmortizedLoan</code>
+     * @param numberOfPaymentPeriods number of repayment periods
+     * @return the annuity factor
+     * @throws IllegalArgumentException thrown if the rate is negative or the number of payment periods is not positive
+     */
+    public static AnnuityFactor of(final long annualInterestRate, final int numberOfPaymentPeriods) {
+        if (annualInterestRate < 0) {
+            throw new IllegalArgumentException("Annual interest rate must be non-negative");
+        } else if (numberOfPaymentPeriods <= 0) {
+            throw new IllegalArgumentException("Number of payment periods must be positive");
+        } else if (annualInterestRate == 0) {
+            return new AnnuityFactor(0, numberOfPaymentPeriods, 0, 0);
+        }
+
+        final long monthlyInterestRate = ScaledAmortizedLoan.getMonthlyInterestRate(annualInterestRate);
+
+        return new AnnuityFactor(annualInterestRate, numberOfPaymentPeriods, monthlyInterestRate,
+                ScaledAmortizedLoan.getDenominator(monthlyInterestRate, numberOfPaymentPeriods));
+    }
+
+    /**
+     * Gets the annual interest rate of the factor
+     * @return the fixed point annual interest rate in decimal form
+     */
+    public long getAnnualInterestRate() {
+        return annualInterestRate;
+    }
+
+    /**
+     * Gets the term of the factor
+     * @return the number of repayment periods
+     */
+    public int getNumberOfPaymentPeriods() {
+        return numberOfPaymentPeriods;
+    }
+
+    /**
+     * Calculates the monthly repayment required using amortized interest, with exactly the same result as
+     * <code>ScaledAmortizedLoan.getMonthlyRepayment</code>
+     * @param principal the initial loan amount in whole units
+     * @return the fixed point repayment required to repay capital and interest every month
+     */
+    public long getScaledMonthlyRepayment(final long principal) {
+        if (annualInterestRate == 0) {
+            return ScaledAmortizedLoan.getInterestFreeMonthlyRepayment(principal, numberOfPaymentPeriods);
+        }
+
+        return ScaledAmortizedLoan.getMonthlyRepayment(principal, annualInterestRate, numberOfPaymentPeriods, monthlyInterestRate, denominator);
+    }
+
+    /**
+     * Calculates the monthly repayment required using amortized interest, with exactly the same result as
+     * <code>AmortizedLoan.getMonthlyRepayment</code>
+     * @param principal the initial loan amount
+     * @return the repayment required to repay capital and interest every month
+     */
+    public BigDecimal getMonthlyRepayment(final BigDecimal principal) {
+        if (annualInterestRate == 0) {
+            return principal.divide(numberOfPaymentPeriodsAsBigDecimal, ScaledAmortizedLoan.SCALE, HALF_UP);
+        }
+
+        return principal.multiply(monthlyInterestRateAsBigDecimal).divide(denominatorAsBigDecimal, ScaledAmortizedLoan.SCALE, HALF_UP);
+    }
+}
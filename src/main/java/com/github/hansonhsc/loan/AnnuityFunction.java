@@ -0,0 +1,98 @@
+package com.github.hansonhsc.loan;
+
+import com.github.hansonhsc.loan.solver.DifferentiableFunction;
+
+/**
+ * The polynomial whose root is the monthly multiplier (m) of an amortized loan, along with its derivatives:
+ * <pre>
+ * f(m) = (P + R) m^T - P m^(T+1) - R
+ * </pre>
+ * where P is the principal, T is the term and R is the monthly payment.
+ * <p>
+ * All the powers of m are derived from a single <code>Math.pow</code> call, which is remembered for the last m
+ * evaluated, so that evaluating the function and its derivatives at the same point only calls <code>Math.pow</code>
+ * once. Instances are mutable and can be reused for different loans, but are therefore not thread safe.
+ */
+public final class AnnuityFunction implements DifferentiableFunction {
+    /**
+     * the initial loan amount (P)
+     */
+    private double principal;
+
+    /**
+     * number of repayment terms (T)
+     */
+    private int term;
+
+    /**
+     * amount of repayment per term (R)
+     */
+    private double monthlyPayment;
+
+    /**
+     * the monthly multiplier last evaluated
+     */
+    private double lastMonthlyMultiplier = Double.NaN;
+
+    /**
+     * m<sup>T-1</sup> for the monthly multiplier last evaluated
+     */
+    private double lastPower;
+
+    /**
+     * Constructs the function for the specified loan
+     * @param principal the initial loan amount
+     * @param term number of repayment terms
+     * @param monthlyPayment amount of repayment per term
+     */
+    public AnnuityFunction(final double principal, final int term, final double monthlyPayment) {
+        set(principal, term, monthlyPayment);
+    }
+
+    /**
+     * Changes the function to represent the specified loan, so that the instance can be reused
+     * @param principal the initial loan amount
+     * @param term number of repayment terms
+     * @param monthlyPayment amount of repayment per term
+     */
+    public void set(final double principal, final int term, final double monthlyPayment) {
+        this.principal = principal;
+        this.term = term;
+        this.monthlyPayment = monthlyPayment;
+
+        lastMonthlyMultiplier = Double.NaN;
+    }
+
+    @Override
+    public double value(final double m) {
+        final double mToTheT = power(m) * m;
+
+        return mToTheT * (principal + monthlyPayment - principal * m) - monthlyPayment;
+    }
+
+    @Override
+    public double derivative(final double m) {
+        // f'(m) = (P + R) T m^(T-1) - P (T+1) m^T
+        return power(m) * ((principal + monthlyPayment) * term - principal * (term + 1) * m);
+    }
+
+    @Override
+    public double secondDerivative(final double m) {
+        // f''(m) = (P + R) T (T-1) m^(T-2) - P (T+1) T m^(T-1)
+        return power(m) / m * term * ((principal + monthlyPayment) * (term - 1) - principal * (term + 1) * m);
+    }
+
+    /**
+     * Calculates m<sup>T-1</sup>, reusing the last result if m has not changed
+     * @param m the monthly multiplier
+     * @return m<sup>T-1</sup>
+     */
+    private double power(final double m) {
+        if (m != lastMonthlyMultiplier) {
+            lastPower = Math.pow(m, term - 1);
+            lastMonthlyMultiplier = m;
+        }
+
+        return lastPower;
+    }
+}
@@ -0,0 +1,245 @@
+package com.github.hansonhsc.loan;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The inverse of the monthly repayment of an amortized loan over a single term, i.e. the monthly interest rate
+ * <code>r</code> of a payment ratio <code>q = monthlyPayment / principal</code>, where
+ * <pre>
+ * q = r / (1-(1+r)^-n)
+ * </pre>
+ * rises strictly from <code>1/n</code> at <code>r = 0</code>. The table samples <code>r</code> at evenly spaced ratios
+ * up to the ratio of <code>MAXIMUM_MONTHLY_INTEREST_RATE</code>, so a lookup finds its interval in constant time, and
+ * interpolates between the samples with monotone cubic Hermite interpolation. The interpolated rate is accurate to
+ * around 12 significant digits, so the annuity function of the loan is within the tolerance of the solvers of
+ * <code>AmortizedLoan</code> after at most a step or two of Newton-Raphson method.
+ * <p>
+ * Tables are immutable and thread safe
+ */
+public final class InverseRateTable {
+    /**
+     * The largest monthly interest rate in a table, i.e. 120% a year. Loans with a higher rate are outside the table
+     */
+    public static final double MAXIMUM_MONTHLY_INTEREST_RATE = 0.1;
+
+    /**
+     * The number of intervals between the samples of a table
+     */
+    static final int SIZE = 4096;
+
+    /**
+     * The table of each term, by term, created when first used
+     */
+    private static final ConcurrentMap<Integer, InverseRateTable> TABLES = new ConcurrentHashMap<>();
+
+    /**
+     * The largest number of iterations to solve for the rate of a sample
+     */
+    private static final int MAXIMUM_ITERATIONS = 200;
+
+    /**
+     * the number of repayment periods of every loan in the table (n)
+     */
+    private final int term;
+
+    /**
+     * the payment ratio of the first sample, i.e. of an interest free loan
+     */
+    private final double minimumRatio;
+
+    /**
+     * the payment ratio of the last sample, i.e. of a loan at <code>MAXIMUM_MONTHLY_INTEREST_RATE</code>
+     */
+    private final double maximumRatio;
+
+    /**
+     * the difference between the payment ratios of consecutive samples
+     */
+    private final double step;
+
+    /**
+     * the monthly interest rate of each sample
+     */
+    private final double[] rates;
+
+    /**
+     * the tangent of each sample, i.e. the derivative of the rate with respect to the payment ratio, limited so that
+     * the interpolation is monotone
+     */
+    private final double[] tangents;
+
+    /**
+     * Builds the table of a term, which solves for the rate of every sample
+     * @param term the number of repayment periods, must be positive
+     * @throws IllegalArgumentException thrown if the term is not positive
+     */
+    public InverseRateTable(final int term) {
+        if (term <= 0) {
+            throw new IllegalArgumentException("Term must be positive");
+        }
+
+        this.term = term;
+
+        minimumRatio = getPaymentRatio(0);
+        maximumRatio = getPaymentRatio(MAXIMUM_MONTHLY_INTEREST_RATE);
+        step = (maximumRatio - minimumRatio) / SIZE;
+        rates = new double[SIZE + 1];
+        tangents = new double[SIZE + 1];
+
+        rates[SIZE] = MAXIMUM_MONTHLY_INTEREST_RATE;
+
+        for (int i = 1; i < SIZE; i++) {
+            rates[i] = solveMonthlyInterestRate(minimumRatio + i * step, rates[i - 1]);
+        }
+
+        for (int i = 0; i <= SIZE; i++) {
+            tangents[i] = 1 / getPaymentRatioDerivative(rates[i]);
+        }
+
+        limitTangents();
+    }
+
+    /**
+     * Gets the table of a term, which is built once and shared
+     * @param term the number of repayment periods, must be positive
+     * @return the table of the term
+     * @throws IllegalArgumentException thrown if the term is not positive
+     */
+    public static InverseRateTable forTerm(final int term) {
+        return TABLES.computeIfAbsent(term, InverseRateTable::new);
+    }
+
+    /**
+     * Gets the term of every loan in the table
+     * @return the number of repayment periods
+     */
+    public int getTerm() {
+        return term;
+    }
+
+    /**
+     * Looks up the monthly interest rate of a loan over the term of the table
+     * @param paymentRatio the monthly payment divided by the principal
+     * @return an approximation of the monthly interest rate in decimal form, or <code>NaN</code> if the ratio is
+     * outside the table, i.e. the payment would not repay the principal without interest or the rate is more than
+     * <code>MAXIMUM_MONTHLY_INTEREST_RATE</code>
+     */
+    public double getMonthlyInterestRate(final double paymentRatio) {
+        final double position = (paymentRatio - minimumRatio) / step;
+
+        // also rejects NaN
+        if (!(position >= 0 && position <= SIZE)) {
+            return Double.NaN;
+        }
+
+        final int index = Math.min((int) position, SIZE - 1);
+        final double t = position - index;
+        final double u = 1 - t;
+
+        // the cubic Hermite basis functions, with the tangents scaled to an interval of unit length
+        return (1 + 2 * t) * u * u * rates[index]
+                + t * u * u * step * tangents[index]
+                + t * t * (3 - 2 * t) * rates[index + 1]
+                - t * t * u * step * tangents[index + 1];
+    }
+
+    /**
+     * Calculates the payment ratio of a monthly interest rate
+     * @param monthlyInterestRate the non-negative monthly interest rate (r)
+     * @return <code>r / (1-(1+r)^-n)</code>, or <code>1/n</code> if <code>r</code> is 0
+     */
+    double getPaymentRatio(final double monthlyInterestRate) {
+        if (monthlyInterestRate == 0) {
+            return 1.0 / term;
+        }
+
+        // 1-(1+r)^-n without cancellation for small rates
+        return monthlyInterestRate / -Math.expm1(-term * Math.log1p(monthlyInterestRate));
+    }
+
+    /**
+     * Calculates the derivative of the payment ratio with respect to the monthly interest rate
+     * @param monthlyInterestRate the non-negative monthly interest rate (r)
+     * @return the derivative of the payment ratio, or its limit <code>(n+1)/2n</code> if <code>r</code> is 0
+     */
+    private double getPaymentRatioDerivative(final double monthlyInterestRate) {
+        if (monthlyInterestRate == 0) {
+            return (term + 1) / (2.0 * term);
+        }
+
+        // q = r / d where d = 1-(1+r)^-n, so q' = (d - r d') / d^2 where d' = n (1+r)^-(n+1) = n (1-d) / (1+r)
+        final double denominator = -Math.expm1(-term * Math.log1p(monthlyInterestRate));
+        final double denominatorDerivative = term * (1 - denominator) / (1 + monthlyInterestRate);
+
+        return (denominator - monthlyInterestRate * denominatorDerivative) / (denominator * denominator);
+    }
+
+    /**
+     * Solves for the monthly interest rate of a payment ratio with Newton-Raphson method, bisecting whenever a step
+     * would leave the bracket of the rate
+     * @param paymentRatio the payment ratio of the sample
+     * @param lowerBound a rate whose payment ratio is no greater, e.g. the rate of the previous sample
+     * @return the monthly interest rate
+     */
+    private double solveMonthlyInterestRate(final double paymentRatio, final double lowerBound) {
+        double low = lowerBound;
+        double high = MAXIMUM_MONTHLY_INTEREST_RATE;
+        double rate = (low + high) / 2;
+
+        for (int i = 0; i < MAXIMUM_ITERATIONS; i++) {
+            final double difference = getPaymentRatio(rate) - paymentRatio;
+
+            if (difference == 0) {
+                break;
+            } else if (difference < 0) {
+                low = rate;
+            } else {
+                high = rate;
+            }
+
+            double next = rate - difference / getPaymentRatioDerivative(rate);
+
+            if (!(low < next && next < high)) {
+                next = (low + high) / 2;
+            }
+
+            if (next == rate) {
+                break;
+            }
+
+            rate = next;
+        }
+
+        return rate;
+    }
+
+    /**
+     * Limits the tangents with the method of Fritsch and Carlson, so that the interpolation between every pair of
+     * samples is monotone. The tangents are exact derivatives of a smooth monotone function, so they are rarely
+     * limited at all
+     */
+    private void limitTangents() {
+        for (int i = 0; i < SIZE; i++) {
+            final double secant = (rates[i + 1] - rates[i]) / step;
+
+            if (secant == 0) {
+                tangents[i] = 0;
+                tangents[i + 1] = 0;
+
+                continue;
+            }
+
+            final double alpha = tangents[i] / secant;
+            final double beta = tangents[i + 1] / secant;
+            final double magnitude = alpha * alpha + beta * beta;
+
+            if (magnitude > 9) {
+                final double tau = 3 / Math.sqrt(magnitude);
+
+                tangents[i] = tau * alpha * secant;
+                tangents[i + 1] = tau * beta * secant;
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.hansonhsc.loan;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Utility class for rounding the fixed point amounts and rates of <code>ScaledAmortizedLoan</code> to the units that
+ * are quoted, i.e. whole pennies and tenths of a percent, with exactly the same results as
+ * <code>BigDecimal.setScale</code> in every <code>RoundingMode</code> but without allocating.
+ * <p>
+ * Amounts are in pounds sterling and rates in decimal form, both with a scale of <code>ScaledAmortizedLoan.SCALE</code>,
+ * i.e. a hundredth of a micro-penny and a millionth of a basis point, so that every BigDecimal calculation of
+ * <code>AmortizedLoan</code> has an exact fixed point equivalent
+ */
+public final class Money {
+    /**
+     * The fixed point representation of a penny
+     */
+    public static final long PENNY = ScaledAmortizedLoan.ONE / 100;
+
+    /**
+     * The fixed point representation of a basis point, i.e. a hundredth of a percent
+     */
+    public static final long BASIS_POINT = ScaledAmortizedLoan.ONE / 10_000;
+
+    /**
+     * The fixed point representation of a tenth of a percent, the precision of a quoted rate
+     */
+    public static final long TENTH_OF_PERCENT = ScaledAmortizedLoan.ONE / 1_000;
+
+    private Money() {
+    }
+
+    /**
+     * Rounds a fixed point amount to whole pennies
+     * @param amount the fixed point amount in pounds sterling
+     * @param roundingMode how to round any fraction of a penny
+     * @return the number of pennies, the same as the unscaled value of <code>toBigDecimal(amount).setScale(2, roundingMode)</code>
+     * @throws ArithmeticException thrown if the rounding mode is <code>UNNECESSARY</code> and the amount has a fraction
+     * of a penny
+     */
+    public static long toPennies(final long amount, final RoundingMode roundingMode) {
+        return divide(amount, PENNY, roundingMode);
+    }
+
+    /**
+     * Rounds a fixed point rate to whole basis points
+     * @param rate the fixed point rate in decimal form
+     * @param roundingMode how to round any fraction of a basis point
+     * @return the number of basis points, the same as the unscaled value of <code>toBigDecimal(rate).setScale(4, roundingMode)</code>
+     * @throws ArithmeticException thrown if the rounding mode is <code>UNNECESSARY</code> and the rate has a fraction
+     * of a basis point
+     */
+    public static long toBasisPoints(final long rate, final RoundingMode roundingMode) {
+        return divide(rate, BASIS_POINT, roundingMode);
+    }
+
+    /**
+     * Converts a number of pennies to a BigDecimal in pounds sterling
+     * @param pennies the number of pennies
+     * @return a BigDecimal with a scale of 2 representing the same amount
+     */
+    public static BigDecimal penniesToBigDecimal(final long pennies) {
+        return BigDecimal.valueOf(pennies, 2);
+    }
+
+    /**
+     * Divides two longs, rounding in the same way as BigDecimal division with the specified rounding mode
+     * @param dividend the number to divide
+     * @param divisor the positive number to divide by
+     * @param roundingMode how to round the quotient
+     * @return the rounded quotient
+     * @throws ArithmeticException thrown if the rounding mode is <code>UNNECESSARY</code> and the quotient is not exact
+     */
+    static long divide(final long dividend, final long divisor, final RoundingMode roundingMode) {
+        final long quotient = dividend / divisor;
+        final long remainder = dividend % divisor;
+
+        if (remainder == 0) {
+            return quotient;
+        }
+
+        // the remainder has the sign of the dividend, so the quotient has been rounded towards zero, and rounding away
+        // from zero moves it by one in the direction of the sign
+        final int sign = dividend < 0 ? -1 : 1;
+        final long absoluteRemainder = Math.abs(remainder);
+
+        // i.e. the sign of 2 * |remainder| - divisor, without overflowing
+        final int half = Long.compare(absoluteRemainder, divisor - absoluteRemainder);
+
+        switch (roundingMode) {
+            case UP:
+                return quotient + sign;
+            case DOWN:
+                return quotient;
+            case CEILING:
+                return sign > 0 ? quotient + 1 : quotient;
+            case FLOOR:
+                return sign < 0 ? quotient - 1 : quotient;
+            case HALF_UP:
+                return half >= 0 ? quotient + sign : quotient;
+            case HALF_DOWN:
+                return half > 0 ? quotient + sign : quotient;
+            case HALF_EVEN:
+                return half > 0 || half == 0 && (quotient & 1) != 0 ? quotient + sign : quotient;
+            default:
+                throw new ArithmeticException("Rounding necessary");
+        }
+    }
+}
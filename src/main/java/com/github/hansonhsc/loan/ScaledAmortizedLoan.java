@@ -0,0 +1,222 @@
+package com.github.hansonhsc.loan;
+
+import java.math.BigDecimal;
+
+/**
+ * Utility class to provide the calculations of <code>AmortizedLoan</code> using primitive fixed point arithmetic.
+ * Amounts and rates are represented by the unscaled value of a BigDecimal with a scale of <code>SCALE</code>, i.e.
+ * <code>ONE</code> represents 1, and the results are exactly the same as the equivalent BigDecimal calculations
+ */
+public final class ScaledAmortizedLoan {
+    /**
+     * The scale of all fixed point numbers, the same scale used in all BigDecimal calculations of <code>AmortizedLoan</code>
+     */
+    public static final int SCALE = 10;
+
+    /**
+     * The fixed point representation of 1
+     */
+    public static final long ONE = 10_000_000_000L;
+
+    /**
+     * Number of months in a year, used to convert annual interest rates to monthly interest rates
+     */
+    private static final int MONTHS_IN_YEAR = 12;
+
+    /**
+     * Upper bound of the error of a single double precision operation relative to its result, with a safety factor
+     * of 4 on top of the unit roundoff of 2<sup>-53</sup>
+     */
+    private static final double RELATIVE_ERROR_PER_OPERATION = 4 * Math.ulp(1.0);
+
+    /**
+     * 10<sup>SCALE / 2</sup>, used to divide fixed point numbers half of the scale at a time
+     */
+    private static final long HALF_SCALE_MULTIPLIER = 100_000L;
+
+    private ScaledAmortizedLoan() {
+    }
+
+    /**
+     * Converts a BigDecimal to its fixed point representation
+     * @param value the value to convert
+     * @return the unscaled value of <code>value</code> at a scale of <code>SCALE</code>
+     * @throws ArithmeticException thrown if <code>value</code> has more than <code>SCALE</code> decimal places or
+     * is too large to be represented
+     */
+    public static long toScaled(final BigDecimal value) {
+        return value.setScale(SCALE).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Converts a fixed point number to a BigDecimal
+     * @param scaled the fixed point number
+     * @return a BigDecimal with a scale of <code>SCALE</code> representing the same value
+     */
+    public static BigDecimal toBigDecimal(final long scaled) {
+        return BigDecimal.valueOf(scaled, SCALE);
+    }
+
+    /**
+     * Calculates the monthly repayment required using amortized interest, with exactly the same result as
+     * <code>AmortizedLoan.getMonthlyRepayment</code>
+     * @param principal the initial loan amount in whole units
+     * @param annualInterestRate the fixed point annual interest rate in decimal form (i.e. <code>ONE / 10</code> = 10%)
+     * @param numberOfPaymentPeriods number of repayment periods
+     * @return the fixed point repayment required to repay capital and interest every month
+     */
+    public static long getMonthlyRepayment(final long principal, final long annualInterestRate, final int numberOfPaymentPeriods) {
+        if (annualInterestRate < 0) {
+            throw new IllegalArgumentException("Annual interest rate must be non-negative");
+        } else if (annualInterestRate == 0) {
+            return getInterestFreeMonthlyRepayment(principal, numberOfPaymentPeriods);
+        } else if (numberOfPaymentPeriods <= 0) {
+            throw new IllegalArgumentException("Number of payment periods must be positive");
+        }
+
+        final long monthlyInterestRate = getMonthlyInterestRate(annualInterestRate);
+
+        return getMonthlyRepayment(principal, annualInterestRate, numberOfPaymentPeriods, monthlyInterestRate,
+                getDenominator(monthlyInterestRate, numberOfPaymentPeriods));
+    }
+
+    /**
+     * Calculates the monthly repayment of a loan without interest
+     * @param principal the initial loan amount in whole units
+     * @param numberOfPaymentPeriods number of repayment periods
+     * @return the fixed point repayment required to repay the principal every month
+     */
+    static long getInterestFreeMonthlyRepayment(final long principal, final int numberOfPaymentPeriods) {
+        if (Math.abs(principal) > Long.MAX_VALUE / ONE) {
+            return toScaled(getMonthlyRepaymentAsBigDecimal(principal, 0, numberOfPaymentPeriods));
+        }
+
+        return divideHalfUp(principal * ONE, numberOfPaymentPeriods);
+    }
+
+    /**
+     * Converts an annual interest rate to a monthly interest rate, rounded half up to <code>SCALE</code> decimal places
+     * @param annualInterestRate the fixed point annual interest rate
+     * @return the fixed point monthly interest rate (r)
+     */
+    static long getMonthlyInterestRate(final long annualInterestRate) {
+        return divideHalfUp(annualInterestRate, MONTHS_IN_YEAR);
+    }
+
+    /**
+     * Calculates <code>1-(1/(1+r)^n)</code>, the denominator of the monthly repayment, which only depends on the rate
+     * and the term of the loan
+     * @param monthlyInterestRate the positive fixed point monthly interest rate (r)
+     * @param numberOfPaymentPeriods number of repayment periods (n)
+     * @return the fixed point denominator
+     */
+    static long getDenominator(final long monthlyInterestRate, final int numberOfPaymentPeriods) {
+        return ONE - getDiscountFactor(monthlyInterestRate, numberOfPaymentPeriods);
+    }
+
+    /**
+     * Calculates the monthly repayment from the denominator of the rate and term of the loan
+     * @param principal the initial loan amount in whole units
+     * @param annualInterestRate the positive fixed point annual interest rate, in case the result overflows
+     * @param numberOfPaymentPeriods number of repayment periods, in case the result overflows
+     * @param monthlyInterestRate the fixed point monthly interest rate (r), from <code>getMonthlyInterestRate</code>
+     * @param denominator the fixed point denominator, from <code>getDenominator</code>
+     * @return the fixed point repayment required to repay capital and interest every month
+     */
+    static long getMonthlyRepayment(final long principal, final long annualInterestRate, final int numberOfPaymentPeriods,
+                                    final long monthlyInterestRate, final long denominator) {
+        // c = (P * r) / (1-(1/(1+r)^n)), see AmortizedLoan.getMonthlyRepayment
+        if (principal != 0 && monthlyInterestRate > Long.MAX_VALUE / Math.abs(principal)
+                || Math.abs(principal * monthlyInterestRate) / denominator > Long.MAX_VALUE / ONE) {
+            // the result cannot be represented without overflowing, fall back to BigDecimal
+            return toScaled(getMonthlyRepaymentAsBigDecimal(principal, annualInterestRate, numberOfPaymentPeriods));
+        }
+
+        // P * r and the denominator are both fixed point, so the quotient needs to be scaled back up by ONE
+        return divideScaledHalfUp(principal * monthlyInterestRate, denominator);
+    }
+
+    /**
+     * Calculates <code>1/(1+r)^n</code> rounded half up to <code>SCALE</code> decimal places. This is computed in double
+     * precision, unless the result is too close to a rounding boundary for the error of the double precision
+     * computation to be ruled out, in which case the exact BigDecimal computation is used instead
+     * @param monthlyInterestRate the fixed point monthly interest rate (r)
+     * @param numberOfPaymentPeriods number of repayment periods (n)
+     * @return the fixed point discount factor over the entire term
+     */
+    private static long getDiscountFactor(final long monthlyInterestRate, final int numberOfPaymentPeriods) {
+        // monthlyInterestRate / ONE and 1 + r are each correctly rounded, pow is accurate to 1 ulp and the error of the
+        // base is amplified by n, followed by another correctly rounded division
+        final double maximumError = ONE * (numberOfPaymentPeriods + 3) * RELATIVE_ERROR_PER_OPERATION;
+
+        final double discountFactor = ONE / Math.pow(1 + (double) monthlyInterestRate / ONE, numberOfPaymentPeriods);
+
+        final double integerPart = Math.floor(discountFactor);
+        final double fractionalPart = discountFactor - integerPart;
+
+        if (Math.abs(fractionalPart - 0.5) > maximumError) {
+            return (long) integerPart + (fractionalPart > 0.5 ? 1 : 0);
+        }
+
+        // too close to half a unit to know which way the exact value rounds
+        return toScaled(AmortizedLoan.getDiscountFactor(toBigDecimal(monthlyInterestRate), numberOfPaymentPeriods));
+    }
+
+    /**
+     * Calculates the monthly repayment with BigDecimal arithmetic, for when the fixed point numbers would overflow
+     * @param principal the initial loan amount in whole units
+     * @param annualInterestRate the fixed point annual interest rate
+     * @param numberOfPaymentPeriods number of repayment periods
+     * @return the repayment required to repay capital and interest every month
+     */
+    private static BigDecimal getMonthlyRepaymentAsBigDecimal(final long principal, final long annualInterestRate, final int numberOfPaymentPeriods) {
+        return AmortizedLoan.getMonthlyRepayment(BigDecimal.valueOf(principal), toBigDecimal(annualInterestRate), numberOfPaymentPeriods);
+    }
+
+    /**
+     * Divides two longs, rounding half up (away from zero on ties) in the same way as <code>RoundingMode.HALF_UP</code>
+     * @param dividend the number to divide
+     * @param divisor the number to divide by
+     * @return the rounded quotient
+     */
+    static long divideHalfUp(final long dividend, final long divisor) {
+        final long quotient = dividend / divisor;
+        final long remainder = Math.abs(dividend % divisor);
+
+        // i.e. 2 * remainder >= |divisor|, without overflowing
+        if (remainder != 0 && remainder >= Math.abs(divisor) - remainder) {
+            return (dividend ^ divisor) < 0 ? quotient - 1 : quotient + 1;
+        }
+
+        return quotient;
+    }
+
+    /**
+     * Divides two fixed point numbers, rounding half up in the same way as <code>RoundingMode.HALF_UP</code>, i.e.
+     * calculates <code>dividend * ONE / divisor</code> without overflowing in the intermediate product. The caller must
+     * ensure the result itself can be represented
+     * @param dividend the fixed point number to divide
+     * @param divisor the positive fixed point number to divide by, no larger than <code>ONE</code>
+     * @return the rounded fixed point quotient
+     */
+    private static long divideScaledHalfUp(final long dividend, final long divisor) {
+        final long absoluteDividend = Math.abs(dividend);
+
+        // long division of the fractional part, 5 decimal digits at a time, as the remainder is less than the divisor
+        // and the divisor is at most ONE, so each step fits in a long
+        long remainder = absoluteDividend % divisor * HALF_SCALE_MULTIPLIER;
+        final long fractionHigh = remainder / divisor;
+        remainder = remainder % divisor * HALF_SCALE_MULTIPLIER;
+        final long fractionLow = remainder / divisor;
+        remainder = remainder % divisor;
+
+        long quotient = absoluteDividend / divisor * ONE + fractionHigh * HALF_SCALE_MULTIPLIER + fractionLow;
+
+        // i.e. 2 * remainder >= divisor, without overflowing
+        if (remainder != 0 && remainder >= divisor - remainder) {
+            quotient++;
+        }
+
+        return dividend < 0 ? -quotient : quotient;
+    }
+}
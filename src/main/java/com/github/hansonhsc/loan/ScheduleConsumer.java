@@ -0,0 +1,39 @@
+package com.github.hansonhsc.loan;
+
+import java.io.IOException;
+
+/**
+ * Receives the rows of an amortization schedule from <code>AmortizationScheduleGenerator</code> as they are generated,
+ * one month at a time: the row of each slice of the loan followed by the row of the whole loan. Every amount is in
+ * pennies, so that no objects are created for a row
+ */
+public interface ScheduleConsumer {
+    /**
+     * Receives the row of a slice of the loan, e.g. the part of the loan borrowed from one lender. Does nothing by
+     * default
+     * @param slice the index of the slice, in the order that the slices were added
+     * @param month the month of the repayment, from 1 to the term of the loan
+     * @param payment the repayment of the slice this month in pennies
+     * @param interest the part of the repayment that is interest in pennies
+     * @param principal the part of the repayment that repays the principal in pennies
+     * @param balance the principal of the slice still owed after the repayment in pennies
+     * @throws IOException thrown if the row cannot be written
+     */
+    default void acceptSlice(final int slice, final int month, final long payment, final long interest, final long principal,
+                             final long balance) throws IOException {
+    }
+
+    /**
+     * Receives the row of the whole loan, which is the sum of the rows of its slices for the month. Does nothing by
+     * default
+     * @param month the month of the repayment, from 1 to the term of the loan
+     * @param payment the repayment of the loan this month in pennies
+     * @param interest the part of the repayment that is interest in pennies
+     * @param principal the part of the repayment that repays the principal in pennies
+     * @param balance the principal of the loan still owed after the repayment in pennies
+     * @throws IOException thrown if the row cannot be written
+     */
+    default void acceptLoan(final int month, final long payment, final long interest, final long principal,
+                            final long balance) throws IOException {
+    }
+}
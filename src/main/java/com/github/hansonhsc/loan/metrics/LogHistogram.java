@@ -0,0 +1,274 @@
+package com.github.hansonhsc.loan.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values in a fixed amount of memory, that many threads can record into at once. Each power
+ * of two is split into <code>SUB_BUCKET_COUNT</code> buckets, so a value is counted in a bucket whose bounds are within
+ * 12.5% of it, whether it is a few nanoseconds or a few hours. Values below <code>SUB_BUCKET_COUNT</code> are counted
+ * exactly.
+ * <p>
+ * The buckets are striped by thread, with a stripe for each processor up to <code>MAXIMUM_STRIPES</code>, so that
+ * recording a value is a couple of uncontended atomic additions. Reading the histogram sums the stripes, so it is only
+ * as consistent as a snapshot taken while other threads are recording
+ */
+public final class LogHistogram implements LogHistogramMXBean {
+    /**
+     * The number of bits of a value after its highest bit that select its bucket
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * The number of buckets that each power of two is split into
+     */
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The number of buckets, enough for any non-negative long
+     */
+    static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    /**
+     * The most stripes that a histogram is split into
+     */
+    static final int MAXIMUM_STRIPES = 16;
+
+    /**
+     * The index of the sum of the values within a stripe
+     */
+    private static final int SUM = BUCKET_COUNT;
+
+    /**
+     * The index of the largest value within a stripe
+     */
+    private static final int MAX = BUCKET_COUNT + 1;
+
+    /**
+     * The length of each stripe, padded so that the hot end of a stripe does not share a cache line with the next one
+     */
+    private static final int STRIPE_LENGTH = BUCKET_COUNT + 2 + 8;
+
+    /**
+     * the unit of the recorded values
+     */
+    private final String unit;
+
+    /**
+     * the mask that selects the stripe of a thread
+     */
+    private final int stripeMask;
+
+    /**
+     * the counts of each bucket followed by the sum and the largest value, for each stripe
+     */
+    private final AtomicLongArray stripes;
+
+    /**
+     * Constructs an empty histogram, with a stripe for each processor
+     * @param unit the unit of the recorded values, e.g. <code>nanoseconds</code>
+     */
+    public LogHistogram(final String unit) {
+        this(unit, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs an empty histogram
+     * @param unit the unit of the recorded values
+     * @param threads the number of threads expected to record at once, which is rounded up to a power of two no
+     *                greater than <code>MAXIMUM_STRIPES</code>
+     */
+    LogHistogram(final String unit, final int threads) {
+        this.unit = unit;
+
+        final int stripeCount = Math.min(MAXIMUM_STRIPES, threads <= 1 ? 1 : Integer.highestOneBit(threads - 1) << 1);
+
+        stripeMask = stripeCount - 1;
+        stripes = new AtomicLongArray(stripeCount * STRIPE_LENGTH);
+    }
+
+    /**
+     * Gets the bucket of a value
+     * @param value the non-negative value
+     * @return the index of the bucket that counts the value
+     */
+    static int getBucketIndex(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) & (SUB_BUCKET_COUNT - 1));
+    }
+
+    /**
+     * Gets the largest value counted by a bucket
+     * @param index the index of the bucket
+     * @return the largest value that is counted by the bucket
+     */
+    static long getBucketUpperBound(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        final int shift = index / SUB_BUCKET_COUNT - 1;
+        final long lowerBound = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+
+        return lowerBound + (1L << shift) - 1;
+    }
+
+    /**
+     * Records a value
+     * @param value the value, where a negative value is recorded as 0
+     */
+    public void record(final long value) {
+        final long nonNegativeValue = Math.max(0, value);
+        final int offset = ((int) Thread.currentThread().getId() & stripeMask) * STRIPE_LENGTH;
+
+        stripes.getAndIncrement(offset + getBucketIndex(nonNegativeValue));
+        stripes.getAndAdd(offset + SUM, nonNegativeValue);
+
+        // the largest value rarely changes, so this is usually a single read
+        for (long max = stripes.get(offset + MAX); nonNegativeValue > max; max = stripes.get(offset + MAX)) {
+            if (stripes.compareAndSet(offset + MAX, max, nonNegativeValue)) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public String getUnit() {
+        return unit;
+    }
+
+    @Override
+    public long getCount() {
+        long count = 0;
+
+        for (final long bucketCount : getBucketCounts()) {
+            count += bucketCount;
+        }
+
+        return count;
+    }
+
+    /**
+     * Gets the sum of the values recorded
+     * @return the sum of the values recorded
+     */
+    public long getSum() {
+        return sumStripes(SUM);
+    }
+
+    @Override
+    public double getMean() {
+        final long count = getCount();
+
+        return count == 0 ? 0 : (double) getSum() / count;
+    }
+
+    @Override
+    public long getMax() {
+        long max = 0;
+
+        for (int offset = 0; offset < stripes.length(); offset += STRIPE_LENGTH) {
+            max = Math.max(max, stripes.get(offset + MAX));
+        }
+
+        return max;
+    }
+
+    @Override
+    public long getP50() {
+        return getPercentile(0.5);
+    }
+
+    @Override
+    public long getP90() {
+        return getPercentile(0.9);
+    }
+
+    @Override
+    public long getP99() {
+        return getPercentile(0.99);
+    }
+
+    @Override
+    public long getP999() {
+        return getPercentile(0.999);
+    }
+
+    /**
+     * Gets a percentile of the values recorded, as the largest value counted by the bucket of the percentile, but no
+     * larger than the largest value recorded
+     * @param percentile the percentile between 0 and 1
+     * @return the percentile, or 0 if no values were recorded
+     */
+    public long getPercentile(final double percentile) {
+        final long[] bucketCounts = getBucketCounts();
+        long count = 0;
+
+        for (final long bucketCount : bucketCounts) {
+            count += bucketCount;
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile * count));
+        long cumulativeCount = 0;
+
+        for (int i = 0; i < bucketCounts.length; i++) {
+            cumulativeCount += bucketCounts[i];
+
+            if (cumulativeCount >= rank) {
+                return Math.min(getBucketUpperBound(i), getMax());
+            }
+        }
+
+        return getMax();
+    }
+
+    /**
+     * Gets the count of each bucket, summed over the stripes
+     * @return the count of each bucket
+     */
+    long[] getBucketCounts() {
+        final long[] bucketCounts = new long[BUCKET_COUNT];
+
+        for (int offset = 0; offset < stripes.length(); offset += STRIPE_LENGTH) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                bucketCounts[i] += stripes.get(offset + i);
+            }
+        }
+
+        return bucketCounts;
+    }
+
+    /**
+     * Sums a position over the stripes
+     * @param index the index of the position within a stripe
+     * @return the sum of the position over the stripes
+     */
+    private long sumStripes(final int index) {
+        long sum = 0;
+
+        for (int offset = 0; offset < stripes.length(); offset += STRIPE_LENGTH) {
+            sum += stripes.get(offset + index);
+        }
+
+        return sum;
+    }
+
+    /**
+     * Forgets every value recorded so far. Values recorded while the histogram is being reset may be partly forgotten
+     */
+    @Override
+    public void reset() {
+        for (int i = 0; i < stripes.length(); i++) {
+            stripes.set(i, 0);
+        }
+    }
+}
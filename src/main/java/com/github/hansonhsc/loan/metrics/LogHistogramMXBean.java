@@ -0,0 +1,59 @@
+package com.github.hansonhsc.loan.metrics;
+
+/**
+ * The management interface of a <code>LogHistogram</code>, so that it can be published as an MXBean
+ */
+public interface LogHistogramMXBean {
+    /**
+     * Gets the unit of the recorded values
+     * @return the unit of the recorded values, e.g. <code>nanoseconds</code>
+     */
+    String getUnit();
+
+    /**
+     * Gets the number of values recorded
+     * @return the number of values recorded
+     */
+    long getCount();
+
+    /**
+     * Gets the mean of the values recorded
+     * @return the mean of the values recorded, or 0 if none were recorded
+     */
+    double getMean();
+
+    /**
+     * Gets the largest value recorded
+     * @return the largest value recorded, or 0 if none were recorded
+     */
+    long getMax();
+
+    /**
+     * Gets the median of the values recorded
+     * @return the median, to the precision of the buckets
+     */
+    long getP50();
+
+    /**
+     * Gets the 90th percentile of the values recorded
+     * @return the 90th percentile, to the precision of the buckets
+     */
+    long getP90();
+
+    /**
+     * Gets the 99th percentile of the values recorded
+     * @return the 99th percentile, to the precision of the buckets
+     */
+    long getP99();
+
+    /**
+     * Gets the 99.9th percentile of the values recorded
+     * @return the 99.9th percentile, to the precision of the buckets
+     */
+    long getP999();
+
+    /**
+     * Forgets every value recorded so far
+     */
+    void reset();
+}
@@ -0,0 +1,4 @@
+/**
+ * Provides low overhead, fixed memory metrics that can be left on in production and published over JMX
+ */
+package com.github.hansonhsc.loan.metrics;
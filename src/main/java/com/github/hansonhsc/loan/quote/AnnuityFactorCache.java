@@ -0,0 +1,124 @@
+package com.github.hansonhsc.loan.quote;
+
+import com.github.hansonhsc.loan.AnnuityFactor;
+import com.github.hansonhsc.loan.ScaledAmortizedLoan;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A cache of the annuity factors of a single term, shared by every calculator that prices loans over that term, so
+ * that the factor of each rate is computed once rather than for every lender of every quote. A market usually has far
+ * fewer distinct rates than lenders, and most rates have few decimal places.
+ * <p>
+ * The cache is direct mapped: each rate has a single slot, chosen by hashing the rate, and a rate that hashes to a slot
+ * held by another rate replaces it. So looking up a factor is a hash, a volatile read and a comparison, without locks
+ * or boxing, and the cache never grows beyond <code>SIZE</code> factors however many rates are priced
+ */
+final class AnnuityFactorCache {
+    /**
+     * The number of factors held by each cache, a power of two
+     */
+    static final int SIZE = 1 << 12;
+
+    /**
+     * The number of bits of the hash of a rate that select its slot
+     */
+    private static final int INDEX_BITS = Integer.numberOfTrailingZeros(SIZE);
+
+    /**
+     * The cache of each term, by term, created when first used
+     */
+    private static final AtomicReferenceArray<AnnuityFactorCache> CACHES = new AtomicReferenceArray<>(LoanQuoteCalculator.MAXIMUM_TERM + 1);
+
+    /**
+     * the number of repayment months of every factor in the cache
+     */
+    private final int term;
+
+    /**
+     * the factor held by each slot, or <code>null</code> if the slot is empty
+     */
+    private final AtomicReferenceArray<AnnuityFactor> factors = new AtomicReferenceArray<>(SIZE);
+
+    /**
+     * Constructs an empty cache
+     * @param term the number of repayment months of every factor in the cache
+     */
+    private AnnuityFactorCache(final int term) {
+        this.term = term;
+    }
+
+    /**
+     * Gets the cache of a term, which is shared by every calculator
+     * @param term the number of repayment months, between 1 and <code>LoanQuoteCalculator.MAXIMUM_TERM</code>
+     * @return the cache of the term
+     */
+    static AnnuityFactorCache forTerm(final int term) {
+        final AnnuityFactorCache cache = CACHES.get(term);
+
+        if (cache != null) {
+            return cache;
+        }
+
+        // two threads may race to create the cache, in which case both use the first one
+        CACHES.compareAndSet(term, null, new AnnuityFactorCache(term));
+
+        return CACHES.get(term);
+    }
+
+    /**
+     * Gets the term of every factor in the cache
+     * @return the number of repayment months
+     */
+    int getTerm() {
+        return term;
+    }
+
+    /**
+     * Gets the annuity factor of a rate, computing it if it is not cached
+     * @param annualInterestRate the fixed point annual interest rate in decimal form
+     * @return the annuity factor of the rate over the term of the cache
+     * @throws IllegalArgumentException thrown if the rate is negative
+     */
+    AnnuityFactor get(final long annualInterestRate) {
+        // Fibonacci hashing, as rates are usually multiples of a power of ten with few distinct low bits
+        final int index = (int) ((annualInterestRate * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - INDEX_BITS));
+        final AnnuityFactor factor = factors.get(index);
+
+        if (factor != null && factor.getAnnualInterestRate() == annualInterestRate) {
+            return factor;
+        }
+
+        // factors are immutable, so any thread may compute and publish one
+        final AnnuityFactor newFactor = AnnuityFactor.of(annualInterestRate, term);
+        factors.set(index, newFactor);
+
+        return newFactor;
+    }
+
+    /**
+     * Gets the annuity factor of a rate, computing it if it is not cached
+     * @param annualInterestRate the annual interest rate in decimal form
+     * @return the annuity factor of the rate over the term of the cache, or <code>null</code> if the rate has more
+     * decimal places than <code>ScaledAmortizedLoan.SCALE</code> or is too large to be a fixed point number, so that
+     * its monthly repayments must be calculated with BigDecimal arithmetic
+     * @throws IllegalArgumentException thrown if the rate is negative
+     */
+    AnnuityFactor get(final BigDecimal annualInterestRate) {
+        final long scaledAnnualInterestRate;
+
+        // checked up front rather than by catching the exception, as a market of such rates would throw for every lender
+        if (annualInterestRate.scale() > ScaledAmortizedLoan.SCALE && annualInterestRate.stripTrailingZeros().scale() > ScaledAmortizedLoan.SCALE) {
+            return null;
+        }
+
+        try {
+            scaledAnnualInterestRate = ScaledAmortizedLoan.toScaled(annualInterestRate);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+
+        return get(scaledAnnualInterestRate);
+    }
+}
@@ -0,0 +1,270 @@
+package com.github.hansonhsc.loan.quote;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Quotes a stream of loan amounts, one per line, against a single calculator and writes a result for every line, either
+ * a quote or the reason that the line could not be quoted. Lines are read and quoted in chunks of
+ * <code>CHUNK_SIZE</code> with <code>LoanQuoteCalculator.getQuotes</code>, so memory use does not depend on the size of
+ * the input. Blank lines are skipped
+ */
+public final class BatchQuoter {
+    /**
+     * The number of lines that are read before they are quoted and written
+     */
+    static final int CHUNK_SIZE = 4096;
+
+    /**
+     * The header of the CSV format
+     */
+    static final String CSV_HEADER = "line,requestedAmount,rate,monthlyRepayment,totalRepayment,error";
+
+    /**
+     * The formats that results can be written in
+     */
+    public enum Format {
+        /**
+         * A header followed by a row for each line, with the requested amount as given and either the quote or the
+         * error filled in
+         */
+        CSV,
+
+        /**
+         * A JSON object for each line, with either the quote as formatted by the server, or the line as given in
+         * <code>input</code> and the <code>error</code>
+         */
+        JSON_LINES
+    }
+
+    /**
+     * the calculator that quotes every line
+     */
+    private final LoanQuoteCalculator loanQuoteCalculator;
+
+    /**
+     * the format that results are written in
+     */
+    private final Format format;
+
+    /**
+     * Constructs a batch quoter
+     * @param loanQuoteCalculator the calculator that quotes every line
+     * @param format the format that results are written in
+     */
+    public BatchQuoter(final LoanQuoteCalculator loanQuoteCalculator, final Format format) {
+        this.loanQuoteCalculator = loanQuoteCalculator;
+        this.format = format;
+    }
+
+    /**
+     * Quotes every line of the input, validating each loan amount with <code>LoanQuoteApplication.getLoanAmount</code>.
+     * A line that cannot be quoted is reported in its result and does not stop the batch
+     * @param input the loan amounts, one per line
+     * @param output the destination of the results, which is not flushed or closed
+     * @return the number of lines that could not be quoted
+     * @throws IOException thrown if the input cannot be read or the output cannot be written
+     */
+    public long quote(final BufferedReader input, final Writer output) throws IOException {
+        if (format == Format.CSV) {
+            output.write(CSV_HEADER);
+            output.write('\n');
+        }
+
+        final long[] lineNumbers = new long[CHUNK_SIZE];
+        final String[] lines = new String[CHUNK_SIZE];
+        final String[] errors = new String[CHUNK_SIZE];
+        final int[] loanAmounts = new int[CHUNK_SIZE];
+
+        long lineNumber = 0;
+        long errorCount = 0;
+
+        while (true) {
+            int size = 0;
+            int validCount = 0;
+            String line = null;
+
+            // read a chunk of lines, validating each of them
+            while (size < CHUNK_SIZE && (line = input.readLine()) != null) {
+                lineNumber++;
+
+                final String trimmedLine = line.trim();
+
+                if (trimmedLine.isEmpty()) {
+                    continue;
+                }
+
+                lineNumbers[size] = lineNumber;
+                lines[size] = trimmedLine;
+
+                try {
+                    loanAmounts[validCount] = LoanQuoteApplication.getLoanAmount(trimmedLine);
+                    errors[size] = null;
+                    validCount++;
+                } catch (LoanQuoteParameterValidationException e) {
+                    errors[size] = e.getMessage();
+                }
+
+                size++;
+            }
+
+            if (size > 0) {
+                final LoanQuoteResult[] results = loanQuoteCalculator.getQuotes(validCount == CHUNK_SIZE ? loanAmounts : Arrays.copyOf(loanAmounts, validCount));
+
+                errorCount += write(output, lineNumbers, lines, errors, results, size);
+            }
+
+            if (line == null) {
+                return errorCount;
+            }
+        }
+    }
+
+    /**
+     * Writes the results of a chunk of lines
+     * @param output the destination of the results
+     * @param lineNumbers the line number of each line
+     * @param lines the trimmed text of each line
+     * @param errors the validation error of each line, or <code>null</code> if it is a valid loan amount
+     * @param results the result of each valid loan amount, in order
+     * @param size the number of lines in the chunk
+     * @return the number of lines that could not be quoted
+     * @throws IOException thrown if the output cannot be written
+     */
+    private long write(final Writer output, final long[] lineNumbers, final String[] lines, final String[] errors,
+                       final LoanQuoteResult[] results, final int size) throws IOException {
+        long errorCount = 0;
+        int resultIndex = 0;
+
+        for (int i = 0; i < size; i++) {
+            String error = errors[i];
+            LoanQuote quote = null;
+
+            if (error == null) {
+                final LoanQuoteResult result = results[resultIndex++];
+
+                if (result.isSuccessful()) {
+                    quote = result.getQuote();
+                } else if (result.getFailure() instanceof InsufficientLendersException) {
+                    error = LoanQuoteApplication.INSUFFICIENT_LENDERS_MESSAGE;
+                } else {
+                    error = result.getFailure().getMessage();
+                }
+            }
+
+            if (quote == null) {
+                errorCount++;
+            }
+
+            if (format == Format.CSV) {
+                writeCsv(output, lineNumbers[i], lines[i], quote, error);
+            } else {
+                writeJsonLine(output, lineNumbers[i], lines[i], quote, error);
+            }
+
+            // let the lines of the chunk be collected before the next one is read
+            lines[i] = null;
+        }
+
+        return errorCount;
+    }
+
+    /**
+     * Writes a result as a CSV row
+     * @param output the destination of the results
+     * @param lineNumber the line number
+     * @param line the trimmed text of the line
+     * @param quote the quote, or <code>null</code> if the line could not be quoted
+     * @param error the reason that the line could not be quoted, or <code>null</code> if it was quoted
+     * @throws IOException thrown if the output cannot be written
+     */
+    private static void writeCsv(final Writer output, final long lineNumber, final String line, final LoanQuote quote,
+                                 final String error) throws IOException {
+        output.write(Long.toString(lineNumber));
+        output.write(',');
+
+        if (quote != null) {
+            output.write(Integer.toString(quote.getLoanAmount()));
+            output.write(',');
+            output.write(quote.getRate().toPlainString());
+            output.write(',');
+            output.write(quote.getMonthlyRepayment().toPlainString());
+            output.write(',');
+            output.write(quote.getTotalRepayment().toPlainString());
+            output.write(",\n");
+
+            return;
+        }
+
+        writeCsvField(output, line);
+        output.write(",,,,");
+        writeCsvField(output, error);
+        output.write('\n');
+    }
+
+    /**
+     * Writes a CSV field, quoting it if it contains a comma, quote or line break
+     * @param output the destination of the results
+     * @param field the field
+     * @throws IOException thrown if the output cannot be written
+     */
+    private static void writeCsvField(final Writer output, final String field) throws IOException {
+        output.write(toCsvField(field));
+    }
+
+    /**
+     * Formats a CSV field, quoting it if it contains a comma, quote or line break
+     * @param field the field
+     * @return the field as it is written in a CSV row
+     */
+    static String toCsvField(final String field) {
+        boolean needsQuotes = false;
+
+        for (int i = 0; i < field.length() && !needsQuotes; i++) {
+            final char c = field.charAt(i);
+
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!needsQuotes) {
+            return field;
+        }
+
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Writes a result as a JSON object on its own line
+     * @param output the destination of the results
+     * @param lineNumber the line number
+     * @param line the trimmed text of the line
+     * @param quote the quote, or <code>null</code> if the line could not be quoted
+     * @param error the reason that the line could not be quoted, or <code>null</code> if it was quoted
+     * @throws IOException thrown if the output cannot be written
+     */
+    private static void writeJsonLine(final Writer output, final long lineNumber, final String line, final LoanQuote quote,
+                                      final String error) throws IOException {
+        output.write("{\"line\":");
+        output.write(Long.toString(lineNumber));
+
+        if (quote != null) {
+            output.write(",\"requestedAmount\":");
+            output.write(Integer.toString(quote.getLoanAmount()));
+            output.write(",\"rate\":");
+            output.write(quote.getRate().toPlainString());
+            output.write(",\"monthlyRepayment\":");
+            output.write(quote.getMonthlyRepayment().toPlainString());
+            output.write(",\"totalRepayment\":");
+            output.write(quote.getTotalRepayment().toPlainString());
+        } else {
+            output.write(",\"input\":");
+            output.write(LoanQuoteServer.toJson(line));
+            output.write(",\"error\":");
+            output.write(LoanQuoteServer.toJson(error));
+        }
+
+        output.write("}\n");
+    }
+}
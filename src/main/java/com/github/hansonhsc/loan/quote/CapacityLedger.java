@@ -0,0 +1,226 @@
+package com.github.hansonhsc.loan.quote;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Tracks the remaining capacity of the lenders of a calculator, so that loans can be booked by many borrowers at the
+ * same time without any lender lending more than their amount. Each booking takes capacity from the cheapest lenders
+ * that still have some, updating the remaining amount of each lender with a compare-and-set rather than a lock, and
+ * gives back everything it took if the lenders run out before the whole loan is covered.
+ * <p>
+ * Lenders with a negative amount are treated as having no capacity
+ */
+public final class CapacityLedger {
+    /**
+     * the calculator that prices the bookings
+     */
+    private final LoanQuoteCalculator calculator;
+
+    /**
+     * the lenders of the calculator, in the order that they are used
+     */
+    private final Lender[] lenders;
+
+    /**
+     * the amount that each lender has left to lend
+     */
+    private final AtomicIntegerArray remainingAmounts;
+
+    /**
+     * the index of a lender such that every lender before it has no capacity left, so bookings can skip them. It is
+     * only ever a hint: a lender at or after it may have no capacity left either
+     */
+    private final AtomicInteger firstAvailableLender = new AtomicInteger();
+
+    /**
+     * Constructs a ledger where every lender of a calculator has all of their amount available
+     * @param calculator the calculator whose lenders are booked, which also prices the bookings
+     */
+    public CapacityLedger(final LoanQuoteCalculator calculator) {
+        this.calculator = calculator;
+
+        lenders = calculator.getLenders().toArray(new Lender[0]);
+        remainingAmounts = new AtomicIntegerArray(lenders.length);
+
+        for (int i = 0; i < lenders.length; i++) {
+            remainingAmounts.set(i, Math.max(0, lenders[i].getAmount()));
+        }
+    }
+
+    /**
+     * Books a loan by taking its amount from the cheapest lenders that still have capacity
+     * @param loanAmount the loan amount requested in pounds sterling, must be positive
+     * @return the reservation of the capacity, which must be either committed or cancelled
+     * @throws InsufficientLendersException thrown when the remaining capacity of the lenders cannot satisfy the
+     * requested loan amount, in which case no capacity is taken
+     */
+    public Reservation reserve(final int loanAmount) throws InsufficientLendersException {
+        if (loanAmount <= 0) {
+            throw new IllegalArgumentException("Loan amount must be positive");
+        }
+
+        int[] lenderIndices = new int[4];
+        int[] loanAmounts = new int[4];
+        int size = 0;
+
+        int remainingLoanAmount = loanAmount;
+
+        for (int i = firstAvailableLender.get(); i < lenders.length && remainingLoanAmount > 0; i++) {
+            final int takenAmount = take(i, remainingLoanAmount);
+
+            if (takenAmount == 0) {
+                skip(i);
+
+                continue;
+            }
+
+            if (size == lenderIndices.length) {
+                lenderIndices = Arrays.copyOf(lenderIndices, size * 2);
+                loanAmounts = Arrays.copyOf(loanAmounts, size * 2);
+            }
+
+            lenderIndices[size] = i;
+            loanAmounts[size] = takenAmount;
+            size++;
+
+            remainingLoanAmount -= takenAmount;
+        }
+
+        if (remainingLoanAmount > 0) {
+            // roll back the partial booking
+            release(lenderIndices, loanAmounts, size);
+
+            throw new InsufficientLendersException();
+        }
+
+        return new Reservation(this, loanAmount, Arrays.copyOf(lenderIndices, size), Arrays.copyOf(loanAmounts, size));
+    }
+
+    /**
+     * Takes as much of a loan amount as possible from a lender
+     * @param lenderIndex the index of the lender
+     * @param loanAmount the amount that is still needed
+     * @return the amount taken, which is 0 if the lender has no capacity left
+     */
+    private int take(final int lenderIndex, final int loanAmount) {
+        while (true) {
+            final int remainingAmount = remainingAmounts.get(lenderIndex);
+
+            if (remainingAmount == 0) {
+                return 0;
+            }
+
+            final int takenAmount = Math.min(remainingAmount, loanAmount);
+
+            if (remainingAmounts.compareAndSet(lenderIndex, remainingAmount, remainingAmount - takenAmount)) {
+                return takenAmount;
+            }
+        }
+    }
+
+    /**
+     * Moves the first available lender past a lender that has no capacity left, if it is the first available lender
+     * @param lenderIndex the index of the lender that has no capacity left
+     */
+    private void skip(final int lenderIndex) {
+        if (firstAvailableLender.compareAndSet(lenderIndex, lenderIndex + 1) && remainingAmounts.get(lenderIndex) > 0) {
+            // capacity was released concurrently, and the release may have lowered the hint before it was moved
+            lowerFirstAvailableLender(lenderIndex);
+        }
+    }
+
+    /**
+     * Moves the first available lender back to a lender that has capacity again
+     * @param lenderIndex the index of the lender that has capacity
+     */
+    private void lowerFirstAvailableLender(final int lenderIndex) {
+        int firstAvailable = firstAvailableLender.get();
+
+        while (lenderIndex < firstAvailable && !firstAvailableLender.compareAndSet(firstAvailable, lenderIndex)) {
+            firstAvailable = firstAvailableLender.get();
+        }
+    }
+
+    /**
+     * Gives back capacity to lenders
+     * @param lenderIndices the index of each lender, in ascending order
+     * @param loanAmounts the amount to give back to each lender
+     * @param size the number of lenders
+     */
+    void release(final int[] lenderIndices, final int[] loanAmounts, final int size) {
+        if (size == 0) {
+            return;
+        }
+
+        for (int i = 0; i < size; i++) {
+            remainingAmounts.addAndGet(lenderIndices[i], loanAmounts[i]);
+        }
+
+        lowerFirstAvailableLender(lenderIndices[0]);
+    }
+
+    /**
+     * Prices a booking
+     * @param loanAmount the loan amount requested in pounds sterling
+     * @param lenderIndices the index of each lender, in ascending order
+     * @param loanAmounts the amount borrowed from each lender
+     * @return the loan quote of the booking
+     */
+    LoanQuote getQuote(final int loanAmount, final int[] lenderIndices, final int[] loanAmounts) {
+        final Lender[] bookedLenders = new Lender[lenderIndices.length];
+
+        for (int i = 0; i < lenderIndices.length; i++) {
+            final Lender lender = lenders[lenderIndices[i]];
+
+            bookedLenders[i] = new Lender(lender.getName(), lender.getRate(), loanAmounts[i]);
+        }
+
+        final LenderBook book = new ListLenderBook(Arrays.asList(bookedLenders));
+
+        // every lender of the booking lends exactly what was taken from them
+        return calculator.getQuote(loanAmount, new LenderAllocation(book, 0, book.size(), loanAmounts[loanAmounts.length - 1]));
+    }
+
+    /**
+     * Gets a lender
+     * @param lenderIndex the index of the lender, in the order that they are used
+     * @return the lender
+     */
+    Lender getLender(final int lenderIndex) {
+        return lenders[lenderIndex];
+    }
+
+    /**
+     * Gets the number of lenders in the ledger
+     * @return the number of lenders in the ledger
+     */
+    public int size() {
+        return lenders.length;
+    }
+
+    /**
+     * Gets the amount that a lender has left to lend
+     * @param lenderIndex the index of the lender, in the order of <code>LoanQuoteCalculator.getLenders</code>
+     * @return the amount that the lender has left to lend in pounds sterling
+     */
+    public int getRemainingAmount(final int lenderIndex) {
+        return remainingAmounts.get(lenderIndex);
+    }
+
+    /**
+     * Gets the total amount that the lenders have left to lend. This is not a consistent snapshot while loans are being
+     * booked
+     * @return the total amount that the lenders have left to lend in pounds sterling
+     */
+    public long getTotalRemainingAmount() {
+        long totalRemainingAmount = 0;
+
+        for (int i = 0; i < lenders.length; i++) {
+            totalRemainingAmount += remainingAmounts.get(i);
+        }
+
+        return totalRemainingAmount;
+    }
+}
@@ -0,0 +1,341 @@
+package com.github.hansonhsc.loan.quote;
+
+import com.github.hansonhsc.loan.ScaledAmortizedLoan;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable sorted book of lenders split into chunks of at most <code>MAXIMUM_CHUNK_SIZE</code> lenders. Inserting
+ * or removing a lender creates a new book that shares every chunk except the one that changed, so each update copies
+ * a single chunk and the array of chunks rather than the whole book.
+ * <p>
+ * Lenders are sorted by <code>OrderBookLoanQuoteCalculator.OFFER_ORDER</code>, their amounts must be non-negative and
+ * they must not be modified once they are in a book
+ */
+final class ChunkedLenderBook implements SortedLenderBook {
+    /**
+     * Chunks that grow beyond this many lenders are split in half
+     */
+    static final int MAXIMUM_CHUNK_SIZE = 1024;
+
+    /**
+     * A book without any lenders
+     */
+    static final ChunkedLenderBook EMPTY = new ChunkedLenderBook(new Chunk[0]);
+
+    /**
+     * the chunks of lenders, in order, none of which are empty
+     */
+    private final Chunk[] chunks;
+
+    /**
+     * the index of the first lender of each chunk, followed by the number of lenders in the book
+     */
+    private final int[] chunkStarts;
+
+    /**
+     * the total amount available from the lenders before each chunk, followed by the total amount of the book
+     */
+    private final long[] chunkOffsets;
+
+    /**
+     * Constructs a book from its chunks
+     * @param chunks the chunks of lenders, in order, none of which are empty
+     */
+    private ChunkedLenderBook(final Chunk[] chunks) {
+        this.chunks = chunks;
+
+        chunkStarts = new int[chunks.length + 1];
+        chunkOffsets = new long[chunks.length + 1];
+
+        for (int i = 0; i < chunks.length; i++) {
+            chunkStarts[i + 1] = chunkStarts[i] + chunks[i].lenders.length;
+            chunkOffsets[i + 1] = chunkOffsets[i] + chunks[i].getTotalAmount();
+        }
+    }
+
+    /**
+     * Constructs a book from its chunks, along with their starts and offsets
+     * @param chunks the chunks of lenders, in order, none of which are empty
+     * @param chunkStarts the index of the first lender of each chunk, followed by the number of lenders in the book
+     * @param chunkOffsets the total amount available from the lenders before each chunk, followed by the total amount
+     *                     of the book
+     */
+    private ChunkedLenderBook(final Chunk[] chunks, final int[] chunkStarts, final long[] chunkOffsets) {
+        this.chunks = chunks;
+        this.chunkStarts = chunkStarts;
+        this.chunkOffsets = chunkOffsets;
+    }
+
+    /**
+     * Creates a book of lenders. The chunks are half full, so that they do not need to be split as soon as a lender is
+     * inserted
+     * @param lenders the lenders, sorted by <code>OrderBookLoanQuoteCalculator.OFFER_ORDER</code>
+     * @return a book of the lenders
+     */
+    static ChunkedLenderBook of(final List<Lender> lenders) {
+        final int chunkSize = MAXIMUM_CHUNK_SIZE / 2;
+        final Chunk[] chunks = new Chunk[(lenders.size() + chunkSize - 1) / chunkSize];
+
+        for (int i = 0; i < chunks.length; i++) {
+            final List<Lender> chunk = lenders.subList(i * chunkSize, Math.min(lenders.size(), (i + 1) * chunkSize));
+
+            chunks[i] = new Chunk(chunk.toArray(new Lender[0]));
+        }
+
+        return new ChunkedLenderBook(chunks);
+    }
+
+    /**
+     * Creates a book with a lender inserted in order
+     * @param lender the lender to insert, which must not be in the book already
+     * @return a new book with the lender, which shares every chunk with this book except the one that it was inserted
+     * into
+     * @throws IllegalArgumentException thrown if the lender is already in the book
+     */
+    ChunkedLenderBook insert(final Lender lender) {
+        if (chunks.length == 0) {
+            return new ChunkedLenderBook(new Chunk[]{new Chunk(new Lender[]{lender})});
+        }
+
+        // a lender after every lender in the book goes at the end of the last chunk
+        final int chunkIndex = Math.min(findChunk(lender), chunks.length - 1);
+        final Lender[] lenders = chunks[chunkIndex].lenders;
+
+        final int position = Arrays.binarySearch(lenders, lender, OrderBookLoanQuoteCalculator.OFFER_ORDER);
+
+        if (position >= 0) {
+            throw new IllegalArgumentException("Lender is already in the book: " + lender.getName());
+        }
+
+        final int insertionPoint = -position - 1;
+
+        final Lender[] insertedLenders = new Lender[lenders.length + 1];
+        System.arraycopy(lenders, 0, insertedLenders, 0, insertionPoint);
+        insertedLenders[insertionPoint] = lender;
+        System.arraycopy(lenders, insertionPoint, insertedLenders, insertionPoint + 1, lenders.length - insertionPoint);
+
+        if (insertedLenders.length <= MAXIMUM_CHUNK_SIZE) {
+            return replace(chunkIndex, new Chunk(insertedLenders));
+        }
+
+        // split the full chunk in half
+        final int half = insertedLenders.length / 2;
+
+        return replace(chunkIndex,
+                new Chunk(Arrays.copyOfRange(insertedLenders, 0, half)),
+                new Chunk(Arrays.copyOfRange(insertedLenders, half, insertedLenders.length)));
+    }
+
+    /**
+     * Creates a book with a lender removed
+     * @param lender the lender to remove, which must be in the book
+     * @return a new book without the lender, which shares every chunk with this book except the one that it was
+     * removed from
+     * @throws IllegalArgumentException thrown if the lender is not in the book
+     */
+    ChunkedLenderBook remove(final Lender lender) {
+        final int chunkIndex = findChunk(lender);
+        final int position = chunkIndex == chunks.length ? -1 : Arrays.binarySearch(chunks[chunkIndex].lenders, lender, OrderBookLoanQuoteCalculator.OFFER_ORDER);
+
+        if (position < 0) {
+            throw new IllegalArgumentException("Lender is not in the book: " + lender.getName());
+        }
+
+        final Lender[] lenders = chunks[chunkIndex].lenders;
+
+        if (lenders.length == 1) {
+            // drop the empty chunk
+            return replace(chunkIndex);
+        }
+
+        final Lender[] removedLenders = new Lender[lenders.length - 1];
+        System.arraycopy(lenders, 0, removedLenders, 0, position);
+        System.arraycopy(lenders, position + 1, removedLenders, position, lenders.length - position - 1);
+
+        return replace(chunkIndex, new Chunk(removedLenders));
+    }
+
+    /**
+     * Creates a book with a chunk replaced by any number of chunks. The starts and offsets of the chunks after it are
+     * shifted rather than recalculated, so that the other chunks are not read at all
+     * @param chunkIndex the index of the chunk to replace
+     * @param replacements the chunks to replace it with, none of which are empty
+     * @return a new book with the chunk replaced, which shares every other chunk with this book
+     */
+    private ChunkedLenderBook replace(final int chunkIndex, final Chunk... replacements) {
+        final int newChunkCount = chunks.length - 1 + replacements.length;
+
+        final Chunk[] newChunks = new Chunk[newChunkCount];
+        final int[] newChunkStarts = new int[newChunkCount + 1];
+        final long[] newChunkOffsets = new long[newChunkCount + 1];
+
+        System.arraycopy(chunks, 0, newChunks, 0, chunkIndex);
+        System.arraycopy(chunkStarts, 0, newChunkStarts, 0, chunkIndex + 1);
+        System.arraycopy(chunkOffsets, 0, newChunkOffsets, 0, chunkIndex + 1);
+
+        for (int i = 0; i < replacements.length; i++) {
+            newChunks[chunkIndex + i] = replacements[i];
+            newChunkStarts[chunkIndex + i + 1] = newChunkStarts[chunkIndex + i] + replacements[i].lenders.length;
+            newChunkOffsets[chunkIndex + i + 1] = newChunkOffsets[chunkIndex + i] + replacements[i].getTotalAmount();
+        }
+
+        final int end = chunkIndex + replacements.length;
+        final int sizeChange = newChunkStarts[end] - chunkStarts[chunkIndex + 1];
+        final long amountChange = newChunkOffsets[end] - chunkOffsets[chunkIndex + 1];
+
+        System.arraycopy(chunks, chunkIndex + 1, newChunks, end, chunks.length - chunkIndex - 1);
+
+        for (int i = chunkIndex + 2; i <= chunks.length; i++) {
+            newChunkStarts[i - 1 + replacements.length] = chunkStarts[i] + sizeChange;
+            newChunkOffsets[i - 1 + replacements.length] = chunkOffsets[i] + amountChange;
+        }
+
+        return new ChunkedLenderBook(newChunks, newChunkStarts, newChunkOffsets);
+    }
+
+    /**
+     * Finds the first chunk whose last lender is not before a lender, i.e. the only chunk that can contain it
+     * @param lender the lender to find
+     * @return the index of the chunk, or the number of chunks if the lender is after every lender in the book
+     */
+    private int findChunk(final Lender lender) {
+        int low = 0;
+        int high = chunks.length;
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            final Lender[] lenders = chunks[middle].lenders;
+
+            if (OrderBookLoanQuoteCalculator.OFFER_ORDER.compare(lenders[lenders.length - 1], lender) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Finds the chunk containing a lender
+     * @param index the index of the lender, between 0 inclusive and <code>size()</code> exclusive
+     * @return the index of the chunk
+     */
+    private int getChunkIndex(final int index) {
+        if (index < 0 || size() <= index) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+
+        final int position = Arrays.binarySearch(chunkStarts, 0, chunks.length, index);
+
+        // chunks are never empty, so the starts are distinct and the chunk is the last one that starts at or before index
+        return position >= 0 ? position : -position - 2;
+    }
+
+    /**
+     * Gets the lender at an index
+     * @param index the index of the lender, between 0 inclusive and <code>size()</code> exclusive
+     * @return the lender, which is shared with the book and so must not be exposed
+     */
+    private Lender get(final int index) {
+        final int chunkIndex = getChunkIndex(index);
+
+        return chunks[chunkIndex].lenders[index - chunkStarts[chunkIndex]];
+    }
+
+    /**
+     * Gets the total amount available from every lender in the book
+     * @return the total amount available from every lender in the book
+     */
+    long getTotalAmount() {
+        return chunkOffsets[chunks.length];
+    }
+
+    /**
+     * Gets the number of chunks in the book
+     * @return the number of chunks in the book
+     */
+    int getChunkCount() {
+        return chunks.length;
+    }
+
+    /**
+     * Gets the lenders of a chunk, so that the chunks that are shared between books can be identified
+     * @param chunkIndex the index of the chunk
+     * @return the lenders of the chunk, which must not be modified
+     */
+    Lender[] getChunk(final int chunkIndex) {
+        return chunks[chunkIndex].lenders;
+    }
+
+    @Override
+    public long getCumulativeAmount(final int index) {
+        final int chunkIndex = getChunkIndex(index);
+
+        return chunkOffsets[chunkIndex] + chunks[chunkIndex].cumulativeAmounts[index - chunkStarts[chunkIndex]];
+    }
+
+    @Override
+    public int size() {
+        return chunkStarts[chunks.length];
+    }
+
+    @Override
+    public String getName(final int index) {
+        return get(index).getName();
+    }
+
+    @Override
+    public BigDecimal getRate(final int index) {
+        return get(index).getRate();
+    }
+
+    @Override
+    public long getScaledRate(final int index) {
+        return ScaledAmortizedLoan.toScaled(get(index).getRate());
+    }
+
+    @Override
+    public int getAmount(final int index) {
+        return get(index).getAmount();
+    }
+
+    /**
+     * An immutable chunk of consecutive lenders
+     */
+    private static final class Chunk {
+        /**
+         * the lenders of the chunk, in order
+         */
+        private final Lender[] lenders;
+
+        /**
+         * the total amount available from the lenders of the chunk up to and including each lender
+         */
+        private final long[] cumulativeAmounts;
+
+        private Chunk(final Lender[] lenders) {
+            this.lenders = lenders;
+
+            cumulativeAmounts = new long[lenders.length];
+
+            long cumulativeAmount = 0;
+
+            for (int i = 0; i < lenders.length; i++) {
+                cumulativeAmount += lenders[i].getAmount();
+                cumulativeAmounts[i] = cumulativeAmount;
+            }
+        }
+
+        /**
+         * Gets the total amount available from the lenders of the chunk
+         * @return the total amount available from the lenders of the chunk
+         */
+        private long getTotalAmount() {
+            return cumulativeAmounts[cumulativeAmounts.length - 1];
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package com.github.hansonhsc.loan.quote;
+
+import com.github.hansonhsc.loan.ScaledAmortizedLoan;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A book of lenders stored column by column in parallel primitive arrays, rather than as a <code>Lender</code> object
+ * per lender. Rates are stored in the fixed point representation of <code>ScaledAmortizedLoan</code> along with their
+ * original scale, so that they can be converted back to exactly the same BigDecimal, and names are dictionary encoded
+ * so that each distinct name is only stored once
+ */
+public final class ColumnarLenderBook implements LenderBook {
+    /**
+     * Number of lenders that the book can hold before growing, when not specified
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Runs of at most this many lenders are sorted by insertion sort before being merged
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    /**
+     * the fixed point annual interest rate of each lender
+     */
+    private long[] rates;
+
+    /**
+     * the scale of the BigDecimal that each rate was added with
+     */
+    private byte[] rateScales;
+
+    /**
+     * the total amount available for loans from each lender in pounds sterling
+     */
+    private int[] amounts;
+
+    /**
+     * the index of the name of each lender in <code>names</code>
+     */
+    private int[] nameIds;
+
+    /**
+     * every distinct name, in the order that they were first added
+     */
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * open addressing hash table of the index of each name in <code>names</code> plus 1, where 0 is an empty slot.
+     * The length is always a power of 2 and at least twice the number of names
+     */
+    private int[] nameTable = new int[DEFAULT_CAPACITY];
+
+    /**
+     * the hash of the name in each slot of <code>nameTable</code>, so that most names that do not match can be skipped
+     * without comparing them
+     */
+    private int[] nameTableHashes = new int[DEFAULT_CAPACITY];
+
+    /**
+     * the number of lenders in the book
+     */
+    private int size;
+
+    /**
+     * whether the lenders are known to be sorted, in which case sorting them again does nothing
+     */
+    private boolean sorted = true;
+
+    /**
+     * Constructs an empty book
+     */
+    public ColumnarLenderBook() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty book that can hold the specified number of lenders before growing
+     * @param initialCapacity the number of lenders that the book can hold before growing
+     */
+    public ColumnarLenderBook(final int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Initial capacity must be non-negative");
+        }
+
+        rates = new long[initialCapacity];
+        rateScales = new byte[initialCapacity];
+        amounts = new int[initialCapacity];
+        nameIds = new int[initialCapacity];
+    }
+
+    /**
+     * Creates a book containing the specified lenders, in the same order
+     * @param lenders the lenders to add to the book
+     * @return a book containing the lenders
+     * @throws IllegalArgumentException thrown if any rate cannot be represented, see <code>add</code>
+     */
+    public static ColumnarLenderBook of(final Collection<Lender> lenders) {
+        final ColumnarLenderBook book = new ColumnarLenderBook(lenders.size());
+
+        for (final Lender lender : lenders) {
+            book.add(lender.getName(), lender.getRate(), lender.getAmount());
+        }
+
+        return book;
+    }
+
+    /**
+     * Adds a lender to the end of the book
+     * @param name the name of the lender
+     * @param rate the annual interest rate of any loans by the lender
+     * @param amount the total amount available for loans from the lender in pounds sterling
+     * @throws IllegalArgumentException thrown if the rate has more than <code>ScaledAmortizedLoan.SCALE</code> decimal
+     * places or is too large to be represented as a fixed point number
+     */
+    public void add(final String name, final BigDecimal rate, final int amount) {
+        final long scaledRate;
+
+        try {
+            scaledRate = ScaledAmortizedLoan.toScaled(rate);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Rate cannot be represented with " + ScaledAmortizedLoan.SCALE + " decimal places: " + rate, e);
+        }
+
+        add(name, scaledRate, rate.scale(), amount);
+    }
+
+    /**
+     * Adds a lender to the end of the book
+     * @param name the name of the lender
+     * @param scaledRate the fixed point annual interest rate of any loans by the lender
+     * @param rateScale the scale of the BigDecimal that the rate should be converted back to, at most
+     *                  <code>ScaledAmortizedLoan.SCALE</code> and with no non-zero digits beyond it
+     * @param amount the total amount available for loans from the lender in pounds sterling
+     * @throws IllegalArgumentException thrown if the rate cannot be converted back to a BigDecimal of
+     * <code>rateScale</code> without rounding
+     */
+    public void add(final String name, final long scaledRate, final int rateScale, final int amount) {
+        if (!isRepresentable(scaledRate, rateScale)) {
+            throw new IllegalArgumentException("Rate cannot be represented with a scale of " + rateScale + ": " + ScaledAmortizedLoan.toBigDecimal(scaledRate));
+        }
+
+        if (size == rates.length) {
+            final int capacity = Math.max(DEFAULT_CAPACITY, size + (size >> 1));
+
+            rates = Arrays.copyOf(rates, capacity);
+            rateScales = Arrays.copyOf(rateScales, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            nameIds = Arrays.copyOf(nameIds, capacity);
+        }
+
+        rates[size] = scaledRate;
+        rateScales[size] = (byte) rateScale;
+        amounts[size] = amount;
+        nameIds[size] = getNameId(name);
+
+        size++;
+        sorted = false;
+    }
+
+    /**
+     * Gets the index of a name in <code>names</code>, adding it if it has not been seen before
+     * @param name the name of a lender
+     * @return the index of the name
+     */
+    private int getNameId(final String name) {
+        final int mask = nameTable.length - 1;
+        final int hash = hash(name);
+
+        int slot = hash & mask;
+
+        while (nameTable[slot] != 0) {
+            final int nameId = nameTable[slot] - 1;
+
+            if (nameTableHashes[slot] == hash && Objects.equals(names.get(nameId), name)) {
+                return nameId;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        names.add(name);
+        nameTable[slot] = names.size();
+        nameTableHashes[slot] = hash;
+
+        if (names.size() * 2 > nameTable.length) {
+            resizeNameTable();
+        }
+
+        return names.size() - 1;
+    }
+
+    /**
+     * Doubles the length of <code>nameTable</code> and <code>nameTableHashes</code>, reinserting every name
+     */
+    private void resizeNameTable() {
+        nameTable = new int[nameTable.length * 2];
+        nameTableHashes = new int[nameTable.length];
+
+        final int mask = nameTable.length - 1;
+
+        for (int nameId = 0; nameId < names.size(); nameId++) {
+            final int hash = hash(names.get(nameId));
+
+            int slot = hash & mask;
+
+            while (nameTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+
+            nameTable[slot] = nameId + 1;
+            nameTableHashes[slot] = hash;
+        }
+    }
+
+    /**
+     * Calculates the hash of a name, spreading the higher bits to the lower bits that select the slot
+     * @param name the name of a lender, which may be <code>null</code>
+     * @return the hash of the name
+     */
+    private static int hash(final String name) {
+        final int hash = Objects.hashCode(name) * 0x9E3779B9;
+
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Checks whether a fixed point rate can be converted back to a BigDecimal of the specified scale without rounding
+     * @param scaledRate the fixed point rate
+     * @param rateScale the scale of the BigDecimal
+     * @return <code>true</code> if the rate can be converted without rounding, otherwise <code>false</code>
+     */
+    private static boolean isRepresentable(final long scaledRate, final int rateScale) {
+        if (rateScale > ScaledAmortizedLoan.SCALE || rateScale < Byte.MIN_VALUE) {
+            return false;
+        } else if (rateScale < 0) {
+            // rare enough that the exponent can be checked with BigDecimal rather than risk overflowing a long
+            try {
+                ScaledAmortizedLoan.toBigDecimal(scaledRate).setScale(rateScale);
+
+                return true;
+            } catch (ArithmeticException e) {
+                return false;
+            }
+        }
+
+        return scaledRate % pow10(ScaledAmortizedLoan.SCALE - rateScale) == 0;
+    }
+
+    /**
+     * Calculates a power of 10
+     * @param exponent the non-negative exponent, at most <code>ScaledAmortizedLoan.SCALE</code>
+     * @return 10 to the power of <code>exponent</code>
+     */
+    private static long pow10(final int exponent) {
+        long result = 1;
+
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+
+        return result;
+    }
+
+    /**
+     * Sorts the lenders by rate in ascending order, then by amount in descending order, in the same way as
+     * <code>LoanQuoteCalculator</code> sorts a list of lenders. The sort is stable, so lenders with the same rate and
+     * amount keep the order that they were added in
+     */
+    public void sort() {
+        if (sorted) {
+            return;
+        }
+
+        final int[] order = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+
+        final int[] sortedOrder = mergeSort(order, new int[size]);
+
+        final long[] sortedRates = new long[size];
+        final byte[] sortedRateScales = new byte[size];
+        final int[] sortedAmounts = new int[size];
+        final int[] sortedNameIds = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            sortedRates[i] = rates[sortedOrder[i]];
+            sortedRateScales[i] = rateScales[sortedOrder[i]];
+            sortedAmounts[i] = amounts[sortedOrder[i]];
+            sortedNameIds[i] = nameIds[sortedOrder[i]];
+        }
+
+        rates = sortedRates;
+        rateScales = sortedRateScales;
+        amounts = sortedAmounts;
+        nameIds = sortedNameIds;
+
+        sorted = true;
+    }
+
+    /**
+     * Merges two sorted books into a new sorted book, in the same order as sorting the lenders of <code>first</code>
+     * followed by the lenders of <code>second</code>, i.e. lenders of <code>first</code> come before lenders of
+     * <code>second</code> with the same rate and amount
+     * @param first the first sorted book
+     * @param second the second sorted book
+     * @return a new book containing the lenders of both books
+     * @throws IllegalArgumentException thrown if either book is not sorted
+     */
+    public static ColumnarLenderBook merge(final ColumnarLenderBook first, final ColumnarLenderBook second) {
+        if (!first.sorted || !second.sorted) {
+            throw new IllegalArgumentException("Only sorted books can be merged");
+        }
+
+        final ColumnarLenderBook merged = new ColumnarLenderBook(first.size + second.size);
+
+        // start from the names of the first book, so that only the names of the second book need to be encoded again
+        merged.names.addAll(first.names);
+        merged.nameTable = first.nameTable.clone();
+        merged.nameTableHashes = first.nameTableHashes.clone();
+
+        final int[] secondNameIds = new int[second.names.size()];
+
+        for (int i = 0; i < secondNameIds.length; i++) {
+            secondNameIds[i] = merged.getNameId(second.names.get(i));
+        }
+
+        int i = 0;
+        int j = 0;
+
+        while (i < first.size || j < second.size) {
+            final boolean takeFirst = j == second.size || i < first.size && compare(first, i, second, j) <= 0;
+
+            final ColumnarLenderBook source = takeFirst ? first : second;
+            final int index = takeFirst ? i++ : j++;
+
+            merged.rates[merged.size] = source.rates[index];
+            merged.rateScales[merged.size] = source.rateScales[index];
+            merged.amounts[merged.size] = source.amounts[index];
+            merged.nameIds[merged.size] = takeFirst ? source.nameIds[index] : secondNameIds[source.nameIds[index]];
+
+            merged.size++;
+        }
+
+        return merged;
+    }
+
+    /**
+     * Compares lenders of two books by rate in ascending order, then by amount in descending order
+     * @param book1 the book of the first lender
+     * @param index1 the index of the first lender
+     * @param book2 the book of the second lender
+     * @param index2 the index of the second lender
+     * @return a negative integer, zero, or a positive integer as the first lender is less than, equal to, or greater
+     * than the second lender
+     */
+    private static int compare(final ColumnarLenderBook book1, final int index1, final ColumnarLenderBook book2, final int index2) {
+        final int rateComparison = Long.compare(book1.rates[index1], book2.rates[index2]);
+
+        return rateComparison != 0 ? rateComparison : book2.amounts[index2] - book1.amounts[index1];
+    }
+
+    /**
+     * Sorts the indices of lenders with a bottom up merge sort, which is stable
+     * @param order the indices of the lenders to sort
+     * @param buffer a buffer of the same length as <code>order</code>
+     * @return either <code>order</code> or <code>buffer</code>, whichever holds the sorted indices
+     */
+    private int[] mergeSort(int[] order, int[] buffer) {
+        final int length = order.length;
+
+        for (int start = 0; start < length; start += INSERTION_SORT_THRESHOLD) {
+            insertionSort(order, start, Math.min(start + INSERTION_SORT_THRESHOLD, length));
+        }
+
+        for (int width = INSERTION_SORT_THRESHOLD; width < length; width *= 2) {
+            for (int start = 0; start < length; start += 2 * width) {
+                final int middle = Math.min(start + width, length);
+                final int end = Math.min(start + 2 * width, length);
+
+                merge(order, buffer, start, middle, end);
+            }
+
+            // each pass merges from one array into the other
+            final int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+
+        return order;
+    }
+
+    /**
+     * Sorts a range of the indices of lenders with an insertion sort, which is stable
+     * @param order the indices of the lenders
+     * @param start the start of the range, inclusive
+     * @param end the end of the range, exclusive
+     */
+    private void insertionSort(final int[] order, final int start, final int end) {
+        for (int i = start + 1; i < end; i++) {
+            final int index = order[i];
+
+            int j = i - 1;
+
+            while (j >= start && compare(order[j], index) > 0) {
+                order[j + 1] = order[j];
+                j--;
+            }
+
+            order[j + 1] = index;
+        }
+    }
+
+    /**
+     * Merges two adjacent sorted ranges of the indices of lenders, preferring the first range on ties
+     * @param source the indices of the lenders
+     * @param target where the merged indices are written, at the same positions
+     * @param start the start of the first range, inclusive
+     * @param middle the end of the first range and start of the second range
+     * @param end the end of the second range, exclusive
+     */
+    private void merge(final int[] source, final int[] target, final int start, final int middle, final int end) {
+        int left = start;
+        int right = middle;
+
+        for (int i = start; i < end; i++) {
+            if (left < middle && (right >= end || compare(source[left], source[right]) <= 0)) {
+                target[i] = source[left++];
+            } else {
+                target[i] = source[right++];
+            }
+        }
+    }
+
+    /**
+     * Compares two lenders by rate in ascending order, then by amount in descending order
+     * @param index1 the index of the first lender
+     * @param index2 the index of the second lender
+     * @return a negative integer, zero, or a positive integer as the first lender is less than, equal to, or greater
+     * than the second lender
+     */
+    private int compare(final int index1, final int index2) {
+        return compare(this, index1, this, index2);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getName(final int index) {
+        return names.get(nameIds[checkIndex(index)]);
+    }
+
+    @Override
+    public BigDecimal getRate(final int index) {
+        // the scaled rate has no non-zero digits beyond the original scale, so this never rounds
+        return ScaledAmortizedLoan.toBigDecimal(rates[checkIndex(index)]).setScale(rateScales[index]);
+    }
+
+    @Override
+    public long getScaledRate(final int index) {
+        return rates[checkIndex(index)];
+    }
+
+    @Override
+    public int getAmount(final int index) {
+        return amounts[checkIndex(index)];
+    }
+
+    /**
+     * Gets the number of distinct lender names in the book
+     * @return the number of distinct lender names in the book
+     */
+    public int getNameCount() {
+        return names.size();
+    }
+
+    /**
+     * Checks that an index is within the book
+     * @param index the index of a lender
+     * @return the index
+     */
+    private int checkIndex(final int index) {
+        if (index < 0 || size <= index) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        return index;
+    }
+}
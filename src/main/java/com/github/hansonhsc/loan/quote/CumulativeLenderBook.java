@@ -0,0 +1,72 @@
+package com.github.hansonhsc.loan.quote;
+
+import java.math.BigDecimal;
+
+/**
+ * A sorted book of lenders that wraps another book, calculating the total amount available up to and including each
+ * lender up front
+ */
+final class CumulativeLenderBook implements SortedLenderBook {
+    /**
+     * the sorted lenders
+     */
+    private final LenderBook book;
+
+    /**
+     * the total amount available from the lenders up to and including each lender
+     */
+    private final long[] cumulativeAmounts;
+
+    /**
+     * Constructs a sorted book from a book of lenders that is already sorted
+     * @param book the lenders, sorted by rate in ascending order, then by amount in descending order
+     */
+    CumulativeLenderBook(final LenderBook book) {
+        this.book = book;
+
+        cumulativeAmounts = new long[book.size()];
+
+        long cumulativeAmount = 0;
+
+        for (int i = 0; i < cumulativeAmounts.length; i++) {
+            cumulativeAmount += book.getAmount(i);
+
+            cumulativeAmounts[i] = i == 0 ? cumulativeAmount : Math.max(cumulativeAmounts[i - 1], cumulativeAmount);
+        }
+    }
+
+    @Override
+    public long getCumulativeAmount(final int index) {
+        return cumulativeAmounts[index];
+    }
+
+    @Override
+    public int size() {
+        return cumulativeAmounts.length;
+    }
+
+    @Override
+    public String getName(final int index) {
+        return book.getName(index);
+    }
+
+    @Override
+    public BigDecimal getRate(final int index) {
+        return book.getRate(index);
+    }
+
+    @Override
+    public long getScaledRate(final int index) {
+        return book.getScaledRate(index);
+    }
+
+    @Override
+    public int getAmount(final int index) {
+        return book.getAmount(index);
+    }
+
+    @Override
+    public Lender getLender(final int index) {
+        return book.getLender(index);
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.hansonhsc.loan.quote;
+
+import java.math.BigDecimal;
+
+/**
+ * A view of how a loan is split between a range of consecutive lenders, sorted by the calculator that produced it.
+ * Every lender in the range lends their entire amount, except the last lender who lends the remainder of the loan
+ */
+public final class LenderAllocation {
+    /**
+     * the sorted lenders that the range refers to
+     */
+    private final LenderBook lenders;
+
+    /**
+     * the index of the first lender in the range, inclusive
+     */
+    private final int start;
+
+    /**
+     * the index of the last lender in the range, exclusive
+     */
+    private final int end;
+
+    /**
+     * the amount borrowed from the last lender in the range
+     */
+    private final int lastLoanAmount;
+
+    /**
+     * Constructs an allocation over a non-empty range of lenders
+     * @param lenders the sorted lenders that the range refers to
+     * @param start the index of the first lender in the range, inclusive
+     * @param end the index of the last lender in the range, exclusive
+     * @param lastLoanAmount the amount borrowed from the last lender in the range
+     */
+    LenderAllocation(final LenderBook lenders, final int start, final int end, final int lastLoanAmount) {
+        this.lenders = lenders;
+        this.start = start;
+        this.end = end;
+        this.lastLoanAmount = lastLoanAmount;
+    }
+
+    /**
+     * Gets the index of the first lender in the range, inclusive
+     * @return the index of the first lender in the range, inclusive
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the index of the last lender in the range, exclusive
+     * @return the index of the last lender in the range, exclusive
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Gets the number of lenders in the allocation
+     * @return the number of lenders in the allocation
+     */
+    public int size() {
+        return end - start;
+    }
+
+    /**
+     * Gets the amount borrowed from the last lender in the range, which may be less than the lender's amount
+     * @return the amount borrowed from the last lender in the range
+     */
+    public int getLastLoanAmount() {
+        return lastLoanAmount;
+    }
+
+    /**
+     * Gets a lender in the allocation
+     * @param index the index of the lender within the allocation, between 0 inclusive and <code>size()</code> exclusive
+     * @return the lender
+     */
+    public Lender getLender(final int index) {
+        return lenders.getLender(start + checkIndex(index));
+    }
+
+    /**
+     * Gets the annual interest rate of a lender in the allocation
+     * @param index the index of the lender within the allocation, between 0 inclusive and <code>size()</code> exclusive
+     * @return the annual interest rate of the lender
+     */
+    public BigDecimal getRate(final int index) {
+        return lenders.getRate(start + checkIndex(index));
+    }
+
+    /**
+     * Gets the annual interest rate of a lender in the allocation, in the fixed point representation of
+     * <code>ScaledAmortizedLoan</code>
+     * @param index the index of the lender within the allocation, between 0 inclusive and <code>size()</code> exclusive
+     * @return the fixed point annual interest rate of the lender
+     */
+    public long getScaledRate(final int index) {
+        return lenders.getScaledRate(start + checkIndex(index));
+    }
+
+    /**
+     * Gets the amount borrowed from a lender in the allocation
+     * @param index the index of the lender within the allocation, between 0 inclusive and <code>size()</code> exclusive
+     * @return the amount borrowed from the lender
+     */
+    public int getLoanAmount(final int index) {
+        return checkIndex(index) == end - start - 1 ? lastLoanAmount : lenders.getAmount(start + index);
+    }
+
+    /**
+     * Checks that an index is within the allocation
+     * @param index the index of the lender within the allocation
+     * @return the index
+     */
+    private int checkIndex(final int index) {
+        if (index < 0 || end - start <= index) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (end - start));
+        }
+
+        return index;
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.hansonhsc.loan.quote;
+
+import java.math.BigDecimal;
+
+/**
+ * An indexed, read-only book of lenders. Lenders are accessed by their index rather than as <code>Lender</code>
+ * objects, so that implementations are free to store them in whichever layout is cheapest
+ */
+public interface LenderBook {
+    /**
+     * Gets the number of lenders in the book
+     * @return the number of lenders in the book
+     */
+    int size();
+
+    /**
+     * Gets the name of a lender
+     * @param index the index of the lender, between 0 inclusive and <code>size()</code> exclusive
+     * @return the name of the lender
+     */
+    String getName(int index);
+
+    /**
+     * Gets the annual interest rate of any loans by a lender, with the same scale that it was added with
+     * @param index the index of the lender, between 0 inclusive and <code>size()</code> exclusive
+     * @return the annual interest rate of any loans by the lender
+     */
+    BigDecimal getRate(int index);
+
+    /**
+     * Gets the annual interest rate of any loans by a lender, in the fixed point representation of
+     * <code>ScaledAmortizedLoan</code>
+     * @param index the index of the lender, between 0 inclusive and <code>size()</code> exclusive
+     * @return the fixed point annual interest rate of any loans by the lender
+     * @throws ArithmeticException thrown if the rate cannot be represented as a fixed point number
+     */
+    long getScaledRate(int index);
+
+    /**
+     * Gets the total amount available for loans from a lender in pounds sterling
+     * @param index the index of the lender, between 0 inclusive and <code>size()</code> exclusive
+     * @return the total amount available for loans from the lender in pounds sterling
+     */
+    int getAmount(int index);
+
+    /**
+     * Gets a lender as a <code>Lender</code> object
+     * @param index the index of the lender, between 0 inclusive and <code>size()</code> exclusive
+     * @return the lender
+     */
+    default Lender getLender(final int index) {
+        return new Lender(getName(index), getRate(index), getAmount(index));
+    }
+}
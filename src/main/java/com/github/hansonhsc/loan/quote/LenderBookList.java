@@ -0,0 +1,32 @@
+package com.github.hansonhsc.loan.quote;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * An unmodifiable list view of a book of lenders, creating <code>Lender</code> objects on demand
+ */
+final class LenderBookList extends AbstractList<Lender> implements RandomAccess {
+    /**
+     * the book of lenders being viewed
+     */
+    private final LenderBook book;
+
+    /**
+     * Constructs a list view of the specified book of lenders
+     * @param book the book of lenders to view
+     */
+    LenderBookList(final LenderBook book) {
+        this.book = book;
+    }
+
+    @Override
+    public Lender get(final int index) {
+        return book.getLender(index);
+    }
+
+    @Override
+    public int size() {
+        return book.size();
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.hansonhsc.loan.quote;
+
+import com.github.hansonhsc.loan.ScaledAmortizedLoan;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * A book of lenders backed by a random access list of <code>Lender</code> objects
+ */
+final class ListLenderBook implements LenderBook {
+    /**
+     * the lenders in the book
+     */
+    private final List<Lender> lenders;
+
+    /**
+     * Constructs a book backed by the specified lenders
+     * @param lenders the lenders in the book, which should support fast random access
+     */
+    ListLenderBook(final List<Lender> lenders) {
+        this.lenders = lenders;
+    }
+
+    @Override
+    public int size() {
+        return lenders.size();
+    }
+
+    @Override
+    public String getName(final int index) {
+        return lenders.get(index).getName();
+    }
+
+    @Override
+    public BigDecimal getRate(final int index) {
+        return lenders.get(index).getRate();
+    }
+
+    @Override
+    public long getScaledRate(final int index) {
+        return ScaledAmortizedLoan.toScaled(lenders.get(index).getRate());
+    }
+
+    @Override
+    public int getAmount(final int index) {
+        return lenders.get(index).getAmount();
+    }
+
+    @Override
+    public Lender getLender(final int index) {
+        return lenders.get(index);
+    }
+}
@@ -29,7 +29,13 @@ public final class LoanQuote {
     private final BigDecimal totalRepayment;
 
     /**
-     * Constructs a <code>LoanQuote</code> containing the loan quote information specified
+     * the number of monthly repayments over the entire loan
+     */
+    private final int term;
+
+    /**
+     * Constructs a <code>LoanQuote</code> containing the loan quote information specified, for a loan over
+     * <code>LoanQuoteCalculator.DEFAULT_TERM</code> months
      * @param loanAmount       the initial amount of loan in pounds sterling
      * @param rate             the annual interest rate for the loan as a percentage
      * @param monthlyRepayment the amount to repay (capital and interest) each month in pounds sterling
@@ -38,10 +44,23 @@ public final class LoanQuote {
      *                         overpaid or underpaid through monthly repayments
      */
     public LoanQuote(final int loanAmount, final BigDecimal rate, final BigDecimal monthlyRepayment, final BigDecimal totalRepayment) {
+        this(loanAmount, rate, monthlyRepayment, totalRepayment, LoanQuoteCalculator.DEFAULT_TERM);
+    }
+
+    /**
+     * Constructs a <code>LoanQuote</code> containing the loan quote information specified
+     * @param loanAmount       the initial amount of loan in pounds sterling
+     * @param rate             the annual interest rate for the loan as a percentage
+     * @param monthlyRepayment the amount to repay (capital and interest) each month in pounds sterling
+     * @param totalRepayment   the total amount to repay over the entire loan
+     * @param term             the number of monthly repayments over the entire loan
+     */
+    public LoanQuote(final int loanAmount, final BigDecimal rate, final BigDecimal monthlyRepayment, final BigDecimal totalRepayment, final int term) {
         this.loanAmount = loanAmount;
         this.rate = rate;
         this.monthlyRepayment = monthlyRepayment;
         this.totalRepayment = totalRepayment;
+        this.term = term;
     }
 
     /**
@@ -79,4 +98,13 @@ public final class LoanQuote {
     public BigDecimal getTotalRepayment() {
         return totalRepayment;
     }
+
+    /**
+     * Gets the number of monthly repayments over the entire loan
+     *
+     * @return the number of monthly repayments over the entire loan
+     */
+    public int getTerm() {
+        return term;
+    }
 }
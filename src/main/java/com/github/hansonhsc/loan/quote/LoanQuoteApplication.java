@@ -1,14 +1,33 @@
 package com.github.hansonhsc.loan.quote;
 
-import com.opencsv.bean.CsvToBeanBuilder;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.util.List;
+import javax.management.JMException;
 
 /**
  * A command line application that reads a CSV file of lenders and provides a quote for the requested loan amount
- * using the lenders with the lowest rates
+ * using the lenders with the lowest rates, or serves quotes over HTTP when run with <code>SERVE_COMMAND</code>
  */
 public final class LoanQuoteApplication {
     /**
@@ -26,14 +45,99 @@ public final class LoanQuoteApplication {
      */
     final static int LOAN_AMOUNT_INCREMENT = 100;
 
+    /**
+     * The first argument that runs the application as a long running <code>LoanQuoteServer</code> rather than
+     * printing a single quote
+     */
+    final static String SERVE_COMMAND = "serve";
+
+    /**
+     * The first argument that runs the application over a file of loan amounts rather than a single loan amount, see
+     * <code>BatchQuoter</code>
+     */
+    final static String BATCH_COMMAND = "batch";
+
+    /**
+     * The first argument that writes the amortization schedule of each of a file of loan amounts, see
+     * <code>ScheduleWriter</code>
+     */
+    final static String SCHEDULE_COMMAND = "schedule";
+
+    /**
+     * The value of the <code>--reload</code> option of <code>serve</code> that loads the market once
+     */
+    final static String RELOAD_NONE = "none";
+
+    /**
+     * The value of the <code>--reload</code> option of <code>serve</code> that reloads the market when the file changes,
+     * using a watch service where the file system supports one, see <code>MarketFileWatcher</code>
+     */
+    final static String RELOAD_WATCH = "watch";
+
+    /**
+     * The value of the <code>--reload</code> option of <code>serve</code> that reloads the market when the file changes,
+     * only polling the file
+     */
+    final static String RELOAD_POLL = "poll";
+
+    /**
+     * The size in characters of the buffers that batch results and schedules are read from and written through, so that the output
+     * is written in large blocks rather than a line at a time
+     */
+    private final static int BATCH_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The message given when there are not sufficient offers from lenders to satisfy a loan
+     */
+    final static String INSUFFICIENT_LENDERS_MESSAGE = "Insufficient offers from lenders to satisfy the loan. Try a smaller loan amount.";
+
     /**
      * Entry point for the application
      * @param args array of strings representing the user input. Must be of length 2, where <code>args[0]</code>
      *             is a file path to the input CSV file containing lender information; and <code>args[1]</code>
      *             is an integer specifying the loan amount that is between <code>MIN_LOAN_AMOUNT</code> and
      *             <code>MAX_LOAN_AMOUNT</code> inclusive and in increments of <code>LOAN_AMOUNT_INCREMENT</code>.
+     *             Alternatively, <code>args[0]</code> is <code>SERVE_COMMAND</code> followed by the arguments described
+     *             in <code>startServer</code>, <code>BATCH_COMMAND</code> followed by the arguments described in
+     *             <code>runBatch</code>, or <code>SCHEDULE_COMMAND</code> followed by the arguments described in
+     *             <code>runSchedule</code>.
      */
     public static void main(final String[] args) {
+        if (args.length > 0 && BATCH_COMMAND.equals(args[0])) {
+            try {
+                runBatch(args);
+            } catch (LoanQuoteParameterValidationException e) {
+                print(e.getMessage());
+                printBatchUsage();
+            }
+
+            return;
+        }
+
+        if (args.length > 0 && SCHEDULE_COMMAND.equals(args[0])) {
+            try {
+                runSchedule(args);
+            } catch (LoanQuoteParameterValidationException e) {
+                print(e.getMessage());
+                printScheduleUsage();
+            }
+
+            return;
+        }
+
+        if (args.length > 0 && SERVE_COMMAND.equals(args[0])) {
+            try {
+                final LoanQuoteServer server = startServer(args);
+
+                print("Serving quotes on http://localhost:" + server.getPort() + LoanQuoteServer.QUOTE_PATH + "?amount=");
+            } catch (LoanQuoteParameterValidationException e) {
+                print(e.getMessage());
+                printServeUsage();
+            }
+
+            return;
+        }
+
         // validate number of arguments
         if (args.length != 2) {
             printError("Invalid number of arguments: " + args.length + ". Expected: 2");
@@ -61,7 +165,7 @@ public final class LoanQuoteApplication {
         try {
             quote = loanQuoteCalculator.getQuote(loanAmount);
         } catch (InsufficientLendersException e) {
-            printError("Insufficient offers from lenders to satisfy the loan. Try a smaller loan amount.");
+            printError(INSUFFICIENT_LENDERS_MESSAGE);
 
             return;
         }
@@ -71,37 +175,333 @@ public final class LoanQuoteApplication {
     }
 
     /**
-     * Creates a loan quote calculator from a market CSV file path
-     * @param marketFilePath the file path for a CSV file representing the market lenders
+     * Creates a loan quote calculator from a market CSV file path, or the path of a market snapshot written by
+     * <code>MappedLenderBook.write</code>
+     * @param marketFilePath the file path for a CSV file or snapshot representing the market lenders
      * @return a <code>LoanQuoteCalculator</code> object that can be reused to create as many quotes as we want
      * @throws LoanQuoteParameterValidationException thrown if the <code>marketFilePath</code> is not a file path to a
      * CSV file or the file is not a valid CSV
      */
     static LoanQuoteCalculator createLoanQuoteCalculator(final String marketFilePath) throws LoanQuoteParameterValidationException {
+        final Path marketFile = getMarketFile(marketFilePath);
+
+        try {
+            // a binary snapshot is quoted from in place, otherwise parse the market.csv
+            if (MappedLenderBook.isSnapshot(marketFile)) {
+                return new LoanQuoteCalculator(MappedLenderBook.open(marketFile), RepaymentEngine.BIG_DECIMAL);
+            }
+
+            return new LoanQuoteCalculator(ParallelMarketLoader.load(marketFile), RepaymentEngine.BIG_DECIMAL);
+        } catch (IOException | MarketParseException e) {
+            throw new LoanQuoteParameterValidationException("Unable to parse invalid market file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Ensures that each lender of a market has at most one offer, as a <code>VersionedMarket</code> that is reloaded
+     * from the market file requires
+     * @param lenders the lenders of the market
+     * @throws LoanQuoteParameterValidationException thrown if a lender has more than one offer
+     */
+    private static void validateOneOfferPerLender(final Collection<Lender> lenders) throws LoanQuoteParameterValidationException {
+        final Set<String> names = new HashSet<>();
+
+        for (final Lender lender : lenders) {
+            if (!names.add(lender.getName())) {
+                throw new LoanQuoteParameterValidationException("Unable to parse invalid market file: Lender has more than one offer: " + lender.getName());
+            }
+        }
+    }
+
+    /**
+     * Gets the path of a market file, ensuring that it is a readable file
+     * @param marketFilePath the file path for a CSV file or snapshot representing the market lenders
+     * @return the path of the market file
+     * @throws LoanQuoteParameterValidationException thrown if the <code>marketFilePath</code> is not a path to a
+     * readable file
+     */
+    private static Path getMarketFile(final String marketFilePath) throws LoanQuoteParameterValidationException {
         // first argument is market.csv, ensure that it is a file
-        final FileReader marketFileReader;
+        final Path marketFile;
 
         try {
-            marketFileReader = new FileReader(marketFilePath);
-        } catch (FileNotFoundException e) {
+            marketFile = Paths.get(marketFilePath);
+        } catch (InvalidPathException e) {
             throw new LoanQuoteParameterValidationException("Invalid market file: " + marketFilePath);
         }
 
-        // parse the market.csv
-        final List<Lender> lenders;
+        if (!Files.isRegularFile(marketFile) || !Files.isReadable(marketFile)) {
+            throw new LoanQuoteParameterValidationException("Invalid market file: " + marketFilePath);
+        }
+
+        return marketFile;
+    }
+
+    /**
+     * Starts a server that answers quotes from a market that is loaded once, or that is reloaded whenever the market
+     * file is rewritten, and publishes <code>QuoteMetrics</code> over JMX. The server, its executor and any watcher of
+     * the market file are stopped when the JVM shuts down
+     * @param args array of strings where <code>args[0]</code> is <code>SERVE_COMMAND</code>, <code>args[1]</code> is
+     *             the market file, followed by any of the options <code>--port</code> (default
+     *             <code>LoanQuoteServer.DEFAULT_PORT</code>), <code>--executor</code> (<code>fixed</code> or
+     *             <code>virtual</code>, default <code>fixed</code>), <code>--threads</code> (the size of a fixed
+     *             executor, default the number of processors) and <code>--reload</code> (<code>none</code>,
+     *             <code>watch</code> or <code>poll</code>, default <code>none</code>), each followed by its value
+     * @return the started server
+     * @throws LoanQuoteParameterValidationException thrown if any of the arguments is invalid, a lender has more than
+     * one offer in the market file whether or not it is reloaded, or the server cannot be started
+     */
+    static LoanQuoteServer startServer(final String[] args) throws LoanQuoteParameterValidationException {
+        if (args.length < 2 || args.length % 2 != 0) {
+            throw new LoanQuoteParameterValidationException("Invalid number of arguments: " + args.length + ". Expected: a market file followed by options and their values");
+        }
+
+        int port = LoanQuoteServer.DEFAULT_PORT;
+        String executorName = LoanQuoteServer.FIXED_EXECUTOR;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String reload = RELOAD_NONE;
+
+        for (int i = 2; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--port":
+                    port = getIntegerOption(args[i], args[i + 1]);
+
+                    if (port < 0 || 65535 < port) {
+                        throw new LoanQuoteParameterValidationException("Invalid port, must be between 0-65535 inclusive: " + port);
+                    }
+
+                    break;
+                case "--executor":
+                    executorName = args[i + 1];
+
+                    break;
+                case "--threads":
+                    threads = getIntegerOption(args[i], args[i + 1]);
+
+                    break;
+                case "--reload":
+                    reload = args[i + 1];
+
+                    if (!RELOAD_NONE.equals(reload) && !RELOAD_WATCH.equals(reload) && !RELOAD_POLL.equals(reload)) {
+                        throw new LoanQuoteParameterValidationException("Invalid reload, must be " + RELOAD_NONE + ", " + RELOAD_WATCH + " or " + RELOAD_POLL + ": " + reload);
+                    }
+
+                    break;
+                default:
+                    throw new LoanQuoteParameterValidationException("Invalid option: " + args[i]);
+            }
+        }
 
         try {
-            //noinspection unchecked
-            lenders = new CsvToBeanBuilder(marketFileReader)
-                    .withType(Lender.class)
-                    .withThrowExceptions(true)
-                    .build()
-                    .parse();
-        } catch (RuntimeException e) {
-            throw new LoanQuoteParameterValidationException("Unable to parse invalid market file: " + e.getMessage(), e);
+            QuoteMetrics.getDefault().register(ManagementFactory.getPlatformMBeanServer());
+        } catch (JMException e) {
+            throw new LoanQuoteParameterValidationException("Unable to publish metrics: " + e.getMessage(), e);
+        }
+
+        final Supplier<? extends LoanQuoteCalculator> loanQuoteCalculatorSupplier;
+        final MarketFileWatcher marketFileWatcher;
+
+        if (RELOAD_NONE.equals(reload)) {
+            final LoanQuoteCalculator loanQuoteCalculator = createLoanQuoteCalculator(args[1]);
+
+            // reject the same files as a market that is reloaded, so that adding --reload never stops a server starting
+            validateOneOfferPerLender(loanQuoteCalculator.getLenders());
+
+            loanQuoteCalculatorSupplier = () -> loanQuoteCalculator;
+            marketFileWatcher = null;
+        } else {
+            final VersionedMarket market = new VersionedMarket();
+
+            loanQuoteCalculatorSupplier = market::getCurrentVersion;
+            marketFileWatcher = new MarketFileWatcher(getMarketFile(args[1]), market, RELOAD_WATCH.equals(reload),
+                    MarketFileWatcher.DEFAULT_POLL_INTERVAL_MILLIS, MarketFileWatcher.DEFAULT_QUIET_PERIOD_MILLIS);
+
+            try {
+                marketFileWatcher.load();
+            } catch (IOException | MarketParseException | IllegalArgumentException e) {
+                closeQuietly(marketFileWatcher);
+
+                throw new LoanQuoteParameterValidationException("Unable to parse invalid market file: " + e.getMessage(), e);
+            }
+        }
+
+        final ExecutorService executor;
+        final LoanQuoteServer server;
+
+        try {
+            executor = LoanQuoteServer.createExecutor(executorName, threads);
+        } catch (LoanQuoteParameterValidationException e) {
+            closeQuietly(marketFileWatcher);
+
+            throw e;
+        }
+
+        LoanQuoteServer.enableTcpNoDelay();
+
+        try {
+            server = new LoanQuoteServer(loanQuoteCalculatorSupplier, new InetSocketAddress(port), executor);
+        } catch (IOException e) {
+            executor.shutdown();
+            closeQuietly(marketFileWatcher);
+
+            throw new LoanQuoteParameterValidationException("Unable to listen on port " + port + ": " + e.getMessage(), e);
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            closeQuietly(marketFileWatcher);
+            server.stop(1);
+            executor.shutdown();
+        }));
+
+        if (marketFileWatcher != null) {
+            marketFileWatcher.start();
         }
 
-        return new LoanQuoteCalculator(lenders);
+        server.start();
+
+        return server;
+    }
+
+    /**
+     * Stops a watcher of the market file, if there is one, ignoring any failure to do so
+     * @param marketFileWatcher the watcher, or <code>null</code> if the market file is not watched
+     */
+    private static void closeQuietly(final MarketFileWatcher marketFileWatcher) {
+        if (marketFileWatcher == null) {
+            return;
+        }
+
+        try {
+            marketFileWatcher.close();
+        } catch (IOException e) {
+            // the watcher is no longer needed
+        }
+    }
+
+    /**
+     * Quotes a file of loan amounts, one per line, against a market that is loaded once, see <code>BatchQuoter</code>.
+     * Results are written through a large buffer straight to the channel of the output, rather than through
+     * <code>System.out</code>
+     * @param args array of strings where <code>args[0]</code> is <code>BATCH_COMMAND</code>, <code>args[1]</code> is
+     *             the market file, <code>args[2]</code> is the file of loan amounts or <code>-</code> for the standard
+     *             input, followed by any of the options <code>--format</code> (<code>csv</code> or <code>jsonl</code>,
+     *             default <code>csv</code>) and <code>--output</code> (a file to write the results to, default the
+     *             standard output), each followed by its value
+     * @return the number of lines that could not be quoted
+     * @throws LoanQuoteParameterValidationException thrown if any of the arguments is invalid, or the loan amounts
+     * cannot be read or the results cannot be written
+     */
+    static long runBatch(final String[] args) throws LoanQuoteParameterValidationException {
+        if (args.length < 3 || args.length % 2 != 1) {
+            throw new LoanQuoteParameterValidationException("Invalid number of arguments: " + args.length + ". Expected: a market file and a file of loan amounts followed by options and their values");
+        }
+
+        BatchQuoter.Format format = BatchQuoter.Format.CSV;
+        String outputFilePath = null;
+
+        for (int i = 3; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--format":
+                    if ("csv".equals(args[i + 1])) {
+                        format = BatchQuoter.Format.CSV;
+                    } else if ("jsonl".equals(args[i + 1])) {
+                        format = BatchQuoter.Format.JSON_LINES;
+                    } else {
+                        throw new LoanQuoteParameterValidationException("Invalid format, must be csv or jsonl: " + args[i + 1]);
+                    }
+
+                    break;
+                case "--output":
+                    outputFilePath = args[i + 1];
+
+                    break;
+                default:
+                    throw new LoanQuoteParameterValidationException("Invalid option: " + args[i]);
+            }
+        }
+
+        final BatchQuoter batchQuoter = new BatchQuoter(createLoanQuoteCalculator(args[1]), format);
+
+        return processLines(args[2], outputFilePath, batchQuoter::quote, "Unable to quote the batch: ");
+    }
+
+    /**
+     * Writes the amortization schedule of each of a file of loan amounts, one per line, against a market that is
+     * loaded once, see <code>ScheduleWriter</code>. Schedules are written in the same way as the results of
+     * <code>runBatch</code>
+     * @param args array of strings where <code>args[0]</code> is <code>SCHEDULE_COMMAND</code>, <code>args[1]</code>
+     *             is the market file, <code>args[2]</code> is the file of loan amounts or <code>-</code> for the
+     *             standard input, optionally followed by the option <code>--output</code> (a file to write the
+     *             schedules to, default the standard output) and its value
+     * @return the number of lines that could not be quoted
+     * @throws LoanQuoteParameterValidationException thrown if any of the arguments is invalid, or the loan amounts
+     * cannot be read or the schedules cannot be written
+     */
+    static long runSchedule(final String[] args) throws LoanQuoteParameterValidationException {
+        if (args.length < 3 || args.length % 2 != 1) {
+            throw new LoanQuoteParameterValidationException("Invalid number of arguments: " + args.length + ". Expected: a market file and a file of loan amounts followed by options and their values");
+        }
+
+        String outputFilePath = null;
+
+        for (int i = 3; i < args.length; i += 2) {
+            if ("--output".equals(args[i])) {
+                outputFilePath = args[i + 1];
+            } else {
+                throw new LoanQuoteParameterValidationException("Invalid option: " + args[i]);
+            }
+        }
+
+        final ScheduleWriter scheduleWriter = new ScheduleWriter(createLoanQuoteCalculator(args[1]));
+
+        return processLines(args[2], outputFilePath, scheduleWriter::write, "Unable to write the schedules: ");
+    }
+
+    /**
+     * Processes a file of lines, writing the output through a large buffer straight to the channel of the output file
+     * or of the standard output, rather than through <code>System.out</code>
+     * @param inputFilePath the file to read or <code>-</code> for the standard input
+     * @param outputFilePath the file to write, or <code>null</code> for the standard output
+     * @param processor the processor of the lines
+     * @param failureMessage the start of the message of the exception if the lines cannot be read or written
+     * @return the number of lines that could not be processed
+     * @throws LoanQuoteParameterValidationException thrown if the lines cannot be read or the output cannot be written
+     */
+    private static long processLines(final String inputFilePath, final String outputFilePath, final LineProcessor processor,
+                                     final String failureMessage) throws LoanQuoteParameterValidationException {
+        try (BufferedReader input = "-".equals(inputFilePath)
+                     ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), BATCH_BUFFER_SIZE)
+                     : Files.newBufferedReader(Paths.get(inputFilePath), StandardCharsets.UTF_8);
+             FileChannel outputChannel = outputFilePath == null
+                     ? null
+                     : FileChannel.open(Paths.get(outputFilePath), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // the standard output is written through its file descriptor, and must not be closed
+            final Writer output = new BufferedWriter(Channels.newWriter(
+                    outputChannel != null ? outputChannel : new FileOutputStream(FileDescriptor.out).getChannel(),
+                    StandardCharsets.UTF_8.newEncoder(), -1), BATCH_BUFFER_SIZE);
+
+            final long errorCount = processor.process(input, output);
+            output.flush();
+
+            return errorCount;
+        } catch (IOException | InvalidPathException e) {
+            throw new LoanQuoteParameterValidationException(failureMessage + e, e);
+        }
+    }
+
+    /**
+     * Gets the integer value of an option
+     * @param option the name of the option
+     * @param value the value of the option
+     * @return the integer value of the option
+     * @throws LoanQuoteParameterValidationException thrown if the value is not an integer
+     */
+    private static int getIntegerOption(final String option, final String value) throws LoanQuoteParameterValidationException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new LoanQuoteParameterValidationException("Invalid " + option + " format, must be an integer: " + value, e);
+        }
     }
 
     /**
@@ -168,6 +568,27 @@ public final class LoanQuoteApplication {
         print("Usage: java -jar [loan_quote_jar_file] [market_file] [loan_amount]");
     }
 
+    /**
+     * Prints a single line to the standard output to explain how to run the application as a server
+     */
+    private static void printServeUsage() {
+        print("Usage: java -jar [loan_quote_jar_file] serve [market_file] [--port port] [--executor fixed|virtual] [--threads threads] [--reload none|watch|poll]");
+    }
+
+    /**
+     * Prints a single line to the standard output to explain how to run the application over a file of loan amounts
+     */
+    private static void printBatchUsage() {
+        print("Usage: java -jar [loan_quote_jar_file] batch [market_file] [loan_amounts_file|-] [--format csv|jsonl] [--output output_file]");
+    }
+
+    /**
+     * Prints a single line to the standard output to explain how to write the schedules of a file of loan amounts
+     */
+    private static void printScheduleUsage() {
+        print("Usage: java -jar [loan_quote_jar_file] schedule [market_file] [loan_amounts_file|-] [--output output_file]");
+    }
+
     /**
      * Prints the specified message to standard output. Isolated here, so that if the application ever needs logging,
      * we can integrate it here
@@ -176,4 +597,18 @@ public final class LoanQuoteApplication {
     private static void print(final String message) {
         System.out.println(message);
     }
+
+    /**
+     * Processes the lines of an input into an output, see <code>processLines</code>
+     */
+    private interface LineProcessor {
+        /**
+         * Processes every line of the input
+         * @param input the lines
+         * @param output the destination of the results, which is flushed by the caller
+         * @return the number of lines that could not be processed
+         * @throws IOException thrown if the input cannot be read or the output cannot be written
+         */
+        long process(BufferedReader input, Writer output) throws IOException;
+    }
 }
@@ -1,24 +1,60 @@
 package com.github.hansonhsc.loan.quote;
 
+import com.github.hansonhsc.loan.AmortizationScheduleGenerator;
 import com.github.hansonhsc.loan.AmortizedLoan;
+import com.github.hansonhsc.loan.AnnuityFactor;
+import com.github.hansonhsc.loan.AnnuityFunction;
+import com.github.hansonhsc.loan.InverseRateTable;
+import com.github.hansonhsc.loan.Money;
+import com.github.hansonhsc.loan.ScaledAmortizedLoan;
+import com.github.hansonhsc.loan.ScheduleConsumer;
+import com.github.hansonhsc.loan.solver.RootSolution;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-
-import static java.math.BigDecimal.ROUND_HALF_UP;
-import static java.math.BigDecimal.ROUND_UP;
+import java.util.OptionalInt;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Given a list of lenders, produces quotes on demand using lenders with the lowest rates
  */
 public class LoanQuoteCalculator {
     /**
-     * Total number of repayment months over the entire loan
+     * Total number of repayment months over the entire loan, unless a calculator is constructed with another term
+     */
+    public static final int DEFAULT_TERM = 36;
+
+    /**
+     * The longest term that can be quoted, in months
+     */
+    public static final int MAXIMUM_TERM = 600;
+
+    /**
+     * Upper bound of the error of the rate in tenths of a percent relative to its magnitude, so that rates that are
+     * closer than this to half a tenth are rounded exactly with BigDecimal arithmetic
      */
-    private static final int REPAYMENT_MONTHS = 36;
+    private static final double RATE_ROUNDING_TOLERANCE = 4 * Math.ulp(1.0);
+
+    /**
+     * The solver state of each thread, reused by every quote of the thread that solves for the rate from its monthly repayment
+     */
+    private static final ThreadLocal<SolverScratch> SOLVER_SCRATCH = ThreadLocal.withInitial(SolverScratch::new);
+
+    /**
+     * Marks the cumulative repayments of a book that cannot be priced with fixed point arithmetic
+     */
+    private static final long[] NO_CUMULATIVE_REPAYMENTS = new long[0];
 
     /**
      * the lenders available for loans
@@ -26,87 +62,963 @@ public class LoanQuoteCalculator {
     private final List<Lender> lenders;
 
     /**
-     * Constructs a calculator with the specified lenders
+     * the lenders available for loans, sorted by rate in ascending order, then by amount in descending order
+     */
+    private final SortedLenderBook book;
+
+    /**
+     * the engine used to calculate the monthly repayment towards each lender
+     */
+    private final RepaymentEngine repaymentEngine;
+
+    /**
+     * total number of repayment months over the entire loan
+     */
+    private final int term;
+
+    /**
+     * the annuity factors of the term, shared with every other calculator of the same term
+     */
+    private final AnnuityFactorCache annuityFactors;
+
+    /**
+     * the inverse rate table of the term, shared by every calculator that quotes over the same term, which gives the
+     * solver a starting point a step or two from the rate of every quote
+     */
+    private final InverseRateTable rateTable;
+
+    /**
+     * number of monthly repayments where the engines diverged, only used by <code>RepaymentEngine.SHADOW</code>
+     */
+    private final LongAdder shadowDivergences;
+
+    /**
+     * the metrics that the phases of each quote are recorded into, volatile so that they can be replaced while the
+     * calculator is shared
+     */
+    private volatile QuoteMetrics metrics = QuoteMetrics.getDefault();
+
+    /**
+     * the fixed point monthly repayment towards the lenders up to and including each lender when all of their quota is
+     * borrowed, calculated when first needed by the reverse queries, or <code>NO_CUMULATIVE_REPAYMENTS</code> if a rate
+     * has more than <code>ScaledAmortizedLoan.SCALE</code> decimal places or the total overflows
+     */
+    private volatile long[] cumulativeRepayments;
+
+    /**
+     * Constructs a calculator with the specified lenders, using BigDecimal arithmetic
      *
      * @param lenders list of lenders. Note that this will be mutated: it will be sorted by rate in ascending order,
      *                then by amount in descending order
      */
     public LoanQuoteCalculator(final List<Lender> lenders) {
-        // sort lender based on cheapest rate and the largest amount
-        this.lenders = lenders;
+        this(lenders, RepaymentEngine.BIG_DECIMAL);
+    }
+
+    /**
+     * Constructs a calculator with the specified lenders and repayment engine
+     *
+     * @param lenders list of lenders. Note that this will be mutated: it will be sorted by rate in ascending order,
+     *                then by amount in descending order
+     * @param repaymentEngine the engine used to calculate the monthly repayment towards each lender
+     */
+    public LoanQuoteCalculator(final List<Lender> lenders, final RepaymentEngine repaymentEngine) {
+        this(lenders, repaymentEngine, DEFAULT_TERM);
+    }
+
+    /**
+     * Constructs a calculator with the specified lenders, repayment engine and term
+     *
+     * @param lenders list of lenders. Note that this will be mutated: it will be sorted by rate in ascending order,
+     *                then by amount in descending order
+     * @param repaymentEngine the engine used to calculate the monthly repayment towards each lender
+     * @param term total number of repayment months over the entire loan, between 1 and <code>MAXIMUM_TERM</code>
+     * @throws IllegalArgumentException thrown if the term is not between 1 and <code>MAXIMUM_TERM</code>
+     */
+    public LoanQuoteCalculator(final List<Lender> lenders, final RepaymentEngine repaymentEngine, final int term) {
+        this.repaymentEngine = repaymentEngine;
+        this.term = validateTerm(term);
+
+        annuityFactors = AnnuityFactorCache.forTerm(term);
+        rateTable = InverseRateTable.forTerm(term);
+        shadowDivergences = new LongAdder();
 
-        this.lenders.sort((lender1, lender2) -> {
+        final long start = metrics.start();
+
+        // sort lender based on cheapest rate and the largest amount
+        lenders.sort((lender1, lender2) -> {
             final int rateComparison = lender1.getRate().compareTo(lender2.getRate());
 
             return rateComparison != 0 ? rateComparison : lender2.getAmount() - lender1.getAmount();
         });
+
+        metrics.stop(QuoteMetrics.Phase.SORT, start);
+
+        this.lenders = Collections.unmodifiableList(lenders);
+
+        // lenders are accessed by index when allocating loans
+        book = new CumulativeLenderBook(new ListLenderBook(lenders instanceof RandomAccess ? lenders : new ArrayList<>(lenders)));
+    }
+
+    /**
+     * Constructs a calculator with the specified book of lenders and repayment engine, which allocates and prices
+     * loans directly from the columns of the book
+     *
+     * @param book book of lenders. Note that this will be mutated: it will be sorted by rate in ascending order,
+     *             then by amount in descending order
+     * @param repaymentEngine the engine used to calculate the monthly repayment towards each lender
+     */
+    public LoanQuoteCalculator(final ColumnarLenderBook book, final RepaymentEngine repaymentEngine) {
+        this(book, repaymentEngine, DEFAULT_TERM);
     }
 
     /**
-     * Returns the lenders available for loans
+     * Constructs a calculator with the specified book of lenders, repayment engine and term, which allocates and
+     * prices loans directly from the columns of the book
+     *
+     * @param book book of lenders. Note that this will be mutated: it will be sorted by rate in ascending order,
+     *             then by amount in descending order
+     * @param repaymentEngine the engine used to calculate the monthly repayment towards each lender
+     * @param term total number of repayment months over the entire loan, between 1 and <code>MAXIMUM_TERM</code>
+     * @throws IllegalArgumentException thrown if the term is not between 1 and <code>MAXIMUM_TERM</code>
+     */
+    public LoanQuoteCalculator(final ColumnarLenderBook book, final RepaymentEngine repaymentEngine, final int term) {
+        this.repaymentEngine = repaymentEngine;
+        this.term = validateTerm(term);
+
+        annuityFactors = AnnuityFactorCache.forTerm(term);
+        rateTable = InverseRateTable.forTerm(term);
+        shadowDivergences = new LongAdder();
+
+        final long start = metrics.start();
+
+        book.sort();
+
+        metrics.stop(QuoteMetrics.Phase.SORT, start);
+
+        this.book = new CumulativeLenderBook(book);
+        lenders = Collections.unmodifiableList(new LenderBookList(book));
+    }
+
+    /**
+     * Constructs a calculator with the specified sorted book of lenders and repayment engine, which allocates and
+     * prices loans directly from the book without copying it, e.g. from a <code>MappedLenderBook</code>
+     *
+     * @param book book of lenders, which must already be sorted by rate in ascending order, then by amount in
+     *             descending order
+     * @param repaymentEngine the engine used to calculate the monthly repayment towards each lender
+     */
+    public LoanQuoteCalculator(final SortedLenderBook book, final RepaymentEngine repaymentEngine) {
+        this(book, repaymentEngine, DEFAULT_TERM);
+    }
+
+    /**
+     * Constructs a calculator with the specified sorted book of lenders, repayment engine and term, which allocates and
+     * prices loans directly from the book without copying it
+     *
+     * @param book book of lenders, which must already be sorted by rate in ascending order, then by amount in
+     *             descending order
+     * @param repaymentEngine the engine used to calculate the monthly repayment towards each lender
+     * @param term total number of repayment months over the entire loan, between 1 and <code>MAXIMUM_TERM</code>
+     * @throws IllegalArgumentException thrown if the term is not between 1 and <code>MAXIMUM_TERM</code>
+     */
+    public LoanQuoteCalculator(final SortedLenderBook book, final RepaymentEngine repaymentEngine, final int term) {
+        this.repaymentEngine = repaymentEngine;
+        this.term = validateTerm(term);
+        this.book = book;
+
+        annuityFactors = AnnuityFactorCache.forTerm(term);
+        rateTable = InverseRateTable.forTerm(term);
+        shadowDivergences = new LongAdder();
+        lenders = Collections.unmodifiableList(new LenderBookList(book));
+    }
+
+    /**
+     * Constructs a calculator that quotes from the same lenders as another calculator over a different term
+     *
+     * @param calculator the calculator whose lenders, repayment engine, shadow divergences and metrics are shared
+     * @param term total number of repayment months over the entire loan, which must already be validated
+     */
+    private LoanQuoteCalculator(final LoanQuoteCalculator calculator, final int term) {
+        repaymentEngine = calculator.repaymentEngine;
+        book = calculator.book;
+        lenders = calculator.lenders;
+        shadowDivergences = calculator.shadowDivergences;
+        metrics = calculator.metrics;
+
+        this.term = term;
+        annuityFactors = AnnuityFactorCache.forTerm(term);
+        rateTable = InverseRateTable.forTerm(term);
+    }
+
+    /**
+     * Validates a term
+     * @param term total number of repayment months over the entire loan
+     * @return the term
+     * @throws IllegalArgumentException thrown if the term is not between 1 and <code>MAXIMUM_TERM</code>
+     */
+    private static int validateTerm(final int term) {
+        if (term <= 0 || MAXIMUM_TERM < term) {
+            throw new IllegalArgumentException("Term must be between 1 and " + MAXIMUM_TERM + " months: " + term);
+        }
+
+        return term;
+    }
+
+    /**
+     * Validates a loan amount, so that every way of quoting rejects the same loan amounts in the same way
+     * @param loanAmount the loan amount requested in pounds sterling
+     * @return the loan amount
+     * @throws IllegalArgumentException thrown if the loan amount is not positive
+     */
+    static int validateLoanAmount(final int loanAmount) {
+        if (loanAmount <= 0) {
+            throw new IllegalArgumentException("Loan amount must be positive: " + loanAmount);
+        }
+
+        return loanAmount;
+    }
+
+    /**
+     * Returns an unmodifiable view of the lenders available for loans, in the order that they are used. When the
+     * calculator was constructed from a book of lenders, the view creates <code>Lender</code> objects on demand
      * @return the lenders available for loans
      */
     public Collection<Lender> getLenders() {
         return lenders;
     }
 
+    /**
+     * Returns the engine used to calculate the monthly repayment towards each lender
+     * @return the engine used to calculate the monthly repayment towards each lender
+     */
+    public RepaymentEngine getRepaymentEngine() {
+        return repaymentEngine;
+    }
+
+    /**
+     * Returns the total number of repayment months over the entire loan
+     * @return the total number of repayment months over the entire loan
+     */
+    public int getTerm() {
+        return term;
+    }
+
+    /**
+     * Returns the number of monthly repayments calculated so far where the result of
+     * <code>RepaymentEngine.SCALED_LONG</code> diverged from <code>RepaymentEngine.BIG_DECIMAL</code>. This is always 0
+     * unless the calculator uses <code>RepaymentEngine.SHADOW</code>
+     * @return the number of diverged monthly repayments
+     */
+    public long getShadowDivergenceCount() {
+        return shadowDivergences.sum();
+    }
+
+    /**
+     * Replaces the metrics that the phases of each quote are recorded into, which are <code>QuoteMetrics.getDefault()</code>
+     * unless replaced. Quotes in progress while the metrics are replaced may record some phases into each
+     * @param metrics the metrics to record into
+     */
+    void setMetrics(final QuoteMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * Returns a quote based on the specified loan amount, using the lowest rated lenders possible
      * @param loanAmount the loan amount requested in pounds sterling
      * @return the loan quote containing repayment information and the interest rate of the loan
      * @throws InsufficientLendersException thrown when there is not sufficient funding from the list of lenders
      * to satisfy the requested loan amount
+     * @throws IllegalArgumentException thrown if the loan amount is not positive
      */
     public LoanQuote getQuote(final int loanAmount) throws InsufficientLendersException {
-        final Map<Lender, Integer> loans = getLendersForLoan(loanAmount);
+        validateLoanAmount(loanAmount);
 
-        // calculate monthly repayment for each individual lender
-        final BigDecimal monthlyRepayment = loans.entrySet().stream()
+        final long start = metrics.start();
+        final long allocationStart = metrics.startPhase();
+        final LenderAllocation allocation;
 
-                // calculate total monthly repayment by calculating monthly repayment towards each individual lender
-                .map(individualLoan -> {
-                    final Lender lender = individualLoan.getKey();
-                    final Integer individualLoanAmount = individualLoan.getValue();
+        try {
+            allocation = getLenderAllocation(loanAmount);
+        } catch (InsufficientLendersException e) {
+            metrics.recordInsufficientLenders();
 
-                    return getMonthlyRepayment(lender.getRate(), individualLoanAmount);
-                })
+            throw e;
+        }
 
-                // add up each monthly repayment
-                .reduce(BigDecimal::add)
+        return getQuote(loanAmount, allocation, start, metrics.stop(QuoteMetrics.Phase.ALLOCATION, allocationStart));
+    }
 
-                // there must be at least one lender, so this is impossible
-                .orElseThrow(() -> new IllegalStateException("getLendersForLoan should never return empty map"));
+    /**
+     * Fills in a quote based on the specified loan amount, using the lowest rated lenders possible, without allocating
+     * anything once the annuity factors of the rates of the lenders are cached. The quote is the same as that of
+     * <code>getQuote(int)</code>. Only calculators whose lenders are held as fixed point rates, e.g. those constructed
+     * from a <code>ColumnarLenderBook</code> or a <code>MappedLenderBook</code>, avoid allocating entirely, and
+     * <code>RepaymentEngine.SHADOW</code>, rates with more than <code>ScaledAmortizedLoan.SCALE</code> decimal places
+     * and repayments that overflow fall back to <code>getQuote(int)</code>
+     * @param loanAmount the loan amount requested in pounds sterling
+     * @param result the holder to fill in, which may be reused for every quote
+     * @return <code>result</code>, containing repayment information and the interest rate of the loan
+     * @throws InsufficientLendersException thrown when there is not sufficient funding from the list of lenders
+     * to satisfy the requested loan amount
+     * @throws IllegalArgumentException thrown if the loan amount is not positive
+     */
+    public MutableLoanQuote getQuote(final int loanAmount, final MutableLoanQuote result) throws InsufficientLendersException {
+        validateLoanAmount(loanAmount);
 
-        // calculate total repayment based on non-rounded monthly repayment
-        final BigDecimal totalRepayment = monthlyRepayment.multiply(new BigDecimal(REPAYMENT_MONTHS));
+        if (repaymentEngine == RepaymentEngine.SHADOW) {
+            return result.set(getQuote(loanAmount));
+        }
+
+        final long start = metrics.start();
+        final long allocationStart = metrics.startPhase();
+        final int lastLender = findLastLender(loanAmount);
+
+        if (lastLender == book.size()) {
+            metrics.recordInsufficientLenders();
+
+            throw new InsufficientLendersException();
+        }
+
+        final long repaymentStart = metrics.stop(QuoteMetrics.Phase.ALLOCATION, allocationStart);
+        final int lastLoanAmount = getLastLoanAmount(loanAmount, lastLender);
+
+        // the same as getScaledMonthlyRepayment(LenderAllocation), which every engine matches for rates of up to
+        // ScaledAmortizedLoan.SCALE decimal places
+        final long monthlyRepayment;
+        final long totalRepayment;
+
+        try {
+            long sum = 0;
+
+            for (int i = 0; i <= lastLender; i++) {
+                final int individualLoanAmount = i == lastLender ? lastLoanAmount : book.getAmount(i);
+
+                sum = Math.addExact(sum, annuityFactors.get(book.getScaledRate(i)).getScaledMonthlyRepayment(individualLoanAmount));
+            }
+
+            monthlyRepayment = sum;
+            totalRepayment = Math.multiplyExact(monthlyRepayment, term);
+        } catch (ArithmeticException e) {
+            return result.set(getQuote(loanAmount, new LenderAllocation(book, 0, lastLender + 1, lastLoanAmount), start, repaymentStart));
+        }
+
+        metrics.stop(QuoteMetrics.Phase.REPAYMENT, repaymentStart);
+
+        createQuote(loanAmount, monthlyRepayment, totalRepayment, result);
+
+        metrics.stopQuote(start, lastLender + 1);
+
+        return result;
+    }
+
+    /**
+     * Rounds an annual interest rate half up to one decimal place, with the same result as
+     * <code>new BigDecimal(rate).setScale(1, RoundingMode.HALF_UP)</code> but without allocating unless the rate is within
+     * the error of the double precision arithmetic of half a tenth of a percent
+     * @param rate the annual interest rate in percentage format
+     * @return the rounded annual interest rate in tenths of a percent
+     * @throws NumberFormatException thrown if the rate is not finite
+     */
+    static long roundRateHalfUp(final double rate) {
+        final double tenths = rate * 10;
+        final double integerPart = Math.floor(tenths);
+        final double fractionalPart = tenths - integerPart;
+
+        if (Math.abs(fractionalPart - 0.5) > RATE_ROUNDING_TOLERANCE * Math.max(1, Math.abs(tenths))) {
+            return (long) integerPart + (fractionalPart > 0.5 ? 1 : 0);
+        }
+
+        // too close to half a tenth to know which way the exact value rounds, or not a number
+        return new BigDecimal(rate).setScale(1, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Returns a quote for each of the specified terms based on the specified loan amount, using the lowest rated
+     * lenders possible. The lenders that the loan is borrowed from do not depend on the term, so they are found once
+     * and priced over each term
+     * @param loanAmount the loan amount requested in pounds sterling
+     * @param terms the total number of repayment months of each quote, each between 1 and <code>MAXIMUM_TERM</code>
+     * @return the loan quote for each term, in the same order as the terms
+     * @throws InsufficientLendersException thrown when there is not sufficient funding from the list of lenders
+     * to satisfy the requested loan amount
+     * @throws IllegalArgumentException thrown if the loan amount is not positive, or a term is not between 1 and
+     * <code>MAXIMUM_TERM</code>
+     */
+    public LoanQuote[] getQuotesForTerms(final int loanAmount, final int... terms) throws InsufficientLendersException {
+        validateLoanAmount(loanAmount);
+
+        for (final int quoteTerm : terms) {
+            validateTerm(quoteTerm);
+        }
+
+        final long allocationStart = metrics.startPhase();
+        final LenderAllocation allocation;
+
+        try {
+            allocation = getLenderAllocation(loanAmount);
+        } catch (InsufficientLendersException e) {
+            metrics.recordInsufficientLenders();
+
+            throw e;
+        }
+
+        metrics.stop(QuoteMetrics.Phase.ALLOCATION, allocationStart);
+
+        final LoanQuote[] quotes = new LoanQuote[terms.length];
+
+        for (int i = 0; i < terms.length; i++) {
+            final LoanQuoteCalculator calculator = terms[i] == term ? this : new LoanQuoteCalculator(this, terms[i]);
+
+            quotes[i] = calculator.getQuote(loanAmount, allocation);
+        }
+
+        return quotes;
+    }
+
+    /**
+     * Generates the amortization schedule of a loan over the term of the calculator, with a slice for each lender that
+     * the loan is borrowed from, in the order that they are used. The total repayment of the schedule is the same as
+     * that of <code>getQuote</code>
+     * @param loanAmount the loan amount requested in pounds sterling
+     * @param generator the generator to reuse for the schedule, which is reset
+     * @param consumer the consumer of the rows of the schedule
+     * @throws InsufficientLendersException thrown when there is not sufficient funding from the list of lenders
+     * to satisfy the requested loan amount
+     * @throws IOException thrown if the consumer cannot write a row
+     * @throws ArithmeticException thrown if the rate of a lender has more than <code>ScaledAmortizedLoan.SCALE</code>
+     * decimal places
+     */
+    public void generateSchedule(final int loanAmount, final AmortizationScheduleGenerator generator, final ScheduleConsumer consumer)
+            throws InsufficientLendersException, IOException {
+        prepareSchedule(getLenderAllocation(loanAmount), generator);
+
+        generator.generate(consumer);
+    }
+
+    /**
+     * Resets a schedule generator with a slice for each lender of an allocation, over the term of the calculator
+     * @param allocation the lenders that the borrower is borrowing from
+     * @param generator the generator to reset
+     * @throws ArithmeticException thrown if the rate of a lender has more than <code>ScaledAmortizedLoan.SCALE</code>
+     * decimal places
+     */
+    void prepareSchedule(final LenderAllocation allocation, final AmortizationScheduleGenerator generator) {
+        generator.reset(term);
+
+        for (int i = 0; i < allocation.size(); i++) {
+            final long rate = allocation.getScaledRate(i);
+            final int individualLoanAmount = allocation.getLoanAmount(i);
+
+            generator.addSlice(individualLoanAmount, rate, annuityFactors.get(rate).getScaledMonthlyRepayment(individualLoanAmount));
+        }
+    }
+
+    /**
+     * Returns a quote for each of the specified loan amounts, in a single pass over the lenders. The loan amounts are
+     * priced in ascending order, so the monthly repayments towards the lenders whose quota is entirely used are carried
+     * over from one loan amount to the next. The interest rate of each loan amount is solved in the same way as
+     * <code>getQuote</code>, so every quote is exactly the same as that of <code>getQuote</code>
+     * @param loanAmounts the loan amounts requested in pounds sterling, in any order and possibly repeated
+     * @return the result for each loan amount, in the same order as the loan amounts. A loan amount that cannot be
+     * quoted has a failed result rather than failing the whole batch, with the same exception that
+     * <code>getQuote</code> throws, e.g. an <code>IllegalArgumentException</code> if the loan amount is not positive
+     */
+    public LoanQuoteResult[] getQuotes(final int[] loanAmounts) {
+        final LoanQuoteResult[] results = new LoanQuoteResult[loanAmounts.length];
+
+        // sort the loan amounts along with their positions, the amount in the high bits and the position in the low bits
+        final long[] sortedLoanAmounts = new long[loanAmounts.length];
+
+        for (int i = 0; i < loanAmounts.length; i++) {
+            sortedLoanAmounts[i] = (long) loanAmounts[i] << 32 | i;
+        }
+
+        Arrays.sort(sortedLoanAmounts);
+
+        final Iterator<Lender> lenderIterator = getLenders().iterator();
+
+        // sum of monthly repayments towards the lenders whose quota is entirely used, and the sum of those quotas
+        BigDecimal fullyUsedMonthlyRepayment = BigDecimal.ZERO;
+        long fullyUsedAmount = 0;
+
+        Lender lender = lenderIterator.hasNext() ? lenderIterator.next() : null;
+
+        LoanQuoteResult previousResult = null;
+
+        for (final long sortedLoanAmount : sortedLoanAmounts) {
+            final int loanAmount = (int) (sortedLoanAmount >> 32);
+            final int position = (int) sortedLoanAmount;
+
+            if (previousResult != null && previousResult.getLoanAmount() == loanAmount) {
+                // repeated loan amount
+                results[position] = previousResult;
+
+                continue;
+            }
+
+            try {
+                validateLoanAmount(loanAmount);
+            } catch (IllegalArgumentException e) {
+                previousResult = LoanQuoteResult.failure(loanAmount, e);
+                results[position] = previousResult;
+
+                continue;
+            }
+
+            // use up all the quota of lenders that cannot satisfy the remaining loan amount, see getLenderAllocation
+            while (lender != null && fullyUsedAmount + lender.getAmount() < loanAmount) {
+                fullyUsedMonthlyRepayment = fullyUsedMonthlyRepayment.add(getMonthlyRepayment(lender.getRate(), lender.getAmount()));
+                fullyUsedAmount += lender.getAmount();
+
+                lender = lenderIterator.hasNext() ? lenderIterator.next() : null;
+            }
+
+            if (lender == null) {
+                // insufficient lenders for this loan amount and every larger loan amount
+                previousResult = LoanQuoteResult.failure(loanAmount, new InsufficientLendersException());
+                results[position] = previousResult;
+
+                continue;
+            }
+
+            final int remainingLoanAmount = (int) (loanAmount - fullyUsedAmount);
+            final BigDecimal monthlyRepayment = fullyUsedMonthlyRepayment.add(getMonthlyRepayment(lender.getRate(), remainingLoanAmount));
 
+            try {
+                // start from the inverse rate table rather than the rate of the previous loan amount, which can
+                // converge to the other side of a rounding boundary
+                previousResult = LoanQuoteResult.success(createQuote(loanAmount, monthlyRepayment));
+            } catch (IllegalArgumentException e) {
+                previousResult = LoanQuoteResult.failure(loanAmount, e);
+            }
+
+            results[position] = previousResult;
+        }
+
+        return results;
+    }
+
+    /**
+     * Finds the largest loan amount whose quote has a rate at or below a target rate, e.g. the largest amount that can
+     * be borrowed at 7.0% or less. The blended rate of the cheapest lenders only rises as more is borrowed, so the loan
+     * amount is found with a binary search over the total amount available from the lenders and then over the loan
+     * amounts that the last of them lends towards, with fixed point arithmetic rather than quoting each loan amount
+     * @param maximumRate the highest rate that can be quoted in percentage format, compared with the rate of the quote,
+     *                    which is rounded to one decimal place
+     * @param loanAmountIncrement the loan amounts to consider are the positive multiples of this
+     * @return the largest multiple of <code>loanAmountIncrement</code> that can be quoted at or below the rate, or an
+     * empty optional if there is none
+     * @throws IllegalArgumentException thrown if the loan amount increment is not positive
+     */
+    public OptionalInt getMaximumLoanAmountForRate(final BigDecimal maximumRate, final int loanAmountIncrement) {
+        return getMaximumLoanAmount(QuoteLimit.RATE, toLimit(maximumRate, 1), validateLoanAmountIncrement(loanAmountIncrement));
+    }
+
+    /**
+     * Finds the largest loan amount whose quote has a monthly repayment at or below a budget, e.g. the largest amount
+     * that can be borrowed for 300 pounds a month, with a binary search in the same way as
+     * <code>getMaximumLoanAmountForRate</code>
+     * @param maximumMonthlyRepayment the highest monthly repayment in pounds sterling, compared with the monthly
+     *                                repayment of the quote, which is rounded to the nearest penny
+     * @param loanAmountIncrement the loan amounts to consider are the positive multiples of this
+     * @return the largest multiple of <code>loanAmountIncrement</code> that can be quoted at or below the monthly
+     * repayment, or an empty optional if there is none
+     * @throws IllegalArgumentException thrown if the loan amount increment is not positive
+     */
+    public OptionalInt getMaximumLoanAmountForMonthlyRepayment(final BigDecimal maximumMonthlyRepayment, final int loanAmountIncrement) {
+        return getMaximumLoanAmount(QuoteLimit.MONTHLY_REPAYMENT, toLimit(maximumMonthlyRepayment, 2), validateLoanAmountIncrement(loanAmountIncrement));
+    }
+
+    /**
+     * Validates the increment of the loan amounts of a reverse query
+     * @param loanAmountIncrement the loan amounts to consider are the positive multiples of this
+     * @return the loan amount increment
+     * @throws IllegalArgumentException thrown if the loan amount increment is not positive
+     */
+    private static int validateLoanAmountIncrement(final int loanAmountIncrement) {
+        if (loanAmountIncrement <= 0) {
+            throw new IllegalArgumentException("Loan amount increment must be positive: " + loanAmountIncrement);
+        }
+
+        return loanAmountIncrement;
+    }
+
+    /**
+     * Converts the target of a reverse query to the units of a quote, i.e. the number of tenths of a percent or pennies
+     * that the rounded field of a quote can be at most
+     * @param maximum the target
+     * @param scale the scale of the field of a quote
+     * @return the target rounded down to the scale, as an unscaled value clamped to the range of a long
+     */
+    private static long toLimit(final BigDecimal maximum, final int scale) {
+        final BigInteger limit = maximum.setScale(scale, RoundingMode.FLOOR).unscaledValue();
+
+        if (limit.bitLength() < Long.SIZE) {
+            return limit.longValue();
+        }
+
+        return limit.signum() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+
+    /**
+     * Finds the largest loan amount whose quote is within a limit, see <code>getMaximumLoanAmountForRate</code>. The
+     * search is over the book of the calculator, so subclasses that quote from elsewhere override it
+     * @param limit the field of the quote that is limited
+     * @param maximum the largest value of the field, in tenths of a percent or pennies
+     * @param loanAmountIncrement the loan amounts to consider are the positive multiples of this
+     * @return the largest multiple of <code>loanAmountIncrement</code> that is within the limit, or an empty optional
+     * if there is none
+     */
+    OptionalInt getMaximumLoanAmount(final QuoteLimit limit, final long maximum, final int loanAmountIncrement) {
+        final long capacity = book.size() == 0 ? 0 : book.getCumulativeAmount(book.size() - 1);
+        final long[] repayments = getCumulativeRepayments();
+
+        if (repayments == NO_CUMULATIVE_REPAYMENTS) {
+            return getMaximumQuotedLoanAmount(limit, maximum, loanAmountIncrement, capacity);
+        }
+
+        final int largestLoanAmount = (int) (Math.min(capacity, Integer.MAX_VALUE) / loanAmountIncrement * loanAmountIncrement);
+
+        if (largestLoanAmount <= 0) {
+            return OptionalInt.empty();
+        }
+
+        final int lastLender = findLastLender(largestLoanAmount);
+
+        if (isWithinLimit(limit, maximum, largestLoanAmount, lastLender, repayments)) {
+            return OptionalInt.of(largestLoanAmount);
+        }
+
+        // find the first lender whose entire quota cannot be borrowed within the limit, the cumulative amounts of the
+        // lenders before the last lender of the largest loan amount are all less than it
+        int low = 0;
+        int high = lastLender;
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            final long loanAmount = book.getCumulativeAmount(middle);
+
+            if (loanAmount <= 0 || isWithinLimit(limit, maximum, (int) loanAmount, findLastLender((int) loanAmount), repayments)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        // every loan amount up to the total of the cheaper lenders is within the limit, and every loan amount after it
+        // up to the total of this lender borrows the rest from this lender
+        final long previousCumulativeAmount = low == 0 ? 0 : Math.max(0, book.getCumulativeAmount(low - 1));
+        int lowMultiple = (int) (previousCumulativeAmount / loanAmountIncrement);
+        int highMultiple = (int) (Math.min(book.getCumulativeAmount(low), largestLoanAmount) / loanAmountIncrement);
+
+        while (lowMultiple < highMultiple) {
+            final int middle = lowMultiple + (highMultiple - lowMultiple + 1) / 2;
+
+            if (isWithinLimit(limit, maximum, middle * loanAmountIncrement, low, repayments)) {
+                lowMultiple = middle;
+            } else {
+                highMultiple = middle - 1;
+            }
+        }
+
+        return lowMultiple == 0 ? OptionalInt.empty() : OptionalInt.of(lowMultiple * loanAmountIncrement);
+    }
+
+    /**
+     * Finds the largest loan amount whose quote is within a limit with a binary search that quotes each loan amount it
+     * tries with <code>getQuote(int, MutableLoanQuote)</code>, for books that cannot be priced with fixed point
+     * arithmetic and subclasses that quote from elsewhere
+     * @param limit the field of the quote that is limited
+     * @param maximum the largest value of the field, in tenths of a percent or pennies
+     * @param loanAmountIncrement the loan amounts to consider are the positive multiples of this
+     * @param capacity the total amount available from every lender
+     * @return the largest multiple of <code>loanAmountIncrement</code> that is within the limit, or an empty optional
+     * if there is none
+     */
+    final OptionalInt getMaximumQuotedLoanAmount(final QuoteLimit limit, final long maximum, final int loanAmountIncrement, final long capacity) {
+        final MutableLoanQuote quote = new MutableLoanQuote();
+        int lowMultiple = 0;
+        int highMultiple = (int) (Math.min(capacity, Integer.MAX_VALUE) / loanAmountIncrement);
+
+        while (lowMultiple < highMultiple) {
+            final int middle = lowMultiple + (highMultiple - lowMultiple + 1) / 2;
+            boolean withinLimit;
+
+            try {
+                withinLimit = limit.getValue(getQuote(middle * loanAmountIncrement, quote)) <= maximum;
+            } catch (InsufficientLendersException e) {
+                withinLimit = false;
+            }
+
+            if (withinLimit) {
+                lowMultiple = middle;
+            } else {
+                highMultiple = middle - 1;
+            }
+        }
+
+        return lowMultiple == 0 ? OptionalInt.empty() : OptionalInt.of(lowMultiple * loanAmountIncrement);
+    }
+
+    /**
+     * Checks whether the quote of a loan amount is within a limit, priced from the cumulative repayments of the lenders
+     * in the same way as <code>getQuote(int, MutableLoanQuote)</code>, but without recording any metrics
+     * @param limit the field of the quote that is limited
+     * @param maximum the largest value of the field, in tenths of a percent or pennies
+     * @param loanAmount the loan amount in pounds sterling
+     * @param lastLender the index of the last lender that the borrower is borrowing from, from <code>findLastLender</code>
+     * @param repayments the cumulative repayments of the lenders
+     * @return <code>true</code> if the rounded field of the quote is at most the maximum
+     */
+    private boolean isWithinLimit(final QuoteLimit limit, final long maximum, final int loanAmount, final int lastLender, final long[] repayments) {
+        // cannot overflow, as the repayment towards the last lender is at most that of its entire quota
+        final long monthlyRepayment = (lastLender == 0 ? 0 : repayments[lastLender - 1])
+                + annuityFactors.get(book.getScaledRate(lastLender)).getScaledMonthlyRepayment(getLastLoanAmount(loanAmount, lastLender));
+
+        if (limit == QuoteLimit.MONTHLY_REPAYMENT) {
+            return Money.toPennies(monthlyRepayment, RoundingMode.HALF_UP) <= maximum;
+        }
+
+        return roundRateHalfUp(getApproximateAnnualInterestRate(loanAmount, monthlyRepayment, SOLVER_SCRATCH.get())) <= maximum;
+    }
+
+    /**
+     * Gets the fixed point monthly repayment towards the lenders up to and including each lender when all of their
+     * quota is borrowed, calculating them the first time. Threads that race to calculate them calculate the same
+     * repayments, so whichever is kept does not matter
+     * @return the cumulative repayments, or <code>NO_CUMULATIVE_REPAYMENTS</code> if a rate has more than
+     * <code>ScaledAmortizedLoan.SCALE</code> decimal places or the total overflows
+     */
+    private long[] getCumulativeRepayments() {
+        long[] repayments = cumulativeRepayments;
+
+        if (repayments == null) {
+            repayments = new long[book.size()];
+
+            try {
+                long sum = 0;
+
+                for (int i = 0; i < repayments.length; i++) {
+                    sum = Math.addExact(sum, annuityFactors.get(book.getScaledRate(i)).getScaledMonthlyRepayment(book.getAmount(i)));
+                    repayments[i] = sum;
+                }
+            } catch (ArithmeticException e) {
+                repayments = NO_CUMULATIVE_REPAYMENTS;
+            }
+
+            cumulativeRepayments = repayments;
+        }
+
+        return repayments;
+    }
+
+    /**
+     * Returns a quote for a loan that is split between lenders in the specified way
+     * @param loanAmount the loan amount requested in pounds sterling
+     * @param allocation the lenders that the borrower is borrowing from, which must lend <code>loanAmount</code> in total
+     * @return the loan quote containing repayment information and the interest rate of the loan
+     */
+    LoanQuote getQuote(final int loanAmount, final LenderAllocation allocation) {
+        return getQuote(loanAmount, allocation, metrics.start(), metrics.startPhase());
+    }
+
+    /**
+     * Returns a quote for a loan that is split between lenders in the specified way, recording the phases of pricing it
+     * @param loanAmount the loan amount requested in pounds sterling
+     * @param allocation the lenders that the borrower is borrowing from, which must lend <code>loanAmount</code> in total
+     * @param quoteStart the time that the quote started, from <code>QuoteMetrics.start</code>
+     * @param repaymentStart the time that the allocation was found, or 0 if the phases of the quote are not recorded
+     * @return the loan quote containing repayment information and the interest rate of the loan
+     */
+    private LoanQuote getQuote(final int loanAmount, final LenderAllocation allocation, final long quoteStart, final long repaymentStart) {
+        if (repaymentEngine == RepaymentEngine.SCALED_LONG) {
+            final MutableLoanQuote quote = getScaledQuote(loanAmount, allocation, repaymentStart);
+
+            if (quote != null) {
+                metrics.stopQuote(quoteStart, allocation.size());
+
+                return quote.toLoanQuote();
+            }
+        }
+
+        final BigDecimal monthlyRepayment = getMonthlyRepayment(allocation);
+
+        metrics.stop(QuoteMetrics.Phase.REPAYMENT, repaymentStart);
+
+        final LoanQuote quote = createQuote(loanAmount, monthlyRepayment);
+
+        metrics.stopQuote(quoteStart, allocation.size());
+
+        return quote;
+    }
+
+    /**
+     * Creates a quote entirely with fixed point arithmetic, from the fixed point rates of the lenders to the rounding
+     * of the quote with <code>Money</code>
+     * @param loanAmount the loan amount requested in pounds sterling
+     * @param allocation the lenders that the borrower is borrowing from
+     * @param repaymentStart the time that the allocation was found, or 0 if the phases of the quote are not recorded
+     * @return the loan quote, or <code>null</code> if the repayments overflow or a rate has more than
+     * <code>ScaledAmortizedLoan.SCALE</code> decimal places, so that the quote must be created with BigDecimal arithmetic
+     */
+    private MutableLoanQuote getScaledQuote(final int loanAmount, final LenderAllocation allocation, final long repaymentStart) {
+        final long monthlyRepayment;
+        final long totalRepayment;
+
+        try {
+            monthlyRepayment = getScaledMonthlyRepayment(allocation);
+            totalRepayment = Math.multiplyExact(monthlyRepayment, term);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+
+        metrics.stop(QuoteMetrics.Phase.REPAYMENT, repaymentStart);
+
+        return createQuote(loanAmount, monthlyRepayment, totalRepayment, new MutableLoanQuote());
+    }
+
+    /**
+     * Calculates the total fixed point monthly repayment from the cached annuity factors of the rates of the lenders
+     * @param allocation the lenders that the borrower is borrowing from
+     * @return the sum of the fixed point monthly repayments towards each lender
+     * @throws ArithmeticException thrown if the sum overflows, or a rate has more than <code>ScaledAmortizedLoan.SCALE</code>
+     * decimal places
+     */
+    private long getScaledMonthlyRepayment(final LenderAllocation allocation) {
+        long monthlyRepayment = 0;
+
+        for (int i = 0; i < allocation.size(); i++) {
+            monthlyRepayment = Math.addExact(monthlyRepayment, annuityFactors.get(allocation.getScaledRate(i)).getScaledMonthlyRepayment(allocation.getLoanAmount(i)));
+        }
+
+        return monthlyRepayment;
+    }
+
+    /**
+     * Calculates the total monthly repayment by calculating the monthly repayment towards each individual lender
+     * @param allocation the lenders that the borrower is borrowing from
+     * @return the sum of the monthly repayments towards each lender
+     */
+    private BigDecimal getMonthlyRepayment(final LenderAllocation allocation) {
+        if (repaymentEngine == RepaymentEngine.SCALED_LONG) {
+            // price straight from the fixed point rates, unless the sum overflows
+            try {
+                return ScaledAmortizedLoan.toBigDecimal(getScaledMonthlyRepayment(allocation));
+            } catch (ArithmeticException e) {
+                // fall through to pricing each lender separately, which reports any error that was not an overflow
+            }
+        }
+
+        // there must be at least one lender
+        BigDecimal monthlyRepayment = getMonthlyRepayment(allocation.getRate(0), allocation.getLoanAmount(0));
+
+        for (int i = 1; i < allocation.size(); i++) {
+            monthlyRepayment = monthlyRepayment.add(getMonthlyRepayment(allocation.getRate(i), allocation.getLoanAmount(i)));
+        }
+
+        return monthlyRepayment;
+    }
+
+    /**
+     * Creates a quote from the unrounded monthly repayment of the entire loan
+     * @param loanAmount the loan amount requested in pounds sterling
+     * @param monthlyRepayment the sum of the monthly repayments towards each lender
+     * @return the loan quote containing repayment information and the interest rate of the loan
+     */
+    LoanQuote createQuote(final int loanAmount, final BigDecimal monthlyRepayment) {
         // estimate interest rate based on monthly repayment
-        final double rate = getApproximateAnnualInterestRate(loanAmount, monthlyRepayment);
+        return createQuote(loanAmount, monthlyRepayment, getApproximateAnnualInterestRate(loanAmount, monthlyRepayment));
+    }
+
+    /**
+     * Creates a quote from the unrounded monthly repayment of the entire loan and its approximate interest rate
+     * @param loanAmount the loan amount requested in pounds sterling
+     * @param monthlyRepayment the sum of the monthly repayments towards each lender
+     * @param rate an approximation of the annual interest rate in percentage format
+     * @return the loan quote containing repayment information and the interest rate of the loan
+     */
+    private LoanQuote createQuote(final int loanAmount, final BigDecimal monthlyRepayment, final double rate) {
+        // calculate total repayment based on non-rounded monthly repayment
+        final BigDecimal totalRepayment = monthlyRepayment.multiply(new BigDecimal(term));
 
         return new LoanQuote(
                 loanAmount,
 
                 // round annual interest rate to nearest one decimal place
-                new BigDecimal(rate).setScale(1, ROUND_HALF_UP),
+                new BigDecimal(rate).setScale(1, RoundingMode.HALF_UP),
 
                 // round monthly payment to nearest penny
                 // customer might pay fractional pennies more/less every month
                 // but the last payment can be adjusted to reflect this
-                monthlyRepayment.setScale(2, ROUND_HALF_UP),
+                monthlyRepayment.setScale(2, RoundingMode.HALF_UP),
 
                 // round up to ensure we do not lose fractional pennies, better for the customers to lose out than us having a shortfall
-                totalRepayment.setScale(2, ROUND_UP)
+                totalRepayment.setScale(2, RoundingMode.UP),
+
+                term
+        );
+    }
+
+    /**
+     * Fills in a quote from the unrounded fixed point monthly repayment of the entire loan, rounded with
+     * <code>Money</code> in exactly the same way as <code>createQuote(int, BigDecimal)</code>
+     * @param loanAmount the loan amount requested in pounds sterling
+     * @param monthlyRepayment the fixed point sum of the monthly repayments towards each lender
+     * @param totalRepayment the fixed point monthly repayment multiplied by the term
+     * @param result the holder to fill in
+     * @return <code>result</code>, containing repayment information and the interest rate of the loan
+     */
+    private MutableLoanQuote createQuote(final int loanAmount, final long monthlyRepayment, final long totalRepayment, final MutableLoanQuote result) {
+        final long start = metrics.startPhase();
+        final SolverScratch scratch = SOLVER_SCRATCH.get();
+        final double rate = getApproximateAnnualInterestRate(loanAmount, monthlyRepayment, scratch);
+
+        metrics.stopSolve(start, scratch.solution.getIterations());
+
+        return result.set(
+                loanAmount,
+                roundRateHalfUp(rate),
+                Money.toPennies(monthlyRepayment, RoundingMode.HALF_UP),
+                Money.toPennies(totalRepayment, RoundingMode.UP),
+                term
         );
     }
 
     /**
-     * Calculates an approximate annual interest rate using only the principal, monthly repayment
+     * Calculates an approximate annual interest rate from a fixed point monthly repayment, starting from the inverse
+     * rate table of the term
+     * @param loanAmount initial loan amount
+     * @param monthlyRepayment fixed point amount of repayment per month
+     * @param scratch the solver state of the thread
+     * @return an approximation of the annual interest rate in percentage format
+     */
+    private double getApproximateAnnualInterestRate(final int loanAmount, final long monthlyRepayment, final SolverScratch scratch) {
+        // the same double as BigDecimal.doubleValue, as both the fixed point number and ONE are exact doubles
+        final double monthlyRepaymentAsDouble = monthlyRepayment < 1L << 53
+                ? (double) monthlyRepayment / ScaledAmortizedLoan.ONE
+                : ScaledAmortizedLoan.toBigDecimal(monthlyRepayment).doubleValue();
+
+        return AmortizedLoan.getApproximateAnnualInterestRate(loanAmount, term, monthlyRepaymentAsDouble,
+                rateTable, scratch.function, scratch.solution) * 100;
+    }
+
+    /**
+     * Calculates an approximate annual interest rate using only the principal, monthly repayment, starting from the
+     * inverse rate table of the term
      * @param loanAmount initial loan amount
      * @param monthlyRepayment amount of repayment per month
      * @return an approximation of the annual interest rate in percentage format
      */
     double getApproximateAnnualInterestRate(final int loanAmount, final BigDecimal monthlyRepayment) {
-        return AmortizedLoan.getApproximateAnnualInterestRate(loanAmount, REPAYMENT_MONTHS, monthlyRepayment.doubleValue()) * 100;
+        final long start = metrics.startPhase();
+        final SolverScratch scratch = SOLVER_SCRATCH.get();
+        final double rate = AmortizedLoan.getApproximateAnnualInterestRate(loanAmount, term, monthlyRepayment.doubleValue(),
+                rateTable, scratch.function, scratch.solution) * 100;
+
+        metrics.stopSolve(start, scratch.solution.getIterations());
+
+        return rate;
     }
 
     /**
@@ -116,7 +1028,45 @@ public class LoanQuoteCalculator {
      * @return the repayment required to repay capital and interest every month
      */
     BigDecimal getMonthlyRepayment(final BigDecimal rate, final Integer individualLoanAmount) {
-        return AmortizedLoan.getMonthlyRepayment(new BigDecimal(individualLoanAmount), rate, REPAYMENT_MONTHS);
+        switch (repaymentEngine) {
+            case SCALED_LONG:
+                return ScaledAmortizedLoan.toBigDecimal(annuityFactors.get(ScaledAmortizedLoan.toScaled(rate)).getScaledMonthlyRepayment(individualLoanAmount));
+            case SHADOW:
+                // both engines calculate every repayment from scratch, so that the divergences are not hidden by the cache
+                final BigDecimal monthlyRepayment = getBigDecimalMonthlyRepayment(rate, individualLoanAmount);
+
+                if (monthlyRepayment.compareTo(ScaledAmortizedLoan.toBigDecimal(getScaledMonthlyRepayment(rate, individualLoanAmount))) != 0) {
+                    shadowDivergences.increment();
+                }
+
+                return monthlyRepayment;
+            default:
+                final AnnuityFactor annuityFactor = annuityFactors.get(rate);
+
+                return annuityFactor != null
+                        ? annuityFactor.getMonthlyRepayment(new BigDecimal(individualLoanAmount))
+                        : getBigDecimalMonthlyRepayment(rate, individualLoanAmount);
+        }
+    }
+
+    /**
+     * Calculates the monthly repayment required using amortized interest with BigDecimal arithmetic
+     * @param rate annual interest rate of the loan
+     * @param individualLoanAmount the initial loan amount
+     * @return the repayment required to repay capital and interest every month
+     */
+    private BigDecimal getBigDecimalMonthlyRepayment(final BigDecimal rate, final int individualLoanAmount) {
+        return AmortizedLoan.getMonthlyRepayment(new BigDecimal(individualLoanAmount), rate, term);
+    }
+
+    /**
+     * Calculates the monthly repayment required using amortized interest with fixed point arithmetic
+     * @param rate annual interest rate of the loan
+     * @param individualLoanAmount the initial loan amount
+     * @return the fixed point repayment required to repay capital and interest every month
+     */
+    private long getScaledMonthlyRepayment(final BigDecimal rate, final int individualLoanAmount) {
+        return ScaledAmortizedLoan.getMonthlyRepayment(individualLoanAmount, ScaledAmortizedLoan.toScaled(rate), term);
     }
 
     /**
@@ -127,24 +1077,117 @@ public class LoanQuoteCalculator {
      * to satisfy the requested loan amount
      */
     Map<Lender, Integer> getLendersForLoan(final int loanAmount) throws InsufficientLendersException {
+        final LenderAllocation allocation = getLenderAllocation(loanAmount);
+
         final Map<Lender, Integer> result = new HashMap<>();
 
-        int remainingLoanAmount = loanAmount;
+        for (int i = 0; i < allocation.size(); i++) {
+            result.put(allocation.getLender(i), allocation.getLoanAmount(i));
+        }
 
-        for (final Lender lender : lenders) {
-            // can this lender satisfy remaining loan required?
-            if (lender.getAmount() >= remainingLoanAmount) {
-                result.put(lender, remainingLoanAmount);
+        return result;
+    }
 
-                return result;
-            }
+    /**
+     * Finds the lenders that the borrower is borrowing from with a binary search over the total amount available from
+     * the cheapest lenders. The borrower uses up all of the quota of each lender, in order, until a lender can satisfy
+     * the remaining loan amount
+     * @param loanAmount the total loan amount requested
+     * @return the range of lenders that the borrower is borrowing from, and the amount borrowed from the last lender
+     * @throws InsufficientLendersException thrown when there is not sufficient funding from the list of lenders
+     * to satisfy the requested loan amount
+     */
+    LenderAllocation getLenderAllocation(final int loanAmount) throws InsufficientLendersException {
+        final int lastLender = findLastLender(loanAmount);
+
+        if (lastLender == book.size()) {
+            throw new InsufficientLendersException();
+        }
 
-            // use up all of lender's quota
-            result.put(lender, lender.getAmount());
+        return new LenderAllocation(book, 0, lastLender + 1, getLastLoanAmount(loanAmount, lastLender));
+    }
 
-            remainingLoanAmount -= lender.getAmount();
+    /**
+     * Finds the first lender that can satisfy the remaining loan amount, once the borrower has used up all of the quota
+     * of every cheaper lender, with a binary search over the total amount available from the cheapest lenders
+     * @param loanAmount the total loan amount requested
+     * @return the index of the last lender that the borrower is borrowing from, or the number of lenders if there is
+     * not sufficient funding from the list of lenders
+     */
+    private int findLastLender(final int loanAmount) {
+        int low = 0;
+        int high = book.size();
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (book.getCumulativeAmount(middle) < loanAmount) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
         }
 
-        throw new InsufficientLendersException();
+        return low;
+    }
+
+    /**
+     * Gets the amount borrowed from the last lender of a loan
+     * @param loanAmount the total loan amount requested
+     * @param lastLender the index of the last lender that the borrower is borrowing from, from <code>findLastLender</code>
+     * @return the amount borrowed from the last lender
+     */
+    private int getLastLoanAmount(final int loanAmount, final int lastLender) {
+        // the total first reaches the loan amount at this lender, so it is the actual total rather than a previous one
+        final long previousCumulativeAmount = book.getCumulativeAmount(lastLender) - book.getAmount(lastLender);
+
+        return (int) (loanAmount - previousCumulativeAmount);
+    }
+
+    /**
+     * The fields of a quote that the reverse queries can limit
+     */
+    enum QuoteLimit {
+        /**
+         * the rate, in tenths of a percent
+         */
+        RATE {
+            @Override
+            long getValue(final MutableLoanQuote quote) {
+                return quote.getRateInTenthsOfPercent();
+            }
+        },
+
+        /**
+         * the monthly repayment, in pennies
+         */
+        MONTHLY_REPAYMENT {
+            @Override
+            long getValue(final MutableLoanQuote quote) {
+                return quote.getMonthlyRepaymentInPennies();
+            }
+        };
+
+        /**
+         * Gets the value of the field of a quote
+         * @param quote the quote
+         * @return the rounded value of the field, in tenths of a percent or pennies
+         */
+        abstract long getValue(MutableLoanQuote quote);
+    }
+
+    /**
+     * The objects that solving for the interest rate of a quote needs, which are reused by every quote of a thread
+     */
+    private static final class SolverScratch {
+        /**
+         * the annuity function of the loan being solved, which is changed for every loan
+         */
+        private final AnnuityFunction function = new AnnuityFunction(1, 1, 1);
+
+        /**
+         * the outcome of the last solve
+         */
+        private final RootSolution solution = new RootSolution();
     }
 }
@@ -0,0 +1,81 @@
+package com.github.hansonhsc.loan.quote;
+
+/**
+ * The outcome of quoting a single loan amount within a batch, which is either a quote or the reason that the loan
+ * amount could not be quoted
+ */
+public final class LoanQuoteResult {
+    /**
+     * the loan amount requested in pounds sterling
+     */
+    private final int loanAmount;
+
+    /**
+     * the loan quote, or <code>null</code> if the loan amount could not be quoted
+     */
+    private final LoanQuote quote;
+
+    /**
+     * the reason that the loan amount could not be quoted, or <code>null</code> if it was quoted
+     */
+    private final Exception failure;
+
+    private LoanQuoteResult(final int loanAmount, final LoanQuote quote, final Exception failure) {
+        this.loanAmount = loanAmount;
+        this.quote = quote;
+        this.failure = failure;
+    }
+
+    /**
+     * Creates the result of a loan amount that was quoted
+     * @param quote the loan quote
+     * @return the result of the loan amount
+     */
+    static LoanQuoteResult success(final LoanQuote quote) {
+        return new LoanQuoteResult(quote.getLoanAmount(), quote, null);
+    }
+
+    /**
+     * Creates the result of a loan amount that could not be quoted
+     * @param loanAmount the loan amount requested in pounds sterling
+     * @param failure the reason that the loan amount could not be quoted, e.g. <code>InsufficientLendersException</code>
+     * @return the result of the loan amount
+     */
+    static LoanQuoteResult failure(final int loanAmount, final Exception failure) {
+        return new LoanQuoteResult(loanAmount, null, failure);
+    }
+
+    /**
+     * Gets the loan amount requested in pounds sterling
+     * @return the loan amount requested in pounds sterling
+     */
+    public int getLoanAmount() {
+        return loanAmount;
+    }
+
+    /**
+     * Gets whether the loan amount was quoted
+     * @return <code>true</code> if the loan amount was quoted; <code>false</code> otherwise
+     */
+    public boolean isSuccessful() {
+        return quote != null;
+    }
+
+    /**
+     * Gets the loan quote
+     * @return the loan quote, or <code>null</code> if the loan amount could not be quoted
+     */
+    public LoanQuote getQuote() {
+        return quote;
+    }
+
+    /**
+     * Gets the reason that the loan amount could not be quoted
+     * @return <code>InsufficientLendersException</code> if there is not sufficient funding from the lenders,
+     * <code>IllegalArgumentException</code> if the loan amount is invalid, or <code>null</code> if the loan amount was
+     * quoted
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+}
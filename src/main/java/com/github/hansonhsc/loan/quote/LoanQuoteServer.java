@@ -0,0 +1,332 @@
+package com.github.hansonhsc.loan.quote;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A long running HTTP server that answers <code>GET /quote?amount=</code> with a JSON quote from a calculator that is
+ * built once, or from the current version of a market that is updated while the server is running, using the HTTP
+ * server built into the JDK. Requests are handled on a pluggable executor, see <code>createExecutor</code>
+ */
+public final class LoanQuoteServer {
+    /**
+     * The port that the server listens on unless another is specified
+     */
+    static final int DEFAULT_PORT = 8080;
+
+    /**
+     * The path that quotes are requested from
+     */
+    static final String QUOTE_PATH = "/quote";
+
+    /**
+     * The name of the executor that handles requests on a fixed pool of platform threads
+     */
+    static final String FIXED_EXECUTOR = "fixed";
+
+    /**
+     * The name of the executor that handles each request on a new virtual thread, which needs Java 21 or later
+     */
+    static final String VIRTUAL_EXECUTOR = "virtual";
+
+    /**
+     * The HTTP status for a request that is valid but cannot be satisfied by the lenders
+     */
+    private static final int UNPROCESSABLE_ENTITY = 422;
+
+    /**
+     * The HTTP status for a request that the calculator fails to quote
+     */
+    private static final int INTERNAL_SERVER_ERROR = 500;
+
+    /**
+     * gets the calculator that answers each request
+     */
+    private final Supplier<? extends LoanQuoteCalculator> loanQuoteCalculatorSupplier;
+
+    /**
+     * the underlying HTTP server
+     */
+    private final HttpServer server;
+
+    /**
+     * Constructs a server that is bound to an address but not yet started
+     * @param loanQuoteCalculator the calculator that answers every request, which must be safe to use from many threads
+     * @param address the address to listen on, where port 0 picks any free port
+     * @param executor the executor that handles requests, which is owned by the caller
+     * @throws IOException thrown if the server cannot be bound to the address
+     */
+    public LoanQuoteServer(final LoanQuoteCalculator loanQuoteCalculator, final InetSocketAddress address, final Executor executor) throws IOException {
+        this(() -> loanQuoteCalculator, address, executor);
+    }
+
+    /**
+     * Constructs a server that is bound to an address but not yet started, which gets the calculator once for each
+     * request, e.g. <code>VersionedMarket::getCurrentVersion</code>
+     * @param loanQuoteCalculatorSupplier gets the calculator that answers a request, which must be safe to use from
+     *                                    many threads
+     * @param address the address to listen on, where port 0 picks any free port
+     * @param executor the executor that handles requests, which is owned by the caller
+     * @throws IOException thrown if the server cannot be bound to the address
+     */
+    public LoanQuoteServer(final Supplier<? extends LoanQuoteCalculator> loanQuoteCalculatorSupplier, final InetSocketAddress address,
+                           final Executor executor) throws IOException {
+        this.loanQuoteCalculatorSupplier = loanQuoteCalculatorSupplier;
+
+        server = HttpServer.create(address, 0);
+        server.createContext(QUOTE_PATH, this::handleQuote);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Creates an executor to handle requests by name
+     * @param name either <code>FIXED_EXECUTOR</code> or <code>VIRTUAL_EXECUTOR</code>
+     * @param threads the number of threads of a fixed executor, ignored by a virtual executor
+     * @return a new executor, which must be shut down once the server is stopped
+     * @throws LoanQuoteParameterValidationException thrown if the name is unknown, the number of threads is not
+     * positive, or virtual threads are not supported by the running JDK
+     */
+    static ExecutorService createExecutor(final String name, final int threads) throws LoanQuoteParameterValidationException {
+        if (FIXED_EXECUTOR.equals(name)) {
+            if (threads <= 0) {
+                throw new LoanQuoteParameterValidationException("Invalid number of threads, must be positive: " + threads);
+            }
+
+            final AtomicInteger threadCount = new AtomicInteger();
+            final ThreadFactory threadFactory = runnable -> {
+                final Thread thread = new Thread(runnable, "loan-quote-server-" + threadCount.incrementAndGet());
+
+                // the dispatcher thread of the server keeps the JVM running, not the request handlers
+                thread.setDaemon(true);
+
+                return thread;
+            };
+
+            return Executors.newFixedThreadPool(threads, threadFactory);
+        } else if (VIRTUAL_EXECUTOR.equals(name)) {
+            // compiled for Java 8, so virtual threads are only reachable reflectively
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (NoSuchMethodException e) {
+                throw new LoanQuoteParameterValidationException("Virtual threads need Java 21 or later, running on Java " + System.getProperty("java.version"), e);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new LoanQuoteParameterValidationException("Unable to create virtual threads: " + e, e);
+            }
+        }
+
+        throw new LoanQuoteParameterValidationException("Invalid executor, must be " + FIXED_EXECUTOR + " or " + VIRTUAL_EXECUTOR + ": " + name);
+    }
+
+    /**
+     * Disables Nagle's algorithm on the connections of every HTTP server built into the JDK, unless the
+     * <code>sun.net.httpserver.nodelay</code> system property is already set. The server writes the headers and the
+     * body of a response separately, so with Nagle's algorithm the body waits for the client to acknowledge the
+     * headers, which a client delaying its acknowledgements holds back by about 40ms on every keep-alive request.
+     * The property is JVM wide and is read once, when the first server is created, so this is only called by the
+     * <code>serve</code> command before it creates its server, and an application embedding the server may set the
+     * property itself
+     */
+    static void enableTcpNoDelay() {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /**
+     * Starts accepting requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and closes the server once the requests in progress have been answered
+     * @param delaySeconds the maximum time to wait for the requests in progress, in seconds
+     */
+    public void stop(final int delaySeconds) {
+        server.stop(delaySeconds);
+    }
+
+    /**
+     * Gets the port that the server is listening on, which is useful when it was bound to port 0
+     * @return the port that the server is listening on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Answers a quote request. Every response is JSON: a quote with status 200, or an error message with status 400 if
+     * the loan amount is invalid, 404 if the path is not exactly <code>QUOTE_PATH</code>, 405 if the method is not GET,
+     * 422 if there are insufficient lenders, or 500 if the calculator fails, e.g. a lender of the market has a rate that
+     * cannot be priced, rather than leaving the client without a response
+     * @param exchange the request and response
+     * @throws IOException thrown if the response cannot be sent
+     */
+    private void handleQuote(final HttpExchange exchange) throws IOException {
+        try {
+            // contexts match by prefix, e.g. /quotes
+            if (!QUOTE_PATH.equals(exchange.getRequestURI().getPath())) {
+                sendError(exchange, 404, "Not found: " + exchange.getRequestURI().getPath());
+
+                return;
+            }
+
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, 405, "Method not allowed: " + exchange.getRequestMethod());
+
+                return;
+            }
+
+            final String loanAmountAsString = getQueryParameter(exchange.getRequestURI().getRawQuery(), "amount");
+
+            if (loanAmountAsString == null) {
+                sendError(exchange, 400, "Missing loan amount, must be requested as " + QUOTE_PATH + "?amount=");
+
+                return;
+            }
+
+            final LoanQuote quote;
+
+            try {
+                quote = loanQuoteCalculatorSupplier.get().getQuote(LoanQuoteApplication.getLoanAmount(loanAmountAsString));
+            } catch (LoanQuoteParameterValidationException e) {
+                sendError(exchange, 400, e.getMessage());
+
+                return;
+            } catch (InsufficientLendersException e) {
+                sendError(exchange, UNPROCESSABLE_ENTITY, LoanQuoteApplication.INSUFFICIENT_LENDERS_MESSAGE);
+
+                return;
+            } catch (RuntimeException e) {
+                sendError(exchange, INTERNAL_SERVER_ERROR, "Unable to quote loan amount " + loanAmountAsString + ": " + e.getMessage());
+
+                return;
+            }
+
+            send(exchange, 200, toJson(quote));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Gets the first value of a parameter from a query string
+     * @param rawQuery the query string, which is still URL encoded, or <code>null</code> if there is none
+     * @param name the name of the parameter
+     * @return the decoded value of the parameter, or <code>null</code> if the parameter is missing
+     */
+    static String getQueryParameter(final String rawQuery, final String name) {
+        if (rawQuery == null) {
+            return null;
+        }
+
+        for (final String parameter : rawQuery.split("&")) {
+            final int separator = parameter.indexOf('=');
+            final String parameterName = separator < 0 ? parameter : parameter.substring(0, separator);
+
+            if (name.equals(decode(parameterName))) {
+                return separator < 0 ? "" : decode(parameter.substring(separator + 1));
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Decodes a URL encoded component of a query string
+     * @param value the URL encoded component
+     * @return the decoded component
+     */
+    private static String decode(final String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is always supported
+            throw new IllegalStateException(e);
+        } catch (IllegalArgumentException e) {
+            // malformed escapes are passed through, and rejected as an invalid loan amount
+            return value;
+        }
+    }
+
+    /**
+     * Formats a quote as a JSON object
+     * @param quote the loan quote
+     * @return the JSON object, with the amounts as numbers in pounds sterling and the rate as a percentage
+     */
+    static String toJson(final LoanQuote quote) {
+        return "{\"requestedAmount\":" + quote.getLoanAmount()
+                + ",\"rate\":" + quote.getRate().toPlainString()
+                + ",\"monthlyRepayment\":" + quote.getMonthlyRepayment().toPlainString()
+                + ",\"totalRepayment\":" + quote.getTotalRepayment().toPlainString()
+                + "}";
+    }
+
+    /**
+     * Sends an error message as a JSON object
+     * @param exchange the request and response
+     * @param status the HTTP status
+     * @param message the error message
+     * @throws IOException thrown if the response cannot be sent
+     */
+    private static void sendError(final HttpExchange exchange, final int status, final String message) throws IOException {
+        send(exchange, status, "{\"error\":" + toJson(message) + "}");
+    }
+
+    /**
+     * Formats a string as a JSON string, escaping quotes, backslashes and control characters
+     * @param value the string
+     * @return the JSON string, including the surrounding quotes
+     */
+    static String toJson(final String value) {
+        final StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+
+        return json.append('"').toString();
+    }
+
+    /**
+     * Sends a JSON response
+     * @param exchange the request and response
+     * @param status the HTTP status
+     * @param json the body of the response
+     * @throws IOException thrown if the response cannot be sent
+     */
+    private static void send(final HttpExchange exchange, final int status, final String json) throws IOException {
+        final byte[] body = json.getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+}
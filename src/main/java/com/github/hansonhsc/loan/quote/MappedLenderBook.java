@@ -0,0 +1,346 @@
+package com.github.hansonhsc.loan.quote;
+
+import com.github.hansonhsc.loan.ScaledAmortizedLoan;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A sorted book of lenders that is read in place from a binary market snapshot mapped into memory, without
+ * deserializing it. Opening a snapshot only reads its header, so it takes the same time regardless of the size of the
+ * market, and the pages of the snapshot are shared with every other process that maps the same file.
+ * <p>
+ * A snapshot is written once from a book of lenders with <code>write</code>. It consists of a header followed by the
+ * columns of the sorted lenders, all in big endian byte order:
+ * <pre>
+ * int     magic, "LQMS"
+ * int     version
+ * int     number of lenders (n)
+ * int     number of distinct names (m)
+ * long    number of bytes of UTF-8 encoded names
+ * long    size of the snapshot in bytes
+ * long[n] fixed point rates, see ScaledAmortizedLoan
+ * long[n] total amount available up to and including each lender, see SortedLenderBook
+ * int[n]  amounts
+ * int[n]  index of the name of each lender, or -1 for no name
+ * int[m + 1] offset of each name within the names, followed by the number of bytes of names
+ * byte[n] scale of each rate
+ * byte[]  UTF-8 encoded names
+ * </pre>
+ * A single snapshot is limited to <code>Integer.MAX_VALUE</code> bytes, roughly 80 million lenders
+ */
+public final class MappedLenderBook implements SortedLenderBook {
+    /**
+     * The first 4 bytes of every snapshot, "LQMS" in ASCII
+     */
+    static final int MAGIC = 0x4C514D53;
+
+    /**
+     * The version of the snapshot format written by this class, and the only version that can be read
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Number of bytes in the header, before the columns
+     */
+    private static final int HEADER_SIZE = 32;
+
+    /**
+     * Position of the number of bytes of names within the header
+     */
+    private static final int NAME_BYTES_LENGTH_POSITION = 16;
+
+    /**
+     * Position of the size of the snapshot within the header
+     */
+    private static final int SNAPSHOT_SIZE_POSITION = 24;
+
+    /**
+     * the snapshot, which is only ever read with absolute gets so that it can be shared by threads
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * the number of lenders in the book
+     */
+    private final int size;
+
+    /**
+     * the number of distinct names in the book
+     */
+    private final int nameCount;
+
+    /**
+     * the position of each column in the snapshot
+     */
+    private final int ratesPosition;
+    private final int cumulativeAmountsPosition;
+    private final int amountsPosition;
+    private final int nameIdsPosition;
+    private final int nameOffsetsPosition;
+    private final int rateScalesPosition;
+    private final int namesPosition;
+
+    /**
+     * Constructs a book over a snapshot whose header has been validated
+     * @param buffer the snapshot
+     * @param size the number of lenders in the snapshot
+     * @param nameCount the number of distinct names in the snapshot
+     */
+    private MappedLenderBook(final ByteBuffer buffer, final int size, final int nameCount) {
+        this.buffer = buffer;
+        this.size = size;
+        this.nameCount = nameCount;
+
+        ratesPosition = HEADER_SIZE;
+        cumulativeAmountsPosition = ratesPosition + size * Long.BYTES;
+        amountsPosition = cumulativeAmountsPosition + size * Long.BYTES;
+        nameIdsPosition = amountsPosition + size * Integer.BYTES;
+        nameOffsetsPosition = nameIdsPosition + size * Integer.BYTES;
+        rateScalesPosition = nameOffsetsPosition + (nameCount + 1) * Integer.BYTES;
+        namesPosition = rateScalesPosition + size;
+    }
+
+    /**
+     * Calculates the size of a snapshot
+     * @param size the number of lenders
+     * @param nameCount the number of distinct names
+     * @param nameBytesLength the number of bytes of UTF-8 encoded names
+     * @return the size of the snapshot in bytes
+     */
+    private static long getSnapshotSize(final long size, final long nameCount, final long nameBytesLength) {
+        return HEADER_SIZE + size * (2 * Long.BYTES + 2 * Integer.BYTES + 1) + (nameCount + 1) * Integer.BYTES + nameBytesLength;
+    }
+
+    /**
+     * Writes a snapshot of a book of lenders to a file, replacing the file if it already exists
+     * @param book the book of lenders. Note that this will be mutated: it will be sorted by rate in ascending order,
+     *             then by amount in descending order
+     * @param path the path of the snapshot
+     * @throws IOException thrown if the snapshot cannot be written, or the book is too large for a single snapshot
+     */
+    public static void write(final ColumnarLenderBook book, final Path path) throws IOException {
+        book.sort();
+
+        final int size = book.size();
+
+        // dictionary encode the names in the order that they are first used
+        final Map<String, Integer> nameIds = new HashMap<>();
+        final List<byte[]> names = new ArrayList<>();
+        long nameBytesLength = 0;
+
+        for (int i = 0; i < size; i++) {
+            final String name = book.getName(i);
+
+            if (name != null && !nameIds.containsKey(name)) {
+                final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+
+                nameIds.put(name, names.size());
+                names.add(nameBytes);
+                nameBytesLength += nameBytes.length;
+            }
+        }
+
+        final long snapshotSize = getSnapshotSize(size, names.size(), nameBytesLength);
+
+        if (snapshotSize > Integer.MAX_VALUE) {
+            throw new IOException("Market is too large for a single snapshot: " + snapshotSize + " bytes");
+        }
+
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, snapshotSize);
+
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(size);
+            buffer.putInt(names.size());
+            buffer.putLong(nameBytesLength);
+            buffer.putLong(snapshotSize);
+
+            for (int i = 0; i < size; i++) {
+                buffer.putLong(book.getScaledRate(i));
+            }
+
+            long cumulativeAmount = 0;
+            long maximumCumulativeAmount = Long.MIN_VALUE;
+
+            for (int i = 0; i < size; i++) {
+                cumulativeAmount += book.getAmount(i);
+                maximumCumulativeAmount = Math.max(maximumCumulativeAmount, cumulativeAmount);
+
+                buffer.putLong(maximumCumulativeAmount);
+            }
+
+            for (int i = 0; i < size; i++) {
+                buffer.putInt(book.getAmount(i));
+            }
+
+            for (int i = 0; i < size; i++) {
+                final String name = book.getName(i);
+
+                buffer.putInt(name == null ? -1 : nameIds.get(name));
+            }
+
+            int nameOffset = 0;
+
+            for (final byte[] name : names) {
+                buffer.putInt(nameOffset);
+                nameOffset += name.length;
+            }
+
+            buffer.putInt(nameOffset);
+
+            for (int i = 0; i < size; i++) {
+                buffer.put((byte) book.getRate(i).scale());
+            }
+
+            for (final byte[] name : names) {
+                buffer.put(name);
+            }
+
+            buffer.force();
+        }
+    }
+
+    /**
+     * Opens a snapshot of a book of lenders by mapping it into memory. Only the header is read, the lenders are read
+     * from the mapped snapshot on demand
+     * @param path the path of the snapshot
+     * @return a book of the lenders in the snapshot
+     * @throws IOException thrown if the snapshot cannot be read
+     * @throws MarketParseException thrown if the file is not a valid snapshot
+     */
+    public static MappedLenderBook open(final Path path) throws IOException, MarketParseException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+
+            if (fileSize < HEADER_SIZE) {
+                throw new MarketParseException("Invalid market snapshot: the file is too small for the header");
+            } else if (fileSize > Integer.MAX_VALUE) {
+                throw new MarketParseException("Invalid market snapshot: the file is too large to be a snapshot");
+            }
+
+            // the mapping remains valid after the channel is closed
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+
+            if (buffer.getInt(0) != MAGIC) {
+                throw new MarketParseException("Invalid market snapshot: the file is not a market snapshot");
+            } else if (buffer.getInt(Integer.BYTES) != VERSION) {
+                throw new MarketParseException("Invalid market snapshot: unsupported version " + buffer.getInt(Integer.BYTES) + ", expected " + VERSION);
+            }
+
+            final int size = buffer.getInt(2 * Integer.BYTES);
+            final int nameCount = buffer.getInt(3 * Integer.BYTES);
+            final long nameBytesLength = buffer.getLong(NAME_BYTES_LENGTH_POSITION);
+            final long snapshotSize = buffer.getLong(SNAPSHOT_SIZE_POSITION);
+
+            if (size < 0 || nameCount < 0 || nameBytesLength < 0 || snapshotSize != fileSize
+                    || getSnapshotSize(size, nameCount, nameBytesLength) != snapshotSize) {
+                throw new MarketParseException("Invalid market snapshot: the header does not match the size of the file");
+            }
+
+            return new MappedLenderBook(buffer, size, nameCount);
+        }
+    }
+
+    /**
+     * Gets whether a file starts with the magic number of a snapshot, i.e. whether it should be opened with
+     * <code>open</code> rather than parsed as a market CSV file
+     * @param path the path of the file
+     * @return <code>true</code> if the file starts with the magic number of a snapshot, otherwise <code>false</code>
+     * @throws IOException thrown if the file cannot be read
+     */
+    public static boolean isSnapshot(final Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // keep reading until the magic number is complete or the file ends
+            }
+
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getName(final int index) {
+        final int nameId = buffer.getInt(nameIdsPosition + checkIndex(index) * Integer.BYTES);
+
+        if (nameId == -1) {
+            return null;
+        } else if (nameId < 0 || nameCount <= nameId) {
+            throw new IllegalStateException("Invalid market snapshot: name " + nameId + " of lender " + index + " does not exist");
+        }
+
+        final int nameOffset = buffer.getInt(nameOffsetsPosition + nameId * Integer.BYTES);
+        final int nameLength = buffer.getInt(nameOffsetsPosition + (nameId + 1) * Integer.BYTES) - nameOffset;
+
+        final byte[] name = new byte[nameLength];
+
+        for (int i = 0; i < nameLength; i++) {
+            name[i] = buffer.get(namesPosition + nameOffset + i);
+        }
+
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public BigDecimal getRate(final int index) {
+        final int rateScale = buffer.get(rateScalesPosition + checkIndex(index));
+
+        // the snapshot is written from rates that have no non-zero digits beyond their original scale
+        return ScaledAmortizedLoan.toBigDecimal(getScaledRate(index)).setScale(rateScale);
+    }
+
+    @Override
+    public long getScaledRate(final int index) {
+        return buffer.getLong(ratesPosition + checkIndex(index) * Long.BYTES);
+    }
+
+    @Override
+    public int getAmount(final int index) {
+        return buffer.getInt(amountsPosition + checkIndex(index) * Integer.BYTES);
+    }
+
+    @Override
+    public long getCumulativeAmount(final int index) {
+        return buffer.getLong(cumulativeAmountsPosition + checkIndex(index) * Long.BYTES);
+    }
+
+    /**
+     * Gets the number of distinct lender names in the book
+     * @return the number of distinct lender names in the book
+     */
+    public int getNameCount() {
+        return nameCount;
+    }
+
+    /**
+     * Checks that an index is within the book
+     * @param index the index of a lender
+     * @return the index
+     */
+    private int checkIndex(final int index) {
+        if (index < 0 || size <= index) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        return index;
+    }
+}
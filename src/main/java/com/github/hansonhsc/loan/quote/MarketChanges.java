@@ -0,0 +1,95 @@
+package com.github.hansonhsc.loan.quote;
+
+/**
+ * The offers that were changed by replacing every offer of a <code>VersionedMarket</code> with
+ * <code>VersionedMarket.update</code>
+ */
+public final class MarketChanges {
+    /**
+     * the number of lenders that did not have an offer before the update
+     */
+    private final int addedCount;
+
+    /**
+     * the number of lenders whose rate or amount was changed by the update
+     */
+    private final int amendedCount;
+
+    /**
+     * the number of lenders whose offer was withdrawn by the update
+     */
+    private final int withdrawnCount;
+
+    /**
+     * the version of the market after the update
+     */
+    private final long version;
+
+    /**
+     * Constructs the changes of an update
+     * @param addedCount the number of lenders that did not have an offer before the update
+     * @param amendedCount the number of lenders whose rate or amount was changed by the update
+     * @param withdrawnCount the number of lenders whose offer was withdrawn by the update
+     * @param version the version of the market after the update
+     */
+    MarketChanges(final int addedCount, final int amendedCount, final int withdrawnCount, final long version) {
+        this.addedCount = addedCount;
+        this.amendedCount = amendedCount;
+        this.withdrawnCount = withdrawnCount;
+        this.version = version;
+    }
+
+    /**
+     * Gets the number of lenders that did not have an offer before the update
+     * @return the number of offers added
+     */
+    public int getAddedCount() {
+        return addedCount;
+    }
+
+    /**
+     * Gets the number of lenders whose rate or amount was changed by the update
+     * @return the number of offers amended
+     */
+    public int getAmendedCount() {
+        return amendedCount;
+    }
+
+    /**
+     * Gets the number of lenders whose offer was withdrawn by the update
+     * @return the number of offers withdrawn
+     */
+    public int getWithdrawnCount() {
+        return withdrawnCount;
+    }
+
+    /**
+     * Checks whether the update changed any offer. An update without changes does not publish a new version
+     * @return <code>true</code> if no offer was added, amended or withdrawn, otherwise <code>false</code>
+     */
+    public boolean isEmpty() {
+        return addedCount == 0 && amendedCount == 0 && withdrawnCount == 0;
+    }
+
+    /**
+     * Gets the version of the market after the update, which is the version before the update if nothing changed
+     * @return the version of the market after the update
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Generated toString method
+     * @return string representation of this object, for logging purposes.
+     */
+    @Override
+    public String toString() {
+        return "MarketChanges{" +
+                "addedCount=" + addedCount +
+                ", amendedCount=" + amendedCount +
+                ", withdrawnCount=" + withdrawnCount +
+                ", version=" + version +
+                '}';
+    }
+}
@@ -0,0 +1,692 @@
+package com.github.hansonhsc.loan.quote;
+
+import com.github.hansonhsc.loan.ScaledAmortizedLoan;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A streaming parser for market CSV files with the columns <code>Lender</code>, <code>Rate</code> and
+ * <code>Available</code>, in any order. The file is read through NIO buffers a block at a time, and rates and amounts
+ * are parsed straight from the bytes into a <code>ColumnarLenderBook</code> without creating a <code>Lender</code> or
+ * intermediate String for each row. Fields may be quoted with <code>"</code>, in which case they may contain commas
+ * and new lines, and a quote within a quoted field is escaped either by doubling it or with a backslash
+ */
+public final class MarketCsvParser {
+    /**
+     * Message of the exception thrown when the header of the file is not valid
+     */
+    static final String HEADER_ERROR_MESSAGE = "Error capturing CSV header!";
+
+    /**
+     * Size of the buffer that the file is read into, in bytes
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * A rough lower bound of the bytes used by each row, used to size the book up front
+     */
+    private static final int ESTIMATED_BYTES_PER_ROW = 32;
+
+    /**
+     * Names of the required columns, which are matched ignoring case
+     */
+    private static final String NAME_COLUMN = "Lender";
+    private static final String RATE_COLUMN = "Rate";
+    private static final String AMOUNT_COLUMN = "Available";
+
+    /**
+     * States of the parser between bytes
+     */
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+    private static final int ESCAPE = 4;
+    private static final int ESCAPE_IN_QUOTED = 5;
+
+    /**
+     * Powers of 10 that fit in a long, used to scale parsed rates
+     */
+    private static final long[] POWERS_OF_10 = new long[ScaledAmortizedLoan.SCALE + 1];
+
+    static {
+        POWERS_OF_10[0] = 1;
+
+        for (int i = 1; i < POWERS_OF_10.length; i++) {
+            POWERS_OF_10[i] = POWERS_OF_10[i - 1] * 10;
+        }
+    }
+
+    /**
+     * the book that parsed lenders are added to
+     */
+    private final ColumnarLenderBook book;
+
+    /**
+     * the index of each required column, or -1 until the header has been parsed
+     */
+    private int nameColumn = -1;
+    private int rateColumn = -1;
+    private int amountColumn = -1;
+
+    /**
+     * the number of columns in the header, or 0 until the header has been parsed
+     */
+    private int columnCount;
+
+    /**
+     * the line of the file that the next byte is on
+     */
+    private long lineNumber;
+
+    /**
+     * the line of the file that the current record started on
+     */
+    private long recordLineNumber;
+
+    /**
+     * whether any bytes of the current record have been read
+     */
+    private boolean recordStarted;
+
+    /**
+     * the state of the parser after the last byte
+     */
+    private int state = FIELD_START;
+
+    /**
+     * the unescaped bytes of every field of the current record, one after another
+     */
+    private byte[] recordBytes = new byte[256];
+
+    /**
+     * the number of bytes in <code>recordBytes</code>
+     */
+    private int recordLength;
+
+    /**
+     * the end of each field of the current record in <code>recordBytes</code>, where each field starts at the end of
+     * the previous field
+     */
+    private int[] fieldEnds = new int[8];
+
+    /**
+     * the number of fields of the current record that have ended
+     */
+    private int fieldCount;
+
+    /**
+     * Constructs a parser that expects a header as its first record
+     * @param book the book that parsed lenders are added to
+     * @param firstLineNumber the line of the file that the first byte is on
+     */
+    MarketCsvParser(final ColumnarLenderBook book, final long firstLineNumber) {
+        this.book = book;
+
+        lineNumber = firstLineNumber;
+    }
+
+    /**
+     * Constructs a parser for rows of a file whose header has already been parsed by another parser
+     * @param book the book that parsed lenders are added to
+     * @param firstLineNumber the line of the file that the first byte is on
+     * @param headerParser the parser that parsed the header of the file
+     */
+    MarketCsvParser(final ColumnarLenderBook book, final long firstLineNumber, final MarketCsvParser headerParser) {
+        this(book, firstLineNumber);
+
+        if (!headerParser.hasHeader()) {
+            throw new IllegalArgumentException("Header has not been parsed");
+        }
+
+        nameColumn = headerParser.nameColumn;
+        rateColumn = headerParser.rateColumn;
+        amountColumn = headerParser.amountColumn;
+        columnCount = headerParser.columnCount;
+    }
+
+    /**
+     * Parses a market CSV file
+     * @param path the path of the market CSV file
+     * @return a book of the lenders in the file, in the same order as the file
+     * @throws IOException thrown if the file cannot be read
+     * @throws MarketParseException thrown if the file is not a valid market CSV file
+     */
+    public static ColumnarLenderBook parse(final Path path) throws IOException, MarketParseException {
+        final QuoteMetrics metrics = QuoteMetrics.getDefault();
+        final long start = metrics.start();
+
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long estimatedRows = channel.size() / ESTIMATED_BYTES_PER_ROW;
+
+            return parse(channel, new ColumnarLenderBook((int) Math.min(estimatedRows, Integer.MAX_VALUE >> 1)));
+        } finally {
+            metrics.stop(QuoteMetrics.Phase.PARSE, start);
+        }
+    }
+
+    /**
+     * Parses a market CSV file from a channel, reading until the end of the channel
+     * @param channel the channel to read the market CSV file from, which is not closed
+     * @return a book of the lenders in the file, in the same order as the file
+     * @throws IOException thrown if the channel cannot be read
+     * @throws MarketParseException thrown if the file is not a valid market CSV file
+     */
+    public static ColumnarLenderBook parse(final ReadableByteChannel channel) throws IOException, MarketParseException {
+        return parse(channel, new ColumnarLenderBook());
+    }
+
+    /**
+     * Parses a market CSV file from a channel into the specified book
+     * @param channel the channel to read the market CSV file from, which is not closed
+     * @param book the book that parsed lenders are added to
+     * @return <code>book</code>
+     * @throws IOException thrown if the channel cannot be read
+     * @throws MarketParseException thrown if the file is not a valid market CSV file
+     */
+    private static ColumnarLenderBook parse(final ReadableByteChannel channel, final ColumnarLenderBook book) throws IOException, MarketParseException {
+        final MarketCsvParser parser = new MarketCsvParser(book, 1);
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            parser.parse(buffer);
+            buffer.clear();
+        }
+
+        parser.finish();
+
+        return book;
+    }
+
+    /**
+     * Parses the remaining bytes of a buffer, which may end part of the way through a record. The position of the
+     * buffer is not changed
+     * @param buffer the next bytes of the file
+     * @throws MarketParseException thrown if a complete record in the buffer is not valid
+     */
+    void parse(final ByteBuffer buffer) throws MarketParseException {
+        final int limit = buffer.limit();
+
+        for (int i = buffer.position(); i < limit; i++) {
+            accept(buffer.get(i));
+        }
+    }
+
+    /**
+     * Gets whether the header of the file has been parsed
+     * @return <code>true</code> if the header has been parsed, otherwise <code>false</code>
+     */
+    boolean hasHeader() {
+        return columnCount != 0;
+    }
+
+    /**
+     * Gets whether the last byte parsed was inside a quoted field
+     * @return <code>true</code> if the last byte parsed was inside a quoted field, otherwise <code>false</code>
+     */
+    boolean isInQuotes() {
+        return state == QUOTED || state == ESCAPE_IN_QUOTED;
+    }
+
+    /**
+     * Gets the line of the file that the next byte is on
+     * @return the line of the file that the next byte is on
+     */
+    long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Moves the line number of an error by a number of lines, for errors from a parser that started part of the way
+     * through a file without knowing which line it started on
+     * @param e the error, as thrown by a parser
+     * @param lines the number of lines to move the error by
+     * @return an equivalent error at the moved line number
+     */
+    static MarketParseException moveLineNumber(final MarketParseException e, final long lines) {
+        final String rowErrorPrefix = "Error parsing CSV line: " + e.getLineNumber() + ".";
+
+        final String message = e.getMessage().startsWith(rowErrorPrefix)
+                ? "Error parsing CSV line: " + (e.getLineNumber() + lines) + "." + e.getMessage().substring(rowErrorPrefix.length())
+                : e.getMessage();
+
+        final MarketParseException moved = new MarketParseException(message, e.getLineNumber() + lines, e.getCause());
+        moved.setStackTrace(e.getStackTrace());
+
+        return moved;
+    }
+
+    /**
+     * Finishes parsing at the end of the file, parsing the last record if it does not end with a new line
+     * @throws MarketParseException thrown if the last record is not valid, or the file had no header
+     */
+    void finish() throws MarketParseException {
+        if (isInQuotes()) {
+            throw rowError("Quoted field is not terminated.");
+        } else if (state == ESCAPE) {
+            append((byte) '\\');
+        }
+
+        if (recordStarted) {
+            endRecord();
+        }
+
+        if (columnCount == 0) {
+            throw new MarketParseException(HEADER_ERROR_MESSAGE, 1, headerCause(new ArrayList<>()));
+        }
+    }
+
+    /**
+     * Parses the next byte of the file
+     * @param b the next byte of the file
+     * @throws MarketParseException thrown if the byte completes a record that is not valid
+     */
+    private void accept(final byte b) throws MarketParseException {
+        if (!recordStarted) {
+            recordStarted = true;
+            recordLineNumber = lineNumber;
+        }
+
+        switch (state) {
+            case FIELD_START:
+                if (b == '"') {
+                    state = QUOTED;
+                } else {
+                    state = UNQUOTED;
+                    acceptUnquoted(b);
+                }
+                break;
+            case UNQUOTED:
+                acceptUnquoted(b);
+                break;
+            case QUOTED:
+                if (b == '"') {
+                    state = QUOTE_IN_QUOTED;
+                } else if (b == '\\') {
+                    state = ESCAPE_IN_QUOTED;
+                } else {
+                    if (b == '\n') {
+                        lineNumber++;
+                    }
+
+                    append(b);
+                }
+                break;
+            case QUOTE_IN_QUOTED:
+                if (b == '"') {
+                    // a doubled quote is an escaped quote
+                    append(b);
+                    state = QUOTED;
+                } else {
+                    // the quoted part of the field has ended, anything else up to the next separator is kept as is
+                    state = UNQUOTED;
+                    acceptUnquoted(b);
+                }
+                break;
+            case ESCAPE:
+            case ESCAPE_IN_QUOTED:
+                final int unescapedState = state == ESCAPE ? UNQUOTED : QUOTED;
+
+                state = unescapedState;
+
+                if (b == '"' || b == '\\') {
+                    append(b);
+                } else {
+                    // not an escape sequence, so the backslash is kept as is
+                    append((byte) '\\');
+                    accept(b);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown state: " + state);
+        }
+    }
+
+    /**
+     * Parses the next byte of the file outside of quotes
+     * @param b the next byte of the file
+     * @throws MarketParseException thrown if the byte completes a record that is not valid
+     */
+    private void acceptUnquoted(final byte b) throws MarketParseException {
+        switch (b) {
+            case ',':
+                endField();
+                break;
+            case '\n':
+                endRecord();
+                lineNumber++;
+                break;
+            case '\r':
+                // ignored so that lines may end with either \r\n or \n
+                break;
+            case '\\':
+                state = ESCAPE;
+                break;
+            default:
+                append(b);
+        }
+    }
+
+    /**
+     * Appends a byte to the current field
+     * @param b the unescaped byte
+     */
+    private void append(final byte b) {
+        if (recordLength == recordBytes.length) {
+            recordBytes = Arrays.copyOf(recordBytes, recordLength * 2);
+        }
+
+        recordBytes[recordLength++] = b;
+    }
+
+    /**
+     * Ends the current field, so that the next byte starts a new field
+     */
+    private void endField() {
+        if (fieldCount == fieldEnds.length) {
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+
+        fieldEnds[fieldCount++] = recordLength;
+        state = FIELD_START;
+    }
+
+    /**
+     * Ends the current record and parses it, so that the next byte starts a new record
+     * @throws MarketParseException thrown if the record is not valid
+     */
+    private void endRecord() throws MarketParseException {
+        endField();
+
+        if (columnCount == 0) {
+            parseHeader();
+        } else {
+            parseRow();
+        }
+
+        recordLength = 0;
+        fieldCount = 0;
+        recordStarted = false;
+    }
+
+    /**
+     * Gets the start of a field of the current record in <code>recordBytes</code>
+     * @param field the index of the field
+     * @return the start of the field, inclusive
+     */
+    private int getFieldStart(final int field) {
+        return field == 0 ? 0 : fieldEnds[field - 1];
+    }
+
+    /**
+     * Parses the current record as the header, finding the index of each required column
+     * @throws MarketParseException thrown if any required column is missing
+     */
+    private void parseHeader() throws MarketParseException {
+        final List<String> names = new ArrayList<>(fieldCount);
+
+        for (int i = 0; i < fieldCount; i++) {
+            String name = new String(recordBytes, getFieldStart(i), fieldEnds[i] - getFieldStart(i), StandardCharsets.UTF_8).trim();
+
+            // ignore the byte order mark at the start of the file
+            if (i == 0 && name.startsWith("\uFEFF")) {
+                name = name.substring(1).trim();
+            }
+
+            names.add(name);
+
+            if (nameColumn < 0 && NAME_COLUMN.equalsIgnoreCase(name)) {
+                nameColumn = i;
+            } else if (rateColumn < 0 && RATE_COLUMN.equalsIgnoreCase(name)) {
+                rateColumn = i;
+            } else if (amountColumn < 0 && AMOUNT_COLUMN.equalsIgnoreCase(name)) {
+                amountColumn = i;
+            }
+        }
+
+        if (nameColumn < 0 || rateColumn < 0 || amountColumn < 0) {
+            throw new MarketParseException(HEADER_ERROR_MESSAGE, recordLineNumber, headerCause(names));
+        }
+
+        columnCount = fieldCount;
+    }
+
+    /**
+     * Creates the exception describing which required columns are missing from the header
+     * @param names the names of the columns in the header
+     * @return the exception describing the invalid header
+     */
+    private MarketParseException headerCause(final List<String> names) {
+        final List<String> missingColumns = new ArrayList<>();
+
+        if (nameColumn < 0) {
+            missingColumns.add(NAME_COLUMN);
+        }
+
+        if (rateColumn < 0) {
+            missingColumns.add(RATE_COLUMN);
+        }
+
+        if (amountColumn < 0) {
+            missingColumns.add(AMOUNT_COLUMN);
+        }
+
+        return new MarketParseException("Header is missing required fields " + missingColumns
+                + ". The list of headers encountered is " + names + ".", recordLineNumber);
+    }
+
+    /**
+     * Parses the current record as a lender and adds it to the book
+     * @throws MarketParseException thrown if the record is not a valid lender
+     */
+    private void parseRow() throws MarketParseException {
+        if (fieldCount != columnCount) {
+            throw rowError("Number of data fields does not match number of headers.");
+        }
+
+        // the name is kept as is, but numbers may be surrounded by whitespace
+        final int nameStart = getFieldStart(nameColumn);
+        final int nameEnd = fieldEnds[nameColumn];
+
+        if (trimStart(nameStart, nameEnd) == nameEnd) {
+            throw rowError("Field 'name' is mandatory but no value was provided.");
+        }
+
+        final int rateEnd = trimEnd(getFieldStart(rateColumn), fieldEnds[rateColumn]);
+        final int rateStart = trimStart(getFieldStart(rateColumn), rateEnd);
+
+        if (rateStart == rateEnd) {
+            throw rowError("Field 'rate' is mandatory but no value was provided.");
+        }
+
+        final int amountEnd = trimEnd(getFieldStart(amountColumn), fieldEnds[amountColumn]);
+        final int amountStart = trimStart(getFieldStart(amountColumn), amountEnd);
+
+        if (amountStart == amountEnd) {
+            throw rowError("Field 'amount' is mandatory but no value was provided.");
+        }
+
+        final int amount = parseAmount(amountStart, amountEnd);
+        final String name = new String(recordBytes, nameStart, nameEnd - nameStart, StandardCharsets.UTF_8);
+
+        if (!addScaledRate(name, rateStart, rateEnd, amount)) {
+            // rates that are not plain decimals, or have too many digits, are parsed by BigDecimal
+            final String rate = getString(rateStart, rateEnd);
+
+            try {
+                book.add(name, new BigDecimal(rate), amount);
+            } catch (NumberFormatException e) {
+                throw rowError("Conversion of " + rate + " to java.math.BigDecimal failed.", e);
+            } catch (IllegalArgumentException e) {
+                throw rowError(e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Parses a rate of the form <code>[+-]digits[.digits]</code> straight from the bytes and adds the lender to the book
+     * @param name the name of the lender
+     * @param start the start of the rate in <code>recordBytes</code>, inclusive
+     * @param end the end of the rate in <code>recordBytes</code>, exclusive
+     * @param amount the amount available from the lender
+     * @return <code>true</code> if the lender was added, or <code>false</code> if the rate is not of the expected form
+     * or cannot be represented as a fixed point number
+     */
+    private boolean addScaledRate(final String name, final int start, final int end, final int amount) {
+        int i = start;
+
+        final boolean negative = recordBytes[i] == '-';
+
+        if (negative || recordBytes[i] == '+') {
+            i++;
+        }
+
+        long unscaledRate = 0;
+        int digits = 0;
+        int scale = -1;
+
+        for (; i < end; i++) {
+            final byte b = recordBytes[i];
+
+            if ('0' <= b && b <= '9') {
+                if (unscaledRate > (Long.MAX_VALUE - 9) / 10) {
+                    return false;
+                }
+
+                unscaledRate = unscaledRate * 10 + (b - '0');
+                digits++;
+
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (b == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                return false;
+            }
+        }
+
+        scale = Math.max(scale, 0);
+
+        if (digits == 0 || scale > ScaledAmortizedLoan.SCALE) {
+            return false;
+        }
+
+        final long multiplier = POWERS_OF_10[ScaledAmortizedLoan.SCALE - scale];
+
+        if (unscaledRate > Long.MAX_VALUE / multiplier) {
+            return false;
+        }
+
+        book.add(name, (negative ? -unscaledRate : unscaledRate) * multiplier, scale, amount);
+
+        return true;
+    }
+
+    /**
+     * Parses an amount of the form <code>[+-]digits</code> straight from the bytes
+     * @param start the start of the amount in <code>recordBytes</code>, inclusive
+     * @param end the end of the amount in <code>recordBytes</code>, exclusive
+     * @return the amount
+     * @throws MarketParseException thrown if the amount is not an integer that fits in an int
+     */
+    private int parseAmount(final int start, final int end) throws MarketParseException {
+        int i = start;
+
+        final boolean negative = recordBytes[i] == '-';
+
+        if (negative || recordBytes[i] == '+') {
+            i++;
+        }
+
+        long amount = 0;
+
+        for (; i < end; i++) {
+            final byte b = recordBytes[i];
+
+            if (b < '0' || '9' < b || amount > Integer.MAX_VALUE + 1L) {
+                break;
+            }
+
+            amount = amount * 10 + (b - '0');
+        }
+
+        if (negative) {
+            amount = -amount;
+        }
+
+        if (i != end || i == start + (negative || recordBytes[start] == '+' ? 1 : 0) || amount < Integer.MIN_VALUE || Integer.MAX_VALUE < amount) {
+            throw rowError("Conversion of " + getString(start, end) + " to int failed.");
+        }
+
+        return (int) amount;
+    }
+
+    /**
+     * Skips whitespace at the start of part of <code>recordBytes</code>
+     * @param start the start of the part, inclusive
+     * @param end the end of the part, exclusive
+     * @return the first byte that is not whitespace, or <code>end</code> if there is none
+     */
+    private int trimStart(int start, final int end) {
+        while (start < end && (recordBytes[start] & 0xFF) <= ' ') {
+            start++;
+        }
+
+        return start;
+    }
+
+    /**
+     * Skips whitespace at the end of part of <code>recordBytes</code>
+     * @param start the start of the part, inclusive
+     * @param end the end of the part, exclusive
+     * @return the byte after the last byte that is not whitespace, or <code>start</code> if there is none
+     */
+    private int trimEnd(final int start, int end) {
+        while (start < end && (recordBytes[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+
+        return end;
+    }
+
+    /**
+     * Decodes part of <code>recordBytes</code>, for use in error messages
+     * @param start the start of the part, inclusive
+     * @param end the end of the part, exclusive
+     * @return the decoded string
+     */
+    private String getString(final int start, final int end) {
+        return new String(recordBytes, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates an exception for an invalid row at the current record
+     * @param message the reason the row is invalid
+     * @return the exception to throw
+     */
+    private MarketParseException rowError(final String message) {
+        return rowError(message, null);
+    }
+
+    /**
+     * Creates an exception for an invalid row at the current record
+     * @param message the reason the row is invalid
+     * @param cause the cause of the row being invalid
+     * @return the exception to throw
+     */
+    private MarketParseException rowError(final String message, final Throwable cause) {
+        return new MarketParseException("Error parsing CSV line: " + recordLineNumber + ". " + message, recordLineNumber, cause);
+    }
+}
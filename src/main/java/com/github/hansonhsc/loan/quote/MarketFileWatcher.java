@@ -0,0 +1,413 @@
+package com.github.hansonhsc.loan.quote;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a <code>VersionedMarket</code> up to date with a market CSV file that is rewritten while the application is
+ * running. The directory of the file is watched with a <code>WatchService</code> where the file system supports one,
+ * and the size, modification time and identity of the file are checked every poll interval in any case, so that a
+ * change is picked up even when the file system does not report it.
+ * <p>
+ * A rewrite is taken to be complete once the file has not changed for the quiet period, after which only the new file
+ * is parsed with <code>ParallelMarketLoader</code> and applied with <code>VersionedMarket.update</code>, so only the
+ * offers that changed are applied and quotes in flight keep the version that they started with. A file that changes
+ * while it is being parsed is not applied, and is parsed again once it is quiet. A file that cannot be parsed leaves
+ * the market as it was until the file changes again, see <code>getLastFailure</code>.
+ * <p>
+ * Writing the new file beside the old one and renaming it over the old one is the safest way to rewrite the file, as
+ * the watcher can then never see a partly written file
+ */
+public final class MarketFileWatcher implements Closeable {
+    /**
+     * The time between checks of the file when no change is pending, in milliseconds
+     */
+    static final long DEFAULT_POLL_INTERVAL_MILLIS = 1000;
+
+    /**
+     * The time that the file must not change for before it is loaded, in milliseconds
+     */
+    static final long DEFAULT_QUIET_PERIOD_MILLIS = 200;
+
+    /**
+     * the market CSV file being watched
+     */
+    private final Path marketFile;
+
+    /**
+     * the market that is updated with the offers of the file
+     */
+    private final VersionedMarket market;
+
+    /**
+     * the time between checks of the file when no change is pending, in milliseconds
+     */
+    private final long pollIntervalMillis;
+
+    /**
+     * the time that the file must not change for before it is loaded, in milliseconds
+     */
+    private final long quietPeriodMillis;
+
+    /**
+     * the watch service registered on the directory of the file, or <code>null</code> if the file is only polled
+     */
+    private final WatchService watchService;
+
+    /**
+     * the thread that watches the file, or <code>null</code> if the watcher has not been started
+     */
+    private Thread thread;
+
+    /**
+     * whether the watcher has been closed
+     */
+    private volatile boolean closed;
+
+    /**
+     * the signature of the last file that was loaded or failed to load, only accessed while holding the lock of the
+     * watcher
+     */
+    private FileSignature loadedSignature;
+
+    /**
+     * the signature of a file that is waiting for the quiet period, or <code>null</code> if no change is pending, only
+     * accessed while holding the lock of the watcher
+     */
+    private FileSignature pendingSignature;
+
+    /**
+     * the time that the pending signature was first seen, from <code>System.nanoTime</code>
+     */
+    private long pendingSinceNanos;
+
+    /**
+     * the number of times the file was loaded into the market
+     */
+    private volatile long loadCount;
+
+    /**
+     * the reason that the latest change of the file could not be loaded, or <code>null</code> if it was loaded
+     */
+    private volatile Exception lastFailure;
+
+    /**
+     * Constructs a watcher that uses a watch service where the file system supports one, with the default poll
+     * interval and quiet period
+     * @param marketFile the market CSV file to watch
+     * @param market the market to update with the offers of the file
+     */
+    public MarketFileWatcher(final Path marketFile, final VersionedMarket market) {
+        this(marketFile, market, true, DEFAULT_POLL_INTERVAL_MILLIS, DEFAULT_QUIET_PERIOD_MILLIS);
+    }
+
+    /**
+     * Constructs a watcher
+     * @param marketFile the market CSV file to watch
+     * @param market the market to update with the offers of the file
+     * @param useWatchService whether to use a watch service where the file system supports one, otherwise the file is
+     *                        only polled
+     * @param pollIntervalMillis the time between checks of the file when no change is pending, in milliseconds
+     * @param quietPeriodMillis the time that the file must not change for before it is loaded, in milliseconds
+     */
+    MarketFileWatcher(final Path marketFile, final VersionedMarket market, final boolean useWatchService,
+                      final long pollIntervalMillis, final long quietPeriodMillis) {
+        this.marketFile = marketFile.toAbsolutePath();
+        this.market = market;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.quietPeriodMillis = quietPeriodMillis;
+
+        watchService = useWatchService ? createWatchService(this.marketFile) : null;
+    }
+
+    /**
+     * Creates a watch service registered for the creation and modification of files in the directory of a file
+     * @param file the file to watch
+     * @return the watch service, or <code>null</code> if the file system does not support one
+     */
+    private static WatchService createWatchService(final Path file) {
+        WatchService watchService = null;
+
+        try {
+            watchService = file.getFileSystem().newWatchService();
+
+            // a file renamed over the market file is created, a file rewritten in place is modified
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+            return watchService;
+        } catch (IOException | UnsupportedOperationException e) {
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException closeException) {
+                    e.addSuppressed(closeException);
+                }
+            }
+
+            // fall back to polling
+            return null;
+        }
+    }
+
+    /**
+     * Loads the file into the market now, whether or not it has changed since it was last loaded. Used to load the
+     * market before the watcher is started
+     * @return the changes that were applied to the market
+     * @throws IOException thrown if the file cannot be read, or it changed while it was being parsed
+     * @throws MarketParseException thrown if the file is not a valid market CSV file
+     * @throws IllegalArgumentException thrown if a lender has more than one offer in the file
+     */
+    public synchronized MarketChanges load() throws IOException, MarketParseException {
+        final FileSignature signature = FileSignature.read(marketFile);
+        final MarketChanges changes = load(signature);
+
+        if (changes == null) {
+            throw new IOException("Market file changed while it was being loaded: " + marketFile);
+        }
+
+        return changes;
+    }
+
+    /**
+     * Starts watching the file on a daemon thread
+     * @throws IllegalStateException thrown if the watcher has already been started or has been closed
+     */
+    public synchronized void start() {
+        if (thread != null || closed) {
+            throw new IllegalStateException("Market file watcher has already been started");
+        }
+
+        thread = new Thread(this::run, "market-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching the file. The market keeps the offers that were last loaded
+     * @throws IOException thrown if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+
+        final Thread watchingThread;
+
+        synchronized (this) {
+            watchingThread = thread;
+        }
+
+        if (watchingThread != null) {
+            watchingThread.interrupt();
+        }
+
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    /**
+     * Checks whether the watcher uses a watch service, rather than only polling the file
+     * @return <code>true</code> if a watch service is registered on the directory of the file, otherwise
+     * <code>false</code>
+     */
+    boolean isUsingWatchService() {
+        return watchService != null;
+    }
+
+    /**
+     * Gets the number of times the file was loaded into the market, including any call to <code>load</code>
+     * @return the number of times the file was loaded
+     */
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * Gets the reason that the latest change of the file could not be loaded into the market, which is either an
+     * <code>IOException</code>, a <code>MarketParseException</code>, or an <code>IllegalArgumentException</code> if a
+     * lender has more than one offer
+     * @return the reason that the latest change could not be loaded, or <code>null</code> if it was loaded
+     */
+    public Exception getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Waits for changes and checks the file until the watcher is closed
+     */
+    private void run() {
+        try {
+            while (!closed) {
+                final boolean pending;
+
+                synchronized (this) {
+                    pending = pendingSignature != null;
+                }
+
+                final long timeoutMillis = pending ? quietPeriodMillis : pollIntervalMillis;
+
+                if (watchService != null) {
+                    final WatchKey key = watchService.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+
+                    if (key != null) {
+                        // any event in the directory is only a hint to check the file, which also covers an overflow
+                        key.pollEvents();
+                        key.reset();
+                    }
+                } else {
+                    Thread.sleep(timeoutMillis);
+                }
+
+                check();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Checks whether the file has changed since it was last loaded, and loads it if it has not changed for the quiet
+     * period
+     * @return <code>true</code> if the file was loaded or failed to load, otherwise <code>false</code>
+     */
+    synchronized boolean check() {
+        final FileSignature signature;
+
+        try {
+            signature = FileSignature.read(marketFile);
+        } catch (NoSuchFileException e) {
+            // between the old file being deleted and the new one being renamed into place
+            return false;
+        } catch (IOException e) {
+            lastFailure = e;
+
+            return false;
+        }
+
+        if (signature.equals(loadedSignature)) {
+            pendingSignature = null;
+
+            return false;
+        }
+
+        final long now = System.nanoTime();
+
+        if (!signature.equals(pendingSignature)) {
+            pendingSignature = signature;
+            pendingSinceNanos = now;
+        }
+
+        if (now - pendingSinceNanos < TimeUnit.MILLISECONDS.toNanos(quietPeriodMillis)) {
+            return false;
+        }
+
+        try {
+            if (load(signature) == null) {
+                // changed while it was being parsed, so wait for it to be quiet again
+                pendingSignature = null;
+
+                return false;
+            }
+        } catch (IOException | MarketParseException | IllegalArgumentException e) {
+            // keep the market as it is, and do not parse the same file again
+            loadedSignature = signature;
+            lastFailure = e;
+        }
+
+        pendingSignature = null;
+
+        return true;
+    }
+
+    /**
+     * Parses the file and applies it to the market, unless it changed while it was being parsed
+     * @param signature the signature of the file before it is parsed
+     * @return the changes that were applied to the market, or <code>null</code> if the file changed while it was
+     * being parsed
+     * @throws IOException thrown if the file cannot be read
+     * @throws MarketParseException thrown if the file is not a valid market CSV file
+     * @throws IllegalArgumentException thrown if a lender has more than one offer in the file
+     */
+    private MarketChanges load(final FileSignature signature) throws IOException, MarketParseException {
+        final ColumnarLenderBook book = ParallelMarketLoader.load(marketFile);
+
+        if (!signature.equals(FileSignature.read(marketFile))) {
+            return null;
+        }
+
+        final MarketChanges changes = market.update(new LenderBookList(book));
+
+        loadedSignature = signature;
+        lastFailure = null;
+        loadCount++;
+
+        return changes;
+    }
+
+    /**
+     * The attributes of a file that change when it is rewritten
+     */
+    private static final class FileSignature {
+        /**
+         * the identity of the file, which changes when another file is renamed over it, or <code>null</code> if the
+         * file system does not have one
+         */
+        private final Object fileKey;
+
+        /**
+         * the size of the file in bytes
+         */
+        private final long size;
+
+        /**
+         * the time that the file was last modified
+         */
+        private final FileTime lastModifiedTime;
+
+        private FileSignature(final Object fileKey, final long size, final FileTime lastModifiedTime) {
+            this.fileKey = fileKey;
+            this.size = size;
+            this.lastModifiedTime = lastModifiedTime;
+        }
+
+        /**
+         * Reads the signature of a file
+         * @param file the file
+         * @return the signature of the file
+         * @throws IOException thrown if the attributes of the file cannot be read
+         */
+        private static FileSignature read(final Path file) throws IOException {
+            final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+
+            return new FileSignature(attributes.fileKey(), attributes.size(), attributes.lastModifiedTime());
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+
+            final FileSignature signature = (FileSignature) obj;
+
+            return size == signature.size
+                    && Objects.equals(fileKey, signature.fileKey)
+                    && lastModifiedTime.equals(signature.lastModifiedTime);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fileKey, size, lastModifiedTime);
+        }
+    }
+}
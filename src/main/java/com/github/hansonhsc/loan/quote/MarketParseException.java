@@ -0,0 +1,33 @@
+package com.github.hansonhsc.loan.quote;
+
+/**
+ * Thrown when a market file cannot be parsed
+ */
+public class MarketParseException extends Exception {
+    /**
+     * the line of the market file where the error occurred, or 0 if the error is not specific to a line
+     */
+    private final long lineNumber;
+
+    public MarketParseException(final String message) {
+        this(message, 0, null);
+    }
+
+    public MarketParseException(final String message, final long lineNumber) {
+        this(message, lineNumber, null);
+    }
+
+    public MarketParseException(final String message, final long lineNumber, final Throwable cause) {
+        super(message, cause);
+
+        this.lineNumber = lineNumber;
+    }
+
+    /**
+     * Gets the line of the market file where the error occurred, starting from 1
+     * @return the line of the market file where the error occurred, or 0 if the error is not specific to a line
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+}
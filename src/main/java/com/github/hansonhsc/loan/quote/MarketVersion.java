@@ -0,0 +1,54 @@
+package com.github.hansonhsc.loan.quote;
+
+/**
+ * An immutable version of a <code>VersionedMarket</code>, which quotes against the lenders of the market at the time
+ * that the version was published, no matter how the market changes afterwards
+ */
+public final class MarketVersion extends LoanQuoteCalculator {
+    /**
+     * the number of versions published before this one
+     */
+    private final long version;
+
+    /**
+     * the lenders of the market, which later versions share chunks with
+     */
+    private final ChunkedLenderBook book;
+
+    /**
+     * Constructs a version of a market
+     * @param book the lenders of the market
+     * @param repaymentEngine the engine used to calculate the monthly repayment towards each lender
+     * @param version the number of versions published before this one
+     */
+    MarketVersion(final ChunkedLenderBook book, final RepaymentEngine repaymentEngine, final long version) {
+        super(book, repaymentEngine);
+
+        this.book = book;
+        this.version = version;
+    }
+
+    /**
+     * Gets the number of versions of the market published before this one, so that later versions have larger numbers
+     * @return the number of versions published before this one
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the total amount available from every lender in the market
+     * @return the total amount available from every lender in the market in pounds sterling
+     */
+    public long getTotalAmount() {
+        return book.getTotalAmount();
+    }
+
+    /**
+     * Gets the lenders of the market
+     * @return the lenders of the market
+     */
+    ChunkedLenderBook getBook() {
+        return book;
+    }
+}
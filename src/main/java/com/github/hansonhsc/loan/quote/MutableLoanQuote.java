@@ -0,0 +1,146 @@
+package com.github.hansonhsc.loan.quote;
+
+import com.github.hansonhsc.loan.Money;
+
+import java.math.BigDecimal;
+
+/**
+ * A reusable holder for a single loan quote, filled in by <code>LoanQuoteCalculator.getQuote(int, MutableLoanQuote)</code>
+ * so that quoting allocates nothing. Amounts are held as whole pennies and the rate as tenths of a percent, i.e. the
+ * unscaled values of the BigDecimals of the equivalent <code>LoanQuote</code>. A holder is not thread safe
+ */
+public final class MutableLoanQuote {
+    /**
+     * the initial amount of loan in pounds sterling
+     */
+    private int loanAmount;
+
+    /**
+     * the annual interest rate for the loan in tenths of a percent
+     */
+    private long rate;
+
+    /**
+     * the amount to repay (capital and interest) each month in pennies
+     */
+    private long monthlyRepayment;
+
+    /**
+     * the total amount to repay over the entire loan in pennies
+     */
+    private long totalRepayment;
+
+    /**
+     * the number of monthly repayments over the entire loan, or 0 if the holder has not been filled in
+     */
+    private int term;
+
+    /**
+     * Gets the initial amount of loan in pounds sterling
+     *
+     * @return the initial amount of loan in pounds sterling
+     */
+    public int getLoanAmount() {
+        return loanAmount;
+    }
+
+    /**
+     * Gets the annual interest rate for the loan in tenths of a percent, e.g. 70 for 7.0%
+     *
+     * @return the annual interest rate for the loan in tenths of a percent
+     */
+    public long getRateInTenthsOfPercent() {
+        return rate;
+    }
+
+    /**
+     * Gets the amount to repay (capital and interest) each month in pennies
+     *
+     * @return the amount to repay (capital and interest) each month in pennies
+     */
+    public long getMonthlyRepaymentInPennies() {
+        return monthlyRepayment;
+    }
+
+    /**
+     * Gets the total amount to repay over the entire loan in pennies
+     *
+     * @return the total amount to repay over the entire loan in pennies
+     */
+    public long getTotalRepaymentInPennies() {
+        return totalRepayment;
+    }
+
+    /**
+     * Gets the number of monthly repayments over the entire loan
+     *
+     * @return the number of monthly repayments over the entire loan, or 0 if the holder has not been filled in
+     */
+    public int getTerm() {
+        return term;
+    }
+
+    /**
+     * Creates an immutable copy of the quote, which is equal to the quote returned by <code>LoanQuoteCalculator.getQuote</code>
+     *
+     * @return the loan quote containing repayment information and the interest rate of the loan
+     */
+    public LoanQuote toLoanQuote() {
+        return new LoanQuote(loanAmount, BigDecimal.valueOf(rate, 1), Money.penniesToBigDecimal(monthlyRepayment),
+                Money.penniesToBigDecimal(totalRepayment), term);
+    }
+
+    /**
+     * Fills in the quote
+     * @param loanAmount the initial amount of loan in pounds sterling
+     * @param rate the annual interest rate for the loan in tenths of a percent
+     * @param monthlyRepayment the amount to repay (capital and interest) each month in pennies
+     * @param totalRepayment the total amount to repay over the entire loan in pennies
+     * @param term the number of monthly repayments over the entire loan
+     * @return this holder
+     */
+    MutableLoanQuote set(final int loanAmount, final long rate, final long monthlyRepayment, final long totalRepayment, final int term) {
+        this.loanAmount = loanAmount;
+        this.rate = rate;
+        this.monthlyRepayment = monthlyRepayment;
+        this.totalRepayment = totalRepayment;
+        this.term = term;
+
+        return this;
+    }
+
+    /**
+     * Fills in the quote from an immutable quote
+     * @param quote the quote, whose rate has one decimal place and whose amounts have two
+     * @return this holder
+     */
+    MutableLoanQuote set(final LoanQuote quote) {
+        return set(quote.getLoanAmount(), quote.getRate().unscaledValue().longValueExact(),
+                quote.getMonthlyRepayment().unscaledValue().longValueExact(),
+                quote.getTotalRepayment().unscaledValue().longValueExact(), quote.getTerm());
+    }
+
+    /**
+     * Fills in the quote from another holder
+     * @param quote the holder to copy
+     * @return this holder
+     */
+    MutableLoanQuote set(final MutableLoanQuote quote) {
+        return set(quote.loanAmount, quote.rate, quote.monthlyRepayment, quote.totalRepayment, quote.term);
+    }
+
+    /**
+     * Generated toString method
+     * @return string representation of this object, for testing purposes.
+     */
+    @Override
+    public String toString() {
+        return "MutableLoanQuote{" +
+                "loanAmount=" + loanAmount +
+                ", rate=" + BigDecimal.valueOf(rate, 1) +
+                ", monthlyRepayment=" + BigDecimal.valueOf(monthlyRepayment, 2) +
+                ", totalRepayment=" + BigDecimal.valueOf(totalRepayment, 2) +
+                ", term=" + term +
+                '}';
+    }
+}
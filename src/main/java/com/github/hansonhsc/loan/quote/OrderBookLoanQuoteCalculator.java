@@ -0,0 +1,238 @@
+package com.github.hansonhsc.loan.quote;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.OptionalInt;
+import java.util.TreeSet;
+
+/**
+ * A calculator over a mutable order book of lender offers, where each lender has at most one offer identified by the
+ * name of the lender. Offers can be added, amended and withdrawn in <code>O(log n)</code> time, and quotes are produced
+ * from the current state of the book by walking the cheapest offers, without rebuilding or sorting the market.
+ * <p>
+ * Offers are ordered by rate in ascending order, then by amount in descending order, then by name, so lenders with the
+ * same rate and amount are used in order of their names rather than the order that they were added.
+ * <p>
+ * This class is not thread safe: the book must not be modified while a quote is being produced
+ */
+public final class OrderBookLoanQuoteCalculator extends LoanQuoteCalculator {
+    /**
+     * Order of the offers in the book, by rate in ascending order, then by amount in descending order, then by name
+     */
+    static final Comparator<Lender> OFFER_ORDER = Comparator.comparing(Lender::getRate)
+            .thenComparing(Lender::getAmount, Comparator.reverseOrder())
+            .thenComparing(Lender::getName);
+
+    /**
+     * the offers in the book, in the order that they are used
+     */
+    private final NavigableSet<Lender> offers = new TreeSet<>(OFFER_ORDER);
+
+    /**
+     * the offer of each lender in the book, by name
+     */
+    private final Map<String, Lender> offersByName = new HashMap<>();
+
+    /**
+     * the total amount available from every offer in the book
+     */
+    private long totalAmount;
+
+    /**
+     * Constructs a calculator over an empty book, using BigDecimal arithmetic
+     */
+    public OrderBookLoanQuoteCalculator() {
+        this(RepaymentEngine.BIG_DECIMAL);
+    }
+
+    /**
+     * Constructs a calculator over an empty book with the specified repayment engine
+     * @param repaymentEngine the engine used to calculate the monthly repayment towards each lender
+     */
+    public OrderBookLoanQuoteCalculator(final RepaymentEngine repaymentEngine) {
+        // every allocation is made from the order book rather than the book of the base class
+        super(new CumulativeLenderBook(new ListLenderBook(Collections.emptyList())), repaymentEngine);
+    }
+
+    /**
+     * Adds the offer of a lender that does not have an offer in the book yet
+     * @param name the name of the lender
+     * @param rate the annual interest rate of any loans by the lender
+     * @param amount the total amount available for loans from the lender in pounds sterling, must be non-negative
+     * @throws IllegalArgumentException thrown if the lender already has an offer in the book, or the offer is invalid
+     */
+    public void add(final String name, final BigDecimal rate, final int amount) {
+        final Lender offer = createOffer(name, rate, amount);
+
+        if (offersByName.containsKey(name)) {
+            throw new IllegalArgumentException("Lender already has an offer: " + name);
+        }
+
+        put(offer);
+    }
+
+    /**
+     * Replaces the offer of a lender that has an offer in the book
+     * @param name the name of the lender
+     * @param rate the new annual interest rate of any loans by the lender
+     * @param amount the new total amount available for loans from the lender in pounds sterling, must be non-negative
+     * @throws IllegalArgumentException thrown if the lender does not have an offer in the book, or the offer is invalid
+     */
+    public void amend(final String name, final BigDecimal rate, final int amount) {
+        final Lender offer = createOffer(name, rate, amount);
+
+        if (!offersByName.containsKey(name)) {
+            throw new IllegalArgumentException("Lender does not have an offer: " + name);
+        }
+
+        remove(name);
+        put(offer);
+    }
+
+    /**
+     * Withdraws the offer of a lender from the book
+     * @param name the name of the lender
+     * @return <code>true</code> if the lender had an offer in the book, otherwise <code>false</code>
+     */
+    public boolean withdraw(final String name) {
+        return remove(name) != null;
+    }
+
+    /**
+     * Gets the offer of a lender in the book
+     * @param name the name of the lender
+     * @return a copy of the offer of the lender, or <code>null</code> if the lender does not have an offer in the book
+     */
+    public Lender getOffer(final String name) {
+        final Lender offer = offersByName.get(name);
+
+        return offer == null ? null : new Lender(offer.getName(), offer.getRate(), offer.getAmount());
+    }
+
+    /**
+     * Creates an offer, after checking that it is valid. Offers are copies of their own, so that their order in the book
+     * cannot be changed by the caller
+     * @param name the name of the lender
+     * @param rate the annual interest rate of any loans by the lender
+     * @param amount the total amount available for loans from the lender in pounds sterling
+     * @return the offer
+     * @throws IllegalArgumentException thrown if the offer is invalid
+     */
+    static Lender createOffer(final String name, final BigDecimal rate, final int amount) {
+        if (name == null) {
+            throw new IllegalArgumentException("Name must not be null");
+        } else if (rate == null) {
+            throw new IllegalArgumentException("Rate must not be null");
+        } else if (amount < 0) {
+            throw new IllegalArgumentException("Amount must be non-negative");
+        }
+
+        return new Lender(name, rate, amount);
+    }
+
+    /**
+     * Adds an offer to the book, where the lender does not have an offer yet
+     * @param offer the offer
+     */
+    private void put(final Lender offer) {
+        offers.add(offer);
+        offersByName.put(offer.getName(), offer);
+
+        totalAmount += offer.getAmount();
+    }
+
+    /**
+     * Removes the offer of a lender from the book
+     * @param name the name of the lender
+     * @return the offer that was removed, or <code>null</code> if the lender did not have an offer
+     */
+    private Lender remove(final String name) {
+        final Lender offer = offersByName.remove(name);
+
+        if (offer != null) {
+            offers.remove(offer);
+
+            totalAmount -= offer.getAmount();
+        }
+
+        return offer;
+    }
+
+    /**
+     * Returns an unmodifiable view of the offers in the book, in the order that they are used. The offers themselves
+     * must not be modified, see <code>amend</code>
+     * @return the offers in the book
+     */
+    @Override
+    public Collection<Lender> getLenders() {
+        return Collections.unmodifiableCollection(offers);
+    }
+
+    /**
+     * Finds the lenders that the borrower is borrowing from by walking the offers in order. The borrower uses up all of
+     * the quota of each lender, in order, until a lender can satisfy the remaining loan amount
+     * @param loanAmount the total loan amount requested
+     * @return the lenders that the borrower is borrowing from, and the amount borrowed from the last lender
+     * @throws InsufficientLendersException thrown when there is not sufficient funding from the offers in the book to
+     * satisfy the requested loan amount
+     */
+    @Override
+    LenderAllocation getLenderAllocation(final int loanAmount) throws InsufficientLendersException {
+        // the total is kept up to date, so insufficient lenders are found without walking the entire book
+        if (totalAmount < loanAmount) {
+            throw new InsufficientLendersException();
+        }
+
+        final List<Lender> lenders = new ArrayList<>();
+        long allocatedAmount = 0;
+
+        for (final Lender offer : offers) {
+            lenders.add(offer);
+
+            if (allocatedAmount + offer.getAmount() >= loanAmount) {
+                return new LenderAllocation(new ListLenderBook(lenders), 0, lenders.size(), (int) (loanAmount - allocatedAmount));
+            }
+
+            allocatedAmount += offer.getAmount();
+        }
+
+        // only reached by an empty book
+        throw new InsufficientLendersException();
+    }
+
+    /**
+     * Finds the largest loan amount whose quote is within a limit with a binary search that quotes each loan amount it
+     * tries from the current state of the book
+     * @param limit the field of the quote that is limited
+     * @param maximum the largest value of the field, in tenths of a percent or pennies
+     * @param loanAmountIncrement the loan amounts to consider are the positive multiples of this
+     * @return the largest multiple of <code>loanAmountIncrement</code> that is within the limit, or an empty optional
+     * if there is none
+     */
+    @Override
+    OptionalInt getMaximumLoanAmount(final QuoteLimit limit, final long maximum, final int loanAmountIncrement) {
+        return getMaximumQuotedLoanAmount(limit, maximum, loanAmountIncrement, totalAmount);
+    }
+
+    /**
+     * Fills in a quote based on the specified loan amount from the current state of the book. The offers are held as
+     * BigDecimal rates and allocated into a new list, so this allocates like <code>getQuote(int)</code>
+     * @param loanAmount the loan amount requested in pounds sterling
+     * @param result the holder to fill in, which may be reused for every quote
+     * @return <code>result</code>, containing repayment information and the interest rate of the loan
+     * @throws InsufficientLendersException thrown when there is not sufficient funding from the offers in the book to
+     * satisfy the requested loan amount
+     * @throws IllegalArgumentException thrown if the loan amount is not positive
+     */
+    @Override
+    public MutableLoanQuote getQuote(final int loanAmount, final MutableLoanQuote result) throws InsufficientLendersException {
+        return result.set(getQuote(loanAmount));
+    }
+}
@@ -0,0 +1,321 @@
+package com.github.hansonhsc.loan.quote;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads market CSV files in parallel. The rows of the file are split into chunks of roughly equal size that end at a
+ * new line, and each chunk is parsed by <code>MarketCsvParser</code> and sorted on a fork/join pool, before the sorted
+ * chunks are merged back together in the order of the file. The result is exactly the same as parsing the file with
+ * <code>MarketCsvParser</code> and sorting it, including the line numbers of any errors
+ */
+public final class ParallelMarketLoader {
+    /**
+     * Files are split into chunks of at least this many bytes, smaller files are parsed by a single thread
+     */
+    private static final long MINIMUM_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * Files are split into chunks of at most this many bytes, so that each chunk can be mapped into memory
+     */
+    private static final long MAXIMUM_CHUNK_SIZE = 1 << 28;
+
+    /**
+     * Number of chunks for each thread of the pool, so that threads that finish early can help with other chunks
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * Size of the buffer used to search for the new lines at the end of each chunk, in bytes
+     */
+    private static final int NEW_LINE_BUFFER_SIZE = 4096;
+
+    /**
+     * A rough lower bound of the bytes used by each row, used to size the book of each chunk up front
+     */
+    private static final int ESTIMATED_BYTES_PER_ROW = 32;
+
+    private ParallelMarketLoader() {
+    }
+
+    /**
+     * Loads a market CSV file in parallel on the common fork/join pool
+     * @param path the path of the market CSV file
+     * @return a sorted book of the lenders in the file, see <code>ColumnarLenderBook.sort</code>
+     * @throws IOException thrown if the file cannot be read
+     * @throws MarketParseException thrown if the file is not a valid market CSV file
+     */
+    public static ColumnarLenderBook load(final Path path) throws IOException, MarketParseException {
+        return load(path, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Loads a market CSV file in parallel on the specified fork/join pool
+     * @param path the path of the market CSV file
+     * @param pool the pool to parse and sort the chunks of the file on
+     * @return a sorted book of the lenders in the file, see <code>ColumnarLenderBook.sort</code>
+     * @throws IOException thrown if the file cannot be read
+     * @throws MarketParseException thrown if the file is not a valid market CSV file
+     */
+    public static ColumnarLenderBook load(final Path path, final ForkJoinPool pool) throws IOException, MarketParseException {
+        final QuoteMetrics metrics = QuoteMetrics.getDefault();
+        final long start = metrics.start();
+
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (pool.getParallelism() == 1) {
+                // splitting and merging only adds work when there is a single thread
+                return loadSequentially(channel);
+            }
+
+            final long chunkSize = channel.size() / ((long) pool.getParallelism() * CHUNKS_PER_THREAD);
+
+            return load(channel, pool, Math.max(MINIMUM_CHUNK_SIZE, Math.min(MAXIMUM_CHUNK_SIZE, chunkSize)));
+        } finally {
+            metrics.stop(QuoteMetrics.Phase.PARSE, start);
+        }
+    }
+
+    /**
+     * Loads a market CSV file in parallel, split into chunks of the specified size
+     * @param channel the channel of the market CSV file
+     * @param pool the pool to parse and sort the chunks of the file on
+     * @param chunkSize the number of bytes in each chunk, before it is extended to the end of the line
+     * @return a sorted book of the lenders in the file
+     * @throws IOException thrown if the file cannot be read
+     * @throws MarketParseException thrown if the file is not a valid market CSV file
+     */
+    static ColumnarLenderBook load(final FileChannel channel, final ForkJoinPool pool, final long chunkSize) throws IOException, MarketParseException {
+        final long size = channel.size();
+
+        // the header is parsed first so that the parser of every chunk knows the order of the columns
+        final long headerEnd = findChunkEnd(channel, 0);
+
+        if (size <= chunkSize || headerEnd == size) {
+            return loadSequentially(channel);
+        }
+
+        final MarketCsvParser headerParser = new MarketCsvParser(new ColumnarLenderBook(0), 1);
+        headerParser.parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, headerEnd));
+
+        if (!headerParser.hasHeader()) {
+            // the header has a new line within quotes, which is too unusual to be worth handling in parallel
+            return loadSequentially(channel);
+        }
+
+        final List<Long> chunkStarts = new ArrayList<>();
+
+        for (long chunkStart = headerEnd; chunkStart < size; chunkStart = findChunkEnd(channel, chunkStart + chunkSize)) {
+            chunkStarts.add(chunkStart);
+        }
+
+        final long[] chunkBoundaries = new long[chunkStarts.size() + 1];
+
+        for (int i = 0; i < chunkStarts.size(); i++) {
+            chunkBoundaries[i] = chunkStarts.get(i);
+        }
+
+        chunkBoundaries[chunkStarts.size()] = size;
+
+        final ChunkResult result;
+
+        try {
+            result = pool.invoke(new ChunkTask(channel, headerParser, chunkBoundaries, 0, chunkStarts.size()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if (result.split) {
+            // a chunk was split within a quoted field, so the file has to be parsed from the start to find its records
+            return loadSequentially(channel);
+        } else if (result.error != null) {
+            throw MarketCsvParser.moveLineNumber(result.error, headerParser.getLineNumber() - 1);
+        }
+
+        return result.book;
+    }
+
+    /**
+     * Loads a market CSV file with a single thread
+     * @param channel the channel of the market CSV file
+     * @return a sorted book of the lenders in the file
+     * @throws IOException thrown if the file cannot be read
+     * @throws MarketParseException thrown if the file is not a valid market CSV file
+     */
+    private static ColumnarLenderBook loadSequentially(final FileChannel channel) throws IOException, MarketParseException {
+        channel.position(0);
+
+        final ColumnarLenderBook book = MarketCsvParser.parse(channel);
+        book.sort();
+
+        return book;
+    }
+
+    /**
+     * Finds the end of the chunk that ends at or after a position, i.e. the position after the next new line
+     * @param channel the channel of the market CSV file
+     * @param position the position that the chunk must not end before
+     * @return the position after the first new line at or after <code>position - 1</code>, or the size of the file if
+     * there is no such new line
+     * @throws IOException thrown if the file cannot be read
+     */
+    private static long findChunkEnd(final FileChannel channel, final long position) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(NEW_LINE_BUFFER_SIZE);
+
+        // a chunk that ends right after a new line does not need to be extended
+        long bufferStart = Math.max(0, position - 1);
+
+        while (channel.read(buffer, bufferStart) > 0) {
+            for (int i = 0; i < buffer.position(); i++) {
+                if (buffer.get(i) == '\n') {
+                    return bufferStart + i + 1;
+                }
+            }
+
+            bufferStart += buffer.position();
+            buffer.clear();
+        }
+
+        return channel.size();
+    }
+
+    /**
+     * The result of parsing and sorting consecutive chunks of a file
+     */
+    private static final class ChunkResult {
+        /**
+         * the sorted lenders of the chunks, or <code>null</code> if the chunks could not be parsed
+         */
+        private final ColumnarLenderBook book;
+
+        /**
+         * the number of lines in the chunks
+         */
+        private final long lineCount;
+
+        /**
+         * the first error in the chunks, with a line number relative to the start of the first chunk
+         */
+        private final MarketParseException error;
+
+        /**
+         * whether a chunk ended within a quoted field, meaning a new line within quotes was mistaken for the end of
+         * the chunk
+         */
+        private final boolean split;
+
+        private ChunkResult(final ColumnarLenderBook book, final long lineCount, final MarketParseException error, final boolean split) {
+            this.book = book;
+            this.lineCount = lineCount;
+            this.error = error;
+            this.split = split;
+        }
+
+        /**
+         * Gets whether the chunks could not be parsed
+         * @return <code>true</code> if the chunks could not be parsed, otherwise <code>false</code>
+         */
+        private boolean isFailed() {
+            return book == null;
+        }
+    }
+
+    /**
+     * Parses and sorts a range of chunks, splitting the range in half until there is a single chunk and merging the
+     * sorted halves back together
+     */
+    private static final class ChunkTask extends RecursiveTask<ChunkResult> {
+        private final FileChannel channel;
+        private final MarketCsvParser headerParser;
+        private final long[] chunkBoundaries;
+        private final int firstChunk;
+        private final int lastChunk;
+
+        /**
+         * Constructs a task for a range of chunks
+         * @param channel the channel of the market CSV file
+         * @param headerParser the parser that parsed the header of the file
+         * @param chunkBoundaries the start of every chunk, followed by the size of the file
+         * @param firstChunk the index of the first chunk, inclusive
+         * @param lastChunk the index of the last chunk, exclusive
+         */
+        private ChunkTask(final FileChannel channel, final MarketCsvParser headerParser, final long[] chunkBoundaries, final int firstChunk, final int lastChunk) {
+            this.channel = channel;
+            this.headerParser = headerParser;
+            this.chunkBoundaries = chunkBoundaries;
+            this.firstChunk = firstChunk;
+            this.lastChunk = lastChunk;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            if (lastChunk - firstChunk == 1) {
+                return parseChunk();
+            }
+
+            final int middleChunk = (firstChunk + lastChunk) >>> 1;
+
+            final ChunkTask firstHalf = new ChunkTask(channel, headerParser, chunkBoundaries, firstChunk, middleChunk);
+            firstHalf.fork();
+
+            final ChunkResult secondResult = new ChunkTask(channel, headerParser, chunkBoundaries, middleChunk, lastChunk).compute();
+            final ChunkResult firstResult = firstHalf.join();
+
+            // only the first failure in the order of the file is reported
+            if (firstResult.isFailed()) {
+                return firstResult;
+            } else if (secondResult.isFailed()) {
+                final MarketParseException error = secondResult.error == null ? null : MarketCsvParser.moveLineNumber(secondResult.error, firstResult.lineCount);
+
+                return new ChunkResult(null, 0, error, secondResult.split);
+            }
+
+            return new ChunkResult(ColumnarLenderBook.merge(firstResult.book, secondResult.book), firstResult.lineCount + secondResult.lineCount, null, false);
+        }
+
+        /**
+         * Parses and sorts a single chunk
+         * @return the result of the chunk
+         */
+        private ChunkResult parseChunk() {
+            final long start = chunkBoundaries[firstChunk];
+            final long end = chunkBoundaries[lastChunk];
+
+            final ByteBuffer buffer;
+
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            final ColumnarLenderBook book = new ColumnarLenderBook((int) ((end - start) / ESTIMATED_BYTES_PER_ROW));
+
+            // line numbers are relative to the start of the chunk until the number of lines before it is known
+            final MarketCsvParser parser = new MarketCsvParser(book, 1, headerParser);
+
+            try {
+                parser.parse(buffer);
+
+                if (parser.isInQuotes()) {
+                    return new ChunkResult(null, 0, null, true);
+                }
+
+                parser.finish();
+            } catch (MarketParseException e) {
+                return new ChunkResult(null, 0, e, false);
+            }
+
+            book.sort();
+
+            return new ChunkResult(book, parser.getLineNumber() - 1, null, false);
+        }
+    }
+}
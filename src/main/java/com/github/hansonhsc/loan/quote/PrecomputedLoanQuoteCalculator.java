@@ -0,0 +1,183 @@
+package com.github.hansonhsc.loan.quote;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A calculator that computes the quote of every loan amount that can be requested up front, when the market is built,
+ * so that getting a quote for any of them is a simple lookup
+ */
+public final class PrecomputedLoanQuoteCalculator extends LoanQuoteCalculator {
+    /**
+     * the smallest loan amount that is precomputed
+     */
+    private final int minimumLoanAmount;
+
+    /**
+     * the largest loan amount that is precomputed
+     */
+    private final int maximumLoanAmount;
+
+    /**
+     * the increments of the loan amounts that are precomputed
+     */
+    private final int loanAmountIncrement;
+
+    /**
+     * the quote for each loan amount, at the index <code>(loanAmount - minimumLoanAmount) / loanAmountIncrement</code>,
+     * where <code>null</code> represents insufficient lenders to satisfy the loan amount
+     */
+    private final LoanQuote[] quotes;
+
+    /**
+     * the quote for each loan amount as a holder, in the same order as <code>quotes</code>, which are copied into the
+     * holders of the callers without allocating
+     */
+    private final MutableLoanQuote[] mutableQuotes;
+
+    /**
+     * Constructs a calculator with the specified lenders, using BigDecimal arithmetic to precompute the quote for every
+     * loan amount allowed by <code>LoanQuoteApplication</code>
+     *
+     * @param lenders list of lenders. Note that this will be mutated: it will be sorted by rate in ascending order,
+     *                then by amount in descending order
+     */
+    public PrecomputedLoanQuoteCalculator(final List<Lender> lenders) {
+        this(lenders, RepaymentEngine.BIG_DECIMAL);
+    }
+
+    /**
+     * Constructs a calculator with the specified lenders, precomputing the quote for every loan amount allowed by
+     * <code>LoanQuoteApplication</code>
+     *
+     * @param lenders list of lenders. Note that this will be mutated: it will be sorted by rate in ascending order,
+     *                then by amount in descending order
+     * @param repaymentEngine the engine used to calculate the monthly repayment towards each lender
+     */
+    public PrecomputedLoanQuoteCalculator(final List<Lender> lenders, final RepaymentEngine repaymentEngine) {
+        this(lenders, repaymentEngine, LoanQuoteApplication.MIN_LOAN_AMOUNT, LoanQuoteApplication.MAX_LOAN_AMOUNT, LoanQuoteApplication.LOAN_AMOUNT_INCREMENT);
+    }
+
+    /**
+     * Constructs a calculator with the specified lenders, precomputing the quote for every loan amount between
+     * <code>minimumLoanAmount</code> and <code>maximumLoanAmount</code> inclusive in increments of <code>loanAmountIncrement</code>
+     *
+     * @param lenders list of lenders. Note that this will be mutated: it will be sorted by rate in ascending order,
+     *                then by amount in descending order
+     * @param repaymentEngine the engine used to calculate the monthly repayment towards each lender
+     * @param minimumLoanAmount the smallest loan amount to precompute, must be positive
+     * @param maximumLoanAmount the largest loan amount to precompute
+     * @param loanAmountIncrement the increments of the loan amounts to precompute, must be positive
+     */
+    public PrecomputedLoanQuoteCalculator(final List<Lender> lenders, final RepaymentEngine repaymentEngine,
+                                          final int minimumLoanAmount, final int maximumLoanAmount, final int loanAmountIncrement) {
+        super(lenders, repaymentEngine);
+
+        if (minimumLoanAmount <= 0) {
+            throw new IllegalArgumentException("Minimum loan amount must be positive");
+        } else if (maximumLoanAmount < minimumLoanAmount) {
+            throw new IllegalArgumentException("Maximum loan amount must not be less than minimum loan amount");
+        } else if (loanAmountIncrement <= 0) {
+            throw new IllegalArgumentException("Loan amount increment must be positive");
+        }
+
+        this.minimumLoanAmount = minimumLoanAmount;
+        this.maximumLoanAmount = maximumLoanAmount;
+        this.loanAmountIncrement = loanAmountIncrement;
+
+        quotes = new LoanQuote[(maximumLoanAmount - minimumLoanAmount) / loanAmountIncrement + 1];
+        mutableQuotes = new MutableLoanQuote[quotes.length];
+
+        precomputeQuotes();
+
+        for (int i = 0; i < quotes.length && quotes[i] != null; i++) {
+            mutableQuotes[i] = new MutableLoanQuote().set(quotes[i]);
+        }
+    }
+
+    /**
+     * Computes the quote for every loan amount in a single pass over the lenders. Each loan amount uses every lender
+     * that the previous loan amount did, so the monthly repayments towards the lenders whose quota is entirely used are
+     * carried over to the next loan amount, leaving only the last, partially used lender to be calculated
+     */
+    private void precomputeQuotes() {
+        final Iterator<Lender> lenderIterator = getLenders().iterator();
+
+        // sum of monthly repayments towards the lenders whose quota is entirely used, and the sum of those quotas
+        BigDecimal fullyUsedMonthlyRepayment = BigDecimal.ZERO;
+        long fullyUsedAmount = 0;
+
+        Lender lender = lenderIterator.hasNext() ? lenderIterator.next() : null;
+
+        for (int i = 0; i < quotes.length; i++) {
+            final int loanAmount = minimumLoanAmount + i * loanAmountIncrement;
+
+            // use up all the quota of lenders that cannot satisfy the remaining loan amount, see getLendersForLoan
+            while (lender != null && fullyUsedAmount + lender.getAmount() < loanAmount) {
+                fullyUsedMonthlyRepayment = fullyUsedMonthlyRepayment.add(getMonthlyRepayment(lender.getRate(), lender.getAmount()));
+                fullyUsedAmount += lender.getAmount();
+
+                lender = lenderIterator.hasNext() ? lenderIterator.next() : null;
+            }
+
+            if (lender == null) {
+                // insufficient lenders for this loan amount and every larger loan amount
+                return;
+            }
+
+            final int remainingLoanAmount = (int) (loanAmount - fullyUsedAmount);
+
+            quotes[i] = createQuote(loanAmount, fullyUsedMonthlyRepayment.add(getMonthlyRepayment(lender.getRate(), remainingLoanAmount)));
+        }
+    }
+
+    /**
+     * Returns a quote based on the specified loan amount, using the lowest rated lenders possible. Loan amounts that
+     * were precomputed are looked up, any other loan amount is calculated on demand
+     * @param loanAmount the loan amount requested in pounds sterling
+     * @return the loan quote containing repayment information and the interest rate of the loan
+     * @throws InsufficientLendersException thrown when there is not sufficient funding from the list of lenders
+     * to satisfy the requested loan amount
+     * @throws IllegalArgumentException thrown if the loan amount is not positive
+     */
+    @Override
+    public LoanQuote getQuote(final int loanAmount) throws InsufficientLendersException {
+        if (loanAmount < minimumLoanAmount || maximumLoanAmount < loanAmount || (loanAmount - minimumLoanAmount) % loanAmountIncrement != 0) {
+            return super.getQuote(loanAmount);
+        }
+
+        final LoanQuote quote = quotes[(loanAmount - minimumLoanAmount) / loanAmountIncrement];
+
+        if (quote == null) {
+            throw new InsufficientLendersException();
+        }
+
+        return quote;
+    }
+
+    /**
+     * Fills in a quote based on the specified loan amount, using the lowest rated lenders possible. Loan amounts that
+     * were precomputed are copied without allocating, any other loan amount is calculated on demand
+     * @param loanAmount the loan amount requested in pounds sterling
+     * @param result the holder to fill in, which may be reused for every quote
+     * @return <code>result</code>, containing repayment information and the interest rate of the loan
+     * @throws InsufficientLendersException thrown when there is not sufficient funding from the list of lenders
+     * to satisfy the requested loan amount
+     * @throws IllegalArgumentException thrown if the loan amount is not positive
+     */
+    @Override
+    public MutableLoanQuote getQuote(final int loanAmount, final MutableLoanQuote result) throws InsufficientLendersException {
+        if (loanAmount < minimumLoanAmount || maximumLoanAmount < loanAmount || (loanAmount - minimumLoanAmount) % loanAmountIncrement != 0) {
+            return super.getQuote(loanAmount, result);
+        }
+
+        final MutableLoanQuote quote = mutableQuotes[(loanAmount - minimumLoanAmount) / loanAmountIncrement];
+
+        if (quote == null) {
+            throw new InsufficientLendersException();
+        }
+
+        return result.set(quote);
+    }
+}
@@ -0,0 +1,328 @@
+package com.github.hansonhsc.loan.quote;
+
+import com.github.hansonhsc.loan.metrics.LogHistogram;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms for each phase of quoting, along with histograms of the solver iterations and lenders used by each
+ * quote and a count of the quotes rejected for insufficient lenders. Every quote is timed end to end, while the phases
+ * within a quote and the solver iterations are only recorded for a random sample of one in
+ * <code>DEFAULT_PHASE_SAMPLE_INTERVAL</code> quotes. Recording a quote still costs two calls to
+ * <code>System.nanoTime</code> and a few uncontended atomic additions, which is a large share of a quote priced with
+ * fixed point arithmetic, so metrics are off by default, and can be turned on by setting the system property
+ * <code>ENABLED_PROPERTY</code> to <code>true</code>.
+ * <p>
+ * Calculators record into <code>getDefault()</code>, which is published over JMX by <code>register</code>, e.g. by the
+ * <code>serve</code> command of the application
+ */
+public final class QuoteMetrics implements QuoteMetricsMXBean {
+    /**
+     * The system property that turns metrics on when it is <code>true</code>
+     */
+    static final String ENABLED_PROPERTY = "loan.quote.metrics";
+
+    /**
+     * The number of quotes that the phases of one quote are recorded for, on average
+     */
+    static final int DEFAULT_PHASE_SAMPLE_INTERVAL = 64;
+
+    /**
+     * The JMX domain that metrics are published under
+     */
+    static final String DOMAIN = "com.github.hansonhsc.loan";
+
+    /**
+     * The unit of every latency histogram
+     */
+    private static final String NANOSECONDS = "nanoseconds";
+
+    /**
+     * The metrics recorded by every calculator
+     */
+    private static final QuoteMetrics DEFAULT = new QuoteMetrics(Boolean.getBoolean(ENABLED_PROPERTY));
+
+    /**
+     * The phases of quoting that are timed
+     */
+    public enum Phase {
+        /**
+         * Parsing a market CSV file, which also includes sorting it when it is loaded by <code>ParallelMarketLoader</code>
+         */
+        PARSE,
+
+        /**
+         * Sorting the lenders when a calculator is constructed
+         */
+        SORT,
+
+        /**
+         * Finding the lenders that a loan is borrowed from
+         */
+        ALLOCATION,
+
+        /**
+         * Summing the monthly repayments towards each lender
+         */
+        REPAYMENT,
+
+        /**
+         * Solving for the interest rate with Newton-Raphson
+         */
+        SOLVE,
+
+        /**
+         * Pricing a quote end to end, from the allocation to the solve
+         */
+        QUOTE
+    }
+
+    /**
+     * whether metrics are recorded
+     */
+    private final boolean enabled;
+
+    /**
+     * the number of quotes that the phases of one quote are recorded for, on average, or 0 if phases are never recorded
+     */
+    private final int phaseSampleInterval;
+
+    /**
+     * the latencies of each phase, by ordinal
+     */
+    private final LogHistogram[] latencies = new LogHistogram[Phase.values().length];
+
+    /**
+     * the number of iterations of each solve
+     */
+    private final LogHistogram solverIterations = new LogHistogram("iterations");
+
+    /**
+     * the number of lenders that each quote borrows from
+     */
+    private final LogHistogram lendersPerQuote = new LogHistogram("lenders");
+
+    /**
+     * the number of quotes rejected because there were insufficient lenders
+     */
+    private final LongAdder insufficientLenders = new LongAdder();
+
+    /**
+     * Constructs metrics that are recorded
+     */
+    public QuoteMetrics() {
+        this(true);
+    }
+
+    /**
+     * Constructs metrics that sample the phases of one in <code>DEFAULT_PHASE_SAMPLE_INTERVAL</code> quotes
+     * @param enabled whether metrics are recorded
+     */
+    QuoteMetrics(final boolean enabled) {
+        this(enabled, DEFAULT_PHASE_SAMPLE_INTERVAL);
+    }
+
+    /**
+     * Constructs metrics
+     * @param enabled whether metrics are recorded
+     * @param phaseSampleInterval the number of quotes that the phases of one quote are recorded for, on average, where
+     *                            1 records the phases of every quote and 0 never records them
+     * @throws IllegalArgumentException thrown if the interval is negative
+     */
+    QuoteMetrics(final boolean enabled, final int phaseSampleInterval) {
+        if (phaseSampleInterval < 0) {
+            throw new IllegalArgumentException("Phase sample interval must not be negative");
+        }
+
+        this.enabled = enabled;
+        this.phaseSampleInterval = phaseSampleInterval;
+
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LogHistogram(NANOSECONDS);
+        }
+    }
+
+    /**
+     * Gets the metrics recorded by every calculator
+     * @return the default metrics
+     */
+    public static QuoteMetrics getDefault() {
+        return DEFAULT;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the latencies of a phase
+     * @param phase the phase
+     * @return the histogram of the latencies of the phase in nanoseconds
+     */
+    public LogHistogram getLatencies(final Phase phase) {
+        return latencies[phase.ordinal()];
+    }
+
+    /**
+     * Gets the number of iterations of each solve for the interest rate
+     * @return the histogram of the number of iterations
+     */
+    public LogHistogram getSolverIterations() {
+        return solverIterations;
+    }
+
+    /**
+     * Gets the number of lenders that each quote borrows from
+     * @return the histogram of the number of lenders
+     */
+    public LogHistogram getLendersPerQuote() {
+        return lendersPerQuote;
+    }
+
+    @Override
+    public long getQuoteCount() {
+        return getLatencies(Phase.QUOTE).getCount();
+    }
+
+    @Override
+    public long getInsufficientLendersCount() {
+        return insufficientLenders.sum();
+    }
+
+    /**
+     * Starts timing a phase that is recorded every time, i.e. a whole quote, a sort or a parse
+     * @return the current time from <code>System.nanoTime</code>, or 0 if metrics are not recorded
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Starts timing a phase within a quote, which is only recorded for a sample of the quotes
+     * @return the current time from <code>System.nanoTime</code>, or 0 if the phase is not recorded
+     */
+    long startPhase() {
+        return enabled && phaseSampleInterval != 0
+                && (phaseSampleInterval == 1 || ThreadLocalRandom.current().nextInt(phaseSampleInterval) == 0)
+                ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the latency of a phase
+     * @param phase the phase
+     * @param start the time that the phase started, from <code>start</code>, <code>startPhase</code> or the
+     *              <code>stop</code> of the previous phase
+     * @return the current time, which can start the next phase, or 0 if the phase is not recorded
+     */
+    long stop(final Phase phase, final long start) {
+        if (start == 0) {
+            return 0;
+        }
+
+        final long now = System.nanoTime();
+
+        latencies[phase.ordinal()].record(now - start);
+
+        return now;
+    }
+
+    /**
+     * Records the latency and number of iterations of a solve
+     * @param start the time that the solve started, from <code>startPhase</code>
+     * @param iterations the number of iterations of the solve
+     * @return the current time, or 0 if the solve is not recorded
+     */
+    long stopSolve(final long start, final int iterations) {
+        if (start == 0) {
+            return 0;
+        }
+
+        solverIterations.record(iterations);
+
+        return stop(Phase.SOLVE, start);
+    }
+
+    /**
+     * Records a quote that was priced
+     * @param start the time that pricing the quote started, from <code>start</code>
+     * @param lenders the number of lenders that the quote borrows from
+     */
+    void stopQuote(final long start, final int lenders) {
+        if (start == 0) {
+            return;
+        }
+
+        lendersPerQuote.record(lenders);
+        stop(Phase.QUOTE, start);
+    }
+
+    /**
+     * Records a quote that was rejected because there were insufficient lenders
+     */
+    void recordInsufficientLenders() {
+        if (enabled) {
+            insufficientLenders.increment();
+        }
+    }
+
+    @Override
+    public void reset() {
+        for (final LogHistogram histogram : latencies) {
+            histogram.reset();
+        }
+
+        solverIterations.reset();
+        lendersPerQuote.reset();
+        insufficientLenders.reset();
+    }
+
+    /**
+     * Publishes the counters and every histogram as MXBeans, under <code>DOMAIN:type=QuoteMetrics</code>, with the
+     * histograms named after their phase, e.g. <code>name=solveLatency</code>. MXBeans that are already registered
+     * are left as they are, so the default metrics can be registered more than once
+     * @param server the server to register the MXBeans with, e.g. the platform MBean server
+     * @throws JMException thrown if an MXBean cannot be registered
+     */
+    public void register(final MBeanServer server) throws JMException {
+        register(server, new ObjectName(DOMAIN + ":type=QuoteMetrics"), this);
+
+        for (final Phase phase : Phase.values()) {
+            register(server, getObjectName(phase.name().toLowerCase(Locale.ROOT) + "Latency"), getLatencies(phase));
+        }
+
+        register(server, getObjectName("solverIterations"), solverIterations);
+        register(server, getObjectName("lendersPerQuote"), lendersPerQuote);
+    }
+
+    /**
+     * Gets the name of a histogram MXBean
+     * @param name the name of the histogram
+     * @return the object name of the histogram
+     * @throws JMException thrown if the name is not valid
+     */
+    static ObjectName getObjectName(final String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=QuoteMetrics,name=" + name);
+    }
+
+    /**
+     * Registers an MXBean unless the name is already registered
+     * @param server the server to register the MXBean with
+     * @param name the name of the MXBean
+     * @param mxBean the MXBean
+     * @throws JMException thrown if the MXBean cannot be registered
+     */
+    private static void register(final MBeanServer server, final ObjectName name, final Object mxBean) throws JMException {
+        try {
+            server.registerMBean(mxBean, name);
+        } catch (InstanceAlreadyExistsException e) {
+            // already published
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.hansonhsc.loan.quote;
+
+/**
+ * The management interface of the counters of <code>QuoteMetrics</code>, so that they can be published as an MXBean.
+ * The histograms are published as MXBeans of their own
+ */
+public interface QuoteMetricsMXBean {
+    /**
+     * Gets whether metrics are recorded
+     * @return <code>true</code> if metrics are recorded, otherwise <code>false</code>
+     */
+    boolean isEnabled();
+
+    /**
+     * Gets the number of quotes that were priced
+     * @return the number of quotes that were priced
+     */
+    long getQuoteCount();
+
+    /**
+     * Gets the number of quotes that were rejected because there were insufficient lenders
+     * @return the number of quotes that were rejected
+     */
+    long getInsufficientLendersCount();
+
+    /**
+     * Forgets every value recorded so far, in every histogram and counter
+     */
+    void reset();
+}
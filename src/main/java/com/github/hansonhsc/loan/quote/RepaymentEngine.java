@@ -0,0 +1,24 @@
+package com.github.hansonhsc.loan.quote;
+
+/**
+ * The engines that <code>LoanQuoteCalculator</code> can use to calculate the monthly repayment towards each lender
+ */
+public enum RepaymentEngine {
+    /**
+     * BigDecimal arithmetic using <code>AmortizedLoan</code>
+     */
+    BIG_DECIMAL,
+
+    /**
+     * Primitive fixed point arithmetic using <code>ScaledAmortizedLoan</code>, which produces exactly the same
+     * repayments as <code>BIG_DECIMAL</code> at a fraction of the cost. Quotes are rounded with <code>Money</code>, so
+     * BigDecimals are only created for the fields of the quote, or if a repayment overflows
+     */
+    SCALED_LONG,
+
+    /**
+     * Runs both <code>BIG_DECIMAL</code> and <code>SCALED_LONG</code>, using the result of <code>BIG_DECIMAL</code>
+     * and counting every repayment where the result of <code>SCALED_LONG</code> diverges from it
+     */
+    SHADOW
+}
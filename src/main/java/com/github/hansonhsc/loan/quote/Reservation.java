@@ -0,0 +1,137 @@
+package com.github.hansonhsc.loan.quote;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Capacity of lenders reserved for a loan by <code>CapacityLedger.reserve</code>. The capacity stays taken until the
+ * reservation is cancelled, and committing the reservation means that it can no longer be cancelled
+ */
+public final class Reservation {
+    private static final int RESERVED = 0;
+    private static final int COMMITTED = 1;
+    private static final int CANCELLED = 2;
+
+    /**
+     * the ledger that the capacity was taken from
+     */
+    private final CapacityLedger ledger;
+
+    /**
+     * the loan amount requested in pounds sterling
+     */
+    private final int loanAmount;
+
+    /**
+     * the index of each lender in the ledger, in ascending order
+     */
+    private final int[] lenderIndices;
+
+    /**
+     * the amount borrowed from each lender
+     */
+    private final int[] loanAmounts;
+
+    /**
+     * whether the reservation is reserved, committed or cancelled
+     */
+    private final AtomicInteger state = new AtomicInteger(RESERVED);
+
+    /**
+     * the quote of the reservation, which is only calculated when it is first requested
+     */
+    private volatile LoanQuote quote;
+
+    /**
+     * Constructs a reservation of capacity that has already been taken
+     * @param ledger the ledger that the capacity was taken from
+     * @param loanAmount the loan amount requested in pounds sterling
+     * @param lenderIndices the index of each lender in the ledger, in ascending order
+     * @param loanAmounts the amount borrowed from each lender, which add up to <code>loanAmount</code>
+     */
+    Reservation(final CapacityLedger ledger, final int loanAmount, final int[] lenderIndices, final int[] loanAmounts) {
+        this.ledger = ledger;
+        this.loanAmount = loanAmount;
+        this.lenderIndices = lenderIndices;
+        this.loanAmounts = loanAmounts;
+    }
+
+    /**
+     * Gets the loan amount of the reservation
+     * @return the loan amount requested in pounds sterling
+     */
+    public int getLoanAmount() {
+        return loanAmount;
+    }
+
+    /**
+     * Returns the quote of the reserved loan, priced from the lenders that the capacity was actually taken from
+     * @return the loan quote containing repayment information and the interest rate of the loan
+     */
+    public LoanQuote getQuote() {
+        LoanQuote quote = this.quote;
+
+        if (quote == null) {
+            // racing threads calculate the same quote
+            quote = ledger.getQuote(loanAmount, lenderIndices, loanAmounts);
+            this.quote = quote;
+        }
+
+        return quote;
+    }
+
+    /**
+     * Retrieves the lenders that the capacity was taken from, and how much was taken from each of them
+     * @return the lenders and the amount that the borrower is borrowing from each of them
+     */
+    public Map<Lender, Integer> getLenders() {
+        final Map<Lender, Integer> lenders = new HashMap<>();
+
+        for (int i = 0; i < lenderIndices.length; i++) {
+            lenders.put(ledger.getLender(lenderIndices[i]), loanAmounts[i]);
+        }
+
+        return lenders;
+    }
+
+    /**
+     * Commits the reservation, so that the capacity is never given back. Committing a reservation more than once has
+     * no effect
+     * @throws IllegalStateException thrown if the reservation has been cancelled
+     */
+    public void commit() {
+        if (!state.compareAndSet(RESERVED, COMMITTED) && state.get() != COMMITTED) {
+            throw new IllegalStateException("Reservation has been cancelled");
+        }
+    }
+
+    /**
+     * Cancels the reservation, giving the capacity back to the lenders. Cancelling a reservation more than once has no
+     * effect
+     * @throws IllegalStateException thrown if the reservation has been committed
+     */
+    public void cancel() {
+        if (state.compareAndSet(RESERVED, CANCELLED)) {
+            ledger.release(lenderIndices, loanAmounts, lenderIndices.length);
+        } else if (state.get() != CANCELLED) {
+            throw new IllegalStateException("Reservation has been committed");
+        }
+    }
+
+    /**
+     * Gets whether the reservation has been committed
+     * @return <code>true</code> if the reservation has been committed, otherwise <code>false</code>
+     */
+    public boolean isCommitted() {
+        return state.get() == COMMITTED;
+    }
+
+    /**
+     * Gets whether the reservation has been cancelled
+     * @return <code>true</code> if the reservation has been cancelled, otherwise <code>false</code>
+     */
+    public boolean isCancelled() {
+        return state.get() == CANCELLED;
+    }
+}
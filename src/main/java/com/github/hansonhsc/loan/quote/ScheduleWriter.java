@@ -0,0 +1,283 @@
+package com.github.hansonhsc.loan.quote;
+
+import com.github.hansonhsc.loan.AmortizationScheduleGenerator;
+import com.github.hansonhsc.loan.ScheduleConsumer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Writes the amortization schedule of each of a stream of loan amounts, one per line, as CSV rows: a row for each
+ * lender of the loan followed by a row for the whole loan, for every month of the term of the calculator, or a row
+ * with the reason that the line could not be quoted. Each schedule is generated by
+ * <code>AmortizationScheduleGenerator</code> and written as it is generated, so memory use does not depend on the size
+ * of the input or of the schedules, and amounts are formatted from pennies without creating any objects for a row.
+ * Blank lines are skipped. A writer reuses its buffers from one schedule to the next, so it is not thread safe
+ */
+public final class ScheduleWriter {
+    /**
+     * The header of the CSV format
+     */
+    static final String CSV_HEADER = "line,loanAmount,lender,month,payment,interest,principal,balance,error";
+
+    /**
+     * The number of characters that the numbers of a row can take, i.e. a month and five amounts of up to 20 digits,
+     * a sign and a decimal point, each preceded by a comma, and the empty error
+     */
+    private static final int ROW_CAPACITY = 160;
+
+    /**
+     * the calculator that finds the lenders of every line
+     */
+    private final LoanQuoteCalculator loanQuoteCalculator;
+
+    /**
+     * the generator that is reused for every schedule
+     */
+    private final AmortizationScheduleGenerator generator = new AmortizationScheduleGenerator();
+
+    /**
+     * the buffer that the numbers of each row are formatted into
+     */
+    private final char[] row = new char[ROW_CAPACITY];
+
+    /**
+     * the consumer that writes the rows of the current schedule
+     */
+    private final RowWriter rowWriter = new RowWriter();
+
+    /**
+     * Constructs a schedule writer
+     * @param loanQuoteCalculator the calculator that finds the lenders of every line, over whose term the schedules
+     *                            are generated
+     */
+    public ScheduleWriter(final LoanQuoteCalculator loanQuoteCalculator) {
+        this.loanQuoteCalculator = loanQuoteCalculator;
+    }
+
+    /**
+     * Writes the schedule of every line of the input, validating each loan amount with
+     * <code>LoanQuoteApplication.getLoanAmount</code>. A line that cannot be quoted is reported in its row and does
+     * not stop the rest
+     * @param input the loan amounts, one per line
+     * @param output the destination of the schedules, which is not flushed or closed
+     * @return the number of lines that could not be quoted
+     * @throws IOException thrown if the input cannot be read or the output cannot be written
+     */
+    public long write(final BufferedReader input, final Writer output) throws IOException {
+        output.write(CSV_HEADER);
+        output.write('\n');
+
+        rowWriter.output = output;
+
+        long lineNumber = 0;
+        long errorCount = 0;
+        String line;
+
+        while ((line = input.readLine()) != null) {
+            lineNumber++;
+
+            final String trimmedLine = line.trim();
+
+            if (trimmedLine.isEmpty()) {
+                continue;
+            }
+
+            final String error = writeSchedule(output, lineNumber, trimmedLine);
+
+            if (error != null) {
+                errorCount++;
+
+                output.write(Long.toString(lineNumber));
+                output.write(',');
+                output.write(BatchQuoter.toCsvField(trimmedLine));
+                output.write(",,,,,,,");
+                output.write(BatchQuoter.toCsvField(error));
+                output.write('\n');
+            }
+        }
+
+        return errorCount;
+    }
+
+    /**
+     * Writes the schedule of a line. A schedule that cannot be generated fails before its first row is written, so an
+     * error is never written after part of a schedule
+     * @param output the destination of the schedules
+     * @param lineNumber the line number
+     * @param line the trimmed text of the line
+     * @return the reason that the line could not be quoted, or <code>null</code> if its schedule was written
+     * @throws IOException thrown if the output cannot be written
+     */
+    private String writeSchedule(final Writer output, final long lineNumber, final String line) throws IOException {
+        try {
+            final int loanAmount = LoanQuoteApplication.getLoanAmount(line);
+            final LenderAllocation allocation = loanQuoteCalculator.getLenderAllocation(loanAmount);
+
+            // e.g. a lender with a negative amount or rate
+            loanQuoteCalculator.prepareSchedule(allocation, generator);
+
+            rowWriter.prefix = lineNumber + "," + loanAmount + ",";
+
+            // the names are escaped once for the whole schedule rather than on every row
+            rowWriter.setLenders(allocation);
+
+            generator.generate(rowWriter);
+        } catch (LoanQuoteParameterValidationException | IllegalArgumentException | ArithmeticException e) {
+            return e.getMessage();
+        } catch (InsufficientLendersException e) {
+            return LoanQuoteApplication.INSUFFICIENT_LENDERS_MESSAGE;
+        }
+
+        return null;
+    }
+
+    /**
+     * Formats an amount in pennies as pounds with two decimal places
+     * @param buffer the buffer to format into
+     * @param position the position in the buffer to start at
+     * @param pennies the amount in pennies
+     * @return the position after the amount
+     */
+    static int formatPennies(final char[] buffer, final int position, final long pennies) {
+        int end = position;
+
+        if (pennies < 0) {
+            buffer[end++] = '-';
+        }
+
+        // negated as a negative number, so that Long.MIN_VALUE does not overflow
+        long remaining = pennies < 0 ? pennies : -pennies;
+        int length = 0;
+
+        do {
+            buffer[end + length++] = (char) ('0' - remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0 || length < 3);
+
+        reverse(buffer, end, length);
+
+        // move the pennies along to make room for the decimal point
+        buffer[end + length] = buffer[end + length - 1];
+        buffer[end + length - 1] = buffer[end + length - 2];
+        buffer[end + length - 2] = '.';
+
+        return end + length + 1;
+    }
+
+    /**
+     * Formats a non-negative integer
+     * @param buffer the buffer to format into
+     * @param position the position in the buffer to start at
+     * @param value the non-negative integer
+     * @return the position after the integer
+     */
+    private static int formatInt(final char[] buffer, final int position, final int value) {
+        int remaining = value;
+        int length = 0;
+
+        do {
+            buffer[position + length++] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+
+        reverse(buffer, position, length);
+
+        return position + length;
+    }
+
+    /**
+     * Reverses part of a buffer
+     * @param buffer the buffer
+     * @param position the position of the first character to reverse
+     * @param length the number of characters to reverse
+     */
+    private static void reverse(final char[] buffer, final int position, final int length) {
+        for (int i = position, j = position + length - 1; i < j; i++, j--) {
+            final char c = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = c;
+        }
+    }
+
+    /**
+     * Writes the rows of the current schedule
+     */
+    private final class RowWriter implements ScheduleConsumer {
+        /**
+         * the destination of the schedules
+         */
+        private Writer output;
+
+        /**
+         * the line number and loan amount columns of the current schedule, including the trailing comma
+         */
+        private String prefix;
+
+        /**
+         * the escaped name of each lender of the current schedule
+         */
+        private String[] lenders = new String[16];
+
+        /**
+         * Sets the lenders of the current schedule
+         * @param allocation the lenders that the borrower is borrowing from
+         */
+        private void setLenders(final LenderAllocation allocation) {
+            if (lenders.length < allocation.size()) {
+                lenders = Arrays.copyOf(lenders, Math.max(allocation.size(), lenders.length * 2));
+            }
+
+            for (int i = 0; i < allocation.size(); i++) {
+                lenders[i] = BatchQuoter.toCsvField(allocation.getLender(i).getName());
+            }
+        }
+
+        @Override
+        public void acceptSlice(final int slice, final int month, final long payment, final long interest,
+                                final long principal, final long balance) throws IOException {
+            writeRow(lenders[slice], month, payment, interest, principal, balance);
+        }
+
+        @Override
+        public void acceptLoan(final int month, final long payment, final long interest, final long principal,
+                               final long balance) throws IOException {
+            writeRow("", month, payment, interest, principal, balance);
+        }
+
+        /**
+         * Writes a row of the current schedule
+         * @param lender the escaped name of the lender, or empty for the whole loan
+         * @param month the month of the repayment
+         * @param payment the repayment in pennies
+         * @param interest the interest in pennies
+         * @param principal the principal repaid in pennies
+         * @param balance the remaining balance in pennies
+         * @throws IOException thrown if the output cannot be written
+         */
+        private void writeRow(final String lender, final int month, final long payment, final long interest,
+                              final long principal, final long balance) throws IOException {
+            output.write(prefix);
+            output.write(lender);
+
+            int position = 0;
+
+            row[position++] = ',';
+            position = formatInt(row, position, month);
+            row[position++] = ',';
+            position = formatPennies(row, position, payment);
+            row[position++] = ',';
+            position = formatPennies(row, position, interest);
+            row[position++] = ',';
+            position = formatPennies(row, position, principal);
+            row[position++] = ',';
+            position = formatPennies(row, position, balance);
+            row[position++] = ',';
+            row[position++] = '\n';
+
+            output.write(row, 0, position);
+        }
+    }
+}
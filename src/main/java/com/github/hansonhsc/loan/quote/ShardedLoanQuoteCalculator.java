@@ -0,0 +1,622 @@
+package com.github.hansonhsc.loan.quote;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.OptionalInt;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A calculator over several independently sorted books of lenders, e.g. one for each regional market file, which are
+ * never merged into a single sorted book. Quotes walk the shards with a lazy k-way merge in the same order as
+ * <code>LoanQuoteCalculator</code> sorts its lenders, i.e. by rate in ascending order, then by amount in descending
+ * order, stopping as soon as the loan amount is filled, so a quote only visits the cheapest lenders of each shard and
+ * costs <code>O(k + m log k)</code> for <code>k</code> shards and <code>m</code> lenders used.
+ * <p>
+ * Lenders with the same rate and amount are used in the order of their shards, and then in their order within the
+ * shard, so every quote is exactly the same as that of a <code>LoanQuoteCalculator</code> over the lenders of every
+ * shard in turn. The shards must not be modified once the calculator is constructed, after which the calculator is
+ * thread safe
+ */
+public final class ShardedLoanQuoteCalculator extends LoanQuoteCalculator {
+    /**
+     * the sorted shards of the market
+     */
+    private final LenderBook[] shards;
+
+    /**
+     * the largest amount that can be borrowed, i.e. the largest total of the lenders up to any lender in the merged
+     * order, which is less than the total of every lender when some lenders have negative amounts
+     */
+    private final long capacity;
+
+    /**
+     * the total number of lenders in every shard
+     */
+    private final long size;
+
+    /**
+     * Constructs a calculator over the specified shards with the specified repayment engine
+     *
+     * @param shards the shards of the market, in the order that lenders with the same rate and amount are used, each
+     *               already sorted by rate in ascending order, then by amount in descending order, e.g. a
+     *               <code>ColumnarLenderBook</code> after <code>sort</code>. The shards are not modified
+     * @param repaymentEngine the engine used to calculate the monthly repayment towards each lender
+     * @throws IllegalArgumentException thrown if a shard is not sorted
+     */
+    public ShardedLoanQuoteCalculator(final List<? extends LenderBook> shards, final RepaymentEngine repaymentEngine) {
+        this(shards, repaymentEngine, DEFAULT_TERM);
+    }
+
+    /**
+     * Constructs a calculator over the specified shards with the specified repayment engine and term
+     *
+     * @param shards the shards of the market, in the order that lenders with the same rate and amount are used, each
+     *               already sorted by rate in ascending order, then by amount in descending order, e.g. a
+     *               <code>ColumnarLenderBook</code> after <code>sort</code>. The shards are not modified
+     * @param repaymentEngine the engine used to calculate the monthly repayment towards each lender
+     * @param term total number of repayment months over the entire loan, between 1 and <code>MAXIMUM_TERM</code>
+     * @throws IllegalArgumentException thrown if a shard is not sorted, or the term is not between 1 and
+     * <code>MAXIMUM_TERM</code>
+     */
+    public ShardedLoanQuoteCalculator(final List<? extends LenderBook> shards, final RepaymentEngine repaymentEngine, final int term) {
+        // every allocation is made from the shards rather than the book of the base class
+        super(new CumulativeLenderBook(new ListLenderBook(Collections.emptyList())), repaymentEngine, term);
+
+        this.shards = shards.toArray(new LenderBook[0]);
+
+        long amount = 0;
+        long count = 0;
+        boolean negativeAmount = false;
+
+        for (int shard = 0; shard < this.shards.length; shard++) {
+            final int shardSize = this.shards[shard].size();
+
+            for (int i = 0; i < shardSize; i++) {
+                // an unsorted shard would be merged out of order, allocating from the wrong lenders
+                if (i > 0 && compare(this.shards, shard, i - 1, shard, i) > 0) {
+                    throw new IllegalArgumentException("Shard " + shard + " is not sorted at lender " + i + ": " + this.shards[shard].getName(i));
+                }
+
+                final int lenderAmount = this.shards[shard].getAmount(i);
+
+                amount += lenderAmount;
+                negativeAmount |= lenderAmount < 0;
+            }
+
+            count += shardSize;
+        }
+
+        capacity = negativeAmount ? getCapacity(this.shards) : amount;
+        size = count;
+    }
+
+    /**
+     * Finds the largest total of the lenders up to any lender in the merged order of the shards, in the same way as
+     * the cumulative amounts of a <code>CumulativeLenderBook</code>
+     * @param shards the sorted shards
+     * @return the largest amount that can be borrowed from the shards
+     */
+    private static long getCapacity(final LenderBook[] shards) {
+        final ShardMerger merger = new ShardMerger(shards);
+        long amount = 0;
+        long capacity = 0;
+
+        while (merger.hasNext()) {
+            merger.next();
+            amount += shards[merger.getShard()].getAmount(merger.getIndex());
+            capacity = Math.max(capacity, amount);
+        }
+
+        return capacity;
+    }
+
+    /**
+     * Loads each market file as a shard on the common fork/join pool, and constructs a calculator over them
+     * @param marketFiles the paths of the market CSV files or snapshots written by <code>MappedLenderBook.write</code>,
+     *                    in the order that lenders with the same rate and amount are used
+     * @param repaymentEngine the engine used to calculate the monthly repayment towards each lender
+     * @param term total number of repayment months over the entire loan, between 1 and <code>MAXIMUM_TERM</code>
+     * @return a calculator over the shards
+     * @throws IOException thrown if a file cannot be read
+     * @throws MarketParseException thrown if a file is not a valid market CSV file or snapshot
+     * @throws IllegalArgumentException thrown if the term is not between 1 and <code>MAXIMUM_TERM</code>
+     */
+    public static ShardedLoanQuoteCalculator load(final List<Path> marketFiles, final RepaymentEngine repaymentEngine, final int term)
+            throws IOException, MarketParseException {
+        return load(marketFiles, repaymentEngine, term, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Loads each market file as a shard in parallel on the specified fork/join pool, and constructs a calculator over
+     * them. Market CSV files are loaded with <code>ParallelMarketLoader</code> and snapshots are mapped in place, so
+     * each shard is sorted on its own and no single book of every lender is ever built
+     * @param marketFiles the paths of the market CSV files or snapshots written by <code>MappedLenderBook.write</code>,
+     *                    in the order that lenders with the same rate and amount are used
+     * @param repaymentEngine the engine used to calculate the monthly repayment towards each lender
+     * @param term total number of repayment months over the entire loan, between 1 and <code>MAXIMUM_TERM</code>
+     * @param pool the pool to load the shards on
+     * @return a calculator over the shards
+     * @throws IOException thrown if a file cannot be read
+     * @throws MarketParseException thrown if a file is not a valid market CSV file or snapshot
+     * @throws IllegalArgumentException thrown if the term is not between 1 and <code>MAXIMUM_TERM</code>
+     */
+    public static ShardedLoanQuoteCalculator load(final List<Path> marketFiles, final RepaymentEngine repaymentEngine, final int term,
+                                                  final ForkJoinPool pool) throws IOException, MarketParseException {
+        final List<ShardTask> tasks = new ArrayList<>();
+
+        for (final Path marketFile : marketFiles) {
+            final ShardTask task = new ShardTask(marketFile, pool);
+
+            pool.execute(task);
+            tasks.add(task);
+        }
+
+        final List<LenderBook> shards = new ArrayList<>();
+
+        for (final ShardTask task : tasks) {
+            final LenderBook shard = task.join();
+
+            // report the failure of the first file that failed, as if the files were loaded in turn
+            if (task.failure instanceof IOException) {
+                throw (IOException) task.failure;
+            } else if (task.failure instanceof MarketParseException) {
+                throw (MarketParseException) task.failure;
+            }
+
+            shards.add(shard);
+        }
+
+        return new ShardedLoanQuoteCalculator(shards, repaymentEngine, term);
+    }
+
+    /**
+     * Loads a market file as a shard on a fork/join pool, keeping any failure to be rethrown by the caller rather than
+     * wrapping it in an unchecked exception
+     */
+    private static final class ShardTask extends RecursiveTask<LenderBook> {
+        /**
+         * the path of the market file
+         */
+        private final Path marketFile;
+
+        /**
+         * the pool to parse and sort the chunks of a market CSV file on
+         */
+        private final ForkJoinPool pool;
+
+        /**
+         * the reason that the file could not be loaded, or <code>null</code> if it was loaded
+         */
+        private Exception failure;
+
+        /**
+         * Constructs a task to load a market file
+         * @param marketFile the path of the market file
+         * @param pool the pool to parse and sort the chunks of a market CSV file on
+         */
+        private ShardTask(final Path marketFile, final ForkJoinPool pool) {
+            this.marketFile = marketFile;
+            this.pool = pool;
+        }
+
+        @Override
+        protected LenderBook compute() {
+            try {
+                return loadShard(marketFile, pool);
+            } catch (IOException | MarketParseException e) {
+                failure = e;
+
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Loads a market file as a sorted shard
+     * @param marketFile the path of a market CSV file or a snapshot written by <code>MappedLenderBook.write</code>
+     * @param pool the pool to parse and sort the chunks of a market CSV file on
+     * @return the sorted lenders of the file
+     * @throws IOException thrown if the file cannot be read
+     * @throws MarketParseException thrown if the file is not a valid market CSV file or snapshot
+     */
+    private static LenderBook loadShard(final Path marketFile, final ForkJoinPool pool) throws IOException, MarketParseException {
+        if (MappedLenderBook.isSnapshot(marketFile)) {
+            return MappedLenderBook.open(marketFile);
+        }
+
+        return ParallelMarketLoader.load(marketFile, pool);
+    }
+
+    /**
+     * Gets the number of shards
+     * @return the number of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns an unmodifiable view of the lenders of every shard, in the order that they are used, which merges the
+     * shards lazily whenever it is iterated and creates <code>Lender</code> objects on demand
+     * @return the lenders available for loans
+     */
+    @Override
+    public Collection<Lender> getLenders() {
+        return new AbstractCollection<Lender>() {
+            @Override
+            public Iterator<Lender> iterator() {
+                final ShardMerger merger = new ShardMerger(shards);
+
+                return new Iterator<Lender>() {
+                    @Override
+                    public boolean hasNext() {
+                        return merger.hasNext();
+                    }
+
+                    @Override
+                    public Lender next() {
+                        if (!merger.hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+
+                        merger.next();
+
+                        return shards[merger.getShard()].getLender(merger.getIndex());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return (int) Math.min(size, Integer.MAX_VALUE);
+            }
+        };
+    }
+
+    /**
+     * Finds the lenders that the borrower is borrowing from by merging the cheapest lenders of each shard until a
+     * lender can satisfy the remaining loan amount
+     * @param loanAmount the total loan amount requested
+     * @return the lenders that the borrower is borrowing from, and the amount borrowed from the last lender
+     * @throws InsufficientLendersException thrown when there is not sufficient funding from the lenders of every shard
+     * to satisfy the requested loan amount
+     */
+    @Override
+    LenderAllocation getLenderAllocation(final int loanAmount) throws InsufficientLendersException {
+        // the capacity is known up front, so insufficient lenders are found without merging every shard
+        if (capacity < loanAmount) {
+            throw new InsufficientLendersException();
+        }
+
+        final ShardMerger merger = new ShardMerger(shards);
+        final MergedLenderBook lenders = new MergedLenderBook(shards);
+        long allocatedAmount = 0;
+
+        while (merger.hasNext()) {
+            merger.next();
+            lenders.add(merger.getShard(), merger.getIndex());
+
+            final int amount = shards[merger.getShard()].getAmount(merger.getIndex());
+
+            if (allocatedAmount + amount >= loanAmount) {
+                return new LenderAllocation(lenders, 0, lenders.size(), (int) (loanAmount - allocatedAmount));
+            }
+
+            allocatedAmount += amount;
+        }
+
+        // only reached when no lender has anything available
+        throw new InsufficientLendersException();
+    }
+
+    /**
+     * Fills in a quote based on the specified loan amount by merging the shards. The merged lenders are allocated, so
+     * this allocates like <code>getQuote(int)</code>
+     * @param loanAmount the loan amount requested in pounds sterling
+     * @param result the holder to fill in, which may be reused for every quote
+     * @return <code>result</code>, containing repayment information and the interest rate of the loan
+     * @throws InsufficientLendersException thrown when there is not sufficient funding from the lenders of every shard
+     * to satisfy the requested loan amount
+     * @throws IllegalArgumentException thrown if the loan amount is not positive
+     */
+    @Override
+    public MutableLoanQuote getQuote(final int loanAmount, final MutableLoanQuote result) throws InsufficientLendersException {
+        return result.set(getQuote(loanAmount));
+    }
+
+    /**
+     * Finds the largest loan amount whose quote is within a limit with a binary search that quotes each loan amount it
+     * tries by merging the shards
+     * @param limit the field of the quote that is limited
+     * @param maximum the largest value of the field, in tenths of a percent or pennies
+     * @param loanAmountIncrement the loan amounts to consider are the positive multiples of this
+     * @return the largest multiple of <code>loanAmountIncrement</code> that is within the limit, or an empty optional
+     * if there is none
+     */
+    @Override
+    OptionalInt getMaximumLoanAmount(final QuoteLimit limit, final long maximum, final int loanAmountIncrement) {
+        return getMaximumQuotedLoanAmount(limit, maximum, loanAmountIncrement, capacity);
+    }
+
+    /**
+     * Compares the lenders of two shards by rate in ascending order, then by amount in descending order, then by the
+     * order of the shards
+     * @param shards the shards
+     * @param shard1 the index of the shard of the first lender
+     * @param index1 the index of the first lender within its shard
+     * @param shard2 the index of the shard of the second lender
+     * @param index2 the index of the second lender within its shard
+     * @return a negative integer, zero, or a positive integer as the first lender is used before, at the same time as,
+     * or after the second lender
+     */
+    static int compare(final LenderBook[] shards, final int shard1, final int index1, final int shard2, final int index2) {
+        int rateComparison;
+
+        try {
+            rateComparison = Long.compare(shards[shard1].getScaledRate(index1), shards[shard2].getScaledRate(index2));
+        } catch (ArithmeticException e) {
+            // a rate with more decimal places than the fixed point representation
+            rateComparison = shards[shard1].getRate(index1).compareTo(shards[shard2].getRate(index2));
+        }
+
+        if (rateComparison != 0) {
+            return rateComparison;
+        }
+
+        final int amountComparison = Integer.compare(shards[shard2].getAmount(index2), shards[shard1].getAmount(index1));
+
+        return amountComparison != 0 ? amountComparison : Integer.compare(shard1, shard2);
+    }
+
+    /**
+     * A lazy k-way merge of sorted shards, with a binary heap of the shards ordered by their next lender
+     */
+    static final class ShardMerger {
+        /**
+         * the shards being merged
+         */
+        private final LenderBook[] shards;
+
+        /**
+         * the index of the next lender of each shard
+         */
+        private final int[] positions;
+
+        /**
+         * the shards that have lenders left, as a binary heap ordered by their next lender
+         */
+        private final int[] heap;
+
+        /**
+         * the number of shards in the heap
+         */
+        private int heapSize;
+
+        /**
+         * the shard of the lender last returned by <code>next</code>
+         */
+        private int shard = -1;
+
+        /**
+         * the index within its shard of the lender last returned by <code>next</code>
+         */
+        private int index = -1;
+
+        /**
+         * Constructs a merge of the specified shards, starting before their first lenders
+         * @param shards the sorted shards
+         */
+        ShardMerger(final LenderBook[] shards) {
+            this.shards = shards;
+
+            positions = new int[shards.length];
+            heap = new int[shards.length];
+
+            for (int i = 0; i < shards.length; i++) {
+                if (shards[i].size() > 0) {
+                    heap[heapSize++] = i;
+                }
+            }
+
+            for (int i = heapSize / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        /**
+         * Checks whether any shard has lenders left
+         * @return <code>true</code> if there is a next lender
+         */
+        boolean hasNext() {
+            return heapSize > 0;
+        }
+
+        /**
+         * Moves to the next lender in the merged order, see <code>getShard</code> and <code>getIndex</code>
+         * @throws NoSuchElementException thrown if no shard has lenders left
+         */
+        void next() {
+            if (heapSize == 0) {
+                throw new NoSuchElementException();
+            }
+
+            shard = heap[0];
+            index = positions[shard]++;
+
+            if (positions[shard] == shards[shard].size()) {
+                heap[0] = heap[--heapSize];
+            }
+
+            siftDown(0);
+        }
+
+        /**
+         * Gets the shard of the current lender
+         * @return the index of the shard
+         */
+        int getShard() {
+            return shard;
+        }
+
+        /**
+         * Gets the index of the current lender within its shard
+         * @return the index of the lender
+         */
+        int getIndex() {
+            return index;
+        }
+
+        /**
+         * Moves a shard down the heap until it is used no later than the shards below it
+         * @param position the position of the shard in the heap
+         */
+        private void siftDown(int position) {
+            if (heapSize == 0) {
+                return;
+            }
+
+            final int moving = heap[position];
+
+            while (true) {
+                int child = 2 * position + 1;
+
+                if (child >= heapSize) {
+                    break;
+                }
+
+                if (child + 1 < heapSize && compare(heap[child + 1], heap[child]) < 0) {
+                    child++;
+                }
+
+                if (compare(moving, heap[child]) <= 0) {
+                    break;
+                }
+
+                heap[position] = heap[child];
+                position = child;
+            }
+
+            heap[position] = moving;
+        }
+
+        /**
+         * Compares the next lenders of two shards
+         * @param shard1 the first shard
+         * @param shard2 the second shard
+         * @return a negative integer, zero, or a positive integer as the next lender of the first shard is used before,
+         * at the same time as, or after that of the second shard
+         */
+        private int compare(final int shard1, final int shard2) {
+            return ShardedLoanQuoteCalculator.compare(shards, shard1, positions[shard1], shard2, positions[shard2]);
+        }
+    }
+
+    /**
+     * A book of the lenders merged from the shards for a single loan, which refers to each lender by its shard and its
+     * index within the shard rather than copying it
+     */
+    static final class MergedLenderBook implements LenderBook {
+        /**
+         * Number of lenders that the book can hold before growing
+         */
+        private static final int INITIAL_CAPACITY = 16;
+
+        /**
+         * the shards that the lenders are in
+         */
+        private final LenderBook[] shards;
+
+        /**
+         * the shard of each lender
+         */
+        private int[] shardIds = new int[INITIAL_CAPACITY];
+
+        /**
+         * the index of each lender within its shard
+         */
+        private int[] indices = new int[INITIAL_CAPACITY];
+
+        /**
+         * the number of lenders in the book
+         */
+        private int size;
+
+        /**
+         * Constructs an empty book of lenders of the specified shards
+         * @param shards the shards that the lenders are in
+         */
+        MergedLenderBook(final LenderBook[] shards) {
+            this.shards = shards;
+        }
+
+        /**
+         * Adds a lender to the end of the book
+         * @param shard the shard of the lender
+         * @param index the index of the lender within its shard
+         */
+        void add(final int shard, final int index) {
+            if (size == shardIds.length) {
+                shardIds = Arrays.copyOf(shardIds, size * 2);
+                indices = Arrays.copyOf(indices, size * 2);
+            }
+
+            shardIds[size] = shard;
+            indices[size] = index;
+
+            size++;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public String getName(final int index) {
+            return shards[shardIds[checkIndex(index)]].getName(indices[index]);
+        }
+
+        @Override
+        public BigDecimal getRate(final int index) {
+            return shards[shardIds[checkIndex(index)]].getRate(indices[index]);
+        }
+
+        @Override
+        public long getScaledRate(final int index) {
+            return shards[shardIds[checkIndex(index)]].getScaledRate(indices[index]);
+        }
+
+        @Override
+        public int getAmount(final int index) {
+            return shards[shardIds[checkIndex(index)]].getAmount(indices[index]);
+        }
+
+        @Override
+        public Lender getLender(final int index) {
+            return shards[shardIds[checkIndex(index)]].getLender(indices[index]);
+        }
+
+        /**
+         * Checks that an index is within the book
+         * @param index the index of a lender
+         * @return the index
+         */
+        private int checkIndex(final int index) {
+            if (index < 0 || size <= index) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+
+            return index;
+        }
+    }
+}
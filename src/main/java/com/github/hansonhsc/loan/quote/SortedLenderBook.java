@@ -0,0 +1,16 @@
+package com.github.hansonhsc.loan.quote;
+
+/**
+ * A book of lenders that is sorted by rate in ascending order, then by amount in descending order, and that knows the
+ * total amount available from the lenders up to and including each lender, so that loans can be allocated with a
+ * binary search
+ */
+public interface SortedLenderBook extends LenderBook {
+    /**
+     * Gets the total amount available from the lenders up to and including a lender. Negative amounts are treated as
+     * if the total did not decrease, so the totals never decrease
+     * @param index the index of the lender, between 0 inclusive and <code>size()</code> exclusive
+     * @return the total amount available from the lenders up to and including the lender in pounds sterling
+     */
+    long getCumulativeAmount(int index);
+}
@@ -0,0 +1,245 @@
+package com.github.hansonhsc.loan.quote;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A market of lender offers that can be quoted against by many threads while it is being updated. Every update
+ * publishes a new immutable <code>MarketVersion</code>, which readers get with a single volatile read and without any
+ * locks, so a quote is always made against one consistent version of the market. Versions share every chunk of
+ * lenders that an update did not change, so an update only copies a small part of the market.
+ * <p>
+ * As in <code>OrderBookLoanQuoteCalculator</code>, each lender has at most one offer identified by the name of the
+ * lender, and offers with the same rate and amount are used in order of their names. Updates are serialized, so they
+ * are applied one at a time in the order that they acquire the lock of the market
+ */
+public final class VersionedMarket {
+    /**
+     * An update that changes more than one in this many offers rebuilds the book rather than applying each change
+     */
+    static final int REBUILD_RATIO = 16;
+
+    /**
+     * the engine used to calculate the monthly repayment towards each lender
+     */
+    private final RepaymentEngine repaymentEngine;
+
+    /**
+     * the offer of each lender in the market, by name, only accessed while holding the lock of the market
+     */
+    private Map<String, Lender> offersByName = new HashMap<>();
+
+    /**
+     * the latest version of the market
+     */
+    private volatile MarketVersion currentVersion;
+
+    /**
+     * Constructs an empty market, using BigDecimal arithmetic
+     */
+    public VersionedMarket() {
+        this(RepaymentEngine.BIG_DECIMAL);
+    }
+
+    /**
+     * Constructs an empty market with the specified repayment engine
+     * @param repaymentEngine the engine used to calculate the monthly repayment towards each lender
+     */
+    public VersionedMarket(final RepaymentEngine repaymentEngine) {
+        this.repaymentEngine = repaymentEngine;
+
+        currentVersion = new MarketVersion(ChunkedLenderBook.EMPTY, repaymentEngine, 0);
+    }
+
+    /**
+     * Gets the latest version of the market. The version never changes, so it can be used for any number of consistent
+     * quotes
+     * @return the latest version of the market
+     */
+    public MarketVersion getCurrentVersion() {
+        return currentVersion;
+    }
+
+    /**
+     * Returns a quote against the latest version of the market, using the lowest rated lenders possible
+     * @param loanAmount the loan amount requested in pounds sterling
+     * @return the loan quote containing repayment information and the interest rate of the loan
+     * @throws InsufficientLendersException thrown when there is not sufficient funding from the lenders to satisfy the
+     * requested loan amount
+     */
+    public LoanQuote getQuote(final int loanAmount) throws InsufficientLendersException {
+        return currentVersion.getQuote(loanAmount);
+    }
+
+    /**
+     * Adds the offer of a lender that does not have an offer in the market yet, and publishes a new version
+     * @param name the name of the lender
+     * @param rate the annual interest rate of any loans by the lender
+     * @param amount the total amount available for loans from the lender in pounds sterling, must be non-negative
+     * @throws IllegalArgumentException thrown if the lender already has an offer in the market, or the offer is invalid
+     */
+    public synchronized void add(final String name, final BigDecimal rate, final int amount) {
+        final Lender offer = OrderBookLoanQuoteCalculator.createOffer(name, rate, amount);
+
+        if (offersByName.containsKey(name)) {
+            throw new IllegalArgumentException("Lender already has an offer: " + name);
+        }
+
+        offersByName.put(name, offer);
+
+        publish(currentVersion.getBook().insert(offer));
+    }
+
+    /**
+     * Replaces the offer of a lender that has an offer in the market, and publishes a new version
+     * @param name the name of the lender
+     * @param rate the new annual interest rate of any loans by the lender
+     * @param amount the new total amount available for loans from the lender in pounds sterling, must be non-negative
+     * @throws IllegalArgumentException thrown if the lender does not have an offer in the market, or the offer is invalid
+     */
+    public synchronized void amend(final String name, final BigDecimal rate, final int amount) {
+        final Lender offer = OrderBookLoanQuoteCalculator.createOffer(name, rate, amount);
+        final Lender previousOffer = offersByName.get(name);
+
+        if (previousOffer == null) {
+            throw new IllegalArgumentException("Lender does not have an offer: " + name);
+        }
+
+        offersByName.put(name, offer);
+
+        publish(currentVersion.getBook().remove(previousOffer).insert(offer));
+    }
+
+    /**
+     * Withdraws the offer of a lender from the market, and publishes a new version if the lender had an offer
+     * @param name the name of the lender
+     * @return <code>true</code> if the lender had an offer in the market, otherwise <code>false</code>
+     */
+    public synchronized boolean withdraw(final String name) {
+        final Lender previousOffer = offersByName.remove(name);
+
+        if (previousOffer == null) {
+            return false;
+        }
+
+        publish(currentVersion.getBook().remove(previousOffer));
+
+        return true;
+    }
+
+    /**
+     * Replaces every offer in the market, and publishes a new version
+     * @param lenders the offers of the new market, at most one for each lender name
+     * @throws IllegalArgumentException thrown if a lender has more than one offer, or an offer is invalid
+     */
+    public synchronized void replaceAll(final Collection<Lender> lenders) {
+        final Map<String, Lender> newOffersByName = new HashMap<>();
+        final List<Lender> offers = new ArrayList<>(lenders.size());
+
+        for (final Lender lender : lenders) {
+            final Lender offer = OrderBookLoanQuoteCalculator.createOffer(lender.getName(), lender.getRate(), lender.getAmount());
+
+            if (newOffersByName.put(offer.getName(), offer) != null) {
+                throw new IllegalArgumentException("Lender has more than one offer: " + offer.getName());
+            }
+
+            offers.add(offer);
+        }
+
+        offers.sort(OrderBookLoanQuoteCalculator.OFFER_ORDER);
+
+        offersByName.clear();
+        offersByName.putAll(newOffersByName);
+
+        publish(ChunkedLenderBook.of(offers));
+    }
+
+    /**
+     * Replaces every offer in the market by applying only the differences from the current offers, and publishes a
+     * single new version if anything changed. Offers of new lenders are added, offers whose rate or amount changed are
+     * amended and offers of lenders that are missing are withdrawn, so the new version shares every chunk of lenders
+     * that is unchanged. When more than <code>1 / REBUILD_RATIO</code> of the offers change, the book is rebuilt as in
+     * <code>replaceAll</code> instead, which is cheaper than applying that many changes one at a time.
+     * <p>
+     * Every offer is validated before the market is changed, so the market is left as it was if an exception is thrown
+     * @param lenders the offers of the new market, at most one for each lender name
+     * @return the changes that were applied
+     * @throws IllegalArgumentException thrown if a lender has more than one offer, or an offer is invalid
+     */
+    public synchronized MarketChanges update(final Collection<Lender> lenders) {
+        final Map<String, Lender> newOffersByName = new HashMap<>(Math.max(16, lenders.size() * 4 / 3 + 1));
+        final List<Lender> addedOffers = new ArrayList<>();
+        final List<Lender> removedOffers = new ArrayList<>();
+        int addedCount = 0;
+
+        for (final Lender lender : lenders) {
+            final Lender previousOffer = offersByName.get(lender.getName());
+            final boolean unchanged = previousOffer != null && previousOffer.equals(lender);
+
+            // an unchanged offer is already valid, and is kept rather than copied
+            final Lender offer = unchanged ? previousOffer
+                    : OrderBookLoanQuoteCalculator.createOffer(lender.getName(), lender.getRate(), lender.getAmount());
+
+            if (newOffersByName.put(offer.getName(), offer) != null) {
+                throw new IllegalArgumentException("Lender has more than one offer: " + offer.getName());
+            }
+
+            if (previousOffer == null) {
+                addedCount++;
+                addedOffers.add(offer);
+            } else if (!unchanged) {
+                removedOffers.add(previousOffer);
+                addedOffers.add(offer);
+            }
+        }
+
+        final int amendedCount = addedOffers.size() - addedCount;
+        int withdrawnCount = 0;
+
+        for (final Lender previousOffer : offersByName.values()) {
+            if (!newOffersByName.containsKey(previousOffer.getName())) {
+                withdrawnCount++;
+                removedOffers.add(previousOffer);
+            }
+        }
+
+        if (addedOffers.isEmpty() && removedOffers.isEmpty()) {
+            return new MarketChanges(0, 0, 0, currentVersion.getVersion());
+        }
+
+        offersByName = newOffersByName;
+
+        if ((long) (addedOffers.size() + removedOffers.size()) * REBUILD_RATIO > newOffersByName.size()) {
+            final List<Lender> offers = new ArrayList<>(newOffersByName.values());
+            offers.sort(OrderBookLoanQuoteCalculator.OFFER_ORDER);
+
+            publish(ChunkedLenderBook.of(offers));
+        } else {
+            ChunkedLenderBook book = currentVersion.getBook();
+
+            for (final Lender removedOffer : removedOffers) {
+                book = book.remove(removedOffer);
+            }
+
+            for (final Lender addedOffer : addedOffers) {
+                book = book.insert(addedOffer);
+            }
+
+            publish(book);
+        }
+
+        return new MarketChanges(addedCount, amendedCount, withdrawnCount, currentVersion.getVersion());
+    }
+
+    /**
+     * Publishes a new version of the market, while holding the lock of the market
+     * @param book the lenders of the new version
+     */
+    private void publish(final ChunkedLenderBook book) {
+        currentVersion = new MarketVersion(book, repaymentEngine, currentVersion.getVersion() + 1);
+    }
+}
@@ -0,0 +1,160 @@
+package com.github.hansonhsc.loan.solver;
+
+/**
+ * Uses Brent's method to find an approximation of a root within a bracket, i.e. bounds where the function has
+ * opposite signs. Inverse quadratic interpolation and the secant method are used where they make good progress, with
+ * bisection as a fallback, so that the bracket is guaranteed to shrink on every iteration. Only the value of the
+ * function is used, never its derivatives
+ */
+public final class BrentSolver implements RootSolver {
+    /**
+     * the solver stops once the absolute value of the function is no greater than this
+     */
+    private final double epsilon;
+
+    /**
+     * the solver gives up after this number of iterations
+     */
+    private final int maximumIterations;
+
+    /**
+     * Constructs a Brent solver with the specified tolerance
+     * @param epsilon the solver stops once the absolute value of the function is no greater than this
+     * @param maximumIterations the solver gives up after this number of iterations
+     */
+    public BrentSolver(final double epsilon, final int maximumIterations) {
+        if (epsilon < 0) {
+            throw new IllegalArgumentException("Epsilon must be non-negative");
+        } else if (maximumIterations < 0) {
+            throw new IllegalArgumentException("Maximum iterations must be non-negative");
+        }
+
+        this.epsilon = epsilon;
+        this.maximumIterations = maximumIterations;
+    }
+
+    /**
+     * Finds an approximation of a root within the specified bracket. The guess, if it lies within the bracket, is used
+     * to narrow the bracket before the first iteration. The solver does not converge if the function has the same sign
+     * at both bounds
+     * @param function the function that tends to zero
+     * @param guess the initial guess of the root
+     * @param lowerBound the lower bound of the root, must be finite
+     * @param upperBound the upper bound of the root, must be finite
+     * @param solution the holder to record the approximation of the root, the number of iterations and whether the
+     *                 solver converged
+     */
+    @Override
+    public void solve(final DifferentiableFunction function, final double guess, final double lowerBound, final double upperBound, final RootSolution solution) {
+        double a = lowerBound;
+        double b = upperBound;
+        double fa = function.value(a);
+        double fb = function.value(b);
+
+        if (guess > a && guess < b) {
+            final double fGuess = function.value(guess);
+
+            // the guess replaces whichever bound has the same sign, keeping the root bracketed
+            if (Math.signum(fGuess) == Math.signum(fa)) {
+                a = guess;
+                fa = fGuess;
+            } else {
+                b = guess;
+                fb = fGuess;
+            }
+        }
+
+        if (Math.abs(fa) <= epsilon) {
+            solution.set(a, 0, true);
+
+            return;
+        } else if (Math.abs(fb) <= epsilon) {
+            solution.set(b, 0, true);
+
+            return;
+        } else if (Math.signum(fa) == Math.signum(fb)) {
+            // not a bracket
+            solution.set(Math.abs(fa) < Math.abs(fb) ? a : b, 0, false);
+
+            return;
+        }
+
+        // b is the best approximation so far, c is the other side of the bracket, a is the previous value of b
+        double c = a;
+        double fc = fa;
+        double step = b - a;
+        double previousStep = step;
+
+        for (int iterations = 0; iterations < maximumIterations; iterations++) {
+            if (Math.abs(fc) < Math.abs(fb)) {
+                a = b;
+                b = c;
+                c = a;
+                fa = fb;
+                fb = fc;
+                fc = fa;
+            }
+
+            final double tolerance = 2 * Math.ulp(b);
+            final double midpoint = (c - b) / 2;
+
+            if (Math.abs(fb) <= epsilon || Math.abs(midpoint) <= tolerance) {
+                solution.set(b, iterations, true);
+
+                return;
+            }
+
+            if (Math.abs(previousStep) >= tolerance && Math.abs(fa) > Math.abs(fb)) {
+                // attempt inverse quadratic interpolation, or the secant method if only 2 distinct points are known
+                final double s = fb / fa;
+                double p;
+                double q;
+
+                if (a == c) {
+                    p = 2 * midpoint * s;
+                    q = 1 - s;
+                } else {
+                    final double r = fb / fc;
+                    final double t = fa / fc;
+
+                    p = s * (2 * midpoint * t * (t - r) - (b - a) * (r - 1));
+                    q = (t - 1) * (r - 1) * (s - 1);
+                }
+
+                if (p > 0) {
+                    q = -q;
+                } else {
+                    p = -p;
+                }
+
+                // only accept the interpolation if it stays well within the bracket and is converging quickly enough
+                if (2 * p < Math.min(3 * midpoint * q - Math.abs(tolerance * q), Math.abs(previousStep * q))) {
+                    previousStep = step;
+                    step = p / q;
+                } else {
+                    step = midpoint;
+                    previousStep = step;
+                }
+            } else {
+                // bisection
+                step = midpoint;
+                previousStep = step;
+            }
+
+            a = b;
+            fa = fb;
+            b += Math.abs(step) > tolerance ? step : Math.copySign(tolerance, midpoint);
+            fb = function.value(b);
+
+            // keep the root bracketed between b and c
+            if (Math.signum(fb) == Math.signum(fc)) {
+                c = a;
+                fc = fa;
+                step = b - a;
+                previousStep = step;
+            }
+        }
+
+        solution.set(b, maximumIterations, Math.abs(fb) <= epsilon);
+    }
+}
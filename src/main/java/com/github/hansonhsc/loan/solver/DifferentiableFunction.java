@@ -0,0 +1,55 @@
+package com.github.hansonhsc.loan.solver;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A function of a single double variable along with its first and second derivatives, evaluated without boxing
+ */
+public interface DifferentiableFunction {
+    /**
+     * Evaluates the function
+     * @param x the point at which to evaluate
+     * @return f(x)
+     */
+    double value(double x);
+
+    /**
+     * Evaluates the first derivative of the function
+     * @param x the point at which to evaluate
+     * @return f'(x)
+     */
+    double derivative(double x);
+
+    /**
+     * Evaluates the second derivative of the function
+     * @param x the point at which to evaluate
+     * @return f''(x)
+     */
+    double secondDerivative(double x);
+
+    /**
+     * Creates a differentiable function from primitive lambdas
+     * @param function the function, f
+     * @param derivative the first derivative of the function, f'
+     * @param secondDerivative the second derivative of the function, f''
+     * @return a differentiable function delegating to the specified lambdas
+     */
+    static DifferentiableFunction of(final DoubleUnaryOperator function, final DoubleUnaryOperator derivative, final DoubleUnaryOperator secondDerivative) {
+        return new DifferentiableFunction() {
+            @Override
+            public double value(final double x) {
+                return function.applyAsDouble(x);
+            }
+
+            @Override
+            public double derivative(final double x) {
+                return derivative.applyAsDouble(x);
+            }
+
+            @Override
+            public double secondDerivative(final double x) {
+                return secondDerivative.applyAsDouble(x);
+            }
+        };
+    }
+}
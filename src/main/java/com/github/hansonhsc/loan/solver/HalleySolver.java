@@ -0,0 +1,26 @@
+package com.github.hansonhsc.loan.solver;
+
+/**
+ * Uses Halley's method to find an approximation of a root, which converges cubically near the root at the cost of
+ * also evaluating the second derivative
+ * <pre>
+ * x(n+1) = x(n) - 2 f(x(n)) f'(x(n)) / (2 f'(x(n))^2 - f(x(n)) f''(x(n)))
+ * </pre>
+ */
+public final class HalleySolver extends IterativeRootSolver {
+    /**
+     * Constructs a Halley solver with the specified tolerance
+     * @param epsilon the solver stops once the absolute value of the function is no greater than this
+     * @param maximumIterations the solver gives up after this number of iterations
+     */
+    public HalleySolver(final double epsilon, final int maximumIterations) {
+        super(epsilon, maximumIterations);
+    }
+
+    @Override
+    double getStep(final DifferentiableFunction function, final double x, final double value) {
+        final double derivative = function.derivative(x);
+
+        return 2 * value * derivative / (2 * derivative * derivative - value * function.secondDerivative(x));
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.hansonhsc.loan.solver;
+
+/**
+ * Base class for solvers that repeatedly step from the current approximation towards a root. Steps that would leave
+ * the bounds are replaced by halving the distance to the bound instead, so that an iteration never escapes a known
+ * bracket of the root
+ */
+abstract class IterativeRootSolver implements RootSolver {
+    /**
+     * the solver stops once the absolute value of the function is no greater than this
+     */
+    private final double epsilon;
+
+    /**
+     * the solver gives up after this number of iterations
+     */
+    private final int maximumIterations;
+
+    /**
+     * Constructs a solver with the specified tolerance
+     * @param epsilon the solver stops once the absolute value of the function is no greater than this
+     * @param maximumIterations the solver gives up after this number of iterations
+     */
+    IterativeRootSolver(final double epsilon, final int maximumIterations) {
+        if (epsilon < 0) {
+            throw new IllegalArgumentException("Epsilon must be non-negative");
+        } else if (maximumIterations < 0) {
+            throw new IllegalArgumentException("Maximum iterations must be non-negative");
+        }
+
+        this.epsilon = epsilon;
+        this.maximumIterations = maximumIterations;
+    }
+
+    @Override
+    public final void solve(final DifferentiableFunction function, final double guess, final double lowerBound, final double upperBound, final RootSolution solution) {
+        double current = guess;
+        double value = function.value(current);
+        int iterations = 0;
+
+        while (iterations < maximumIterations && Math.abs(value) > epsilon) {
+            double next = current - getStep(function, current, value);
+
+            if (next < lowerBound) {
+                next = (current + lowerBound) / 2;
+            } else if (next > upperBound) {
+                next = (current + upperBound) / 2;
+            }
+
+            current = next;
+            value = function.value(current);
+            iterations++;
+        }
+
+        solution.set(current, iterations, Math.abs(value) <= epsilon);
+    }
+
+    /**
+     * Calculates the step to subtract from the current approximation to get the next approximation
+     * @param function the function that tends to zero
+     * @param x the current approximation
+     * @param value the value of the function at <code>x</code>
+     * @return the step to subtract from <code>x</code>
+     */
+    abstract double getStep(DifferentiableFunction function, double x, double value);
+}
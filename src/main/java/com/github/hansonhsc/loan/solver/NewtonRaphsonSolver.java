@@ -0,0 +1,23 @@
+package com.github.hansonhsc.loan.solver;
+
+/**
+ * Uses Newton-Raphson method to find an approximation of a root, which converges quadratically near the root
+ * <pre>
+ * x(n+1) = x(n) - f(x(n)) / f'(x(n))
+ * </pre>
+ */
+public final class NewtonRaphsonSolver extends IterativeRootSolver {
+    /**
+     * Constructs a Newton-Raphson solver with the specified tolerance
+     * @param epsilon the solver stops once the absolute value of the function is no greater than this
+     * @param maximumIterations the solver gives up after this number of iterations
+     */
+    public NewtonRaphsonSolver(final double epsilon, final int maximumIterations) {
+        super(epsilon, maximumIterations);
+    }
+
+    @Override
+    double getStep(final DifferentiableFunction function, final double x, final double value) {
+        return value / function.derivative(x);
+    }
+}
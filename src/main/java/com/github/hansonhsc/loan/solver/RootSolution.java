@@ -0,0 +1,72 @@
+package com.github.hansonhsc.loan.solver;
+
+/**
+ * Mutable holder for the outcome of a <code>RootSolver</code>, so that it can be reused across many solves
+ */
+public final class RootSolution {
+    /**
+     * the approximation of the root
+     */
+    private double root = Double.NaN;
+
+    /**
+     * the number of iterations performed to reach the approximation
+     */
+    private int iterations;
+
+    /**
+     * whether the function at the approximation is within the tolerance of the solver
+     */
+    private boolean converged;
+
+    /**
+     * Gets the approximation of the root
+     * @return the approximation of the root
+     */
+    public double getRoot() {
+        return root;
+    }
+
+    /**
+     * Gets the number of iterations performed to reach the approximation
+     * @return the number of iterations performed to reach the approximation, 0 if the initial guess was already
+     * within the tolerance of the solver
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Gets whether the function at the approximation is within the tolerance of the solver
+     * @return <code>true</code> if the solver converged; <code>false</code> if it gave up, e.g. after running out of
+     * iterations
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+
+    /**
+     * Records the outcome of a solve
+     * @param root the approximation of the root
+     * @param iterations the number of iterations performed to reach the approximation
+     * @param converged whether the function at the approximation is within the tolerance of the solver
+     */
+    void set(final double root, final int iterations, final boolean converged) {
+        this.root = root;
+        this.iterations = iterations;
+        this.converged = converged;
+    }
+
+    /**
+     * Generated toString method
+     * @return string representation of this object, for testing purposes.
+     */
+    @Override
+    public String toString() {
+        return "RootSolution{" +
+                "root=" + root +
+                ", iterations=" + iterations +
+                ", converged=" + converged +
+                '}';
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.hansonhsc.loan.solver;
+
+/**
+ * A strategy for finding an approximation of a root of a function, i.e. x where f(x) = 0
+ */
+public interface RootSolver {
+    /**
+     * Finds an approximation of a root within the specified bounds
+     * @param function the function that tends to zero
+     * @param guess the initial guess of the root, e.g. the root found by a previous similar solve
+     * @param lowerBound the lower bound of the root, which may be <code>Double.NEGATIVE_INFINITY</code> if the solver does
+     *                   not need to bracket the root
+     * @param upperBound the upper bound of the root, which may be <code>Double.POSITIVE_INFINITY</code> if the solver does
+     *                   not need to bracket the root
+     * @param solution the holder to record the approximation of the root, the number of iterations and whether the
+     *                 solver converged
+     */
+    void solve(DifferentiableFunction function, double guess, double lowerBound, double upperBound, RootSolution solution);
+
+    /**
+     * Finds an approximation of a root within the specified bounds
+     * @param function the function that tends to zero
+     * @param guess the initial guess of the root
+     * @param lowerBound the lower bound of the root
+     * @param upperBound the upper bound of the root
+     * @return a new solution containing the approximation of the root, the number of iterations and whether the
+     * solver converged
+     */
+    default RootSolution solve(final DifferentiableFunction function, final double guess, final double lowerBound, final double upperBound) {
+        final RootSolution solution = new RootSolution();
+
+        solve(function, guess, lowerBound, upperBound, solution);
+
+        return solution;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Provides root-finding algorithms over primitive double functions
+ */
+package com.github.hansonhsc.loan.solver;
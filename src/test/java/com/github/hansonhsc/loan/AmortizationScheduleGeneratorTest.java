@@ -0,0 +1,269 @@
+package com.github.hansonhsc.loan;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.github.hansonhsc.loan.ScaledAmortizedLoan.toScaled;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AmortizationScheduleGeneratorTest {
+    private static final int[] TERMS = {1, 12, 36, 60, 120, 360, 600};
+
+    /**
+     * Checks every row of a schedule against the rows before it as they are generated
+     */
+    private static final class CheckingConsumer implements ScheduleConsumer {
+        private final int term;
+        private final long[] principals;
+        private final long[] monthlyInterestRates;
+        private final long[] balances;
+        private final long[] repaid;
+        private final String message;
+
+        private int expectedMonth = 1;
+        private int expectedSlice;
+        private long monthPayment;
+        private long monthInterest;
+        private long monthPrincipal;
+        private long loanRepaid;
+        private long minimumLoanPayment = Long.MAX_VALUE;
+        private long maximumLoanPayment = Long.MIN_VALUE;
+
+        private CheckingConsumer(final int term, final long[] principals, final long[] annualInterestRates, final String message) {
+            this.term = term;
+            this.principals = principals;
+            this.message = message;
+
+            monthlyInterestRates = new long[principals.length];
+            balances = new long[principals.length];
+            repaid = new long[principals.length];
+
+            for (int i = 0; i < principals.length; i++) {
+                monthlyInterestRates[i] = ScaledAmortizedLoan.getMonthlyInterestRate(annualInterestRates[i]);
+                balances[i] = principals[i] * 100;
+            }
+        }
+
+        @Override
+        public void acceptSlice(final int slice, final int month, final long payment, final long interest,
+                                final long principal, final long balance) {
+            assertEquals(expectedSlice++, slice, message + ": slices should be in order");
+            assertEquals(expectedMonth, month, message + ": months should be in order");
+            assertTrue(payment >= 0, message + ": payment should not be negative");
+            assertEquals(payment, interest + principal, message + ": payment should be interest and principal");
+            assertEquals(balances[slice] - principal, balance, message + ": balance should be reduced by the principal");
+
+            if (month < term) {
+                final long expectedInterest = BigDecimal.valueOf(balances[slice]).multiply(ScaledAmortizedLoan.toBigDecimal(monthlyInterestRates[slice]))
+                        .setScale(0, RoundingMode.HALF_UP).longValueExact();
+
+                assertEquals(expectedInterest, interest, message + ": interest should be on the balance");
+            } else {
+                assertEquals(0, balance, message + ": last payment should repay the balance");
+            }
+
+            balances[slice] = balance;
+            repaid[slice] += payment;
+            monthPayment += payment;
+            monthInterest += interest;
+            monthPrincipal += principal;
+        }
+
+        @Override
+        public void acceptLoan(final int month, final long payment, final long interest, final long principal,
+                               final long balance) {
+            long totalBalance = 0;
+
+            for (final long sliceBalance : balances) {
+                totalBalance += sliceBalance;
+            }
+
+            assertEquals(principals.length, expectedSlice, message + ": every slice should come before the loan");
+            assertEquals(expectedMonth, month, message + ": months should be in order");
+            assertEquals(monthPayment, payment, message + ": loan payment should be the sum of the slices");
+            assertEquals(monthInterest, interest, message + ": loan interest should be the sum of the slices");
+            assertEquals(monthPrincipal, principal, message + ": loan principal should be the sum of the slices");
+            assertEquals(totalBalance, balance, message + ": loan balance should be the sum of the slices");
+
+            loanRepaid += payment;
+            minimumLoanPayment = Math.min(minimumLoanPayment, payment);
+            maximumLoanPayment = Math.max(maximumLoanPayment, payment);
+            expectedMonth++;
+            expectedSlice = 0;
+            monthPayment = 0;
+            monthInterest = 0;
+            monthPrincipal = 0;
+        }
+    }
+
+    private static CheckingConsumer generate(final AmortizationScheduleGenerator generator, final int term,
+                                             final long[] principals, final long[] annualInterestRates) throws IOException {
+        generator.reset(term);
+
+        BigDecimal exactMonthlyRepayment = BigDecimal.ZERO;
+
+        for (int i = 0; i < principals.length; i++) {
+            generator.addSlice(principals[i], annualInterestRates[i]);
+            exactMonthlyRepayment = exactMonthlyRepayment.add(AmortizedLoan.getMonthlyRepayment(
+                    new BigDecimal(principals[i]), ScaledAmortizedLoan.toBigDecimal(annualInterestRates[i]), term));
+        }
+
+        final String message = "term=" + term + ", principals=" + Arrays.toString(principals)
+                + ", rates=" + Arrays.toString(annualInterestRates);
+        final CheckingConsumer consumer = new CheckingConsumer(term, principals, annualInterestRates, message);
+
+        generator.generate(consumer);
+
+        final long totalRepayment = exactMonthlyRepayment.multiply(new BigDecimal(term)).setScale(2, RoundingMode.UP).unscaledValue().longValueExact();
+
+        assertEquals(totalRepayment, generator.getTotalRepayment(), message + ": total should be the same as a quote");
+        assertEquals(term + 1, consumer.expectedMonth, message + ": every month should be generated");
+        assertEquals(totalRepayment, consumer.loanRepaid, message + ": payments should add up to the total");
+        assertTrue(consumer.maximumLoanPayment - consumer.minimumLoanPayment <= 1, message + ": loan payments should be within a penny of each other");
+
+        for (int i = 0; i < principals.length; i++) {
+            assertEquals(generator.getTotalRepayment(i), consumer.repaid[i], message + ": slice payments should add up to its total");
+        }
+
+        return consumer;
+    }
+
+    @Test
+    void testSingleSlice() throws IOException {
+        final AmortizationScheduleGenerator generator = new AmortizationScheduleGenerator();
+
+        // 1000 at 7% over 36 months is 30.8771...
+        generate(generator, 36, new long[]{1000}, new long[]{toScaled(new BigDecimal("0.07"))});
+
+        assertEquals(111_158, generator.getTotalRepayment(), "Total should be rounded up to a penny");
+        assertEquals(1, generator.getSliceCount(), "There should be one slice");
+    }
+
+    @Test
+    void testMarket() throws IOException {
+        final AmortizationScheduleGenerator generator = new AmortizationScheduleGenerator();
+        final long[] principals = {480, 520};
+        final long[] rates = {toScaled(new BigDecimal("0.069")), toScaled(new BigDecimal("0.071"))};
+
+        for (final int term : TERMS) {
+            generate(generator, term, principals, rates);
+        }
+    }
+
+    @Test
+    void testRandomSlices() throws IOException {
+        final AmortizationScheduleGenerator generator = new AmortizationScheduleGenerator();
+        final Random random = new Random(19);
+
+        for (int loan = 0; loan < 1000; loan++) {
+            final int size = 1 + random.nextInt(random.nextBoolean() ? 12 : 40);
+            final long[] principals = new long[size];
+            final long[] rates = new long[size];
+
+            for (int i = 0; i < size; i++) {
+                // include small slices that repay less than a penny a month over long terms
+                principals[i] = random.nextInt(3) == 0 ? 1 + random.nextInt(3) : 1 + random.nextInt(3000);
+                rates[i] = random.nextInt(5) == 0 ? 0 : toScaled(BigDecimal.valueOf(1 + random.nextInt(3000), 4));
+            }
+
+            generate(generator, TERMS[random.nextInt(TERMS.length)], principals, rates);
+        }
+    }
+
+    @Test
+    void testSliceAheadOfItsShare() throws IOException {
+        // the interest free slices repay less than a penny a month, so they are paid ahead of their shares, and in some
+        // months the rest are behind by more whole pennies than the loan repays
+        generate(new AmortizationScheduleGenerator(), 600, new long[]{1, 2872}, new long[]{0, toScaled(new BigDecimal("0.0529"))});
+        generate(new AmortizationScheduleGenerator(), 360, new long[]{42, 1, 1142}, new long[]{0, 0, toScaled(new BigDecimal("0.0739"))});
+    }
+
+    @Test
+    void testInterestFree() throws IOException {
+        final AmortizationScheduleGenerator generator = new AmortizationScheduleGenerator();
+        final long[] payments = new long[3];
+
+        generator.reset(3);
+        generator.addSlice(100, 0);
+        generator.generate(new ScheduleConsumer() {
+            @Override
+            public void acceptLoan(final int month, final long payment, final long interest, final long principal, final long balance) {
+                payments[month - 1] = payment;
+            }
+        });
+
+        // 33.3333333333 a month is 99.9999999999, rounded up to 100.00 and spread over the term
+        assertEquals(10_000, generator.getTotalRepayment(), "Total should be rounded up to the principal");
+        assertEquals(3333, payments[0], "First payment should be rounded down");
+        assertEquals(3333, payments[1], "Second payment should be rounded down");
+        assertEquals(3334, payments[2], "Last payment should have the penny");
+    }
+
+    @Test
+    void testReuse() throws IOException {
+        final AmortizationScheduleGenerator generator = new AmortizationScheduleGenerator();
+
+        generate(generator, 60, new long[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18}, new long[18]);
+        generate(generator, 12, new long[]{1000}, new long[]{toScaled(new BigDecimal("0.1"))});
+
+        assertEquals(1, generator.getSliceCount(), "Slices of the previous loan should be removed");
+    }
+
+    @Test
+    void testOverflowBeforeFirstRow() {
+        final AmortizationScheduleGenerator generator = new AmortizationScheduleGenerator();
+        final int[] rows = new int[1];
+
+        // the total of 900,000,000.00 fits, but the total repaid by the end of the last month overflows
+        generator.reset(1_000_000_000);
+        generator.addSlice(1, 0, 9_000_000_000L);
+
+        assertThrows(ArithmeticException.class, () -> generator.generate(new ScheduleConsumer() {
+            @Override
+            public void acceptLoan(final int month, final long payment, final long interest, final long principal, final long balance) {
+                rows[0]++;
+            }
+        }));
+        assertEquals(0, rows[0], "No row should be generated");
+    }
+
+    @Test
+    void testNoSlices() throws IOException {
+        final AmortizationScheduleGenerator generator = new AmortizationScheduleGenerator();
+        final int[] months = new int[1];
+
+        generator.reset(12);
+        generator.generate(new ScheduleConsumer() {
+            @Override
+            public void acceptLoan(final int month, final long payment, final long interest, final long principal, final long balance) {
+                months[0]++;
+                assertEquals(0, payment, "Payment should be 0");
+            }
+        });
+
+        assertEquals(0, generator.getTotalRepayment(), "Total should be 0");
+        assertEquals(12, months[0], "Every month should be generated");
+    }
+
+    @Test
+    void testInvalidArguments() {
+        final AmortizationScheduleGenerator generator = new AmortizationScheduleGenerator();
+
+        assertThrows(IllegalStateException.class, () -> generator.addSlice(1000, 0), "Generator should be reset first");
+        assertThrows(IllegalArgumentException.class, () -> generator.reset(0), "No payment periods should throw");
+
+        generator.reset(36);
+
+        assertThrows(IllegalArgumentException.class, () -> generator.addSlice(-1, 0), "Negative principal should throw");
+        assertThrows(IllegalArgumentException.class, () -> generator.addSlice(1000, -1), "Negative rate should throw");
+        assertThrows(IllegalArgumentException.class, () -> generator.addSlice(1000, 0, -1), "Negative monthly repayment should throw");
+        assertThrows(IndexOutOfBoundsException.class, () -> generator.getTotalRepayment(0), "Missing slice should throw");
+    }
+}
@@ -1,5 +1,7 @@
 package com.github.hansonhsc.loan;
 
+import com.github.hansonhsc.loan.solver.RootSolution;
+import com.github.hansonhsc.loan.solver.RootSolver;
 import com.opencsv.bean.CsvToBeanBuilder;
 import org.junit.jupiter.api.Test;
 
@@ -7,6 +9,7 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.github.hansonhsc.loan.AmortizedLoan.getApproximateAnnualInterestRate;
@@ -42,6 +45,30 @@ public class AmortizedLoanApproximateAnnualInterestRateTest {
         }
     }
 
+    @Test
+    void testSolversWithGeneratedValues() throws FileNotFoundException {
+        final FileReader paymentFileReader = new FileReader("src/test/resources/payments.csv");
+
+        //noinspection unchecked
+        final List<Payment> payments = new CsvToBeanBuilder(paymentFileReader)
+                .withType(Payment.class)
+                .build()
+                .parse();
+
+        final RootSolution solution = new RootSolution();
+
+        for (final RootSolver solver : Arrays.asList(AmortizedLoan.NEWTON_RAPHSON, AmortizedLoan.HALLEY, AmortizedLoan.BRENT)) {
+            for (final Payment payment : payments) {
+                assertEquals(
+                        payment.getRate().doubleValue(),
+                        getApproximateAnnualInterestRate(payment.getPrincipal(), 36, payment.getPayment().doubleValue(), solver, solution),
+                        0.001,
+                        solver + " " + payment
+                );
+            }
+        }
+    }
+
     @Test
     void testNonPositivePrincipal() {
         assertThrows(IllegalArgumentException.class, () -> getApproximateAnnualInterestRate(-1000, 36, 27.78));
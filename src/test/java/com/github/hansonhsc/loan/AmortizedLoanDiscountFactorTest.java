@@ -0,0 +1,75 @@
+package com.github.hansonhsc.loan;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AmortizedLoanDiscountFactorTest {
+    private static final int[] TERMS = {1, 2, 3, 12, 36, 60, 120, 360, 600, 1000};
+
+    private static BigDecimal getExactDiscountFactor(final BigDecimal monthlyInterestRate, final int numberOfPaymentPeriods) {
+        return BigDecimal.ONE.divide(BigDecimal.ONE.add(monthlyInterestRate).pow(numberOfPaymentPeriods), 10, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal randomMonthlyInterestRate(final Random random) {
+        // up to 100% a year, and occasionally much more
+        return BigDecimal.valueOf(1 + (random.nextInt(10) == 0 ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(833_333_333)), 10);
+    }
+
+    @Test
+    void testSameAsExact() {
+        final Random random = new Random(22);
+
+        for (int i = 0; i < 5_000; i++) {
+            final BigDecimal monthlyInterestRate = randomMonthlyInterestRate(random);
+            final int term = TERMS[random.nextInt(TERMS.length)];
+
+            assertEquals(getExactDiscountFactor(monthlyInterestRate, term), AmortizedLoan.getDiscountFactor(monthlyInterestRate, term),
+                    monthlyInterestRate + " over " + term);
+        }
+    }
+
+    @Test
+    void testFallBackToExact() {
+        final Random random = new Random(23);
+
+        // a precision too low to rule out the rounding boundary most of the time, so that the exact fallback is used
+        for (int precision = 11; precision <= 14; precision++) {
+            for (int i = 0; i < 2_000; i++) {
+                final BigDecimal monthlyInterestRate = randomMonthlyInterestRate(random);
+                final int term = TERMS[random.nextInt(TERMS.length)];
+
+                assertEquals(getExactDiscountFactor(monthlyInterestRate, term), AmortizedLoan.getDiscountFactor(monthlyInterestRate, term, precision),
+                        monthlyInterestRate + " over " + term + " to " + precision + " digits");
+            }
+        }
+    }
+
+    @Test
+    void testPowErrorBound() {
+        final Random random = new Random(24);
+        final MathContext mathContext = new MathContext(18, RoundingMode.HALF_EVEN);
+        // half a unit in the last place of 18 significant digits
+        final BigDecimal u = new BigDecimal("5E-18");
+
+        for (int i = 0; i < 2_000; i++) {
+            final BigDecimal base = BigDecimal.ONE.add(randomMonthlyInterestRate(random));
+            final int exponent = 1 + random.nextInt(1000);
+
+            final BigDecimal exact = base.pow(exponent);
+            final BigDecimal relativeError = AmortizedLoan.pow(base, exponent, mathContext).subtract(exact).abs().divide(exact, MathContext.DECIMAL64);
+
+            assertTrue(relativeError.compareTo(u.multiply(BigDecimal.valueOf(2L * exponent))) <= 0,
+                    base + "^" + exponent + " has a relative error of " + relativeError);
+        }
+
+        assertEquals(new BigDecimal("1.07"), AmortizedLoan.pow(new BigDecimal("1.07"), 1, mathContext), "First power should be the base");
+        assertEquals(new BigDecimal("1.1449"), AmortizedLoan.pow(new BigDecimal("1.07"), 2, mathContext), "Exact powers should not be rounded");
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.hansonhsc.loan;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static com.github.hansonhsc.loan.ScaledAmortizedLoan.toScaled;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AnnuityFactorTest {
+    private static final int[] PRINCIPALS = {0, 1, 10, 60, 999, 1000, 1234, 15000, -1000};
+
+    private static final int[] TERMS = {1, 12, 24, 36, 48, 60, 120, 360, 600};
+
+    private static void assertSameMonthlyRepayments(final BigDecimal annualInterestRate, final int numberOfPaymentPeriods) {
+        final AnnuityFactor annuityFactor = AnnuityFactor.of(toScaled(annualInterestRate), numberOfPaymentPeriods);
+
+        for (final int principal : PRINCIPALS) {
+            final String message = "principal=" + principal + ", rate=" + annualInterestRate + ", periods=" + numberOfPaymentPeriods;
+
+            assertEquals(
+                    AmortizedLoan.getMonthlyRepayment(new BigDecimal(principal), annualInterestRate, numberOfPaymentPeriods),
+                    annuityFactor.getMonthlyRepayment(new BigDecimal(principal)),
+                    message
+            );
+            assertEquals(
+                    ScaledAmortizedLoan.getMonthlyRepayment(principal, toScaled(annualInterestRate), numberOfPaymentPeriods),
+                    annuityFactor.getScaledMonthlyRepayment(principal),
+                    message
+            );
+        }
+    }
+
+    @Test
+    void testSameAsAmortizedLoan() {
+        for (int basisPoints = 0; basisPoints <= 3000; basisPoints += 7) {
+            for (final int term : TERMS) {
+                assertSameMonthlyRepayments(BigDecimal.valueOf(basisPoints, 4), term);
+            }
+        }
+
+        for (final String rate : new String[]{"0.0000000012", "0.0711111111", "0.123456789", "1", "10"}) {
+            for (final int term : TERMS) {
+                assertSameMonthlyRepayments(new BigDecimal(rate), term);
+            }
+        }
+    }
+
+    @Test
+    void testLargePrincipal() {
+        // the scaled monthly repayments overflow and are calculated with BigDecimal arithmetic instead
+        for (final String rate : new String[]{"0", "0.1", "1"}) {
+            final AnnuityFactor annuityFactor = AnnuityFactor.of(toScaled(new BigDecimal(rate)), 36);
+
+            assertEquals(
+                    ScaledAmortizedLoan.getMonthlyRepayment(Integer.MAX_VALUE, toScaled(new BigDecimal(rate)), 36),
+                    annuityFactor.getScaledMonthlyRepayment(Integer.MAX_VALUE),
+                    "rate=" + rate
+            );
+        }
+    }
+
+    @Test
+    void testInterestFree() {
+        final AnnuityFactor annuityFactor = AnnuityFactor.of(0, 36);
+
+        assertEquals(new BigDecimal("27.7777777778"), annuityFactor.getMonthlyRepayment(new BigDecimal(1000)), "Principal should be repaid in equal parts");
+        assertEquals(277_777_777_778L, annuityFactor.getScaledMonthlyRepayment(1000), "Principal should be repaid in equal parts");
+    }
+
+    @Test
+    void testGetters() {
+        final AnnuityFactor annuityFactor = AnnuityFactor.of(toScaled(new BigDecimal("0.07")), 24);
+
+        assertEquals(toScaled(new BigDecimal("0.07")), annuityFactor.getAnnualInterestRate(), "Rate should match");
+        assertEquals(24, annuityFactor.getNumberOfPaymentPeriods(), "Number of payment periods should match");
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> AnnuityFactor.of(-1, 36), "Negative rate should throw");
+        assertThrows(IllegalArgumentException.class, () -> AnnuityFactor.of(toScaled(new BigDecimal("0.07")), 0), "No payment periods should throw");
+        assertThrows(IllegalArgumentException.class, () -> AnnuityFactor.of(0, -1), "Negative payment periods should throw");
+    }
+
+    @Test
+    void testMonthlyInterestRateRoundedTo0() {
+        // the same as ScaledAmortizedLoan and AmortizedLoan, which cannot divide by a denominator of 0 either
+        final AnnuityFactor annuityFactor = AnnuityFactor.of(1, 36);
+
+        assertThrows(ArithmeticException.class, () -> annuityFactor.getScaledMonthlyRepayment(1000));
+        assertThrows(ArithmeticException.class, () -> annuityFactor.getMonthlyRepayment(new BigDecimal(1000)));
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.hansonhsc.loan;
+
+import com.github.hansonhsc.loan.solver.RootSolution;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InverseRateTableTest {
+    private static final int[] TERMS = {1, 2, 12, 36, 60, 120, 360, 600};
+
+    @Test
+    void testInverseOfPaymentRatio() {
+        final Random random = new Random(23);
+
+        for (final int term : TERMS) {
+            final InverseRateTable table = new InverseRateTable(term);
+
+            for (int i = 0; i < 10_000; i++) {
+                final double monthlyInterestRate = random.nextDouble() * InverseRateTable.MAXIMUM_MONTHLY_INTEREST_RATE;
+                final double paymentRatio = table.getPaymentRatio(monthlyInterestRate);
+
+                // far closer than the solvers need, so that a step or two of Newton-Raphson method reaches their tolerance
+                assertEquals(monthlyInterestRate, table.getMonthlyInterestRate(paymentRatio), 1e-10,
+                        "Rate of " + paymentRatio + " over " + term);
+            }
+
+            assertEquals(0, table.getMonthlyInterestRate(1.0 / term), "Interest free loan should have no interest");
+            assertEquals(InverseRateTable.MAXIMUM_MONTHLY_INTEREST_RATE, table.getMonthlyInterestRate(table.getPaymentRatio(InverseRateTable.MAXIMUM_MONTHLY_INTEREST_RATE)),
+                    1e-15, "Last sample should be the maximum rate");
+        }
+    }
+
+    @Test
+    void testMonotone() {
+        for (final int term : TERMS) {
+            final InverseRateTable table = InverseRateTable.forTerm(term);
+            final double minimumRatio = 1.0 / term;
+            final double maximumRatio = table.getPaymentRatio(InverseRateTable.MAXIMUM_MONTHLY_INTEREST_RATE);
+            double previousRate = -1;
+
+            for (int i = 0; i <= 100_000; i++) {
+                final double rate = table.getMonthlyInterestRate(minimumRatio + (maximumRatio - minimumRatio) * i / 100_000);
+
+                assertTrue(rate >= previousRate, "Rates should rise with the payment ratio over " + term);
+
+                previousRate = rate;
+            }
+        }
+    }
+
+    @Test
+    void testOutsideTable() {
+        final InverseRateTable table = InverseRateTable.forTerm(36);
+
+        assertTrue(Double.isNaN(table.getMonthlyInterestRate(1.0 / 37)), "Payment that does not repay the principal should be outside the table");
+        assertTrue(Double.isNaN(table.getMonthlyInterestRate(0.5)), "Rate above the maximum should be outside the table");
+        assertTrue(Double.isNaN(table.getMonthlyInterestRate(Double.NaN)), "NaN should be outside the table");
+        assertSame(table, InverseRateTable.forTerm(36), "Tables should be shared");
+        assertThrows(IllegalArgumentException.class, () -> new InverseRateTable(0), "Term should be positive");
+    }
+
+    @Test
+    void testApproximateAnnualInterestRate() {
+        final Random random = new Random(29);
+        final AnnuityFunction function = new AnnuityFunction(1, 1, 1);
+        final RootSolution solution = new RootSolution();
+        final RootSolution tableSolution = new RootSolution();
+
+        for (int i = 0; i < 10_000; i++) {
+            final int term = TERMS[random.nextInt(TERMS.length)];
+            final int principal = 1 + random.nextInt(15_000);
+            // up to 150% a year, so that some loans are outside the table
+            final long annualInterestRate = ScaledAmortizedLoan.toScaled(java.math.BigDecimal.valueOf(1 + random.nextInt(15_000), 4));
+            final double monthlyPayment = ScaledAmortizedLoan.toBigDecimal(ScaledAmortizedLoan.getMonthlyRepayment(principal, annualInterestRate, term)).doubleValue();
+            final String message = principal + " at " + annualInterestRate + " over " + term;
+
+            AmortizedLoan.getApproximateAnnualInterestRate(principal, term, monthlyPayment, solution);
+            final double actual = AmortizedLoan.getApproximateAnnualInterestRate(principal, term, monthlyPayment,
+                    InverseRateTable.forTerm(term), function, tableSolution);
+
+            // long terms at high rates overflow the tolerance of the solver, whatever the guess
+            if (!solution.isConverged()) {
+                continue;
+            }
+
+            // the solver stops anywhere within its tolerance, which is loose for tiny loans, so the default guess can
+            // end up further from the rate of the loan than the table does
+            assertTrue(tableSolution.isConverged(), message + ": solver should converge");
+            assertEquals(ScaledAmortizedLoan.toBigDecimal(annualInterestRate).doubleValue(), actual, 1e-5, message + ": rate should be the rate of the loan");
+
+            if (actual < InverseRateTable.MAXIMUM_MONTHLY_INTEREST_RATE * 12 * 0.99) {
+                assertTrue(tableSolution.getIterations() <= 2, message + ": solving from the table should take at most two iterations, but took " + tableSolution.getIterations());
+            }
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> AmortizedLoan.getApproximateAnnualInterestRate(1000, 12, 100,
+                InverseRateTable.forTerm(36), function, solution), "Table should be for the term of the loan");
+    }
+}
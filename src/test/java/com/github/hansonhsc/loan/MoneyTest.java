@@ -0,0 +1,75 @@
+package com.github.hansonhsc.loan;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MoneyTest {
+    private static void assertSameAsBigDecimal(final long value) {
+        for (final RoundingMode roundingMode : RoundingMode.values()) {
+            final BigDecimal amount = ScaledAmortizedLoan.toBigDecimal(value);
+
+            if (roundingMode == RoundingMode.UNNECESSARY && value % Money.PENNY != 0) {
+                assertThrows(ArithmeticException.class, () -> Money.toPennies(value, roundingMode), amount + " should need rounding");
+
+                continue;
+            }
+
+            assertEquals(amount.setScale(2, roundingMode).unscaledValue().longValueExact(), Money.toPennies(value, roundingMode),
+                    amount + " should be rounded " + roundingMode + " to pennies");
+
+            if (roundingMode != RoundingMode.UNNECESSARY || value % Money.BASIS_POINT == 0) {
+                assertEquals(amount.setScale(4, roundingMode).unscaledValue().longValueExact(), Money.toBasisPoints(value, roundingMode),
+                        amount + " should be rounded " + roundingMode + " to basis points");
+            }
+        }
+    }
+
+    @Test
+    void testSameAsBigDecimal() {
+        final Random random = new Random(21);
+
+        for (int i = 0; i < 100_000; i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    assertSameAsBigDecimal(random.nextLong());
+                    break;
+                case 1:
+                    // small amounts with fractions of a penny
+                    assertSameAsBigDecimal(random.nextInt());
+                    break;
+                default:
+                    // amounts at or around half a penny, where the rounding modes differ
+                    assertSameAsBigDecimal(random.nextInt(1_000_000) * Money.PENNY + Money.PENNY / 2 * random.nextInt(3) + random.nextInt(3) - 1
+                            - (random.nextBoolean() ? 0 : 500_000 * Money.PENNY));
+                    break;
+            }
+        }
+
+        assertSameAsBigDecimal(0);
+        assertSameAsBigDecimal(Long.MAX_VALUE);
+        assertSameAsBigDecimal(Long.MIN_VALUE);
+    }
+
+    @Test
+    void testQuoteRounding() {
+        // 1000 at 7% over 36 months is 30.8771... a month and 1111.576... in total
+        final long monthlyRepayment = ScaledAmortizedLoan.getMonthlyRepayment(1000, ScaledAmortizedLoan.toScaled(new BigDecimal("0.07")), 36);
+
+        assertEquals(3088, Money.toPennies(monthlyRepayment, RoundingMode.HALF_UP), "Monthly repayment should be rounded half up");
+        assertEquals(111_158, Money.toPennies(monthlyRepayment * 36, RoundingMode.UP), "Total repayment should be rounded up");
+        assertEquals(700, Money.toBasisPoints(ScaledAmortizedLoan.toScaled(new BigDecimal("0.07")), RoundingMode.UNNECESSARY), "7% should be 700 basis points");
+        assertEquals(70, ScaledAmortizedLoan.toScaled(new BigDecimal("0.07")) / Money.TENTH_OF_PERCENT, "7% should be 70 tenths of a percent");
+    }
+
+    @Test
+    void testPenniesToBigDecimal() {
+        assertEquals(new BigDecimal("1111.58"), Money.penniesToBigDecimal(111_158), "Pennies should have two decimal places");
+        assertEquals(new BigDecimal("-0.01"), Money.penniesToBigDecimal(-1), "Negative pennies should have two decimal places");
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.hansonhsc.loan;
+
+import com.opencsv.bean.CsvToBeanBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import static com.github.hansonhsc.loan.ScaledAmortizedLoan.toBigDecimal;
+import static com.github.hansonhsc.loan.ScaledAmortizedLoan.toScaled;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ScaledAmortizedLoanMonthlyRepaymentTest {
+    private String getMonthlyRepayment(final int principal, final String annualInterestRate, final int numberOfPaymentPeriods) {
+        return toBigDecimal(ScaledAmortizedLoan.getMonthlyRepayment(principal, toScaled(new BigDecimal(annualInterestRate)), numberOfPaymentPeriods))
+                .setScale(2, RoundingMode.HALF_UP)
+                .toString();
+    }
+
+    private void assertSameAsBigDecimal(final int principal, final BigDecimal annualInterestRate, final int numberOfPaymentPeriods) {
+        assertEquals(
+                AmortizedLoan.getMonthlyRepayment(new BigDecimal(principal), annualInterestRate, numberOfPaymentPeriods),
+                toBigDecimal(ScaledAmortizedLoan.getMonthlyRepayment(principal, toScaled(annualInterestRate), numberOfPaymentPeriods)),
+                "principal=" + principal + ", rate=" + annualInterestRate + ", periods=" + numberOfPaymentPeriods
+        );
+    }
+
+    @Test
+    void test0Principal() {
+        assertEquals("0.00", getMonthlyRepayment(0, "0.01", 36));
+    }
+
+    @Test
+    void testNegativePrincipal() {
+        assertEquals("-0.03", getMonthlyRepayment(-1, "0.01", 36));
+        assertEquals("-32.27", getMonthlyRepayment(-1_000, "0.1", 36));
+    }
+
+    @Test
+    void test0InterestRate() {
+        assertEquals("27.78", getMonthlyRepayment(1000, "0", 36));
+
+        // the fractional pennies must be rounded at the same scale as BigDecimal, 1000/36 = 27.7777777778
+        assertEquals(277_777_777_778L, ScaledAmortizedLoan.getMonthlyRepayment(1000, 0, 36));
+    }
+
+    @Test
+    void testNegativeInterestRate() {
+        assertThrows(IllegalArgumentException.class, () -> getMonthlyRepayment(1_000, "-0.1", 36));
+    }
+
+    @Test
+    void testInvalidPaymentPeriods() {
+        assertThrows(IllegalArgumentException.class, () -> getMonthlyRepayment(1_000, "0.1", 0));
+        assertThrows(IllegalArgumentException.class, () -> getMonthlyRepayment(1_000, "0.1", -1));
+    }
+
+    @Test
+    void testTooPreciseInterestRate() {
+        assertThrows(ArithmeticException.class, () -> toScaled(new BigDecimal("0.07000000001")));
+    }
+
+    @Test
+    void testMonthlyRepayments() {
+        assertEquals("32.27", getMonthlyRepayment(1_000, "0.1", 36));
+        assertEquals("32267.19", getMonthlyRepayment(1_000_000, "0.1", 36));
+        assertEquals("0.32", getMonthlyRepayment(10, "0.1", 36));
+        assertEquals("88.28", getMonthlyRepayment(1_000, "1", 36));
+        assertEquals("833.33", getMonthlyRepayment(1_000, "10", 36));
+        assertEquals("28.21", getMonthlyRepayment(1_000, "0.01", 36));
+        assertEquals("0.03", getMonthlyRepayment(1, "0.1", 36));
+    }
+
+    @Test
+    void testMonthlyRepaymentsWithGeneratedValues() throws FileNotFoundException {
+        // payments.csv is a generated CSV from using the PMT function in a spreadsheet
+        final FileReader paymentFileReader = new FileReader("src/test/resources/payments.csv");
+
+        //noinspection unchecked
+        final List<Payment> payments = new CsvToBeanBuilder(paymentFileReader)
+                .withType(Payment.class)
+                .build()
+                .parse();
+
+        for (final Payment payment : payments) {
+            assertEquals(
+                    payment.getPayment().toString(),
+                    getMonthlyRepayment(payment.getPrincipal(), payment.getRate().toString(), 36),
+                    payment.toString()
+            );
+        }
+    }
+
+    @Test
+    void testSameAsBigDecimal() {
+        // every rate from 0.01% to 30% in steps of 0.01%, and a few awkward ones that do not divide by 12 exactly
+        for (int basisPoints = 1; basisPoints <= 3000; basisPoints++) {
+            for (final int principal : new int[]{1, 10, 60, 999, 1000, 1234, 15000}) {
+                assertSameAsBigDecimal(principal, BigDecimal.valueOf(basisPoints, 4), 36);
+            }
+        }
+
+        for (final String rate : new String[]{"0.0000000012", "0.0711111111", "0.123456789", "1", "10"}) {
+            for (final int term : new int[]{1, 12, 24, 36, 48, 60, 120, 360}) {
+                assertSameAsBigDecimal(15000, new BigDecimal(rate), term);
+            }
+        }
+    }
+
+    @Test
+    void testMonthlyInterestRateRoundedTo0() {
+        // 0.0000000001 / 12 rounds to 0 at scale 10, which BigDecimal cannot divide by either
+        assertThrows(ArithmeticException.class, () -> ScaledAmortizedLoan.getMonthlyRepayment(1000, 1, 36));
+    }
+
+    @Test
+    void testLargePrincipal() {
+        assertSameAsBigDecimal(Integer.MAX_VALUE, new BigDecimal("0.1"), 36);
+        assertSameAsBigDecimal(Integer.MAX_VALUE, new BigDecimal("1"), 36);
+        assertSameAsBigDecimal(Integer.MAX_VALUE, BigDecimal.ZERO, 36);
+    }
+}
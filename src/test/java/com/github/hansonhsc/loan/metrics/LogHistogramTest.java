@@ -0,0 +1,142 @@
+package com.github.hansonhsc.loan.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LogHistogramTest {
+    @Test
+    public void testBucketBounds() {
+        for (int i = 0; i < LogHistogram.BUCKET_COUNT; i++) {
+            final long upperBound = LogHistogram.getBucketUpperBound(i);
+
+            assertEquals(i, LogHistogram.getBucketIndex(upperBound), "Upper bound should be counted by its bucket " + i);
+
+            if (i + 1 < LogHistogram.BUCKET_COUNT) {
+                assertEquals(i + 1, LogHistogram.getBucketIndex(upperBound + 1), "Next value should be counted by the next bucket " + i);
+            }
+        }
+
+        assertEquals(Long.MAX_VALUE, LogHistogram.getBucketUpperBound(LogHistogram.BUCKET_COUNT - 1), "Last bucket should count the largest long");
+    }
+
+    @Test
+    public void testBucketPrecision() {
+        final Random random = new Random(17);
+
+        for (int i = 0; i < 100000; i++) {
+            final long value = random.nextLong() >>> (1 + random.nextInt(Long.SIZE - 1));
+            final long upperBound = LogHistogram.getBucketUpperBound(LogHistogram.getBucketIndex(value));
+
+            assertTrue(upperBound >= value, "Upper bound should not be below " + value);
+            assertTrue(upperBound - value <= value / LogHistogram.SUB_BUCKET_COUNT, "Upper bound should be within 12.5% of " + value);
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        final LogHistogram histogram = new LogHistogram("nanoseconds");
+
+        assertEquals("nanoseconds", histogram.getUnit(), "Unit should match");
+        assertEquals(0, histogram.getCount(), "Count should be 0");
+        assertEquals(0.0, histogram.getMean(), "Mean should be 0");
+        assertEquals(0, histogram.getMax(), "Max should be 0");
+        assertEquals(0, histogram.getP99(), "Percentile should be 0");
+    }
+
+    @Test
+    public void testRecord() {
+        final LogHistogram histogram = new LogHistogram("lenders");
+
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        histogram.record(-5);
+
+        assertEquals(1001, histogram.getCount(), "Count should include every value");
+        assertEquals(500500, histogram.getSum(), "Sum should count negative values as 0");
+        assertEquals(500500 / 1001.0, histogram.getMean(), 1e-9, "Mean should match");
+        assertEquals(1000, histogram.getMax(), "Max should match");
+        assertEquals(0, histogram.getPercentile(0), "Smallest value should be 0");
+        assertEquals(1000, histogram.getPercentile(1), "Largest value should be capped at the max");
+        assertWithinPrecision(500, histogram.getP50(), "Median");
+        assertWithinPrecision(900, histogram.getP90(), "90th percentile");
+        assertWithinPrecision(990, histogram.getP99(), "99th percentile");
+        assertWithinPrecision(999, histogram.getP999(), "99.9th percentile");
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        final LogHistogram histogram = new LogHistogram("iterations");
+
+        for (int i = 0; i < 9; i++) {
+            histogram.record(3);
+        }
+
+        histogram.record(5);
+
+        assertEquals(3, histogram.getP50(), "Median should be exact");
+        assertEquals(3, histogram.getP90(), "90th percentile should be exact");
+        assertEquals(5, histogram.getP99(), "99th percentile should be exact");
+    }
+
+    @Test
+    public void testReset() {
+        final LogHistogram histogram = new LogHistogram("nanoseconds");
+
+        histogram.record(42);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount(), "Count should be 0 after reset");
+        assertEquals(0, histogram.getSum(), "Sum should be 0 after reset");
+        assertEquals(0, histogram.getMax(), "Max should be 0 after reset");
+
+        histogram.record(7);
+
+        assertEquals(7, histogram.getP50(), "Values after reset should be recorded");
+    }
+
+    @Test
+    public void testConcurrentRecord() throws Exception {
+        final int threads = 4;
+        final int valuesPerThread = 100000;
+        final LogHistogram histogram = new LogHistogram("nanoseconds", threads);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            final Future<?>[] futures = new Future<?>[threads];
+
+            for (int i = 0; i < threads; i++) {
+                futures[i] = executor.submit(() -> {
+                    for (long value = 1; value <= valuesPerThread; value++) {
+                        histogram.record(value);
+                    }
+                });
+            }
+
+            for (final Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals((long) threads * valuesPerThread, histogram.getCount(), "No value should be lost");
+        assertEquals(threads * LongStream.rangeClosed(1, valuesPerThread).sum(), histogram.getSum(), "Sum should include every value");
+        assertEquals(valuesPerThread, histogram.getMax(), "Max should match");
+    }
+
+    private static void assertWithinPrecision(final long expected, final long actual, final String percentile) {
+        assertTrue(actual >= expected && actual - expected <= expected / LogHistogram.SUB_BUCKET_COUNT,
+                percentile + " should be within 12.5% of " + expected + " but was " + actual);
+    }
+}
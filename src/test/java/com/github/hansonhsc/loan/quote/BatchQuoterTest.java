@@ -0,0 +1,201 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.github.hansonhsc.loan.quote.LoanQuoteApplicationCsvTest.MARKET_CSV;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BatchQuoterTest {
+    private static String quote(final BatchQuoter.Format format, final String input) throws Exception {
+        final BatchQuoter batchQuoter = new BatchQuoter(LoanQuoteApplication.createLoanQuoteCalculator(MARKET_CSV), format);
+        final StringWriter output = new StringWriter();
+
+        batchQuoter.quote(new BufferedReader(new StringReader(input)), output);
+
+        return output.toString();
+    }
+
+    @Test
+    void testCsv() throws Exception {
+        assertEquals(
+                BatchQuoter.CSV_HEADER + "\n"
+                        + "1,1000,7.0,30.88,1111.65,\n"
+                        + "2,1050,,,,\"Invalid loan amount, must be any 100 increment between 1000-15000 inclusive: 1050\"\n"
+                        + "4,\"1,000\",,,,\"Invalid loan amount format, must be an integer: 1,000\"\n"
+                        + "5,15000,,,,Insufficient offers from lenders to satisfy the loan. Try a smaller loan amount.\n"
+                        + "6,1000,7.0,30.88,1111.65,\n",
+                quote(BatchQuoter.Format.CSV, "1000\n1050\n\n1,000\n15000\r\n 1000 \n"),
+                "Every line should have a result, in order"
+        );
+    }
+
+    @Test
+    void testJsonLines() throws Exception {
+        assertEquals(
+                "{\"line\":1,\"requestedAmount\":1000,\"rate\":7.0,\"monthlyRepayment\":30.88,\"totalRepayment\":1111.65}\n"
+                        + "{\"line\":2,\"input\":\"\\\"x\\\"\",\"error\":\"Invalid loan amount format, must be an integer: \\\"x\\\"\"}\n"
+                        + "{\"line\":3,\"input\":\"15000\",\"error\":\"Insufficient offers from lenders to satisfy the loan. Try a smaller loan amount.\"}\n",
+                quote(BatchQuoter.Format.JSON_LINES, "1000\n\"x\"\n15000"),
+                "Every line should have a result, in order"
+        );
+    }
+
+    @Test
+    void testEmptyInput() throws Exception {
+        assertEquals(BatchQuoter.CSV_HEADER + "\n", quote(BatchQuoter.Format.CSV, ""), "Empty input should only have the header");
+        assertEquals("", quote(BatchQuoter.Format.JSON_LINES, "\n\n"), "Blank lines should be skipped");
+    }
+
+    /**
+     * More lines than fit in a chunk, so that results must stay in order across chunks
+     */
+    @Test
+    void testManyChunks() throws Exception {
+        final LoanQuoteCalculator loanQuoteCalculator = LoanQuoteApplication.createLoanQuoteCalculator(MARKET_CSV);
+        final StringBuilder input = new StringBuilder();
+        final int lineCount = BatchQuoter.CHUNK_SIZE * 2 + 10;
+
+        for (int i = 0; i < lineCount; i++) {
+            input.append(i % 7 == 0 ? "invalid" : Integer.toString(1000 + 100 * (i % 20))).append('\n');
+        }
+
+        final StringWriter output = new StringWriter();
+        final long errorCount = new BatchQuoter(loanQuoteCalculator, BatchQuoter.Format.CSV).quote(new BufferedReader(new StringReader(input.toString())), output);
+
+        final String[] rows = output.toString().split("\n");
+        assertEquals(lineCount + 1, rows.length, "Every line should have a result");
+
+        long expectedErrorCount = 0;
+
+        for (int i = 0; i < lineCount; i++) {
+            final String row = rows[i + 1];
+
+            assertEquals(Integer.toString(i + 1), row.substring(0, row.indexOf(',')), "Results should be in order");
+
+            if (i % 7 == 0) {
+                expectedErrorCount++;
+                continue;
+            }
+
+            final int loanAmount = 1000 + 100 * (i % 20);
+
+            try {
+                final LoanQuote quote = loanQuoteCalculator.getQuote(loanAmount);
+
+                assertEquals((i + 1) + "," + loanAmount + "," + quote.getRate() + "," + quote.getMonthlyRepayment() + "," + quote.getTotalRepayment() + ",", row, "Quote should match");
+            } catch (InsufficientLendersException e) {
+                expectedErrorCount++;
+            }
+        }
+
+        assertEquals(expectedErrorCount, errorCount, "Lines that could not be quoted should be counted");
+    }
+
+    /**
+     * Every loan amount allowed by the application in a random order, against several random markets, so that some
+     * rates fall near a rounding boundary and each row must still be the same as the single quote
+     */
+    @Test
+    void testSameAsSingleQuotes() throws Exception {
+        final Random random = new Random(19);
+        final List<Integer> loanAmounts = new ArrayList<>();
+
+        for (int loanAmount = LoanQuoteApplication.MIN_LOAN_AMOUNT; loanAmount <= LoanQuoteApplication.MAX_LOAN_AMOUNT;
+             loanAmount += LoanQuoteApplication.LOAN_AMOUNT_INCREMENT) {
+            loanAmounts.add(loanAmount);
+        }
+
+        for (int market = 0; market < 200; market++) {
+            final List<Lender> lenders = new ArrayList<>();
+
+            for (int i = 0; i < 300; i++) {
+                lenders.add(new Lender("Lender" + i, BigDecimal.valueOf(1 + random.nextInt(2000), 4), random.nextInt(100)));
+            }
+
+            final LoanQuoteCalculator loanQuoteCalculator = new LoanQuoteCalculator(lenders, RepaymentEngine.SCALED_LONG);
+
+            Collections.shuffle(loanAmounts, random);
+
+            final StringBuilder input = new StringBuilder();
+
+            for (final int loanAmount : loanAmounts) {
+                input.append(loanAmount).append('\n');
+            }
+
+            final StringWriter output = new StringWriter();
+
+            new BatchQuoter(loanQuoteCalculator, BatchQuoter.Format.CSV).quote(new BufferedReader(new StringReader(input.toString())), output);
+
+            final String[] rows = output.toString().split("\n");
+
+            for (int i = 0; i < loanAmounts.size(); i++) {
+                final int loanAmount = loanAmounts.get(i);
+                final LoanQuote quote;
+
+                try {
+                    quote = loanQuoteCalculator.getQuote(loanAmount);
+                } catch (InsufficientLendersException e) {
+                    assertEquals((i + 1) + "," + loanAmount + ",,,," + LoanQuoteApplication.INSUFFICIENT_LENDERS_MESSAGE, rows[i + 1],
+                            "Row should be insufficient like the single quote in market " + market);
+
+                    continue;
+                }
+
+                assertEquals((i + 1) + "," + loanAmount + "," + quote.getRate() + "," + quote.getMonthlyRepayment() + "," + quote.getTotalRepayment() + ",",
+                        rows[i + 1], "Row should be the same as the single quote in market " + market);
+            }
+        }
+    }
+
+    @Test
+    void testRunBatch() throws Exception {
+        final Path input = Files.createTempFile("loan-amounts", ".txt");
+        final Path output = Files.createTempFile("quotes", ".jsonl");
+
+        try {
+            Files.write(input, Arrays.asList("1000", "invalid", "1100"), StandardCharsets.UTF_8);
+
+            final long errorCount = LoanQuoteApplication.runBatch(new String[]{"batch", MARKET_CSV, input.toString(), "--format", "jsonl", "--output", output.toString()});
+
+            final List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+
+            assertEquals(1, errorCount, "Invalid line should be counted");
+            assertEquals(3, lines.size(), "Every line should have a result");
+            assertEquals("{\"line\":1,\"requestedAmount\":1000,\"rate\":7.0,\"monthlyRepayment\":30.88,\"totalRepayment\":1111.65}", lines.get(0), "Quote should be written");
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    @Test
+    void testRunBatchInvalidArguments() throws IOException {
+        final Path input = Files.createTempFile("loan-amounts", ".txt");
+
+        try {
+            assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.runBatch(new String[]{"batch", MARKET_CSV}));
+            assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.runBatch(new String[]{"batch", MARKET_CSV, input.toString(), "--format"}));
+            assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.runBatch(new String[]{"batch", MARKET_CSV, input.toString(), "--format", "xml"}));
+            assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.runBatch(new String[]{"batch", MARKET_CSV, input.toString(), "--colour", "red"}));
+            assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.runBatch(new String[]{"batch", "invalid", input.toString()}));
+            assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.runBatch(new String[]{"batch", MARKET_CSV, input.resolveSibling("missing-loan-amounts.txt").toString()}));
+        } finally {
+            Files.delete(input);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CapacityLedgerTest {
+    private static LoanQuoteCalculator createCalculator() {
+        return new LoanQuoteCalculator(new ArrayList<>(Arrays.asList(
+                new Lender("A", new BigDecimal("0.075"), 640),
+                new Lender("B", new BigDecimal("0.069"), 480),
+                new Lender("C", new BigDecimal("0.071"), 520),
+                new Lender("D", new BigDecimal("0.104"), 170),
+                new Lender("E", new BigDecimal("0.081"), 320),
+                new Lender("F", new BigDecimal("0.074"), 140),
+                new Lender("G", new BigDecimal("0.071"), 60)
+        )));
+    }
+
+    @Test
+    void testReserveMatchesQuote() throws InsufficientLendersException {
+        final LoanQuoteCalculator calculator = createCalculator();
+        final CapacityLedger ledger = new CapacityLedger(calculator);
+
+        final Reservation reservation = ledger.reserve(1000);
+
+        assertEquals(calculator.getLendersForLoan(1000), reservation.getLenders(), "First reservation should use the same lenders as a quote");
+
+        final LoanQuote expected = calculator.getQuote(1000);
+        final LoanQuote quote = reservation.getQuote();
+
+        assertEquals(expected.getRate(), quote.getRate(), "First reservation should be priced the same as a quote");
+        assertEquals(expected.getMonthlyRepayment(), quote.getMonthlyRepayment(), "First reservation should be priced the same as a quote");
+        assertEquals(expected.getTotalRepayment(), quote.getTotalRepayment(), "First reservation should be priced the same as a quote");
+        assertEquals(2330 - 1000, ledger.getTotalRemainingAmount(), "Reserved capacity should be taken");
+    }
+
+    @Test
+    void testReserveUsesRemainingCapacity() throws InsufficientLendersException {
+        final LoanQuoteCalculator calculator = createCalculator();
+        final CapacityLedger ledger = new CapacityLedger(calculator);
+
+        ledger.reserve(1000).commit();
+
+        // B (480) and C (520) are used up, so the cheapest remaining lenders are G (60), then F (140), then A
+        final Reservation reservation = ledger.reserve(300);
+
+        final Map<Lender, Integer> expected = new HashMap<>();
+        expected.put(new Lender("G", new BigDecimal("0.071"), 60), 60);
+        expected.put(new Lender("F", new BigDecimal("0.074"), 140), 140);
+        expected.put(new Lender("A", new BigDecimal("0.075"), 640), 100);
+
+        assertEquals(expected, reservation.getLenders(), "Reservation should use the cheapest remaining capacity");
+
+        final BigDecimal expectedMonthlyRepayment = calculator.getMonthlyRepayment(new BigDecimal("0.071"), 60)
+                .add(calculator.getMonthlyRepayment(new BigDecimal("0.074"), 140))
+                .add(calculator.getMonthlyRepayment(new BigDecimal("0.075"), 100))
+                .setScale(2, RoundingMode.HALF_UP);
+
+        assertEquals(expectedMonthlyRepayment, reservation.getQuote().getMonthlyRepayment(), "Reservation should be priced from the lenders it used");
+    }
+
+    @Test
+    void testInsufficientCapacityRollsBack() throws InsufficientLendersException {
+        final CapacityLedger ledger = new CapacityLedger(createCalculator());
+
+        ledger.reserve(2000);
+
+        final int[] remainingAmounts = new int[ledger.size()];
+
+        for (int i = 0; i < remainingAmounts.length; i++) {
+            remainingAmounts[i] = ledger.getRemainingAmount(i);
+        }
+
+        assertThrows(InsufficientLendersException.class, () -> ledger.reserve(400));
+        assertEquals(330, ledger.getTotalRemainingAmount(), "Partial booking should be rolled back");
+
+        for (int i = 0; i < remainingAmounts.length; i++) {
+            assertEquals(remainingAmounts[i], ledger.getRemainingAmount(i), "Partial booking should be rolled back at " + i);
+        }
+
+        ledger.reserve(330).commit();
+
+        assertEquals(0, ledger.getTotalRemainingAmount(), "Rolled back capacity should be available again");
+    }
+
+    @Test
+    void testCancel() throws InsufficientLendersException {
+        final CapacityLedger ledger = new CapacityLedger(createCalculator());
+
+        final Reservation first = ledger.reserve(1000);
+        final Reservation second = ledger.reserve(1000);
+
+        first.cancel();
+        first.cancel();
+
+        assertTrue(first.isCancelled(), "Reservation should be cancelled");
+        assertEquals(1330, ledger.getTotalRemainingAmount(), "Cancelled capacity should be given back once");
+        assertThrows(IllegalStateException.class, first::commit);
+
+        second.commit();
+        second.commit();
+
+        assertTrue(second.isCommitted(), "Reservation should be committed");
+        assertThrows(IllegalStateException.class, second::cancel);
+
+        // the cheapest lenders are available again
+        assertEquals(createCalculator().getLendersForLoan(1000), ledger.reserve(1000).getLenders(), "Cancelled capacity should be reused first");
+    }
+
+    @Test
+    void testInvalidLoanAmount() {
+        final CapacityLedger ledger = new CapacityLedger(createCalculator());
+
+        assertThrows(IllegalArgumentException.class, () -> ledger.reserve(0));
+        assertThrows(IllegalArgumentException.class, () -> ledger.reserve(-100));
+    }
+
+    @Test
+    void testNegativeAmounts() throws InsufficientLendersException {
+        final CapacityLedger ledger = new CapacityLedger(new LoanQuoteCalculator(new ArrayList<>(Arrays.asList(
+                new Lender("A", new BigDecimal("0.07"), -100),
+                new Lender("B", new BigDecimal("0.08"), 100)
+        ))));
+
+        assertEquals(100, ledger.getTotalRemainingAmount(), "Negative amounts should have no capacity");
+        assertEquals(100, (int) ledger.reserve(100).getLenders().get(new Lender("B", new BigDecimal("0.08"), 100)), "Negative amounts should not be used");
+    }
+
+    /**
+     * Many threads book and cancel loans at the same time, and no lender may ever lend more than their amount
+     */
+    @Test
+    void testConcurrentReservations() throws Exception {
+        final List<Lender> lenders = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++) {
+            lenders.add(new Lender("Lender" + i, BigDecimal.valueOf(1 + i % 97, 3), 10 + i % 50));
+        }
+
+        final long totalAmount = lenders.stream().mapToLong(Lender::getAmount).sum();
+
+        final CapacityLedger ledger = new CapacityLedger(new LoanQuoteCalculator(lenders, RepaymentEngine.SCALED_LONG));
+
+        final int threads = 4;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            final List<Future<List<Reservation>>> results = new ArrayList<>();
+
+            for (int i = 0; i < threads; i++) {
+                final int seed = i;
+
+                results.add(executor.submit(() -> {
+                    final Random random = new Random(seed);
+                    final List<Reservation> committed = new ArrayList<>();
+
+                    while (true) {
+                        final Reservation reservation;
+
+                        try {
+                            reservation = ledger.reserve(1 + random.nextInt(500));
+                        } catch (InsufficientLendersException e) {
+                            // small loans may still fit, so only stop once the smallest loan does not
+                            if (ledger.getTotalRemainingAmount() == 0) {
+                                return committed;
+                            }
+
+                            continue;
+                        }
+
+                        if (random.nextInt(4) == 0) {
+                            reservation.cancel();
+                        } else {
+                            reservation.commit();
+                            committed.add(reservation);
+                        }
+                    }
+                }));
+            }
+
+            final Map<Lender, Integer> lentAmounts = new HashMap<>();
+            long committedAmount = 0;
+
+            for (final Future<List<Reservation>> result : results) {
+                for (final Reservation reservation : result.get(1, TimeUnit.MINUTES)) {
+                    committedAmount += reservation.getLoanAmount();
+
+                    for (final Map.Entry<Lender, Integer> entry : reservation.getLenders().entrySet()) {
+                        lentAmounts.merge(entry.getKey(), entry.getValue(), Integer::sum);
+                    }
+                }
+            }
+
+            for (final Map.Entry<Lender, Integer> entry : lentAmounts.entrySet()) {
+                assertEquals(entry.getKey().getAmount(), (int) entry.getValue(), "Lender should lend exactly their amount: " + entry.getKey().getName());
+            }
+
+            assertEquals(totalAmount, committedAmount, "Every pound should be lent exactly once");
+            assertEquals(0, ledger.getTotalRemainingAmount(), "No capacity should be left");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
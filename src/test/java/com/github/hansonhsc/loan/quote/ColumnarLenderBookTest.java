@@ -0,0 +1,174 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.github.hansonhsc.loan.quote.TestMarkets.createMarket;
+import static com.github.hansonhsc.loan.quote.TestMarkets.getLenders;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ColumnarLenderBookTest {
+    private static List<Lender> createRandomMarketWithTies(final long seed, final int size) {
+        final Random random = new Random(seed);
+        final List<Lender> lenders = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            // few distinct rates, amounts and names so that there are plenty of ties for the sort to keep stable
+            lenders.add(new Lender("Lender" + random.nextInt(size / 4 + 1), BigDecimal.valueOf(1 + random.nextInt(50), 2 + random.nextInt(3)), random.nextInt(20)));
+        }
+
+        return lenders;
+    }
+
+    private static void assertSameLenders(final List<Lender> expected, final LenderBook actual) {
+        assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getName(), actual.getName(i), "Name at " + i);
+            // equals rather than compareTo, so that the scale must be the same as well
+            assertEquals(expected.get(i).getRate(), actual.getRate(i), "Rate at " + i);
+            assertEquals(expected.get(i).getAmount(), actual.getAmount(i), "Amount at " + i);
+        }
+    }
+
+    @Test
+    void testSameAsLenders() {
+        final List<Lender> lenders = createRandomMarketWithTies(3, 1000);
+
+        final ColumnarLenderBook book = ColumnarLenderBook.of(lenders);
+
+        assertSameLenders(lenders, book);
+        assertEquals(lenders, getLenders(book));
+    }
+
+    @Test
+    void testScaledRates() {
+        final ColumnarLenderBook book = new ColumnarLenderBook(0);
+
+        book.add("Bob", new BigDecimal("0.075"), 640);
+        book.add("Jane", new BigDecimal("0.0690000000"), 480);
+        book.add("Fred", new BigDecimal("1E+1"), 520);
+        book.add("Mary", 1_040_000_000L, 3, 170);
+
+        assertEquals(750_000_000L, book.getScaledRate(0));
+        assertEquals(690_000_000L, book.getScaledRate(1));
+        assertEquals(100_000_000_000L, book.getScaledRate(2));
+
+        assertEquals("0.075", book.getRate(0).toString());
+        assertEquals("0.0690000000", book.getRate(1).toString());
+        assertEquals("1E+1", book.getRate(2).toString());
+        assertEquals("0.104", book.getRate(3).toString());
+    }
+
+    @Test
+    void testUnrepresentableRates() {
+        final ColumnarLenderBook book = new ColumnarLenderBook();
+
+        assertThrows(IllegalArgumentException.class, () -> book.add("Bob", new BigDecimal("0.00000000001"), 640));
+        assertThrows(IllegalArgumentException.class, () -> book.add("Bob", new BigDecimal("1E+9"), 640));
+        assertThrows(IllegalArgumentException.class, () -> book.add("Bob", 750_000_001L, 3, 640));
+        assertThrows(IllegalArgumentException.class, () -> book.add("Bob", 750_000_000L, 11, 640));
+        assertThrows(IllegalArgumentException.class, () -> book.add("Bob", 750_000_000L, -1, 640));
+
+        assertEquals(0, book.size());
+    }
+
+    @Test
+    void testDictionaryEncodedNames() {
+        final ColumnarLenderBook book = new ColumnarLenderBook();
+
+        book.add("Bob", new BigDecimal("0.075"), 640);
+        book.add("Jane", new BigDecimal("0.069"), 480);
+        book.add("Bob", new BigDecimal("0.071"), 520);
+
+        assertEquals(2, book.getNameCount());
+        assertEquals("Bob", book.getName(2));
+    }
+
+    @Test
+    void testIndexOutOfBounds() {
+        final ColumnarLenderBook book = ColumnarLenderBook.of(createMarket());
+
+        assertThrows(IndexOutOfBoundsException.class, () -> book.getAmount(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> book.getRate(7));
+    }
+
+    @Test
+    void testSortSameAsLoanQuoteCalculator() {
+        for (final int size : new int[]{0, 1, 2, 31, 32, 33, 64, 100, 1000, 5000}) {
+            final List<Lender> lenders = createRandomMarketWithTies(size, size);
+
+            final ColumnarLenderBook book = ColumnarLenderBook.of(lenders);
+            book.sort();
+
+            // the calculator sorts the list in place
+            new LoanQuoteCalculator(lenders);
+
+            assertSameLenders(lenders, book);
+        }
+    }
+
+    @Test
+    void testMerge() {
+        final List<Lender> first = createRandomMarketWithTies(21, 700);
+        final List<Lender> second = createRandomMarketWithTies(22, 300);
+
+        final ColumnarLenderBook firstBook = ColumnarLenderBook.of(first);
+        final ColumnarLenderBook secondBook = ColumnarLenderBook.of(second);
+
+        assertThrows(IllegalArgumentException.class, () -> ColumnarLenderBook.merge(firstBook, secondBook));
+
+        firstBook.sort();
+        secondBook.sort();
+
+        final List<Lender> expected = new ArrayList<>(first);
+        expected.addAll(second);
+        new LoanQuoteCalculator(expected);
+
+        final ColumnarLenderBook merged = ColumnarLenderBook.merge(firstBook, secondBook);
+
+        assertSameLenders(expected, merged);
+        assertSameLenders(expected, ColumnarLenderBook.merge(merged, new ColumnarLenderBook()));
+        assertSameLenders(expected, ColumnarLenderBook.merge(new ColumnarLenderBook(), merged));
+    }
+
+    @Test
+    void testCalculatorLenders() {
+        final List<Lender> lenders = createMarket();
+
+        final LoanQuoteCalculator loanQuoteCalculator = new LoanQuoteCalculator(ColumnarLenderBook.of(lenders), RepaymentEngine.BIG_DECIMAL);
+
+        assertEquals(new LoanQuoteCalculator(lenders).getLenders(), loanQuoteCalculator.getLenders());
+        assertThrows(UnsupportedOperationException.class, () -> loanQuoteCalculator.getLenders().clear());
+    }
+
+    @Test
+    void testCalculatorQuotes() throws InsufficientLendersException {
+        for (final List<Lender> market : Arrays.asList(createMarket(), createRandomMarketWithTies(13, 500))) {
+            final int capacity = market.stream().mapToInt(Lender::getAmount).sum();
+
+            for (final RepaymentEngine repaymentEngine : RepaymentEngine.values()) {
+                final LoanQuoteCalculator expected = new LoanQuoteCalculator(new ArrayList<>(market), repaymentEngine);
+                final LoanQuoteCalculator actual = new LoanQuoteCalculator(ColumnarLenderBook.of(market), repaymentEngine);
+
+                for (int loanAmount = 1; loanAmount <= capacity; loanAmount += 11) {
+                    final LoanQuote expectedQuote = expected.getQuote(loanAmount);
+                    final LoanQuote actualQuote = actual.getQuote(loanAmount);
+
+                    assertEquals(expectedQuote.getRate(), actualQuote.getRate(), "Rate for " + loanAmount);
+                    assertEquals(expectedQuote.getMonthlyRepayment(), actualQuote.getMonthlyRepayment(), "Monthly repayment for " + loanAmount);
+                    assertEquals(expectedQuote.getTotalRepayment(), actualQuote.getTotalRepayment(), "Total repayment for " + loanAmount);
+                }
+
+                assertEquals(0, actual.getShadowDivergenceCount());
+                assertThrows(InsufficientLendersException.class, () -> actual.getQuote(capacity + 1));
+            }
+        }
+    }
+}
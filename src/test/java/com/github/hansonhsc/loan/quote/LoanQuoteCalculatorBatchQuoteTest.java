@@ -0,0 +1,155 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static com.github.hansonhsc.loan.quote.TestMarkets.createMarket;
+import static com.github.hansonhsc.loan.quote.TestMarkets.createRandomMarket;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoanQuoteCalculatorBatchQuoteTest {
+    private static void assertSameResult(final LoanQuoteCalculator calculator, final int loanAmount, final LoanQuoteResult result) {
+        assertEquals(loanAmount, result.getLoanAmount(), "Result should be for the requested loan amount");
+
+        final LoanQuote expected;
+
+        try {
+            expected = calculator.getQuote(loanAmount);
+        } catch (InsufficientLendersException e) {
+            assertFalse(result.isSuccessful(), "Insufficient lenders for " + loanAmount);
+            assertNull(result.getQuote(), "Insufficient lenders for " + loanAmount);
+            assertTrue(result.getFailure() instanceof InsufficientLendersException, "Insufficient lenders for " + loanAmount);
+
+            return;
+        }
+
+        assertTrue(result.isSuccessful(), "Sufficient lenders for " + loanAmount);
+        assertNull(result.getFailure(), "Sufficient lenders for " + loanAmount);
+
+        final LoanQuote quote = result.getQuote();
+
+        assertEquals(expected.getLoanAmount(), quote.getLoanAmount(), "Loan amount for " + loanAmount);
+        assertEquals(expected.getRate(), quote.getRate(), "Rate for " + loanAmount);
+        assertEquals(expected.getMonthlyRepayment(), quote.getMonthlyRepayment(), "Monthly repayment for " + loanAmount);
+        assertEquals(expected.getTotalRepayment(), quote.getTotalRepayment(), "Total repayment for " + loanAmount);
+        assertEquals(expected.getTerm(), quote.getTerm(), "Term for " + loanAmount);
+    }
+
+    @Test
+    void testSameAsSingleQuotes() {
+        for (final RepaymentEngine repaymentEngine : RepaymentEngine.values()) {
+            final LoanQuoteCalculator calculator = new LoanQuoteCalculator(createRandomMarket(13, 500), repaymentEngine);
+            final Random random = new Random(17);
+
+            final int[] loanAmounts = new int[1000];
+
+            for (int i = 0; i < loanAmounts.length; i++) {
+                // include some loan amounts that cannot be satisfied
+                loanAmounts[i] = 1 + random.nextInt(40000);
+            }
+
+            final LoanQuoteResult[] results = calculator.getQuotes(loanAmounts);
+
+            assertEquals(loanAmounts.length, results.length, "There should be a result for every loan amount");
+
+            for (int i = 0; i < loanAmounts.length; i++) {
+                assertSameResult(calculator, loanAmounts[i], results[i]);
+            }
+        }
+    }
+
+    @Test
+    void testDenseLoanAmounts() {
+        // every loan amount allowed by the application, so that many rates fall near a rounding boundary
+        final int[] loanAmounts = new int[LoanQuoteApplication.MAX_LOAN_AMOUNT - LoanQuoteApplication.MIN_LOAN_AMOUNT + 1];
+
+        for (int i = 0; i < loanAmounts.length; i++) {
+            loanAmounts[i] = LoanQuoteApplication.MIN_LOAN_AMOUNT + i;
+        }
+
+        for (final RepaymentEngine repaymentEngine : new RepaymentEngine[]{RepaymentEngine.BIG_DECIMAL, RepaymentEngine.SCALED_LONG}) {
+            for (final int term : new int[]{12, 36, 360}) {
+                final LoanQuoteCalculator calculator = new LoanQuoteCalculator(createRandomMarket(13, 500), repaymentEngine, term);
+                final LoanQuoteResult[] results = calculator.getQuotes(loanAmounts);
+
+                for (int i = 0; i < loanAmounts.length; i++) {
+                    assertSameResult(calculator, loanAmounts[i], results[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testRequestOrder() {
+        final LoanQuoteCalculator calculator = new LoanQuoteCalculator(createMarket());
+
+        final int[] loanAmounts = {2000, 1000, 5000, 1500, 1000, 2330, 2331};
+        final LoanQuoteResult[] results = calculator.getQuotes(loanAmounts);
+
+        for (int i = 0; i < loanAmounts.length; i++) {
+            assertSameResult(calculator, loanAmounts[i], results[i]);
+        }
+
+        assertSame(results[1], results[4], "Repeated loan amounts should share a result");
+        assertFalse(results[2].isSuccessful(), "Loan amount beyond the market should fail");
+        assertTrue(results[5].isSuccessful(), "Loan amount of the entire market should be quoted");
+        assertFalse(results[6].isSuccessful(), "Loan amount beyond the market should fail");
+    }
+
+    @Test
+    void testInvalidLoanAmounts() {
+        final LoanQuoteCalculator calculator = new LoanQuoteCalculator(createMarket());
+
+        final LoanQuoteResult[] results = calculator.getQuotes(new int[]{0, 1000, -100});
+
+        assertTrue(results[0].getFailure() instanceof IllegalArgumentException, "Zero loan amount should fail");
+        assertTrue(results[1].isSuccessful(), "Valid loan amount should be quoted in the same batch");
+        assertTrue(results[2].getFailure() instanceof IllegalArgumentException, "Negative loan amount should fail");
+        assertEquals(-100, results[2].getLoanAmount(), "Result should be for the requested loan amount");
+
+        // a single quote rejects the same loan amounts in the same way, even without lenders
+        for (final LoanQuoteCalculator single : new LoanQuoteCalculator[]{calculator, new LoanQuoteCalculator(new ArrayList<>())}) {
+            for (final LoanQuoteResult result : single.getQuotes(new int[]{0, -100})) {
+                final IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> single.getQuote(result.getLoanAmount()),
+                        "Single quote should reject " + result.getLoanAmount());
+
+                assertEquals(e.getMessage(), result.getFailure().getMessage(), "Batch and single quotes should fail in the same way");
+                assertThrows(IllegalArgumentException.class, () -> single.getQuote(result.getLoanAmount(), new MutableLoanQuote()),
+                        "Mutable quote should reject " + result.getLoanAmount());
+            }
+        }
+    }
+
+    @Test
+    void testEmpty() {
+        assertEquals(0, new LoanQuoteCalculator(createMarket()).getQuotes(new int[0]).length, "Empty batch should have no results");
+
+        final LoanQuoteResult[] results = new LoanQuoteCalculator(new ArrayList<>()).getQuotes(new int[]{1000});
+
+        assertTrue(results[0].getFailure() instanceof InsufficientLendersException, "Empty market should not quote");
+        assertThrows(InsufficientLendersException.class, () -> new LoanQuoteCalculator(new ArrayList<>()).getQuote(1000));
+    }
+
+    @Test
+    void testOrderBook() {
+        final OrderBookLoanQuoteCalculator orderBook = new OrderBookLoanQuoteCalculator();
+
+        for (final Lender lender : createMarket()) {
+            orderBook.add(lender.getName(), lender.getRate(), lender.getAmount());
+        }
+
+        final int[] loanAmounts = {1000, 1700, 2330, 2400};
+        final LoanQuoteResult[] results = orderBook.getQuotes(loanAmounts);
+
+        for (int i = 0; i < loanAmounts.length; i++) {
+            assertSameResult(orderBook, loanAmounts[i], results[i]);
+        }
+    }
+}
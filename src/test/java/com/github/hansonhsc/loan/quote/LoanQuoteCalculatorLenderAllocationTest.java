@@ -0,0 +1,159 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LoanQuoteCalculatorLenderAllocationTest {
+    /**
+     * Allocates a loan by scanning the sorted lenders from the start, as the calculator originally did
+     * @return the amount borrowed from each lender, or null if there are insufficient lenders
+     */
+    private static List<Integer> allocateByScanning(final Iterable<Lender> lenders, final int loanAmount) {
+        final List<Integer> result = new ArrayList<>();
+
+        int remainingLoanAmount = loanAmount;
+
+        for (final Lender lender : lenders) {
+            if (lender.getAmount() >= remainingLoanAmount) {
+                result.add(remainingLoanAmount);
+
+                return result;
+            }
+
+            result.add(lender.getAmount());
+
+            remainingLoanAmount -= lender.getAmount();
+        }
+
+        return null;
+    }
+
+    private static List<Integer> getLoanAmounts(final LenderAllocation allocation) {
+        final List<Integer> result = new ArrayList<>();
+
+        for (int i = 0; i < allocation.size(); i++) {
+            result.add(allocation.getLoanAmount(i));
+        }
+
+        return result;
+    }
+
+    private static void assertSameAllocations(final List<Lender> lenders, final int maximumLoanAmount) {
+        final LoanQuoteCalculator loanQuoteCalculator = new LoanQuoteCalculator(lenders);
+
+        for (int loanAmount = -10; loanAmount <= maximumLoanAmount; loanAmount++) {
+            final List<Integer> expected = allocateByScanning(loanQuoteCalculator.getLenders(), loanAmount);
+
+            if (expected == null) {
+                final int insufficientLoanAmount = loanAmount;
+
+                assertThrows(InsufficientLendersException.class, () -> loanQuoteCalculator.getLenderAllocation(insufficientLoanAmount), "Insufficient lenders for " + loanAmount);
+            } else {
+                try {
+                    assertEquals(expected, getLoanAmounts(loanQuoteCalculator.getLenderAllocation(loanAmount)), "Allocation for " + loanAmount);
+                } catch (InsufficientLendersException e) {
+                    throw new AssertionError("Sufficient lenders for " + loanAmount, e);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testAllocation() throws InsufficientLendersException {
+        final LoanQuoteCalculator loanQuoteCalculator = new LoanQuoteCalculator(new ArrayList<>(Arrays.asList(
+                new Lender("Bob", new BigDecimal("0.075"), 640),
+                new Lender("Jane", new BigDecimal("0.069"), 480),
+                new Lender("Fred", new BigDecimal("0.071"), 520)
+        )));
+
+        final LenderAllocation allocation = loanQuoteCalculator.getLenderAllocation(1000);
+
+        assertEquals(0, allocation.getStart());
+        assertEquals(2, allocation.getEnd());
+        assertEquals(2, allocation.size());
+        assertEquals("Jane", allocation.getLender(0).getName());
+        assertEquals(480, allocation.getLoanAmount(0));
+        assertEquals("Fred", allocation.getLender(1).getName());
+        assertEquals(520, allocation.getLoanAmount(1));
+        assertEquals(520, allocation.getLastLoanAmount());
+
+        assertThrows(IndexOutOfBoundsException.class, () -> allocation.getLender(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> allocation.getLoanAmount(-1));
+    }
+
+    @Test
+    void testPartialLastLender() throws InsufficientLendersException {
+        final LoanQuoteCalculator loanQuoteCalculator = new LoanQuoteCalculator(new ArrayList<>(Arrays.asList(
+                new Lender("Bob", new BigDecimal("0.075"), 640),
+                new Lender("Jane", new BigDecimal("0.069"), 480),
+                new Lender("Fred", new BigDecimal("0.071"), 520)
+        )));
+
+        final LenderAllocation allocation = loanQuoteCalculator.getLenderAllocation(1100);
+
+        assertEquals(3, allocation.size());
+        assertEquals("Bob", allocation.getLender(2).getName());
+        assertEquals(100, allocation.getLoanAmount(2));
+        assertEquals(100, allocation.getLastLoanAmount());
+    }
+
+    @Test
+    void testNoLenders() {
+        assertThrows(InsufficientLendersException.class, () -> new LoanQuoteCalculator(Collections.emptyList()).getLenderAllocation(0));
+    }
+
+    @Test
+    void testSameAsScanningWithRandomMarkets() {
+        final Random random = new Random(5);
+
+        for (int market = 0; market < 50; market++) {
+            final List<Lender> lenders = new ArrayList<>();
+
+            for (int i = random.nextInt(30); i > 0; i--) {
+                lenders.add(new Lender("Lender" + i, BigDecimal.valueOf(random.nextInt(20), 2), random.nextInt(100)));
+            }
+
+            assertSameAllocations(lenders, 1000);
+        }
+    }
+
+    @Test
+    void testSameAsScanningWithNegativeAmounts() {
+        final Random random = new Random(7);
+
+        for (int market = 0; market < 50; market++) {
+            final List<Lender> lenders = new ArrayList<>();
+
+            for (int i = random.nextInt(30); i > 0; i--) {
+                lenders.add(new Lender("Lender" + i, BigDecimal.valueOf(random.nextInt(20), 2), random.nextInt(100) - 50));
+            }
+
+            assertSameAllocations(lenders, 500);
+        }
+    }
+
+    @Test
+    void testLinkedList() throws InsufficientLendersException {
+        final List<Lender> lenders = new LinkedList<>(Arrays.asList(
+                new Lender("Bob", new BigDecimal("0.075"), 640),
+                new Lender("Jane", new BigDecimal("0.069"), 480)
+        ));
+
+        final LenderAllocation allocation = new LoanQuoteCalculator(lenders).getLenderAllocation(1000);
+
+        // the list passed in is still sorted
+        assertSame(lenders.get(0), allocation.getLender(0));
+        assertSame(lenders.get(1), allocation.getLender(1));
+    }
+}
@@ -0,0 +1,158 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.github.hansonhsc.loan.quote.TestMarkets.createMarket;
+import static com.github.hansonhsc.loan.quote.TestMarkets.createRandomMarket;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoanQuoteCalculatorMutableQuoteTest {
+    private static final int[] TERMS = {1, 12, 36, 60, 360, 600};
+
+    private static void assertEqualQuotes(final LoanQuote expected, final MutableLoanQuote result, final String message) {
+        final LoanQuote quote = result.toLoanQuote();
+
+        assertEquals(expected.getLoanAmount(), quote.getLoanAmount(), message + ": loan amount");
+        assertEquals(expected.getRate(), quote.getRate(), message + ": rate");
+        assertEquals(expected.getMonthlyRepayment(), quote.getMonthlyRepayment(), message + ": monthly repayment");
+        assertEquals(expected.getTotalRepayment(), quote.getTotalRepayment(), message + ": total repayment");
+        assertEquals(expected.getTerm(), quote.getTerm(), message + ": term");
+    }
+
+    private static void assertSameQuotes(final LoanQuoteCalculator calculator, final int maximumLoanAmount, final int step, final String message) throws InsufficientLendersException {
+        final MutableLoanQuote result = new MutableLoanQuote();
+
+        for (int loanAmount = 1; loanAmount <= maximumLoanAmount; loanAmount += step) {
+            final LoanQuote expected;
+
+            try {
+                expected = calculator.getQuote(loanAmount);
+            } catch (InsufficientLendersException e) {
+                final int insufficientLoanAmount = loanAmount;
+
+                assertThrows(InsufficientLendersException.class, () -> calculator.getQuote(insufficientLoanAmount, result), message + ": insufficient lenders for " + loanAmount);
+
+                continue;
+            }
+
+            assertSame(result, calculator.getQuote(loanAmount, result), message + ": holder should be returned");
+            assertEqualQuotes(expected, result, message + ": quote for " + loanAmount);
+        }
+    }
+
+    @Test
+    void testSameAsQuote() throws InsufficientLendersException {
+        for (final RepaymentEngine repaymentEngine : RepaymentEngine.values()) {
+            for (final int term : TERMS) {
+                final String message = repaymentEngine + " over " + term;
+
+                assertSameQuotes(new LoanQuoteCalculator(createMarket(), repaymentEngine, term), 2400, 7, message);
+
+                // the shadow engine prices every lender from scratch, so it is only checked on the small market
+                if (repaymentEngine != RepaymentEngine.SHADOW) {
+                    assertSameQuotes(new LoanQuoteCalculator(ColumnarLenderBook.of(createRandomMarket(23, 500)), repaymentEngine, term), 16000, 97, message + " columnar");
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSubclasses() throws InsufficientLendersException {
+        final OrderBookLoanQuoteCalculator orderBook = new OrderBookLoanQuoteCalculator(RepaymentEngine.SCALED_LONG);
+
+        for (final Lender lender : createMarket()) {
+            orderBook.add(lender.getName(), lender.getRate(), lender.getAmount());
+        }
+
+        assertSameQuotes(orderBook, 2400, 7, "Order book");
+        assertSameQuotes(new PrecomputedLoanQuoteCalculator(createMarket(), RepaymentEngine.BIG_DECIMAL, 1000, 2000, 100), 2400, 7, "Precomputed");
+    }
+
+    @Test
+    void testRateWithMoreDecimalPlacesThanScale() throws InsufficientLendersException {
+        final LoanQuoteCalculator calculator = new LoanQuoteCalculator(new ArrayList<>(Arrays.asList(
+                new Lender("Bob", new BigDecimal("0.07000000000001"), 1000))));
+
+        assertEqualQuotes(calculator.getQuote(1000), calculator.getQuote(1000, new MutableLoanQuote()), "Rate should fall back to BigDecimal arithmetic");
+    }
+
+    @Test
+    void testReuse() throws InsufficientLendersException {
+        final LoanQuoteCalculator calculator = new LoanQuoteCalculator(createMarket());
+        final MutableLoanQuote result = new MutableLoanQuote();
+
+        assertEquals(0, result.getTerm(), "Holder should not be filled in");
+
+        calculator.getQuote(2000, result);
+        calculator.getQuote(1000, result);
+
+        assertEquals(1000, result.getLoanAmount(), "Holder should have the last loan amount");
+        assertEquals(70, result.getRateInTenthsOfPercent(), "Rate should be 7.0%");
+        assertEquals(3088, result.getMonthlyRepaymentInPennies(), "Monthly repayment should be 30.88");
+        assertEquals(111_165, result.getTotalRepaymentInPennies(), "Total repayment should be 1111.65");
+        assertEquals(36, result.getTerm(), "Term should be filled in");
+
+        assertThrows(InsufficientLendersException.class, () -> calculator.getQuote(2400, result), "Insufficient lenders should throw");
+        assertEquals(1000, result.getLoanAmount(), "Holder should be unchanged by a failed quote");
+    }
+
+    @Test
+    void testRoundRateHalfUp() {
+        final Random random = new Random(29);
+
+        for (int i = 0; i < 100_000; i++) {
+            // rates close to half a tenth are the ones that need care
+            final double rate = random.nextBoolean() ? random.nextDouble() * 50 : (random.nextInt(500) + 0.5) / 10 + (random.nextInt(21) - 10) * Math.ulp(50.0);
+
+            assertEquals(new BigDecimal(rate).setScale(1, RoundingMode.HALF_UP).unscaledValue().longValueExact(),
+                    LoanQuoteCalculator.roundRateHalfUp(rate), "Rate " + rate + " should be rounded half up");
+        }
+
+        assertEquals(1, LoanQuoteCalculator.roundRateHalfUp(0.05), "0.05 is slightly more than half a tenth as a double");
+        assertEquals(0, LoanQuoteCalculator.roundRateHalfUp(0.049999999999999996), "Less than half a tenth should be rounded down");
+        assertEquals(-1, LoanQuoteCalculator.roundRateHalfUp(-0.05), "Negative rates should be rounded away from zero");
+        assertThrows(NumberFormatException.class, () -> LoanQuoteCalculator.roundRateHalfUp(Double.NaN), "NaN should throw like BigDecimal");
+    }
+
+    @Test
+    void testNoAllocation() throws InsufficientLendersException {
+        final java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+
+        final com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        final LoanQuoteCalculator calculator = new LoanQuoteCalculator(ColumnarLenderBook.of(createMarket()), RepaymentEngine.BIG_DECIMAL);
+        final MutableLoanQuote result = new MutableLoanQuote();
+        long sum = 0;
+
+        // cache every annuity factor and compile the quote path
+        for (int i = 0; i < 20_000; i++) {
+            sum += calculator.getQuote(1000 + i % 1300, result).getTotalRepaymentInPennies();
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        final long before = allocationBean.getThreadAllocatedBytes(threadId);
+
+        for (int i = 0; i < 10_000; i++) {
+            sum += calculator.getQuote(1000 + i % 1300, result).getTotalRepaymentInPennies();
+        }
+
+        final long allocated = allocationBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(sum > 0, "Quotes should be filled in");
+        // allow for a few objects allocated by the interpreter or the measurement itself, rather than every quote
+        assertTrue(allocated < 10_000, "Quotes should not allocate, but allocated " + allocated + " bytes");
+    }
+}
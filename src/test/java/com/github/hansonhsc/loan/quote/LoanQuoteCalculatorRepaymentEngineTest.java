@@ -0,0 +1,67 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.hansonhsc.loan.quote.TestMarkets.createMarket;
+import static com.github.hansonhsc.loan.quote.TestMarkets.createRandomMarket;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LoanQuoteCalculatorRepaymentEngineTest {
+    private static void assertSameQuote(final LoanQuote expected, final LoanQuote actual) {
+        assertEquals(expected.getLoanAmount(), actual.getLoanAmount());
+        assertEquals(expected.getRate(), actual.getRate(), "Rate for " + expected.getLoanAmount());
+        assertEquals(expected.getMonthlyRepayment(), actual.getMonthlyRepayment(), "Monthly repayment for " + expected.getLoanAmount());
+        assertEquals(expected.getTotalRepayment(), actual.getTotalRepayment(), "Total repayment for " + expected.getLoanAmount());
+    }
+
+    private static void assertSameQuotes(final List<Lender> market) throws InsufficientLendersException {
+        final LoanQuoteCalculator bigDecimalCalculator = new LoanQuoteCalculator(new ArrayList<>(market));
+        final LoanQuoteCalculator scaledLongCalculator = new LoanQuoteCalculator(new ArrayList<>(market), RepaymentEngine.SCALED_LONG);
+
+        final int capacity = market.stream().mapToInt(Lender::getAmount).sum();
+
+        for (int loanAmount = 1; loanAmount <= capacity; loanAmount += 7) {
+            assertSameQuote(bigDecimalCalculator.getQuote(loanAmount), scaledLongCalculator.getQuote(loanAmount));
+        }
+    }
+
+    @Test
+    void testDefaultEngine() {
+        assertEquals(RepaymentEngine.BIG_DECIMAL, new LoanQuoteCalculator(createMarket()).getRepaymentEngine());
+    }
+
+    @Test
+    void testScaledLongSameAsBigDecimal() throws InsufficientLendersException {
+        assertSameQuotes(createMarket());
+    }
+
+    @Test
+    void testScaledLongSameAsBigDecimalWithRandomMarket() throws InsufficientLendersException {
+        assertSameQuotes(createRandomMarket(7, 500));
+    }
+
+    @Test
+    void testScaledLong1000Amount() throws InsufficientLendersException {
+        final LoanQuote quote = new LoanQuoteCalculator(createMarket(), RepaymentEngine.SCALED_LONG).getQuote(1000);
+
+        assertEquals("7.0", quote.getRate().toString());
+        assertEquals("30.88", quote.getMonthlyRepayment().toString());
+        assertEquals("1111.65", quote.getTotalRepayment().toString());
+    }
+
+    @Test
+    void testShadowWithoutDivergence() throws InsufficientLendersException {
+        final LoanQuoteCalculator shadowCalculator = new LoanQuoteCalculator(createRandomMarket(7, 500), RepaymentEngine.SHADOW);
+        final LoanQuoteCalculator bigDecimalCalculator = new LoanQuoteCalculator(createRandomMarket(7, 500));
+
+        for (int loanAmount = 1000; loanAmount <= 15000; loanAmount += 100) {
+            assertSameQuote(bigDecimalCalculator.getQuote(loanAmount), shadowCalculator.getQuote(loanAmount));
+        }
+
+        assertEquals(0, shadowCalculator.getShadowDivergenceCount(), "Scaled long engine never diverges from BigDecimal");
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalInt;
+
+import static com.github.hansonhsc.loan.quote.TestMarkets.createMarket;
+import static com.github.hansonhsc.loan.quote.TestMarkets.createRandomMarket;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LoanQuoteCalculatorReverseQuoteTest {
+    private static final int[] TERMS = {1, 36, 360};
+
+    /**
+     * Quotes every multiple of the increment that the calculator can fund, i.e. the loop that the reverse queries replace
+     */
+    private static List<LoanQuote> getQuotes(final LoanQuoteCalculator calculator, final int loanAmountIncrement) {
+        final List<LoanQuote> quotes = new ArrayList<>();
+
+        for (int loanAmount = loanAmountIncrement; ; loanAmount += loanAmountIncrement) {
+            try {
+                quotes.add(calculator.getQuote(loanAmount));
+            } catch (InsufficientLendersException e) {
+                return quotes;
+            }
+        }
+    }
+
+    private static OptionalInt getMaximumLoanAmountForRate(final List<LoanQuote> quotes, final BigDecimal maximumRate) {
+        OptionalInt result = OptionalInt.empty();
+
+        for (final LoanQuote quote : quotes) {
+            if (quote.getRate().compareTo(maximumRate) <= 0) {
+                result = OptionalInt.of(quote.getLoanAmount());
+            }
+        }
+
+        return result;
+    }
+
+    private static OptionalInt getMaximumLoanAmountForMonthlyRepayment(final List<LoanQuote> quotes, final BigDecimal maximumMonthlyRepayment) {
+        OptionalInt result = OptionalInt.empty();
+
+        for (final LoanQuote quote : quotes) {
+            if (quote.getMonthlyRepayment().compareTo(maximumMonthlyRepayment) <= 0) {
+                result = OptionalInt.of(quote.getLoanAmount());
+            }
+        }
+
+        return result;
+    }
+
+    private static void assertSameAsQuotes(final LoanQuoteCalculator calculator, final int loanAmountIncrement, final String message) {
+        final List<LoanQuote> quotes = getQuotes(calculator, loanAmountIncrement);
+
+        for (int rate = 0; rate <= 200; rate++) {
+            final BigDecimal maximumRate = BigDecimal.valueOf(rate, 1);
+
+            assertEquals(getMaximumLoanAmountForRate(quotes, maximumRate), calculator.getMaximumLoanAmountForRate(maximumRate, loanAmountIncrement),
+                    message + ": largest loan amount at " + maximumRate + "%");
+        }
+
+        final BigDecimal largestMonthlyRepayment = quotes.isEmpty() ? BigDecimal.ONE : quotes.get(quotes.size() - 1).getMonthlyRepayment();
+
+        for (int i = 0; i <= 200; i++) {
+            // budgets with fractions of a penny, as well as exactly the monthly repayment of a quote
+            final BigDecimal maximumMonthlyRepayment = i % 10 == 0 && i / 10 < quotes.size()
+                    ? quotes.get(i / 10).getMonthlyRepayment()
+                    : largestMonthlyRepayment.multiply(BigDecimal.valueOf(i, 2)).setScale(3, RoundingMode.DOWN);
+
+            assertEquals(getMaximumLoanAmountForMonthlyRepayment(quotes, maximumMonthlyRepayment),
+                    calculator.getMaximumLoanAmountForMonthlyRepayment(maximumMonthlyRepayment, loanAmountIncrement),
+                    message + ": largest loan amount for " + maximumMonthlyRepayment + " a month");
+        }
+    }
+
+    @Test
+    void testSameAsQuotes() {
+        for (final RepaymentEngine repaymentEngine : RepaymentEngine.values()) {
+            for (final int term : TERMS) {
+                final String message = repaymentEngine + " over " + term;
+
+                assertSameAsQuotes(new LoanQuoteCalculator(createMarket(), repaymentEngine, term), 100, message);
+                assertSameAsQuotes(new LoanQuoteCalculator(createMarket(), repaymentEngine, term), 7, message + " in increments of 7");
+
+                if (repaymentEngine != RepaymentEngine.SHADOW) {
+                    assertSameAsQuotes(new LoanQuoteCalculator(ColumnarLenderBook.of(createRandomMarket(31, 300)), repaymentEngine, term), 100, message + " columnar");
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSubclasses() {
+        final OrderBookLoanQuoteCalculator orderBook = new OrderBookLoanQuoteCalculator(RepaymentEngine.SCALED_LONG);
+
+        for (final Lender lender : createMarket()) {
+            orderBook.add(lender.getName(), lender.getRate(), lender.getAmount());
+        }
+
+        assertSameAsQuotes(orderBook, 100, "Order book");
+        assertSameAsQuotes(new PrecomputedLoanQuoteCalculator(createMarket(), RepaymentEngine.BIG_DECIMAL, 1000, 2000, 100), 100, "Precomputed");
+
+        orderBook.withdraw("Mary");
+
+        assertEquals(OptionalInt.of(2100), orderBook.getMaximumLoanAmountForRate(new BigDecimal("99"), 100), "Order book should be searched in its current state");
+    }
+
+    @Test
+    void testRateWithMoreDecimalPlacesThanScale() {
+        final List<Lender> lenders = createMarket();
+
+        lenders.add(new Lender("Bob", new BigDecimal("0.09000000000001"), 1000));
+
+        // the repayments cannot be accumulated with fixed point arithmetic, so every loan amount tried is quoted
+        assertSameAsQuotes(new LoanQuoteCalculator(lenders), 100, "Rate should fall back to quoting");
+    }
+
+    @Test
+    void testMarket() {
+        final LoanQuoteCalculator calculator = new LoanQuoteCalculator(createMarket());
+
+        assertEquals(OptionalInt.of(1100), calculator.getMaximumLoanAmountForRate(new BigDecimal("7.0"), 100), "1100 is the largest loan at 7.0%");
+        assertEquals(OptionalInt.of(1000), calculator.getMaximumLoanAmountForMonthlyRepayment(new BigDecimal("30.88"), 100), "1000 costs 30.88 a month");
+        assertEquals(OptionalInt.of(900), calculator.getMaximumLoanAmountForMonthlyRepayment(new BigDecimal("30.87"), 100), "1000 costs more than 30.87 a month");
+        assertEquals(OptionalInt.of(2300), calculator.getMaximumLoanAmountForRate(new BigDecimal("1000000000000000000000"), 100), "Every lender should be used for any rate");
+        assertEquals(OptionalInt.of(2330), calculator.getMaximumLoanAmountForMonthlyRepayment(new BigDecimal("1000"), 1), "Every lender should be used for any budget");
+        assertEquals(OptionalInt.empty(), calculator.getMaximumLoanAmountForRate(new BigDecimal("6.8"), 100), "No loan is below the cheapest rate");
+        assertEquals(OptionalInt.empty(), calculator.getMaximumLoanAmountForRate(new BigDecimal("-1000000000000000000000"), 100), "No loan has a negative rate");
+        assertEquals(OptionalInt.empty(), calculator.getMaximumLoanAmountForMonthlyRepayment(BigDecimal.ZERO, 1), "No loan is free");
+        assertEquals(OptionalInt.empty(), calculator.getMaximumLoanAmountForRate(new BigDecimal("99"), 2400), "No loan amount can be funded");
+        assertEquals(OptionalInt.empty(), new LoanQuoteCalculator(new ArrayList<>(Collections.emptyList())).getMaximumLoanAmountForRate(new BigDecimal("99"), 100), "No lenders");
+        assertThrows(IllegalArgumentException.class, () -> calculator.getMaximumLoanAmountForRate(new BigDecimal("7.0"), 0), "Increment should be positive");
+        assertThrows(IllegalArgumentException.class, () -> calculator.getMaximumLoanAmountForMonthlyRepayment(new BigDecimal("30"), -100), "Increment should be positive");
+    }
+}
@@ -0,0 +1,137 @@
+package com.github.hansonhsc.loan.quote;
+
+import com.github.hansonhsc.loan.AmortizedLoan;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import static com.github.hansonhsc.loan.quote.TestMarkets.createMarket;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LoanQuoteCalculatorTermTest {
+    private static final int[] TERMS = {12, 24, 36, 48, 60};
+
+    private static void assertSameQuote(final LoanQuote expected, final LoanQuote quote, final String message) {
+        assertEquals(expected.getLoanAmount(), quote.getLoanAmount(), message + ": loan amount should match");
+        assertEquals(expected.getRate(), quote.getRate(), message + ": rate should match");
+        assertEquals(expected.getMonthlyRepayment(), quote.getMonthlyRepayment(), message + ": monthly repayment should match");
+        assertEquals(expected.getTotalRepayment(), quote.getTotalRepayment(), message + ": total repayment should match");
+        assertEquals(expected.getTerm(), quote.getTerm(), message + ": term should match");
+    }
+
+    @Test
+    public void testDefaultTerm() throws Exception {
+        final LoanQuoteCalculator calculator = new LoanQuoteCalculator(createMarket());
+
+        assertEquals(LoanQuoteCalculator.DEFAULT_TERM, calculator.getTerm(), "Term should default to 36 months");
+        assertEquals(36, calculator.getQuote(1000).getTerm(), "Quote should be for 36 months");
+    }
+
+    @Test
+    public void testTerm() throws Exception {
+        final LoanQuoteCalculator calculator = new LoanQuoteCalculator(createMarket(), RepaymentEngine.BIG_DECIMAL, 12);
+        final LoanQuote quote = calculator.getQuote(1000);
+
+        // 480 at 6.9% and 520 at 7.1%
+        final BigDecimal monthlyRepayment = AmortizedLoan.getMonthlyRepayment(new BigDecimal(480), new BigDecimal("0.069"), 12)
+                .add(AmortizedLoan.getMonthlyRepayment(new BigDecimal(520), new BigDecimal("0.071"), 12));
+
+        assertEquals(12, calculator.getTerm(), "Term should match");
+        assertEquals(12, quote.getTerm(), "Quote should be for 12 months");
+        assertEquals(monthlyRepayment.setScale(2, RoundingMode.HALF_UP), quote.getMonthlyRepayment(), "Monthly repayment should be over 12 months");
+        assertEquals(monthlyRepayment.multiply(new BigDecimal(12)).setScale(2, RoundingMode.UP), quote.getTotalRepayment(), "Total repayment should be over 12 months");
+        assertEquals(new BigDecimal("7.0"), quote.getRate(), "Rate should not depend on the term");
+    }
+
+    @Test
+    public void testQuotesForTerms() throws Exception {
+        for (final RepaymentEngine repaymentEngine : RepaymentEngine.values()) {
+            final LoanQuoteCalculator calculator = new LoanQuoteCalculator(createMarket(), repaymentEngine);
+
+            for (int loanAmount = 1000; loanAmount <= 2300; loanAmount += 100) {
+                final LoanQuote[] quotes = calculator.getQuotesForTerms(loanAmount, TERMS);
+
+                assertEquals(TERMS.length, quotes.length, "There should be a quote for each term");
+
+                for (int i = 0; i < TERMS.length; i++) {
+                    final LoanQuote expected = new LoanQuoteCalculator(createMarket(), repaymentEngine, TERMS[i]).getQuote(loanAmount);
+
+                    assertSameQuote(expected, quotes[i], repaymentEngine + " " + loanAmount + " over " + TERMS[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUncachedRate() throws Exception {
+        final List<Lender> lenders = createMarket();
+
+        // more decimal places than the annuity factors can be cached for, or the other engines can price
+        lenders.add(new Lender("Zoe", new BigDecimal("0.11000000001"), 500));
+
+        final LoanQuote quote = new LoanQuoteCalculator(lenders, RepaymentEngine.BIG_DECIMAL, 24).getQuote(2500);
+        BigDecimal monthlyRepayment = BigDecimal.ZERO;
+
+        for (final Lender lender : createMarket()) {
+            monthlyRepayment = monthlyRepayment.add(AmortizedLoan.getMonthlyRepayment(new BigDecimal(lender.getAmount()), lender.getRate(), 24));
+        }
+
+        monthlyRepayment = monthlyRepayment.add(AmortizedLoan.getMonthlyRepayment(new BigDecimal(170), new BigDecimal("0.11000000001"), 24));
+
+        assertEquals(monthlyRepayment.setScale(2, RoundingMode.HALF_UP), quote.getMonthlyRepayment(), "Monthly repayment should match");
+    }
+
+    @Test
+    public void testQuotesForTermsFromOtherTerm() throws Exception {
+        final LoanQuoteCalculator calculator = new LoanQuoteCalculator(createMarket(), RepaymentEngine.SCALED_LONG, 60);
+        final LoanQuote[] quotes = calculator.getQuotesForTerms(1500, 36, 60, 36);
+
+        assertSameQuote(new LoanQuoteCalculator(createMarket(), RepaymentEngine.SCALED_LONG).getQuote(1500), quotes[0], "36 months");
+        assertSameQuote(calculator.getQuote(1500), quotes[1], "60 months");
+        assertSameQuote(quotes[0], quotes[2], "Repeated term");
+        assertEquals(0, calculator.getQuotesForTerms(1500).length, "No terms should have no quotes");
+    }
+
+    @Test
+    public void testQuotesForTermsWithInsufficientLenders() {
+        final LoanQuoteCalculator calculator = new LoanQuoteCalculator(createMarket());
+
+        assertThrows(InsufficientLendersException.class, () -> calculator.getQuotesForTerms(15000, TERMS), "Quote for 15000 should be rejected");
+    }
+
+    @Test
+    public void testInvalidTerm() {
+        assertThrows(IllegalArgumentException.class, () -> new LoanQuoteCalculator(createMarket(), RepaymentEngine.BIG_DECIMAL, 0), "Term of 0 should throw");
+        assertThrows(IllegalArgumentException.class, () -> new LoanQuoteCalculator(createMarket(), RepaymentEngine.BIG_DECIMAL, LoanQuoteCalculator.MAXIMUM_TERM + 1), "Term over the maximum should throw");
+        assertThrows(IllegalArgumentException.class, () -> new LoanQuoteCalculator(ColumnarLenderBook.of(createMarket()), RepaymentEngine.BIG_DECIMAL, -1), "Negative term should throw");
+
+        final LoanQuoteCalculator calculator = new LoanQuoteCalculator(createMarket());
+
+        assertThrows(IllegalArgumentException.class, () -> calculator.getQuotesForTerms(1000, 36, 0), "Term of 0 should throw");
+    }
+
+    @Test
+    public void testColumnarTerm() throws Exception {
+        final LoanQuoteCalculator calculator = new LoanQuoteCalculator(ColumnarLenderBook.of(createMarket()), RepaymentEngine.SCALED_LONG, 24);
+
+        assertSameQuote(new LoanQuoteCalculator(createMarket(), RepaymentEngine.SCALED_LONG, 24).getQuote(2000), calculator.getQuote(2000), "Columnar");
+    }
+
+    @Test
+    public void testAnnuityFactorCache() {
+        final AnnuityFactorCache cache = AnnuityFactorCache.forTerm(48);
+
+        assertSame(cache, AnnuityFactorCache.forTerm(48), "Caches should be shared by term");
+        assertEquals(48, cache.getTerm(), "Term should match");
+        assertSame(cache.get(new BigDecimal("0.069")), cache.get(new BigDecimal("0.0690")), "Factors should be cached by the value of the rate");
+        assertNotNull(cache.get(new BigDecimal("0.0690000000000")), "Rates with trailing zeros should be cached");
+        assertNull(cache.get(new BigDecimal("0.06900000001")), "Rates with too many decimal places should not be cached");
+        assertThrows(IllegalArgumentException.class, () -> cache.get(new BigDecimal("-0.01")), "Negative rate should throw");
+    }
+}
@@ -0,0 +1,273 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.hansonhsc.loan.quote.LoanQuoteApplicationCsvTest.MARKET_CSV;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LoanQuoteServerTest {
+    private ExecutorService executor;
+
+    private LoanQuoteServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        executor = LoanQuoteServer.createExecutor(LoanQuoteServer.FIXED_EXECUTOR, 2);
+        server = new LoanQuoteServer(LoanQuoteApplication.createLoanQuoteCalculator(MARKET_CSV), new InetSocketAddress("localhost", 0), executor);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * A response status and body
+     */
+    private static final class Response {
+        private final int status;
+
+        private final String body;
+
+        private Response(final int status, final String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private Response request(final String method, final String pathAndQuery) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + pathAndQuery).openConnection();
+        connection.setRequestMethod(method);
+
+        final int status = connection.getResponseCode();
+        assertEquals("application/json; charset=utf-8", connection.getContentType(), "Response should be JSON");
+
+        try (InputStream input = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            final ByteArrayOutputStream body = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[1024];
+
+            for (int read; (read = input.read(buffer)) >= 0; ) {
+                body.write(buffer, 0, read);
+            }
+
+            return new Response(status, new String(body.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testQuote() throws IOException {
+        final Response response = request("GET", "/quote?amount=1000");
+
+        assertEquals(200, response.status, response.body);
+        assertEquals("{\"requestedAmount\":1000,\"rate\":7.0,\"monthlyRepayment\":30.88,\"totalRepayment\":1111.65}", response.body, "Quote should match the command line application");
+    }
+
+    @Test
+    void testInvalidLoanAmount() throws IOException {
+        final Response notANumber = request("GET", "/quote?amount=NOT_A_NUMBER");
+
+        assertEquals(400, notANumber.status, notANumber.body);
+        assertEquals("{\"error\":\"Invalid loan amount format, must be an integer: NOT_A_NUMBER\"}", notANumber.body, "Error should be JSON");
+
+        assertEquals(400, request("GET", "/quote?amount=1050").status, "Loan amount should be validated like the command line application");
+        assertEquals(400, request("GET", "/quote?amount=%2B1000").status, "Leading plus should be rejected");
+        assertEquals(400, request("GET", "/quote").status, "Missing loan amount should be rejected");
+    }
+
+    @Test
+    void testInsufficientLenders() throws IOException {
+        final Response response = request("GET", "/quote?amount=15000");
+
+        assertEquals(422, response.status, response.body);
+        assertEquals("{\"error\":\"Insufficient offers from lenders to satisfy the loan. Try a smaller loan amount.\"}", response.body, "Error should be JSON");
+    }
+
+    @Test
+    void testCalculatorFailure() throws IOException {
+        server.stop(0);
+
+        // a negative rate cannot be priced, so every quote throws an IllegalArgumentException
+        server = new LoanQuoteServer(new LoanQuoteCalculator(new ArrayList<>(Collections.singletonList(new Lender("Bob", new BigDecimal("-0.01"), 2000)))),
+                new InetSocketAddress("localhost", 0), executor);
+        server.start();
+
+        final Response response = request("GET", "/quote?amount=1000");
+
+        assertEquals(500, response.status, response.body);
+        assertEquals("{\"error\":\"Unable to quote loan amount 1000: Annual interest rate must be non-negative\"}", response.body, "Error should be JSON");
+        assertEquals(500, request("GET", "/quote?amount=1000").status, "Server should keep answering after a failure");
+    }
+
+    @Test
+    void testNoDelayOnlySetByServe() throws Exception {
+        final String noDelay = System.clearProperty("sun.net.httpserver.nodelay");
+
+        try {
+            new LoanQuoteServer(LoanQuoteApplication.createLoanQuoteCalculator(MARKET_CSV), new InetSocketAddress("localhost", 0), executor).stop(0);
+
+            assertNull(System.getProperty("sun.net.httpserver.nodelay"), "Creating a server should not change other servers in the JVM");
+
+            LoanQuoteServer.enableTcpNoDelay();
+
+            assertEquals("true", System.getProperty("sun.net.httpserver.nodelay"), "Serve should disable Nagle's algorithm");
+        } finally {
+            if (noDelay == null) {
+                System.clearProperty("sun.net.httpserver.nodelay");
+            } else {
+                System.setProperty("sun.net.httpserver.nodelay", noDelay);
+            }
+        }
+    }
+
+    @Test
+    void testInvalidRequests() throws IOException {
+        assertEquals(405, request("POST", "/quote?amount=1000").status, "Only GET should be allowed");
+        assertEquals(404, request("GET", "/quotes?amount=1000").status, "Only the quote path should be served");
+    }
+
+    @Test
+    void testConcurrentRequests() throws Exception {
+        final ExecutorService clients = Executors.newFixedThreadPool(8);
+
+        try {
+            final List<Future<Response>> responses = new ArrayList<>();
+
+            for (int i = 0; i < 200; i++) {
+                responses.add(clients.submit(() -> request("GET", "/quote?amount=1000")));
+            }
+
+            for (final Future<Response> response : responses) {
+                assertEquals(200, response.get(1, TimeUnit.MINUTES).status, "Every request should be answered");
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    void testGetQueryParameter() {
+        assertEquals("1000", LoanQuoteServer.getQueryParameter("amount=1000", "amount"));
+        assertEquals("1000", LoanQuoteServer.getQueryParameter("other=1&amount=1000&amount=2000", "amount"));
+        assertEquals("+1000", LoanQuoteServer.getQueryParameter("amount=%2B1000", "amount"));
+        assertEquals("", LoanQuoteServer.getQueryParameter("amount", "amount"));
+        assertEquals("%ZZ", LoanQuoteServer.getQueryParameter("amount=%ZZ", "amount"), "Malformed escape should be left to the loan amount validation");
+        assertNull(LoanQuoteServer.getQueryParameter("amounts=1000", "amount"));
+        assertNull(LoanQuoteServer.getQueryParameter(null, "amount"));
+    }
+
+    @Test
+    void testCreateExecutor() throws LoanQuoteParameterValidationException {
+        assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteServer.createExecutor("unknown", 1));
+        assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteServer.createExecutor(LoanQuoteServer.FIXED_EXECUTOR, 0));
+
+        boolean virtualThreads;
+
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            virtualThreads = true;
+        } catch (NoSuchMethodException e) {
+            virtualThreads = false;
+        }
+
+        if (virtualThreads) {
+            LoanQuoteServer.createExecutor(LoanQuoteServer.VIRTUAL_EXECUTOR, 1).shutdown();
+        } else {
+            assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteServer.createExecutor(LoanQuoteServer.VIRTUAL_EXECUTOR, 1));
+        }
+    }
+
+    @Test
+    void testStartServer() throws Exception {
+        final LoanQuoteServer started = LoanQuoteApplication.startServer(new String[]{"serve", MARKET_CSV, "--port", "0", "--threads", "1"});
+
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + started.getPort() + "/quote?amount=1000").openConnection();
+
+            assertEquals(200, connection.getResponseCode(), "Started server should answer quotes");
+        } finally {
+            started.stop(0);
+        }
+    }
+
+    @Test
+    void testStartServerWithReload() throws Exception {
+        final Path marketFile = Files.createTempFile("market", ".csv");
+
+        try {
+            Files.copy(Paths.get(MARKET_CSV), marketFile, StandardCopyOption.REPLACE_EXISTING);
+
+            final LoanQuoteServer started = LoanQuoteApplication.startServer(new String[]{"serve", marketFile.toString(), "--port", "0", "--threads", "1", "--reload", "poll"});
+
+            try {
+                final HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + started.getPort() + "/quote?amount=1000").openConnection();
+
+                assertEquals(200, connection.getResponseCode(), "Started server should answer quotes from the market file");
+            } finally {
+                started.stop(0);
+            }
+        } finally {
+            Files.delete(marketFile);
+        }
+    }
+
+    @Test
+    void testStartServerWithDuplicateLenders() throws Exception {
+        final Path marketFile = Files.createTempFile("market", ".csv");
+
+        try {
+            Files.write(marketFile, "Lender,Rate,Available\nBob,0.075,640\nJane,0.069,480\nBob,0.071,520\n".getBytes(StandardCharsets.UTF_8));
+
+            // the one-off quote accepts both offers of Bob, but a market that is reloaded has one offer per lender
+            assertEquals(3, LoanQuoteApplication.createLoanQuoteCalculator(marketFile.toString()).getLenders().size(), "Quote should use every offer");
+
+            for (final String reload : new String[]{"none", "watch", "poll"}) {
+                final LoanQuoteParameterValidationException e = assertThrows(LoanQuoteParameterValidationException.class,
+                        () -> LoanQuoteApplication.startServer(new String[]{"serve", marketFile.toString(), "--port", "0", "--threads", "1", "--reload", reload}));
+
+                assertEquals("Unable to parse invalid market file: Lender has more than one offer: Bob", e.getMessage(),
+                        "Duplicate lenders should be rejected in the same way with reload " + reload);
+            }
+        } finally {
+            Files.delete(marketFile);
+        }
+    }
+
+    @Test
+    void testStartServerInvalidArguments() {
+        assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.startServer(new String[]{"serve"}));
+        assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.startServer(new String[]{"serve", MARKET_CSV, "--port"}));
+        assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.startServer(new String[]{"serve", MARKET_CSV, "--port", "http"}));
+        assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.startServer(new String[]{"serve", MARKET_CSV, "--port", "65536"}));
+        assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.startServer(new String[]{"serve", MARKET_CSV, "--colour", "red"}));
+        assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.startServer(new String[]{"serve", MARKET_CSV, "--reload", "always"}));
+        assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.startServer(new String[]{"serve", "invalid", "--reload", "watch"}));
+        assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.startServer(new String[]{"serve", "invalid", "--port", "0"}));
+        assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.startServer(new String[]{"serve", MARKET_CSV, "--port", String.valueOf(server.getPort())}));
+    }
+}
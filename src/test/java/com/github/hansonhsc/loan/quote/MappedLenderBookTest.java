@@ -0,0 +1,212 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.github.hansonhsc.loan.quote.TestMarkets.getLenders;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedLenderBookTest {
+    private Path path;
+
+    @BeforeEach
+    void createPath() throws IOException {
+        path = Files.createTempFile("market", ".snapshot");
+    }
+
+    @AfterEach
+    void deletePath() throws IOException {
+        Files.delete(path);
+    }
+
+    private static List<Lender> createRandomLenders(final int size, final int minimumAmount) {
+        final Random random = new Random(size);
+        final List<Lender> lenders = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            // repeated names and rates with various scales
+            lenders.add(new Lender("Lender" + random.nextInt(size / 2 + 1), BigDecimal.valueOf(1 + random.nextInt(50), 2 + random.nextInt(3)), minimumAmount + random.nextInt(100)));
+        }
+
+        return lenders;
+    }
+
+    private MappedLenderBook writeAndOpen(final List<Lender> lenders) throws IOException, MarketParseException {
+        MappedLenderBook.write(ColumnarLenderBook.of(lenders), path);
+
+        return MappedLenderBook.open(path);
+    }
+
+    @Test
+    void testRoundTrip() throws IOException, MarketParseException {
+        final List<Lender> lenders = createRandomLenders(1000, 0);
+
+        final ColumnarLenderBook expected = ColumnarLenderBook.of(lenders);
+        expected.sort();
+
+        final MappedLenderBook book = writeAndOpen(lenders);
+
+        assertEquals(expected.size(), book.size(), "Snapshot should contain every lender");
+        assertEquals(expected.getNameCount(), book.getNameCount(), "Snapshot should contain every distinct name once");
+        assertEquals(getLenders(expected), getLenders(book), "Snapshot should contain the sorted lenders");
+
+        for (int i = 0; i < book.size(); i++) {
+            assertEquals(expected.getRate(i).scale(), book.getRate(i).scale(), "Rate should keep its scale");
+            assertEquals(expected.getScaledRate(i), book.getScaledRate(i), "Scaled rate should be unchanged");
+        }
+    }
+
+    @Test
+    void testCumulativeAmounts() throws IOException, MarketParseException {
+        // negative amounts must not decrease the cumulative amounts
+        final MappedLenderBook book = writeAndOpen(createRandomLenders(1000, -20));
+
+        final ColumnarLenderBook columnarBook = ColumnarLenderBook.of(getLenders(book));
+        final CumulativeLenderBook expected = new CumulativeLenderBook(columnarBook);
+
+        for (int i = 0; i < book.size(); i++) {
+            assertEquals(expected.getCumulativeAmount(i), book.getCumulativeAmount(i), "Cumulative amount should match at index " + i);
+        }
+    }
+
+    @Test
+    void testNames() throws IOException, MarketParseException {
+        final MappedLenderBook book = writeAndOpen(Arrays.asList(
+                new Lender("Zoë", new BigDecimal("0.07"), 100),
+                new Lender("", new BigDecimal("0.08"), 100),
+                new Lender(null, new BigDecimal("0.09"), 100),
+                new Lender("Zoë", new BigDecimal("0.1"), 100)
+        ));
+
+        assertEquals("Zoë", book.getName(0), "Non-ASCII names should be preserved");
+        assertEquals("", book.getName(1), "Empty names should be preserved");
+        assertEquals(null, book.getName(2), "Missing names should be preserved");
+        assertEquals("Zoë", book.getName(3), "Repeated names should be preserved");
+        assertEquals(2, book.getNameCount(), "Repeated names should only be stored once");
+    }
+
+    @Test
+    void testEmpty() throws IOException, MarketParseException {
+        final MappedLenderBook book = writeAndOpen(new ArrayList<>());
+
+        assertEquals(0, book.size(), "Empty book should have no lenders");
+        assertThrows(InsufficientLendersException.class, () -> new LoanQuoteCalculator(book, RepaymentEngine.BIG_DECIMAL).getQuote(1000));
+    }
+
+    @Test
+    void testIndexOutOfBounds() throws IOException, MarketParseException {
+        final MappedLenderBook book = writeAndOpen(createRandomLenders(10, 0));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> book.getAmount(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> book.getName(10));
+        assertThrows(IndexOutOfBoundsException.class, () -> book.getRate(10));
+        assertThrows(IndexOutOfBoundsException.class, () -> book.getRate(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> book.getCumulativeAmount(10));
+    }
+
+    @Test
+    void testQuotes() throws IOException, MarketParseException, InsufficientLendersException {
+        final List<Lender> lenders = createRandomLenders(1000, 0);
+
+        final MappedLenderBook book = writeAndOpen(lenders);
+
+        for (final RepaymentEngine repaymentEngine : RepaymentEngine.values()) {
+            final LoanQuoteCalculator expected = new LoanQuoteCalculator(new ArrayList<>(lenders), repaymentEngine);
+            final LoanQuoteCalculator calculator = new LoanQuoteCalculator(book, repaymentEngine);
+
+            for (int loanAmount = 1000; loanAmount <= 15000; loanAmount += 100) {
+                final LoanQuote expectedQuote = expected.getQuote(loanAmount);
+                final LoanQuote quote = calculator.getQuote(loanAmount);
+
+                assertEquals(expectedQuote.getRate(), quote.getRate(), "Rate should match for " + loanAmount + " with " + repaymentEngine);
+                assertEquals(expectedQuote.getMonthlyRepayment(), quote.getMonthlyRepayment(), "Monthly repayment should match for " + loanAmount + " with " + repaymentEngine);
+                assertEquals(expectedQuote.getTotalRepayment(), quote.getTotalRepayment(), "Total repayment should match for " + loanAmount + " with " + repaymentEngine);
+                assertEquals(expected.getLendersForLoan(loanAmount), calculator.getLendersForLoan(loanAmount), "Lenders should match for " + loanAmount + " with " + repaymentEngine);
+            }
+        }
+    }
+
+    @Test
+    void testIsSnapshot() throws IOException {
+        MappedLenderBook.write(ColumnarLenderBook.of(createRandomLenders(10, 0)), path);
+
+        assertTrue(MappedLenderBook.isSnapshot(path), "Snapshot should be recognised");
+
+        Files.write(path, "Lender,Rate,Available\n".getBytes(StandardCharsets.UTF_8));
+
+        assertFalse(MappedLenderBook.isSnapshot(path), "Market CSV file should not be recognised as a snapshot");
+
+        Files.write(path, new byte[3]);
+
+        assertFalse(MappedLenderBook.isSnapshot(path), "File smaller than the magic number should not be recognised as a snapshot");
+    }
+
+    private void writeInt(final int position, final int value) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write((ByteBuffer) ByteBuffer.allocate(Integer.BYTES).putInt(value).flip(), position);
+        }
+    }
+
+    @Test
+    void testInvalidMagic() throws IOException {
+        MappedLenderBook.write(ColumnarLenderBook.of(createRandomLenders(10, 0)), path);
+        writeInt(0, 0);
+
+        final MarketParseException e = assertThrows(MarketParseException.class, () -> MappedLenderBook.open(path));
+        assertEquals("Invalid market snapshot: the file is not a market snapshot", e.getMessage(), "Error message should be as expected");
+    }
+
+    @Test
+    void testInvalidVersion() throws IOException {
+        MappedLenderBook.write(ColumnarLenderBook.of(createRandomLenders(10, 0)), path);
+        writeInt(Integer.BYTES, MappedLenderBook.VERSION + 1);
+
+        final MarketParseException e = assertThrows(MarketParseException.class, () -> MappedLenderBook.open(path));
+        assertEquals("Invalid market snapshot: unsupported version 2, expected 1", e.getMessage(), "Error message should be as expected");
+    }
+
+    @Test
+    void testTruncated() throws IOException {
+        MappedLenderBook.write(ColumnarLenderBook.of(createRandomLenders(10, 0)), path);
+
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        final MarketParseException e = assertThrows(MarketParseException.class, () -> MappedLenderBook.open(path));
+        assertEquals("Invalid market snapshot: the header does not match the size of the file", e.getMessage(), "Error message should be as expected");
+
+        Files.write(path, new byte[16]);
+
+        assertThrows(MarketParseException.class, () -> MappedLenderBook.open(path));
+    }
+
+    @Test
+    void testApplication() throws IOException, LoanQuoteParameterValidationException, InsufficientLendersException {
+        final List<Lender> lenders = createRandomLenders(1000, 0);
+
+        MappedLenderBook.write(ColumnarLenderBook.of(lenders), path);
+
+        final LoanQuoteCalculator calculator = LoanQuoteApplication.createLoanQuoteCalculator(path.toString());
+
+        assertEquals(new LoanQuoteCalculator(lenders).getQuote(5000).getMonthlyRepayment(), calculator.getQuote(5000).getMonthlyRepayment(),
+                "Application should quote from a snapshot");
+    }
+}
@@ -0,0 +1,244 @@
+package com.github.hansonhsc.loan.quote;
+
+import com.opencsv.bean.CsvToBeanBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.github.hansonhsc.loan.quote.TestMarkets.createMarket;
+import static com.github.hansonhsc.loan.quote.TestMarkets.getLenders;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MarketCsvParserTest {
+    /**
+     * A channel that returns at most one byte per read, so that every record spans several reads
+     */
+    private static final class SingleByteChannel implements ReadableByteChannel {
+        private final ByteBuffer bytes;
+
+        SingleByteChannel(final String content) {
+            bytes = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int read(final ByteBuffer destination) {
+            if (!bytes.hasRemaining()) {
+                return -1;
+            }
+
+            destination.put(bytes.get());
+
+            return 1;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static List<Lender> parse(final String content) throws IOException, MarketParseException {
+        final List<Lender> lenders = getLenders(MarketCsvParser.parse(new SingleByteChannel(content)));
+
+        // parsing with a large buffer gives the same result
+        assertEquals(lenders, getLenders(MarketCsvParser.parse(Channels.newChannel(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))))));
+
+        return lenders;
+    }
+
+    private static void assertSameLenders(final List<Lender> expected, final List<Lender> actual) {
+        assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getName(), actual.get(i).getName(), "Name at " + i);
+            assertEquals(expected.get(i).getRate(), actual.get(i).getRate(), "Rate at " + i);
+            assertEquals(expected.get(i).getAmount(), actual.get(i).getAmount(), "Amount at " + i);
+        }
+    }
+
+    private static MarketParseException assertParseError(final String content, final long lineNumber) {
+        final MarketParseException e = assertThrows(MarketParseException.class, () -> parse(content));
+
+        assertEquals(lineNumber, e.getLineNumber(), "Line number of " + e.getMessage());
+
+        return e;
+    }
+
+    @Test
+    void testMarketCsv() throws IOException, MarketParseException {
+        assertSameLenders(
+                createMarket(),
+                getLenders(MarketCsvParser.parse(Paths.get(LoanQuoteApplicationCsvTest.MARKET_CSV)))
+        );
+    }
+
+    @Test
+    void testWrongOrderHeaders() throws IOException, MarketParseException {
+        assertEquals(
+                getLenders(MarketCsvParser.parse(Paths.get(LoanQuoteApplicationCsvTest.MARKET_CSV))),
+                getLenders(MarketCsvParser.parse(Paths.get("src/test/resources/wrong_order_headers.csv")))
+        );
+    }
+
+    @Test
+    void testHeaders() throws IOException, MarketParseException {
+        assertSameLenders(
+                Arrays.asList(new Lender("Bob", new BigDecimal("0.075"), 640)),
+                parse("\uFEFFextra, available ,LENDER,rate\nignored,640,Bob,0.075\n")
+        );
+    }
+
+    @Test
+    void testInvalidHeaders() {
+        for (final String path : new String[]{"missing_column.csv", "with_no_headers.csv", "colons.csv"}) {
+            final MarketParseException e = assertThrows(MarketParseException.class, () -> MarketCsvParser.parse(Paths.get("src/test/resources/" + path)));
+
+            assertEquals(MarketCsvParser.HEADER_ERROR_MESSAGE, e.getMessage());
+        }
+
+        assertEquals(
+                "Header is missing required fields [Rate]. The list of headers encountered is [Lender, Available].",
+                assertParseError("Lender,Available\nBob,640\n", 1).getCause().getMessage()
+        );
+
+        assertParseError("", 1);
+    }
+
+    @Test
+    void testQuotedFields() throws IOException, MarketParseException {
+        assertSameLenders(
+                Arrays.asList(
+                        new Lender("Bob", new BigDecimal("0.075"), 640),
+                        new Lender("Doe, Jane", new BigDecimal("0.069"), 480),
+                        new Lender("Fred \"Freddie\" Smith", new BigDecimal("0.071"), 520),
+                        new Lender("Mary\nSmith", new BigDecimal("0.104"), 170),
+                        new Lender("John \"Johnny\" \\ Smith", new BigDecimal("0.081"), 320),
+                        new Lender("Dave\\n", new BigDecimal("0.074"), 140)
+                ),
+                parse("\"Lender\",\"Rate\",\"Available\"\n"
+                        + "Bob,0.075,640\n"
+                        + "\"Doe, Jane\",0.069,480\n"
+                        + "\"Fred \"\"Freddie\"\" Smith\",0.071,520\n"
+                        + "\"Mary\nSmith\",\"0.104\",170\n"
+                        + "\"John \\\"Johnny\\\" \\\\ Smith\",0.081,320\n"
+                        + "Dave\\n,0.074,140")
+        );
+    }
+
+    @Test
+    void testLineEndings() throws IOException, MarketParseException {
+        assertSameLenders(
+                Arrays.asList(
+                        new Lender("Bob", new BigDecimal("0.075"), 640),
+                        new Lender("Jane", new BigDecimal("0.069"), 480)
+                ),
+                parse("Lender,Rate,Available\r\nBob,0.075,640\r\nJane,0.069,480\r\n")
+        );
+    }
+
+    @Test
+    void testNumberFormats() throws IOException, MarketParseException {
+        assertSameLenders(
+                Arrays.asList(
+                        new Lender("Bob", new BigDecimal("0.075"), 640),
+                        new Lender("Jane", new BigDecimal("1e-2"), 5),
+                        new Lender("Fred", new BigDecimal("-0.0710000000"), -520),
+                        new Lender("Mary", new BigDecimal(".1"), 2147483647),
+                        new Lender("John", new BigDecimal("1."), -2147483648),
+                        new Lender(" Dave ", new BigDecimal("100000000"), 0)
+                ),
+                parse("Lender,Rate,Available\n"
+                        + "Bob, 0.075 ,\t640 \n"
+                        + "Jane,1e-2,+5\n"
+                        + "Fred,-0.0710000000,-520\n"
+                        + "Mary,+.1,2147483647\n"
+                        + "John,1.,-2147483648\n"
+                        + " Dave ,100000000,0\n")
+        );
+    }
+
+    @Test
+    void testInvalidRows() {
+        assertParseError("Lender,Rate,Available\nBob,0.075,640\nJane,0.069\n", 3);
+        assertParseError("Lender,Rate,Available\nBob,0.075,640,1\n", 2);
+        assertParseError("Lender,Rate,Available\n\nBob,0.075,640\n", 2);
+        assertParseError("Lender,Rate,Available\n,0.075,640\n", 2);
+        assertParseError("Lender,Rate,Available\nBob, ,640\n", 2);
+        assertParseError("Lender,Rate,Available\nBob,0.075,\n", 2);
+        assertParseError("Lender,Rate,Available\nBob,abc,640\n", 2);
+        assertParseError("Lender,Rate,Available\nBob,0.07.5,640\n", 2);
+        assertParseError("Lender,Rate,Available\nBob,0.075,64x\n", 2);
+        assertParseError("Lender,Rate,Available\nBob,0.075,-\n", 2);
+        assertParseError("Lender,Rate,Available\nBob,0.075,2147483648\n", 2);
+        assertParseError("Lender,Rate,Available\nBob,0.075,99999999999999999999\n", 2);
+
+        // too many decimal places to be represented by the book
+        assertParseError("Lender,Rate,Available\nBob,0.00000000001,640\n", 2);
+        assertParseError("Lender,Rate,Available\nBob,1E+9,640\n", 2);
+
+        // the line number is where the record starts
+        assertParseError("Lender,Rate,Available\n\"Bob\nSmith\",0.075,640\n\"Jane\nDoe\",0.069\n", 4);
+        assertParseError("Lender,Rate,Available\n\"Bob,0.075,640\n", 2);
+    }
+
+    @Test
+    void testErrorMessages() {
+        assertEquals(
+                "Error parsing CSV line: 2. Field 'name' is mandatory but no value was provided.",
+                assertParseError("Lender,Rate,Available\n,0.075,640\n", 2).getMessage()
+        );
+
+        assertEquals(
+                "Error parsing CSV line: 2. Conversion of 64x to int failed.",
+                assertParseError("Lender,Rate,Available\nBob,0.075,64x\n", 2).getMessage()
+        );
+    }
+
+    @Test
+    void testSameAsOpenCsv() throws IOException, MarketParseException {
+        final Random random = new Random(17);
+        final StringBuilder csv = new StringBuilder("Available,Lender,Rate\n");
+
+        for (int i = 0; i < 10000; i++) {
+            csv.append(random.nextInt(100000)).append(',');
+
+            switch (random.nextInt(3)) {
+                case 0:
+                    csv.append("Lender").append(i);
+                    break;
+                case 1:
+                    csv.append("\"Lender, ").append(i).append('"');
+                    break;
+                default:
+                    csv.append("\"Lender \"\"").append(i).append("\"\"\"");
+            }
+
+            csv.append(',').append(BigDecimal.valueOf(random.nextInt(1000000), random.nextInt(11))).append('\n');
+        }
+
+        //noinspection unchecked
+        final List<Lender> expected = new CsvToBeanBuilder(new StringReader(csv.toString()))
+                .withType(Lender.class)
+                .withThrowExceptions(true)
+                .build()
+                .parse();
+
+        assertSameLenders(expected, parse(csv.toString()));
+    }
+}
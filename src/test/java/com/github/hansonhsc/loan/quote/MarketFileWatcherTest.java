@@ -0,0 +1,218 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MarketFileWatcherTest {
+    private static final List<String> MARKET = Arrays.asList(
+            "Lender,Rate,Available",
+            "Bob,0.075,640",
+            "Jane,0.069,480",
+            "Fred,0.071,520"
+    );
+
+    private Path directory;
+
+    private Path marketFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("market");
+        marketFile = directory.resolve("market.csv");
+
+        Files.write(marketFile, MARKET, StandardCharsets.UTF_8);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Rewrites the market file by writing a new file beside it and renaming the new file over it
+     */
+    private void replaceMarketFile(final List<String> lines) throws IOException {
+        final Path newFile = directory.resolve("market.csv.tmp");
+
+        Files.write(newFile, lines, StandardCharsets.UTF_8);
+        Files.move(newFile, marketFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Rewrites the market file in place, moving its modification time on so that the rewrite is seen even on file
+     * systems with a coarse modification time
+     */
+    private void rewriteMarketFile(final List<String> lines) throws IOException {
+        final FileTime lastModifiedTime = Files.getLastModifiedTime(marketFile);
+
+        Files.write(marketFile, lines, StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(marketFile, FileTime.fromMillis(lastModifiedTime.toMillis() + 2000));
+    }
+
+    @Test
+    void testLoad() throws Exception {
+        final VersionedMarket market = new VersionedMarket();
+
+        try (MarketFileWatcher watcher = new MarketFileWatcher(marketFile, market, false, 1000, 0)) {
+            final MarketChanges changes = watcher.load();
+
+            assertEquals(3, changes.getAddedCount(), "Every lender should be added");
+            assertEquals(1, watcher.getLoadCount(), "File should be loaded once");
+            assertEquals(3, market.getCurrentVersion().getLenders().size(), "Market should have every lender");
+            assertFalse(watcher.check(), "Loaded file should not be loaded again");
+        }
+    }
+
+    @Test
+    void testReplacedFile() throws Exception {
+        final VersionedMarket market = new VersionedMarket();
+
+        try (MarketFileWatcher watcher = new MarketFileWatcher(marketFile, market, false, 1000, 0)) {
+            watcher.load();
+
+            replaceMarketFile(Arrays.asList(
+                    "Lender,Rate,Available",
+                    "Bob,0.075,640",
+                    "Jane,0.065,480",
+                    "Angela,0.071,60"
+            ));
+
+            final MarketVersion version = market.getCurrentVersion();
+
+            assertTrue(watcher.check(), "Replaced file should be loaded");
+            assertEquals(version.getVersion() + 1, market.getCurrentVersion().getVersion(), "A single version should be published");
+            assertEquals(Arrays.asList(
+                    new Lender("Jane", new BigDecimal("0.065"), 480),
+                    new Lender("Angela", new BigDecimal("0.071"), 60),
+                    new Lender("Bob", new BigDecimal("0.075"), 640)
+            ), new ArrayList<>(market.getCurrentVersion().getLenders()), "Market should have the lenders of the new file");
+            assertEquals(3, version.getLenders().size(), "Previous version should keep its lenders");
+        }
+    }
+
+    @Test
+    void testQuietPeriod() throws Exception {
+        final VersionedMarket market = new VersionedMarket();
+
+        try (MarketFileWatcher watcher = new MarketFileWatcher(marketFile, market, false, 1000, 100)) {
+            watcher.load();
+
+            rewriteMarketFile(Arrays.asList("Lender,Rate,Available", "Bob,0.075,640"));
+
+            final long start = System.nanoTime();
+            final boolean loaded = watcher.check();
+
+            if (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100)) {
+                assertFalse(loaded, "Changed file should not be loaded until it is quiet");
+            }
+
+            Thread.sleep(150);
+
+            assertTrue(watcher.check(), "Quiet file should be loaded");
+            assertEquals(1, market.getCurrentVersion().getLenders().size(), "Market should have the lenders of the new file");
+        }
+    }
+
+    @Test
+    void testInvalidFile() throws Exception {
+        final VersionedMarket market = new VersionedMarket();
+
+        try (MarketFileWatcher watcher = new MarketFileWatcher(marketFile, market, false, 1000, 0)) {
+            watcher.load();
+
+            final MarketVersion version = market.getCurrentVersion();
+
+            rewriteMarketFile(Arrays.asList("Lender,Rate,Available", "Bob,0.075,640", "Jane,invalid,480"));
+
+            assertTrue(watcher.check(), "Changed file should be loaded");
+            assertSame(version, market.getCurrentVersion(), "Invalid file should not change the market");
+            assertTrue(watcher.getLastFailure() instanceof MarketParseException, "Failure should be reported");
+            assertFalse(watcher.check(), "Invalid file should not be loaded again until it changes");
+
+            rewriteMarketFile(Arrays.asList("Lender,Rate,Available", "Bob,0.075,640", "Bob,0.069,480"));
+
+            assertTrue(watcher.check(), "Changed file should be loaded");
+            assertSame(version, market.getCurrentVersion(), "Duplicate lenders should not change the market");
+            assertTrue(watcher.getLastFailure() instanceof IllegalArgumentException, "Failure should be reported");
+
+            replaceMarketFile(MARKET.subList(0, 2));
+
+            assertTrue(watcher.check(), "Fixed file should be loaded");
+            assertNull(watcher.getLastFailure(), "Failure should be cleared");
+            assertEquals(1, market.getCurrentVersion().getLenders().size(), "Market should have the lenders of the fixed file");
+        }
+    }
+
+    @Test
+    void testMissingFile() throws Exception {
+        final VersionedMarket market = new VersionedMarket();
+
+        try (MarketFileWatcher watcher = new MarketFileWatcher(marketFile, market, false, 1000, 0)) {
+            watcher.load();
+
+            final MarketVersion version = market.getCurrentVersion();
+
+            Files.delete(marketFile);
+
+            assertFalse(watcher.check(), "Missing file should not be loaded");
+            assertSame(version, market.getCurrentVersion(), "Missing file should not change the market");
+            assertThrows(IOException.class, watcher::load);
+        }
+    }
+
+    /**
+     * The watcher thread picks up a replaced file, with a watch service where one is available
+     */
+    @Test
+    void testStart() throws Exception {
+        for (final boolean useWatchService : new boolean[]{true, false}) {
+            final VersionedMarket market = new VersionedMarket();
+
+            try (MarketFileWatcher watcher = new MarketFileWatcher(marketFile, market, useWatchService, 50, 10)) {
+                watcher.load();
+                watcher.start();
+
+                assertThrows(IllegalStateException.class, watcher::start);
+
+                final long loadCount = watcher.getLoadCount();
+
+                replaceMarketFile(Arrays.asList("Lender,Rate,Available", "Angela,0.071,60"));
+
+                final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+
+                while (watcher.getLoadCount() == loadCount && System.nanoTime() < deadline) {
+                    Thread.sleep(10);
+                }
+
+                assertEquals(loadCount + 1, watcher.getLoadCount(), "Replaced file should be loaded");
+                assertEquals("Angela", market.getCurrentVersion().getLenders().iterator().next().getName(), "Market should have the lenders of the new file");
+            }
+
+            replaceMarketFile(MARKET);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderBookLoanQuoteCalculatorTest {
+    /**
+     * Creates a calculator from the same lenders as an order book. Lenders are sorted by name first, so that the stable
+     * sort of the calculator breaks ties between lenders with the same rate and amount in the same way as the order book
+     */
+    private static LoanQuoteCalculator createCalculator(final Map<String, Lender> offers, final RepaymentEngine repaymentEngine) {
+        final List<Lender> lenders = new ArrayList<>(offers.values());
+        lenders.sort(Comparator.comparing(Lender::getName));
+
+        return new LoanQuoteCalculator(lenders, repaymentEngine);
+    }
+
+    private static void assertSameQuotes(final LoanQuoteCalculator expected, final OrderBookLoanQuoteCalculator orderBook) {
+        for (int loanAmount = 1000; loanAmount <= 15000; loanAmount += 100) {
+            LoanQuote expectedQuote;
+
+            try {
+                expectedQuote = expected.getQuote(loanAmount);
+            } catch (InsufficientLendersException e) {
+                expectedQuote = null;
+            }
+
+            if (expectedQuote == null) {
+                final int insufficientLoanAmount = loanAmount;
+
+                assertThrows(InsufficientLendersException.class, () -> orderBook.getQuote(insufficientLoanAmount));
+                assertThrows(InsufficientLendersException.class, () -> orderBook.getLendersForLoan(insufficientLoanAmount));
+
+                continue;
+            }
+
+            try {
+                final LoanQuote quote = orderBook.getQuote(loanAmount);
+
+                assertEquals(expectedQuote.getRate(), quote.getRate(), "Rate should match for " + loanAmount);
+                assertEquals(expectedQuote.getMonthlyRepayment(), quote.getMonthlyRepayment(), "Monthly repayment should match for " + loanAmount);
+                assertEquals(expectedQuote.getTotalRepayment(), quote.getTotalRepayment(), "Total repayment should match for " + loanAmount);
+                assertEquals(expected.getLendersForLoan(loanAmount), orderBook.getLendersForLoan(loanAmount), "Lenders should match for " + loanAmount);
+            } catch (InsufficientLendersException e) {
+                throw new AssertionError("Order book should satisfy " + loanAmount, e);
+            }
+        }
+    }
+
+    @Test
+    void testRandomUpdates() {
+        final Random random = new Random(42);
+
+        for (final RepaymentEngine repaymentEngine : RepaymentEngine.values()) {
+            final OrderBookLoanQuoteCalculator orderBook = new OrderBookLoanQuoteCalculator(repaymentEngine);
+            final Map<String, Lender> offers = new HashMap<>();
+
+            for (int i = 0; i < 2000; i++) {
+                // few names and rates, so that most updates amend or withdraw an offer and many offers tie
+                final String name = "Lender" + random.nextInt(200);
+                final BigDecimal rate = BigDecimal.valueOf(1 + random.nextInt(20), 2 + random.nextInt(2));
+                final int amount = random.nextInt(200);
+
+                if (random.nextInt(4) == 0) {
+                    assertEquals(offers.remove(name) != null, orderBook.withdraw(name), "Withdraw should report whether there was an offer");
+                } else if (offers.containsKey(name)) {
+                    orderBook.amend(name, rate, amount);
+                    offers.put(name, new Lender(name, rate, amount));
+                } else {
+                    orderBook.add(name, rate, amount);
+                    offers.put(name, new Lender(name, rate, amount));
+                }
+
+                if (i % 100 == 0) {
+                    assertEquals(offers.size(), orderBook.getLenders().size(), "Order book should contain every offer");
+                    assertSameQuotes(createCalculator(offers, repaymentEngine), orderBook);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testOrder() {
+        final OrderBookLoanQuoteCalculator orderBook = new OrderBookLoanQuoteCalculator();
+
+        orderBook.add("C", new BigDecimal("0.07"), 100);
+        orderBook.add("B", new BigDecimal("0.070"), 100);
+        orderBook.add("A", new BigDecimal("0.08"), 100);
+        orderBook.add("D", new BigDecimal("0.07"), 200);
+
+        assertEquals(Arrays.asList(
+                new Lender("D", new BigDecimal("0.07"), 200),
+                new Lender("B", new BigDecimal("0.070"), 100),
+                new Lender("C", new BigDecimal("0.07"), 100),
+                new Lender("A", new BigDecimal("0.08"), 100)
+        ), new ArrayList<>(orderBook.getLenders()), "Offers should be ordered by rate, then by amount in descending order, then by name");
+
+        orderBook.amend("A", new BigDecimal("0.06"), 50);
+
+        assertEquals(new Lender("A", new BigDecimal("0.06"), 50), orderBook.getLenders().iterator().next(), "Amended offer should be moved to its new place");
+    }
+
+    @Test
+    void testAllocation() throws InsufficientLendersException {
+        final OrderBookLoanQuoteCalculator orderBook = new OrderBookLoanQuoteCalculator();
+
+        orderBook.add("A", new BigDecimal("0.07"), 600);
+        orderBook.add("B", new BigDecimal("0.08"), 600);
+        orderBook.add("C", new BigDecimal("0.06"), 600);
+
+        final Map<Lender, Integer> expected = new HashMap<>();
+        expected.put(new Lender("C", new BigDecimal("0.06"), 600), 600);
+        expected.put(new Lender("A", new BigDecimal("0.07"), 600), 400);
+
+        assertEquals(expected, orderBook.getLendersForLoan(1000), "Cheapest offers should be used");
+
+        orderBook.withdraw("C");
+
+        expected.clear();
+        expected.put(new Lender("A", new BigDecimal("0.07"), 600), 600);
+        expected.put(new Lender("B", new BigDecimal("0.08"), 600), 400);
+
+        assertEquals(expected, orderBook.getLendersForLoan(1000), "Withdrawn offers should not be used");
+
+        assertThrows(InsufficientLendersException.class, () -> orderBook.getQuote(1300));
+    }
+
+    @Test
+    void testEmpty() {
+        final OrderBookLoanQuoteCalculator orderBook = new OrderBookLoanQuoteCalculator();
+
+        assertTrue(orderBook.getLenders().isEmpty(), "Order book should be empty");
+        assertThrows(InsufficientLendersException.class, () -> orderBook.getQuote(1000));
+        assertThrows(InsufficientLendersException.class, () -> orderBook.getLenderAllocation(0));
+    }
+
+    @Test
+    void testGetOffer() {
+        final OrderBookLoanQuoteCalculator orderBook = new OrderBookLoanQuoteCalculator();
+
+        orderBook.add("A", new BigDecimal("0.07"), 600);
+
+        final Lender offer = orderBook.getOffer("A");
+        assertEquals(new Lender("A", new BigDecimal("0.07"), 600), offer, "Offer should be found by name");
+
+        offer.setAmount(1000);
+        assertEquals(600, orderBook.getOffer("A").getAmount(), "Offer should be a copy");
+
+        assertNull(orderBook.getOffer("B"), "Missing offer should not be found");
+    }
+
+    @Test
+    void testInvalidUpdates() {
+        final OrderBookLoanQuoteCalculator orderBook = new OrderBookLoanQuoteCalculator();
+
+        orderBook.add("A", new BigDecimal("0.07"), 600);
+
+        assertThrows(IllegalArgumentException.class, () -> orderBook.add("A", new BigDecimal("0.08"), 600));
+        assertThrows(IllegalArgumentException.class, () -> orderBook.amend("B", new BigDecimal("0.08"), 600));
+        assertThrows(IllegalArgumentException.class, () -> orderBook.add(null, new BigDecimal("0.08"), 600));
+        assertThrows(IllegalArgumentException.class, () -> orderBook.add("B", null, 600));
+        assertThrows(IllegalArgumentException.class, () -> orderBook.add("B", new BigDecimal("0.08"), -1));
+        assertThrows(IllegalArgumentException.class, () -> orderBook.amend("A", new BigDecimal("0.08"), -1));
+        assertFalse(orderBook.withdraw("B"), "Missing offer should not be withdrawn");
+
+        assertEquals(new Lender("A", new BigDecimal("0.07"), 600), orderBook.getOffer("A"), "Invalid updates should not change the book");
+        assertEquals(1, orderBook.getLenders().size(), "Invalid updates should not change the book");
+    }
+}
@@ -0,0 +1,149 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.github.hansonhsc.loan.quote.TestMarkets.getLenders;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ParallelMarketLoaderTest {
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    private static String createRandomMarket(final int size) {
+        final Random random = new Random(size);
+        final StringBuilder csv = new StringBuilder("Rate,Lender,Available\n");
+
+        for (int i = 0; i < size; i++) {
+            csv.append(BigDecimal.valueOf(random.nextInt(50), 2 + random.nextInt(3))).append(',');
+            csv.append(random.nextBoolean() ? "Lender" + i : "\"Lender, " + i + "\"").append(',');
+            csv.append(random.nextInt(20)).append(random.nextInt(10) == 0 ? "\r\n" : "\n");
+        }
+
+        return csv.toString();
+    }
+
+    private static ColumnarLenderBook load(final String content, final long chunkSize) throws IOException, MarketParseException {
+        final Path path = Files.createTempFile("market", ".csv");
+
+        try {
+            Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+
+            try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return ParallelMarketLoader.load(channel, pool, chunkSize);
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static ColumnarLenderBook loadSequentially(final String content) throws IOException, MarketParseException {
+        final Path path = Files.createTempFile("market", ".csv");
+
+        try {
+            Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+
+            final ColumnarLenderBook book = MarketCsvParser.parse(path);
+            book.sort();
+
+            return book;
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static void assertSameAsSequential(final String content) throws IOException, MarketParseException {
+        final List<Lender> expected = getLenders(loadSequentially(content));
+
+        for (final long chunkSize : new long[]{1, 7, 64, 1000, content.length()}) {
+            final List<Lender> actual = getLenders(load(content, chunkSize));
+
+            assertEquals(expected.size(), actual.size(), "Size with chunks of " + chunkSize);
+
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getName(), actual.get(i).getName(), "Name at " + i + " with chunks of " + chunkSize);
+                assertEquals(expected.get(i).getRate(), actual.get(i).getRate(), "Rate at " + i + " with chunks of " + chunkSize);
+                assertEquals(expected.get(i).getAmount(), actual.get(i).getAmount(), "Amount at " + i + " with chunks of " + chunkSize);
+            }
+        }
+    }
+
+    private static void assertSameErrorAsSequential(final String content) {
+        final MarketParseException expected = assertThrows(MarketParseException.class, () -> loadSequentially(content));
+
+        for (final long chunkSize : new long[]{1, 7, 64, 1000, content.length()}) {
+            final MarketParseException actual = assertThrows(MarketParseException.class, () -> load(content, chunkSize));
+
+            assertEquals(expected.getMessage(), actual.getMessage(), "Message with chunks of " + chunkSize);
+            assertEquals(expected.getLineNumber(), actual.getLineNumber(), "Line number with chunks of " + chunkSize);
+        }
+    }
+
+    @Test
+    void testMarketCsv() throws IOException, MarketParseException {
+        assertSameAsSequential(new String(Files.readAllBytes(Paths.get(LoanQuoteApplicationCsvTest.MARKET_CSV)), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testRandomMarkets() throws IOException, MarketParseException {
+        for (final int size : new int[]{0, 1, 2, 10, 100, 2000}) {
+            assertSameAsSequential(createRandomMarket(size));
+        }
+    }
+
+    @Test
+    void testWithoutTrailingNewLine() throws IOException, MarketParseException {
+        assertSameAsSequential("Lender,Rate,Available\nBob,0.075,640\nJane,0.069,480");
+        assertSameAsSequential("Lender,Rate,Available");
+    }
+
+    @Test
+    void testNewLinesWithinQuotes() throws IOException, MarketParseException {
+        assertSameAsSequential("Lender,Rate,Available\nBob,0.075,640\n\"Jane\n\nDoe\",0.069,480\nFred,0.071,520\n\"Mary\nSmith\",0.104,170\n");
+        assertSameAsSequential("\"Lender\n\",Rate,Lender,Available\n1,0.075,Bob,640\n2,0.069,Jane,480\n");
+    }
+
+    @Test
+    void testErrorLineNumbers() {
+        final String market = createRandomMarket(300);
+
+        // an error on the first row, in the middle, on the last row and after the last row
+        final int middle = market.indexOf('\n', market.length() / 2) + 1;
+
+        assertSameErrorAsSequential(market.replaceFirst("\n", "\nBob,0.075\n"));
+        assertSameErrorAsSequential(market.substring(0, middle) + "Bob,abc,640\n" + market.substring(middle));
+        assertSameErrorAsSequential(market.substring(0, middle) + "\"Bob\n\",0.075\n" + market.substring(middle));
+        assertSameErrorAsSequential(market + "Bob,0.075,640,1");
+        assertSameErrorAsSequential(market + "\n");
+        assertSameErrorAsSequential(market + "\"Bob,0.075,640\n");
+    }
+
+    @Test
+    void testInvalidHeader() {
+        assertSameErrorAsSequential("Lender,Available\nBob,640\nJane,480\n");
+        assertSameErrorAsSequential("");
+    }
+}
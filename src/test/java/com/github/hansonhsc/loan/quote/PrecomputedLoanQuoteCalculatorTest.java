@@ -0,0 +1,115 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.github.hansonhsc.loan.quote.TestMarkets.createMarket;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PrecomputedLoanQuoteCalculatorTest {
+    private static List<Lender> createRandomMarket() {
+        final Random random = new Random(11);
+        final List<Lender> lenders = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            // include some lenders with nothing available and some with exactly 100 available
+            lenders.add(new Lender("Lender" + i, BigDecimal.valueOf(1 + random.nextInt(2000), 4), 100 * random.nextInt(3) + random.nextInt(2) * random.nextInt(300)));
+        }
+
+        return lenders;
+    }
+
+    private static void assertSameQuotes(final LoanQuoteCalculator expected, final LoanQuoteCalculator actual, final int loanAmount) {
+        LoanQuote expectedQuote;
+
+        try {
+            expectedQuote = expected.getQuote(loanAmount);
+        } catch (InsufficientLendersException e) {
+            assertThrows(InsufficientLendersException.class, () -> actual.getQuote(loanAmount), "Insufficient lenders for " + loanAmount);
+
+            return;
+        }
+
+        final LoanQuote actualQuote;
+
+        try {
+            actualQuote = actual.getQuote(loanAmount);
+        } catch (InsufficientLendersException e) {
+            throw new AssertionError("Sufficient lenders for " + loanAmount, e);
+        }
+
+        assertEquals(expectedQuote.getLoanAmount(), actualQuote.getLoanAmount());
+        assertEquals(expectedQuote.getRate(), actualQuote.getRate(), "Rate for " + loanAmount);
+        assertEquals(expectedQuote.getMonthlyRepayment(), actualQuote.getMonthlyRepayment(), "Monthly repayment for " + loanAmount);
+        assertEquals(expectedQuote.getTotalRepayment(), actualQuote.getTotalRepayment(), "Total repayment for " + loanAmount);
+    }
+
+    @Test
+    void testSameAsCalculatedQuotes() {
+        final LoanQuoteCalculator expected = new LoanQuoteCalculator(createMarket());
+        final LoanQuoteCalculator actual = new PrecomputedLoanQuoteCalculator(createMarket());
+
+        for (int loanAmount = LoanQuoteApplication.MIN_LOAN_AMOUNT; loanAmount <= LoanQuoteApplication.MAX_LOAN_AMOUNT; loanAmount += LoanQuoteApplication.LOAN_AMOUNT_INCREMENT) {
+            assertSameQuotes(expected, actual, loanAmount);
+        }
+    }
+
+    @Test
+    void testSameAsCalculatedQuotesWithRandomMarket() {
+        final LoanQuoteCalculator expected = new LoanQuoteCalculator(createRandomMarket());
+        final LoanQuoteCalculator actual = new PrecomputedLoanQuoteCalculator(createRandomMarket(), RepaymentEngine.SCALED_LONG, 100, 20000, 100);
+
+        for (int loanAmount = 100; loanAmount <= 20000; loanAmount += 100) {
+            assertSameQuotes(expected, actual, loanAmount);
+        }
+    }
+
+    @Test
+    void test1000Amount() throws InsufficientLendersException {
+        final LoanQuote quote = new PrecomputedLoanQuoteCalculator(createMarket()).getQuote(1000);
+
+        assertEquals(1000, quote.getLoanAmount());
+        assertEquals("7.0", quote.getRate().toString());
+        assertEquals("30.88", quote.getMonthlyRepayment().toString());
+        assertEquals("1111.65", quote.getTotalRepayment().toString());
+    }
+
+    @Test
+    void testExactMarketCapacity() {
+        // market.csv has a total of 2330 available, so use increments that land on it exactly
+        final LoanQuoteCalculator expected = new LoanQuoteCalculator(createMarket());
+        final LoanQuoteCalculator actual = new PrecomputedLoanQuoteCalculator(createMarket(), RepaymentEngine.BIG_DECIMAL, 10, 2340, 10);
+
+        assertSameQuotes(expected, actual, 2320);
+        assertSameQuotes(expected, actual, 2330);
+        assertSameQuotes(expected, actual, 2340);
+    }
+
+    @Test
+    void testLoanAmountsNotPrecomputed() {
+        final LoanQuoteCalculator expected = new LoanQuoteCalculator(createMarket());
+        final LoanQuoteCalculator actual = new PrecomputedLoanQuoteCalculator(createMarket());
+
+        for (final int loanAmount : new int[]{1, 999, 1050, 1234, 2330, 2331, 15001}) {
+            assertSameQuotes(expected, actual, loanAmount);
+        }
+    }
+
+    @Test
+    void testNoLenders() {
+        assertThrows(InsufficientLendersException.class, () -> new PrecomputedLoanQuoteCalculator(Collections.emptyList()).getQuote(1000));
+    }
+
+    @Test
+    void testInvalidLoanAmounts() {
+        assertThrows(IllegalArgumentException.class, () -> new PrecomputedLoanQuoteCalculator(createMarket(), RepaymentEngine.BIG_DECIMAL, 0, 1000, 100));
+        assertThrows(IllegalArgumentException.class, () -> new PrecomputedLoanQuoteCalculator(createMarket(), RepaymentEngine.BIG_DECIMAL, 1000, 900, 100));
+        assertThrows(IllegalArgumentException.class, () -> new PrecomputedLoanQuoteCalculator(createMarket(), RepaymentEngine.BIG_DECIMAL, 1000, 2000, 0));
+    }
+}
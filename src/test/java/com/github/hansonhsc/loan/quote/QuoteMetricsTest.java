@@ -0,0 +1,129 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import java.nio.file.Paths;
+
+import static com.github.hansonhsc.loan.quote.LoanQuoteApplicationCsvTest.MARKET_CSV;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QuoteMetricsTest {
+    private static LoanQuoteCalculator createCalculator(final QuoteMetrics metrics) throws Exception {
+        final LoanQuoteCalculator calculator = new LoanQuoteCalculator(MarketCsvParser.parse(Paths.get(MARKET_CSV)), RepaymentEngine.BIG_DECIMAL);
+        calculator.setMetrics(metrics);
+
+        return calculator;
+    }
+
+    @Test
+    public void testQuote() throws Exception {
+        final QuoteMetrics metrics = new QuoteMetrics(true, 1);
+        final LoanQuoteCalculator calculator = createCalculator(metrics);
+
+        calculator.getQuote(1000);
+        calculator.getQuote(2000);
+
+        assertTrue(metrics.isEnabled(), "Metrics should be enabled");
+        assertEquals(2, metrics.getQuoteCount(), "Every quote should be counted");
+        assertEquals(0, metrics.getInsufficientLendersCount(), "No quote should be rejected");
+        assertEquals(2, metrics.getLatencies(QuoteMetrics.Phase.ALLOCATION).getCount(), "Every allocation should be timed");
+        assertEquals(2, metrics.getLatencies(QuoteMetrics.Phase.REPAYMENT).getCount(), "Every repayment should be timed");
+        assertEquals(2, metrics.getLatencies(QuoteMetrics.Phase.SOLVE).getCount(), "Every solve should be timed");
+        assertEquals(2, metrics.getSolverIterations().getCount(), "Every solve should count its iterations");
+        assertTrue(metrics.getSolverIterations().getMax() <= 2, "Solving from the inverse rate table should take at most two iterations");
+        assertEquals(2, metrics.getLendersPerQuote().getP50(), "Loan of 1000 should be borrowed from 2 lenders");
+        assertEquals(6, metrics.getLendersPerQuote().getMax(), "Loan of 2000 should be borrowed from 6 lenders");
+    }
+
+    @Test
+    public void testPhasesNotSampled() throws Exception {
+        final QuoteMetrics metrics = new QuoteMetrics(true, 0);
+        final LoanQuoteCalculator calculator = createCalculator(metrics);
+
+        calculator.getQuote(1000);
+        calculator.getQuote(1000, new MutableLoanQuote());
+        calculator.getQuotesForTerms(2000, 12, 36);
+
+        assertEquals(4, metrics.getQuoteCount(), "Every quote should be counted");
+        assertEquals(4, metrics.getLendersPerQuote().getCount(), "Every quote should count its lenders");
+        assertEquals(0, metrics.getLatencies(QuoteMetrics.Phase.ALLOCATION).getCount(), "Allocations should not be timed");
+        assertEquals(0, metrics.getLatencies(QuoteMetrics.Phase.REPAYMENT).getCount(), "Repayments should not be timed");
+        assertEquals(0, metrics.getLatencies(QuoteMetrics.Phase.SOLVE).getCount(), "Solves should not be timed");
+        assertEquals(0, metrics.getSolverIterations().getCount(), "Solves should not count their iterations");
+    }
+
+    @Test
+    public void testNegativePhaseSampleInterval() {
+        assertThrows(IllegalArgumentException.class, () -> new QuoteMetrics(true, -1));
+    }
+
+    @Test
+    public void testInsufficientLenders() throws Exception {
+        final QuoteMetrics metrics = new QuoteMetrics();
+        final LoanQuoteCalculator calculator = createCalculator(metrics);
+
+        assertThrows(InsufficientLendersException.class, () -> calculator.getQuote(15000), "Quote for 15000 should be rejected");
+
+        assertEquals(1, metrics.getInsufficientLendersCount(), "Rejected quote should be counted");
+        assertEquals(0, metrics.getQuoteCount(), "Rejected quote should not be counted as priced");
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        final QuoteMetrics metrics = new QuoteMetrics(false);
+        final LoanQuoteCalculator calculator = createCalculator(metrics);
+
+        calculator.getQuote(1000);
+        assertThrows(InsufficientLendersException.class, () -> calculator.getQuote(15000), "Quote for 15000 should be rejected");
+
+        assertFalse(metrics.isEnabled(), "Metrics should be disabled");
+        assertEquals(0, metrics.getQuoteCount(), "Quotes should not be counted");
+        assertEquals(0, metrics.getInsufficientLendersCount(), "Rejected quotes should not be counted");
+        assertEquals(0, metrics.getSolverIterations().getCount(), "Solves should not be counted");
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        final QuoteMetrics metrics = new QuoteMetrics();
+        final LoanQuoteCalculator calculator = createCalculator(metrics);
+
+        calculator.getQuote(1000);
+        assertThrows(InsufficientLendersException.class, () -> calculator.getQuote(15000), "Quote for 15000 should be rejected");
+        metrics.reset();
+
+        assertEquals(0, metrics.getQuoteCount(), "Quote count should be 0 after reset");
+        assertEquals(0, metrics.getInsufficientLendersCount(), "Rejected count should be 0 after reset");
+        assertEquals(0, metrics.getLendersPerQuote().getCount(), "Histograms should be empty after reset");
+    }
+
+    @Test
+    public void testRegister() throws Exception {
+        final QuoteMetrics metrics = new QuoteMetrics(true, 1);
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+
+        metrics.register(server);
+        metrics.register(server);
+
+        createCalculator(metrics).getQuote(1000);
+
+        final ObjectName countersName = new ObjectName(QuoteMetrics.DOMAIN + ":type=QuoteMetrics");
+
+        assertEquals(true, server.getAttribute(countersName, "Enabled"), "Enabled should be published");
+        assertEquals(1L, server.getAttribute(countersName, "QuoteCount"), "Quote count should be published");
+        assertEquals(1L, server.getAttribute(QuoteMetrics.getObjectName("quoteLatency"), "Count"), "Quote latencies should be published");
+        assertEquals("nanoseconds", server.getAttribute(QuoteMetrics.getObjectName("solveLatency"), "Unit"), "Solve latencies should be published");
+        assertEquals(2L, server.getAttribute(QuoteMetrics.getObjectName("lendersPerQuote"), "P50"), "Lenders per quote should be published");
+        assertEquals(1L, server.getAttribute(QuoteMetrics.getObjectName("solverIterations"), "Count"), "Solver iterations should be published");
+
+        server.invoke(countersName, "reset", new Object[0], new String[0]);
+
+        assertEquals(0L, server.getAttribute(countersName, "QuoteCount"), "Reset should be published");
+    }
+}
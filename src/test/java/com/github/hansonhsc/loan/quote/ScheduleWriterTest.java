@@ -0,0 +1,163 @@
+package com.github.hansonhsc.loan.quote;
+
+import com.github.hansonhsc.loan.AmortizationScheduleGenerator;
+import com.github.hansonhsc.loan.ScheduleConsumer;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.github.hansonhsc.loan.quote.LoanQuoteApplicationCsvTest.MARKET_CSV;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScheduleWriterTest {
+    private static String[] write(final String input) throws Exception {
+        final ScheduleWriter scheduleWriter = new ScheduleWriter(LoanQuoteApplication.createLoanQuoteCalculator(MARKET_CSV));
+        final StringWriter output = new StringWriter();
+
+        scheduleWriter.write(new BufferedReader(new StringReader(input)), output);
+
+        return output.toString().split("\n");
+    }
+
+    private static String formatPennies(final long pennies) {
+        final char[] buffer = new char[32];
+
+        return new String(buffer, 0, ScheduleWriter.formatPennies(buffer, 0, pennies));
+    }
+
+    @Test
+    void testCsv() throws Exception {
+        final String[] rows = write("1000\n\n1,000\n15000\n");
+
+        // a row for each of the 2 lenders and the loan every month, and a row for each line that could not be quoted
+        assertEquals(1 + 36 * 3 + 2, rows.length, "Every month of the schedule should have rows");
+        assertEquals(ScheduleWriter.CSV_HEADER, rows[0], "Header should be first");
+        assertEquals("1,1000,Jane,1,", rows[1].substring(0, 14), "Cheapest lender should be first");
+        assertEquals("1,1000,,1,", rows[3].substring(0, 10), "Loan should follow its lenders");
+        assertEquals("1,1000,,36,", rows[108].substring(0, 11), "Last row of the loan should be its last month");
+        assertTrue(rows[108].endsWith(",0.00,"), "Last row of the loan should repay the balance");
+        assertEquals("3,\"1,000\",,,,,,,\"Invalid loan amount format, must be an integer: 1,000\"", rows[109], "Invalid line should have an error");
+        assertEquals("4,15000,,,,,,,Insufficient offers from lenders to satisfy the loan. Try a smaller loan amount.", rows[110], "Insufficient lenders should have an error");
+
+        BigDecimal totalRepayment = BigDecimal.ZERO;
+
+        for (int i = 3; i <= 108; i += 3) {
+            totalRepayment = totalRepayment.add(new BigDecimal(rows[i].split(",")[4]));
+        }
+
+        assertEquals(new BigDecimal("1111.65"), totalRepayment, "Payments should add up to the total repayment of the quote");
+    }
+
+    @Test
+    void testSameTotalAsQuote() throws Exception {
+        for (final RepaymentEngine repaymentEngine : new RepaymentEngine[]{RepaymentEngine.BIG_DECIMAL, RepaymentEngine.SCALED_LONG}) {
+            for (final int term : new int[]{12, 36, 60}) {
+                final LoanQuoteCalculator calculator = new LoanQuoteCalculator(
+                        new ArrayList<>(LoanQuoteApplication.createLoanQuoteCalculator(MARKET_CSV).getLenders()), repaymentEngine, term);
+                final AmortizationScheduleGenerator generator = new AmortizationScheduleGenerator();
+
+                for (int loanAmount = 1000; loanAmount <= 2300; loanAmount += 100) {
+                    final long[] repaid = new long[1];
+
+                    calculator.generateSchedule(loanAmount, generator, new ScheduleConsumer() {
+                        @Override
+                        public void acceptLoan(final int month, final long payment, final long interest, final long principal, final long balance) {
+                            repaid[0] += payment;
+                        }
+                    });
+
+                    assertEquals(calculator.getQuote(loanAmount).getTotalRepayment(), BigDecimal.valueOf(repaid[0], 2),
+                            repaymentEngine + " " + loanAmount + " over " + term + ": payments should add up to the total repayment of the quote");
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFormatPennies() {
+        assertEquals("0.00", formatPennies(0), "Zero should have two decimal places");
+        assertEquals("0.05", formatPennies(5), "Pennies should be padded");
+        assertEquals("0.50", formatPennies(50), "Pennies should be padded");
+        assertEquals("1.00", formatPennies(100), "Pounds should have two decimal places");
+        assertEquals("123.45", formatPennies(12345), "Pounds and pennies should be separated");
+        assertEquals("-0.01", formatPennies(-1), "Negative amounts should have a sign");
+        assertEquals("-123.45", formatPennies(-12345), "Negative amounts should have a sign");
+        assertEquals(BigDecimal.valueOf(Long.MAX_VALUE, 2).toPlainString(), formatPennies(Long.MAX_VALUE), "Largest amount should be formatted");
+        assertEquals(BigDecimal.valueOf(Long.MIN_VALUE, 2).toPlainString(), formatPennies(Long.MIN_VALUE), "Smallest amount should be formatted");
+    }
+
+    @Test
+    void testEmptyInput() throws Exception {
+        assertEquals(Arrays.asList(ScheduleWriter.CSV_HEADER), Arrays.asList(write("\n \n")), "Empty input should only have the header");
+    }
+
+    @Test
+    void testInvalidLenders() throws Exception {
+        // a negative amount is rejected by the generator, and a negative rate by the cache of annuity factors
+        final List<List<Lender>> markets = Arrays.asList(
+                Arrays.asList(new Lender("Bob", new BigDecimal("0.05"), -500), new Lender("Jane", new BigDecimal("0.06"), 2000)),
+                Arrays.asList(new Lender("Bob", new BigDecimal("-0.01"), 500), new Lender("Jane", new BigDecimal("0.06"), 2000)));
+
+        for (final List<Lender> lenders : markets) {
+            final ScheduleWriter scheduleWriter = new ScheduleWriter(new LoanQuoteCalculator(lenders));
+            final StringWriter output = new StringWriter();
+
+            assertEquals(2, scheduleWriter.write(new BufferedReader(new StringReader("1000\n200\n")), output), "Both lines should fail: " + lenders);
+
+            final String[] rows = output.toString().split("\n");
+
+            assertEquals(3, rows.length, "Only an error row should be written for each line: " + lenders);
+            assertTrue(rows[1].startsWith("1,1000,,,,,,,"), "First line should have an error: " + rows[1]);
+            assertTrue(rows[2].startsWith("2,200,,,,,,,"), "Second line should have an error: " + rows[2]);
+        }
+    }
+
+    @Test
+    void testRunSchedule() throws Exception {
+        final Path input = Files.createTempFile("loan-amounts", ".txt");
+        final Path output = Files.createTempFile("schedules", ".csv");
+
+        try {
+            Files.write(input, Arrays.asList("1000", "invalid", "1100"), StandardCharsets.UTF_8);
+
+            final long errorCount = LoanQuoteApplication.runSchedule(new String[]{"schedule", MARKET_CSV, input.toString(), "--output", output.toString()});
+
+            final List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+
+            assertEquals(1, errorCount, "Invalid line should be counted");
+            assertEquals(ScheduleWriter.CSV_HEADER, lines.get(0), "Header should be written");
+            assertEquals("2,invalid,,,,,,,\"Invalid loan amount format, must be an integer: invalid\"", lines.get(1 + 36 * 3), "Error should follow the first schedule");
+            assertTrue(lines.get(lines.size() - 1).startsWith("3,1100,,36,"), "Last schedule should be written");
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    @Test
+    void testRunScheduleInvalidArguments() throws IOException {
+        final Path input = Files.createTempFile("loan-amounts", ".txt");
+
+        try {
+            assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.runSchedule(new String[]{"schedule", MARKET_CSV}));
+            assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.runSchedule(new String[]{"schedule", MARKET_CSV, input.toString(), "--output"}));
+            assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.runSchedule(new String[]{"schedule", MARKET_CSV, input.toString(), "--format", "csv"}));
+            assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.runSchedule(new String[]{"schedule", "invalid", input.toString()}));
+            assertThrows(LoanQuoteParameterValidationException.class, () -> LoanQuoteApplication.runSchedule(new String[]{"schedule", MARKET_CSV, input.resolveSibling("missing-loan-amounts.txt").toString()}));
+        } finally {
+            Files.delete(input);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ShardedLoanQuoteCalculatorTest {
+    private static List<Lender> createRandomMarket(final Random random, final int size) {
+        final List<Lender> lenders = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            // few distinct rates and amounts, so that many lenders in different shards tie
+            lenders.add(new Lender("Lender" + i, BigDecimal.valueOf(60 + random.nextInt(20), 3), random.nextInt(5) * 10));
+        }
+
+        return lenders;
+    }
+
+    /**
+     * Splits lenders into shards at random, keeping the order of the lenders within each shard
+     */
+    private static List<List<Lender>> split(final Random random, final List<Lender> lenders, final int shardCount) {
+        final List<List<Lender>> shards = new ArrayList<>();
+
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ArrayList<>());
+        }
+
+        for (final Lender lender : lenders) {
+            shards.get(random.nextInt(shardCount)).add(lender);
+        }
+
+        return shards;
+    }
+
+    private static List<ColumnarLenderBook> toBooks(final List<List<Lender>> shards) {
+        final List<ColumnarLenderBook> books = new ArrayList<>();
+
+        for (final List<Lender> shard : shards) {
+            final ColumnarLenderBook book = ColumnarLenderBook.of(shard);
+
+            book.sort();
+            books.add(book);
+        }
+
+        return books;
+    }
+
+    /**
+     * The lenders of every shard in turn, which a single calculator sorts into the same order as the merge
+     */
+    private static List<Lender> concatenate(final List<List<Lender>> shards) {
+        final List<Lender> lenders = new ArrayList<>();
+
+        for (final List<Lender> shard : shards) {
+            lenders.addAll(shard);
+        }
+
+        return lenders;
+    }
+
+    private static void assertEqualQuotes(final LoanQuote expected, final LoanQuote quote, final String message) {
+        assertEquals(expected.getLoanAmount(), quote.getLoanAmount(), message + ": loan amount");
+        assertEquals(expected.getRate(), quote.getRate(), message + ": rate");
+        assertEquals(expected.getMonthlyRepayment(), quote.getMonthlyRepayment(), message + ": monthly repayment");
+        assertEquals(expected.getTotalRepayment(), quote.getTotalRepayment(), message + ": total repayment");
+        assertEquals(expected.getTerm(), quote.getTerm(), message + ": term");
+    }
+
+    private static void assertSameQuotes(final LoanQuoteCalculator expected, final ShardedLoanQuoteCalculator actual, final int maximumLoanAmount,
+                                         final String message) throws InsufficientLendersException {
+        assertEquals(new ArrayList<>(expected.getLenders()), new ArrayList<>(actual.getLenders()), message + ": lenders should be merged in order");
+        assertEquals(expected.getLenders().size(), actual.getLenders().size(), message + ": number of lenders");
+
+        final MutableLoanQuote result = new MutableLoanQuote();
+
+        for (int loanAmount = 1; loanAmount <= maximumLoanAmount; loanAmount += 13) {
+            final LoanQuote quote;
+
+            try {
+                quote = expected.getQuote(loanAmount);
+            } catch (InsufficientLendersException e) {
+                final int insufficientLoanAmount = loanAmount;
+
+                assertThrows(InsufficientLendersException.class, () -> actual.getQuote(insufficientLoanAmount), message + ": insufficient lenders for " + loanAmount);
+
+                continue;
+            }
+
+            assertEqualQuotes(quote, actual.getQuote(loanAmount), message + ": quote for " + loanAmount);
+            assertEqualQuotes(quote, actual.getQuote(loanAmount, result).toLoanQuote(), message + ": mutable quote for " + loanAmount);
+            assertEquals(expected.getLendersForLoan(loanAmount), actual.getLendersForLoan(loanAmount), message + ": lenders for " + loanAmount);
+        }
+    }
+
+    @Test
+    void testSameAsSingleMarket() throws InsufficientLendersException {
+        final Random random = new Random(37);
+
+        for (final int shardCount : new int[]{1, 2, 3, 8, 32}) {
+            final List<List<Lender>> shards = split(random, createRandomMarket(random, 400), shardCount);
+
+            // include an empty shard
+            shards.add(random.nextInt(shards.size() + 1), new ArrayList<>());
+
+            for (final RepaymentEngine repaymentEngine : new RepaymentEngine[]{RepaymentEngine.BIG_DECIMAL, RepaymentEngine.SCALED_LONG}) {
+                final String message = shardCount + " shards with " + repaymentEngine;
+
+                assertSameQuotes(new LoanQuoteCalculator(concatenate(shards), repaymentEngine),
+                        new ShardedLoanQuoteCalculator(toBooks(shards), repaymentEngine), 10_000, message);
+            }
+        }
+    }
+
+    @Test
+    void testBatchAndReverseQueries() {
+        final Random random = new Random(41);
+        final List<List<Lender>> shards = split(random, createRandomMarket(random, 300), 5);
+        final LoanQuoteCalculator expected = new LoanQuoteCalculator(concatenate(shards), RepaymentEngine.SCALED_LONG, 60);
+        final ShardedLoanQuoteCalculator actual = new ShardedLoanQuoteCalculator(toBooks(shards), RepaymentEngine.SCALED_LONG, 60);
+
+        final int[] loanAmounts = {5000, 100, 7000, 100, 0, 1_000_000};
+        final LoanQuoteResult[] expectedResults = expected.getQuotes(loanAmounts);
+        final LoanQuoteResult[] actualResults = actual.getQuotes(loanAmounts);
+
+        for (int i = 0; i < loanAmounts.length; i++) {
+            assertEquals(expectedResults[i].isSuccessful(), actualResults[i].isSuccessful(), "Batch result for " + loanAmounts[i]);
+
+            if (expectedResults[i].isSuccessful()) {
+                assertEqualQuotes(expectedResults[i].getQuote(), actualResults[i].getQuote(), "Batch quote for " + loanAmounts[i]);
+            }
+        }
+
+        for (int rate = 60; rate <= 80; rate++) {
+            final BigDecimal maximumRate = BigDecimal.valueOf(rate, 1);
+
+            assertEquals(expected.getMaximumLoanAmountForRate(maximumRate, 100), actual.getMaximumLoanAmountForRate(maximumRate, 100),
+                    "Largest loan amount at " + maximumRate + "%");
+        }
+
+        assertEquals(expected.getMaximumLoanAmountForMonthlyRepayment(new BigDecimal("100"), 10), actual.getMaximumLoanAmountForMonthlyRepayment(new BigDecimal("100"), 10),
+                "Largest loan amount for 100 a month");
+    }
+
+    @Test
+    void testLoad() throws IOException, MarketParseException, InsufficientLendersException {
+        final Random random = new Random(43);
+        final List<List<Lender>> shards = split(random, createRandomMarket(random, 200), 3);
+        final List<Path> paths = new ArrayList<>();
+        final ForkJoinPool pool = new ForkJoinPool(2);
+
+        try {
+            for (int i = 0; i < shards.size(); i++) {
+                final Path path = Files.createTempFile("market", i == 0 ? ".snapshot" : ".csv");
+
+                paths.add(path);
+
+                if (i == 0) {
+                    // a snapshot is mapped as a shard in place
+                    MappedLenderBook.write(ColumnarLenderBook.of(shards.get(i)), path);
+                } else {
+                    final StringBuilder csv = new StringBuilder("Lender,Rate,Available\n");
+
+                    for (final Lender lender : shards.get(i)) {
+                        csv.append(lender.getName()).append(',').append(lender.getRate()).append(',').append(lender.getAmount()).append('\n');
+                    }
+
+                    Files.write(path, csv.toString().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+
+            final ShardedLoanQuoteCalculator calculator = ShardedLoanQuoteCalculator.load(paths, RepaymentEngine.BIG_DECIMAL, 36, pool);
+
+            assertEquals(3, calculator.getShardCount(), "Every file should be a shard");
+            assertSameQuotes(new LoanQuoteCalculator(concatenate(shards)), calculator, 5000, "Loaded shards");
+
+            Files.write(paths.get(1), "Lender,Rate,Available\nBob,x,10\n".getBytes(StandardCharsets.UTF_8));
+
+            assertThrows(MarketParseException.class, () -> ShardedLoanQuoteCalculator.load(paths, RepaymentEngine.BIG_DECIMAL, 36, pool),
+                    "Invalid shard should fail to load");
+        } finally {
+            pool.shutdown();
+
+            for (final Path path : paths) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    void testUnsortedShards() {
+        final List<Lender> lenders = Arrays.asList(
+                new Lender("Bob", new BigDecimal("0.075"), 640),
+                new Lender("Jane", new BigDecimal("0.069"), 480),
+                new Lender("Fred", new BigDecimal("0.071"), 520));
+        final List<ListLenderBook> sorted = Collections.singletonList(new ListLenderBook(Arrays.asList(lenders.get(1), lenders.get(2), lenders.get(0))));
+
+        assertEquals(3, new ShardedLoanQuoteCalculator(sorted, RepaymentEngine.BIG_DECIMAL).getLenders().size(), "Sorted shard should be accepted");
+
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new ShardedLoanQuoteCalculator(Arrays.asList(sorted.get(0), new ListLenderBook(lenders)), RepaymentEngine.BIG_DECIMAL),
+                "Unsorted shard should be rejected rather than allocated from out of order");
+
+        assertEquals("Shard 1 is not sorted at lender 1: Jane", e.getMessage(), "Unsorted lender should be reported");
+        assertThrows(IllegalArgumentException.class, () -> new ShardedLoanQuoteCalculator(Collections.singletonList(
+                new ListLenderBook(Arrays.asList(new Lender("Bob", new BigDecimal("0.07"), 10), new Lender("Jane", new BigDecimal("0.07"), 20)))),
+                RepaymentEngine.BIG_DECIMAL), "Lenders with the same rate should be sorted by amount in descending order");
+
+        // the book of the caller is checked rather than sorted in place
+        final ColumnarLenderBook columnar = ColumnarLenderBook.of(lenders);
+
+        assertThrows(IllegalArgumentException.class, () -> new ShardedLoanQuoteCalculator(Collections.singletonList(columnar), RepaymentEngine.BIG_DECIMAL),
+                "Unsorted columnar shard should be rejected");
+        assertEquals("Bob", columnar.getName(0), "Columnar shard should not be modified");
+    }
+
+    @Test
+    void testNegativeAmounts() throws InsufficientLendersException {
+        final List<List<Lender>> shards = Arrays.asList(
+                Collections.singletonList(new Lender("A", new BigDecimal("0.05"), 1000)),
+                Collections.singletonList(new Lender("B", new BigDecimal("0.06"), -500)));
+
+        final LoanQuoteCalculator expected = new LoanQuoteCalculator(concatenate(shards), RepaymentEngine.SCALED_LONG);
+        final ShardedLoanQuoteCalculator actual = new ShardedLoanQuoteCalculator(toBooks(shards), RepaymentEngine.SCALED_LONG);
+
+        // the total of every lender is 500, but the whole 1000 of the first lender is borrowed before the second
+        assertEquals(new BigDecimal("5.0"), actual.getQuote(1000).getRate(), "Loan of 1000 should be borrowed from A alone");
+        assertSameQuotes(expected, actual, 1500, "Negative amounts");
+        assertEquals(expected.getMaximumLoanAmountForRate(new BigDecimal("6.0"), 100), actual.getMaximumLoanAmountForRate(new BigDecimal("6.0"), 100),
+                "Largest loan amount at 6.0%");
+    }
+
+    @Test
+    void testNoLenders() {
+        final ShardedLoanQuoteCalculator calculator = new ShardedLoanQuoteCalculator(Collections.emptyList(), RepaymentEngine.BIG_DECIMAL);
+
+        assertEquals(0, calculator.getShardCount(), "No shards");
+        assertEquals(0, calculator.getLenders().size(), "No lenders");
+        assertThrows(InsufficientLendersException.class, () -> calculator.getQuote(1000), "No lenders should be insufficient");
+
+        final ShardedLoanQuoteCalculator emptyLenders = new ShardedLoanQuoteCalculator(Arrays.asList(
+                ColumnarLenderBook.of(Collections.singletonList(new Lender("Bob", new BigDecimal("0.07"), 0))),
+                new ColumnarLenderBook()), RepaymentEngine.BIG_DECIMAL);
+
+        assertThrows(InsufficientLendersException.class, () -> emptyLenders.getQuote(1000), "Lenders with nothing available should be insufficient");
+        assertThrows(IllegalArgumentException.class, () -> new ShardedLoanQuoteCalculator(Collections.emptyList(), RepaymentEngine.BIG_DECIMAL, 0),
+                "Term should be validated");
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.hansonhsc.loan.quote;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Markets shared by the tests
+ */
+final class TestMarkets {
+    private TestMarkets() {
+    }
+
+    /**
+     * Creates the lenders of <code>LoanQuoteApplicationCsvTest.MARKET_CSV</code>, in the order of the file
+     * @return a new modifiable list of the lenders
+     */
+    static List<Lender> createMarket() {
+        return new ArrayList<>(Arrays.asList(
+                new Lender("Bob", new BigDecimal("0.075"), 640),
+                new Lender("Jane", new BigDecimal("0.069"), 480),
+                new Lender("Fred", new BigDecimal("0.071"), 520),
+                new Lender("Mary", new BigDecimal("0.104"), 170),
+                new Lender("John", new BigDecimal("0.081"), 320),
+                new Lender("Dave", new BigDecimal("0.074"), 140),
+                new Lender("Angela", new BigDecimal("0.071"), 60)
+        ));
+    }
+
+    /**
+     * Creates a market of random lenders with rates from 0.01% to 30% in steps of 0.01%, including lenders with
+     * nothing available
+     * @param seed the seed of the random lenders, so that the market is the same every time
+     * @param size the number of lenders
+     * @return a new modifiable list of the lenders, in no particular order
+     */
+    static List<Lender> createRandomMarket(final long seed, final int size) {
+        final Random random = new Random(seed);
+        final List<Lender> lenders = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            lenders.add(new Lender("Lender" + i, BigDecimal.valueOf(1 + random.nextInt(3000), 4), random.nextInt(4) * random.nextInt(100)));
+        }
+
+        return lenders;
+    }
+
+    /**
+     * Gets every lender of a book
+     * @param book the book
+     * @return a new list of the lenders, in the order of the book
+     */
+    static List<Lender> getLenders(final LenderBook book) {
+        final List<Lender> lenders = new ArrayList<>();
+
+        for (int i = 0; i < book.size(); i++) {
+            lenders.add(book.getLender(i));
+        }
+
+        return lenders;
+    }
+}
@@ -0,0 +1,395 @@
+package com.github.hansonhsc.loan.quote;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VersionedMarketTest {
+    private static List<Lender> createLenders(final int size) {
+        final List<Lender> lenders = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            lenders.add(new Lender("Lender" + i, BigDecimal.valueOf(1 + i % 97, 3), 10 + i % 50));
+        }
+
+        return lenders;
+    }
+
+    /**
+     * Creates a calculator from the same lenders as a market, sorted by name first so that ties are broken in the same
+     * way, see <code>OrderBookLoanQuoteCalculatorTest</code>
+     */
+    private static LoanQuoteCalculator createCalculator(final Map<String, Lender> offers, final RepaymentEngine repaymentEngine) {
+        final List<Lender> lenders = new ArrayList<>(offers.values());
+        lenders.sort(Comparator.comparing(Lender::getName));
+
+        return new LoanQuoteCalculator(lenders, repaymentEngine);
+    }
+
+    private static void assertSameQuotes(final LoanQuoteCalculator expected, final LoanQuoteCalculator calculator) {
+        assertEquals(new ArrayList<>(expected.getLenders()), new ArrayList<>(calculator.getLenders()), "Lenders should be in the same order");
+
+        for (int loanAmount = 1000; loanAmount <= 15000; loanAmount += 700) {
+            try {
+                final LoanQuote expectedQuote = expected.getQuote(loanAmount);
+                final LoanQuote quote = calculator.getQuote(loanAmount);
+
+                assertEquals(expectedQuote.getRate(), quote.getRate(), "Rate should match for " + loanAmount);
+                assertEquals(expectedQuote.getMonthlyRepayment(), quote.getMonthlyRepayment(), "Monthly repayment should match for " + loanAmount);
+                assertEquals(expected.getLendersForLoan(loanAmount), calculator.getLendersForLoan(loanAmount), "Lenders should match for " + loanAmount);
+            } catch (InsufficientLendersException e) {
+                final int insufficientLoanAmount = loanAmount;
+
+                assertThrows(InsufficientLendersException.class, () -> calculator.getQuote(insufficientLoanAmount));
+            }
+        }
+    }
+
+    @Test
+    void testRandomUpdates() {
+        final Random random = new Random(42);
+
+        for (final RepaymentEngine repaymentEngine : RepaymentEngine.values()) {
+            final VersionedMarket market = new VersionedMarket(repaymentEngine);
+            final Map<String, Lender> offers = new HashMap<>();
+
+            for (int i = 0; i < 3000; i++) {
+                // enough names for chunks to be split and dropped
+                final String name = "Lender" + random.nextInt(1000);
+                final BigDecimal rate = BigDecimal.valueOf(1 + random.nextInt(20), 2 + random.nextInt(2));
+                final int amount = random.nextInt(200);
+
+                if (random.nextInt(3) == 0) {
+                    assertEquals(offers.remove(name) != null, market.withdraw(name), "Withdraw should report whether there was an offer");
+                } else if (offers.containsKey(name)) {
+                    market.amend(name, rate, amount);
+                    offers.put(name, new Lender(name, rate, amount));
+                } else {
+                    market.add(name, rate, amount);
+                    offers.put(name, new Lender(name, rate, amount));
+                }
+
+                if (i % 250 == 0) {
+                    assertSameQuotes(createCalculator(offers, repaymentEngine), market.getCurrentVersion());
+                }
+            }
+
+            assertSameQuotes(createCalculator(offers, repaymentEngine), market.getCurrentVersion());
+        }
+    }
+
+    @Test
+    void testVersionsAreImmutable() throws InsufficientLendersException {
+        final VersionedMarket market = new VersionedMarket();
+        market.replaceAll(createLenders(1000));
+
+        final MarketVersion version = market.getCurrentVersion();
+        final LoanQuote quote = version.getQuote(5000);
+        final List<Lender> lenders = new ArrayList<>(version.getLenders());
+
+        market.withdraw("Lender0");
+        market.amend("Lender1", new BigDecimal("0.5"), 1);
+        market.add("Cheapest", new BigDecimal("0.0001"), 100000);
+
+        assertEquals(lenders, new ArrayList<>(version.getLenders()), "Published version should not change");
+        assertEquals(quote.getMonthlyRepayment(), version.getQuote(5000).getMonthlyRepayment(), "Published version should quote the same");
+        assertEquals(version.getVersion() + 3, market.getCurrentVersion().getVersion(), "Each update should publish a version");
+        assertThrows(UnsupportedOperationException.class, () -> version.getLenders().clear());
+    }
+
+    @Test
+    void testStructuralSharing() {
+        final VersionedMarket market = new VersionedMarket();
+        market.replaceAll(createLenders(10000));
+
+        final ChunkedLenderBook book = market.getCurrentVersion().getBook();
+
+        market.amend("Lender5000", new BigDecimal("0.050"), 10 + 5000 % 50);
+
+        final ChunkedLenderBook amendedBook = market.getCurrentVersion().getBook();
+
+        assertEquals(book.getChunkCount(), amendedBook.getChunkCount(), "Amending a lender within its chunk should not split the chunk");
+
+        int copiedChunks = 0;
+
+        for (int i = 0; i < book.getChunkCount(); i++) {
+            if (book.getChunk(i) != amendedBook.getChunk(i)) {
+                copiedChunks++;
+            }
+        }
+
+        assertTrue(copiedChunks <= 2, "Only the chunks that changed should be copied, but copied " + copiedChunks);
+        assertNotSame(book, amendedBook, "Amending should create a new book");
+    }
+
+    @Test
+    void testChunkSplitting() {
+        ChunkedLenderBook book = ChunkedLenderBook.EMPTY;
+        final List<Lender> lenders = new ArrayList<>();
+
+        // insert in descending order, so that every lender goes into the first chunk
+        for (int i = ChunkedLenderBook.MAXIMUM_CHUNK_SIZE * 4; i > 0; i--) {
+            final Lender lender = new Lender("Lender" + i, BigDecimal.valueOf(i, 4), 10);
+
+            book = book.insert(lender);
+            lenders.add(0, lender);
+        }
+
+        assertTrue(book.getChunkCount() > 4, "Full chunks should be split");
+
+        for (int i = 0; i < lenders.size(); i++) {
+            assertEquals(lenders.get(i), book.getLender(i), "Lender should be in order at " + i);
+            assertEquals(10L * (i + 1), book.getCumulativeAmount(i), "Cumulative amount should be correct at " + i);
+        }
+
+        for (final Lender lender : lenders) {
+            book = book.remove(lender);
+        }
+
+        assertEquals(0, book.size(), "Every lender should be removed");
+        assertEquals(0, book.getChunkCount(), "Empty chunks should be dropped");
+    }
+
+    @Test
+    void testChunkedLenderBookErrors() {
+        final Lender lender = new Lender("A", new BigDecimal("0.07"), 10);
+        final ChunkedLenderBook book = ChunkedLenderBook.EMPTY.insert(lender);
+
+        assertThrows(IllegalArgumentException.class, () -> book.insert(new Lender("A", new BigDecimal("0.07"), 10)));
+        assertThrows(IllegalArgumentException.class, () -> book.remove(new Lender("B", new BigDecimal("0.07"), 10)));
+        assertThrows(IllegalArgumentException.class, () -> ChunkedLenderBook.EMPTY.remove(lender));
+        assertThrows(IndexOutOfBoundsException.class, () -> book.getAmount(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> book.getCumulativeAmount(-1));
+    }
+
+    @Test
+    void testInvalidUpdates() {
+        final VersionedMarket market = new VersionedMarket();
+        market.add("A", new BigDecimal("0.07"), 600);
+
+        final MarketVersion version = market.getCurrentVersion();
+
+        assertThrows(IllegalArgumentException.class, () -> market.add("A", new BigDecimal("0.08"), 600));
+        assertThrows(IllegalArgumentException.class, () -> market.amend("B", new BigDecimal("0.08"), 600));
+        assertThrows(IllegalArgumentException.class, () -> market.add("B", new BigDecimal("0.08"), -1));
+        assertThrows(IllegalArgumentException.class, () -> market.replaceAll(Arrays.asList(
+                new Lender("C", new BigDecimal("0.07"), 600),
+                new Lender("C", new BigDecimal("0.08"), 600)
+        )));
+        assertFalse(market.withdraw("B"), "Missing offer should not be withdrawn");
+
+        assertSame(version, market.getCurrentVersion(), "Invalid updates should not publish a version");
+    }
+
+    @Test
+    void testUpdate() {
+        final VersionedMarket market = new VersionedMarket();
+        final List<Lender> lenders = createLenders(10000);
+        market.replaceAll(lenders);
+
+        final ChunkedLenderBook book = market.getCurrentVersion().getBook();
+        final List<Lender> newLenders = new ArrayList<>(lenders);
+
+        newLenders.set(10, new Lender("Lender10", new BigDecimal("0.050"), 10));
+        newLenders.set(20, new Lender("Lender20", lenders.get(20).getRate(), 1000));
+        newLenders.remove(9000);
+        newLenders.add(new Lender("Newcomer", new BigDecimal("0.001"), 500));
+
+        final MarketChanges changes = market.update(newLenders);
+
+        assertEquals(1, changes.getAddedCount(), "New lender should be added");
+        assertEquals(2, changes.getAmendedCount(), "Changed rate and amount should be amended");
+        assertEquals(1, changes.getWithdrawnCount(), "Missing lender should be withdrawn");
+        assertEquals(market.getCurrentVersion().getVersion(), changes.getVersion(), "Changes should report the published version");
+
+        final VersionedMarket replacedMarket = new VersionedMarket();
+        replacedMarket.replaceAll(newLenders);
+
+        assertSameQuotes(replacedMarket.getCurrentVersion(), market.getCurrentVersion());
+
+        final ChunkedLenderBook updatedBook = market.getCurrentVersion().getBook();
+        int sharedChunks = 0;
+
+        for (int i = 0; i < updatedBook.getChunkCount(); i++) {
+            for (int j = 0; j < book.getChunkCount(); j++) {
+                if (updatedBook.getChunk(i) == book.getChunk(j)) {
+                    sharedChunks++;
+                }
+            }
+        }
+
+        assertTrue(sharedChunks >= book.getChunkCount() - 8, "Unchanged chunks should be shared, but only shared " + sharedChunks + " of " + book.getChunkCount());
+    }
+
+    @Test
+    void testUpdateWithoutChanges() {
+        final VersionedMarket market = new VersionedMarket();
+        final List<Lender> lenders = createLenders(100);
+        market.replaceAll(lenders);
+
+        final MarketVersion version = market.getCurrentVersion();
+        final List<Lender> sameLenders = new ArrayList<>();
+
+        // equal offers in another order
+        for (int i = lenders.size() - 1; i >= 0; i--) {
+            final Lender lender = lenders.get(i);
+
+            sameLenders.add(new Lender(lender.getName(), lender.getRate(), lender.getAmount()));
+        }
+
+        final MarketChanges changes = market.update(sameLenders);
+
+        assertTrue(changes.isEmpty(), "Equal offers should not be changed");
+        assertEquals(version.getVersion(), changes.getVersion(), "Changes should report the current version");
+        assertSame(version, market.getCurrentVersion(), "An update without changes should not publish a version");
+    }
+
+    /**
+     * Updates that change most of the market are rebuilt rather than applied one at a time, and must give the same
+     * market either way
+     */
+    @Test
+    void testUpdateRebuild() {
+        final Random random = new Random(42);
+
+        for (final int changeCount : new int[]{1, 2000 / VersionedMarket.REBUILD_RATIO, 2000}) {
+            final VersionedMarket market = new VersionedMarket();
+            final List<Lender> lenders = createLenders(2000);
+            market.update(lenders);
+
+            final List<Lender> newLenders = new ArrayList<>(lenders);
+
+            for (int i = 0; i < changeCount; i++) {
+                final int index = random.nextInt(newLenders.size());
+                final Lender lender = newLenders.get(index);
+
+                newLenders.set(index, new Lender(lender.getName(), BigDecimal.valueOf(1 + random.nextInt(200), 3), random.nextInt(100)));
+            }
+
+            market.update(newLenders);
+
+            final VersionedMarket replacedMarket = new VersionedMarket();
+            replacedMarket.replaceAll(newLenders);
+
+            assertSameQuotes(replacedMarket.getCurrentVersion(), market.getCurrentVersion());
+        }
+
+        final VersionedMarket market = new VersionedMarket();
+        market.update(createLenders(100));
+
+        assertEquals(100, market.update(new ArrayList<>()).getWithdrawnCount(), "Every lender should be withdrawn");
+        assertEquals(0, market.getCurrentVersion().getLenders().size(), "Market should be empty");
+    }
+
+    @Test
+    void testInvalidUpdate() {
+        final VersionedMarket market = new VersionedMarket();
+        market.replaceAll(createLenders(100));
+
+        final MarketVersion version = market.getCurrentVersion();
+
+        assertThrows(IllegalArgumentException.class, () -> market.update(Arrays.asList(
+                new Lender("C", new BigDecimal("0.07"), 600),
+                new Lender("C", new BigDecimal("0.08"), 600)
+        )));
+        assertThrows(IllegalArgumentException.class, () -> market.update(Arrays.asList(
+                new Lender("Lender0", new BigDecimal("0.07"), 600),
+                new Lender("D", new BigDecimal("0.08"), -1)
+        )));
+
+        assertSame(version, market.getCurrentVersion(), "Invalid updates should not publish a version");
+        assertTrue(market.update(createLenders(100)).isEmpty(), "Invalid updates should not change the offers");
+    }
+
+    /**
+     * Readers quote while a writer flips the market between two states, and every quote must match the state of the
+     * version that it was made against
+     */
+    @Test
+    void testConcurrentQuoting() throws Exception {
+        final VersionedMarket market = new VersionedMarket(RepaymentEngine.SCALED_LONG);
+        market.replaceAll(createLenders(20000));
+
+        // even versions have a cheap lender, odd versions do not
+        assertEquals(1, market.getCurrentVersion().getVersion() % 2, "Market should start at an odd version");
+
+        final LoanQuote[] expectedQuotes = new LoanQuote[2];
+        expectedQuotes[1] = market.getQuote(10000);
+
+        market.add("Cheap", new BigDecimal("0.0005"), 3000);
+        expectedQuotes[0] = market.getQuote(10000);
+
+        final int readers = 4;
+        final ExecutorService executor = Executors.newFixedThreadPool(readers + 1);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final CountDownLatch started = new CountDownLatch(readers);
+
+        try {
+            final List<Future<Long>> quoteCounts = new ArrayList<>();
+
+            for (int i = 0; i < readers; i++) {
+                quoteCounts.add(executor.submit(() -> {
+                    long quotes = 0;
+                    started.countDown();
+
+                    while (running.get()) {
+                        final MarketVersion version = market.getCurrentVersion();
+                        final LoanQuote expected = expectedQuotes[(int) (version.getVersion() % 2)];
+                        final LoanQuote quote = version.getQuote(10000);
+
+                        assertEquals(expected.getMonthlyRepayment(), quote.getMonthlyRepayment(), "Quote should match version " + version.getVersion());
+                        assertEquals(expected.getRate(), quote.getRate(), "Quote should match version " + version.getVersion());
+
+                        quotes++;
+                    }
+
+                    return quotes;
+                }));
+            }
+
+            final Future<?> writer = executor.submit(() -> {
+                started.await();
+
+                for (int i = 0; i < 5000; i++) {
+                    if (market.getCurrentVersion().getVersion() % 2 == 0) {
+                        market.withdraw("Cheap");
+                    } else {
+                        market.add("Cheap", new BigDecimal("0.0005"), 3000);
+                    }
+                }
+
+                return null;
+            });
+
+            writer.get(1, TimeUnit.MINUTES);
+            running.set(false);
+
+            for (final Future<Long> quoteCount : quoteCounts) {
+                assertTrue(quoteCount.get(1, TimeUnit.MINUTES) > 0, "Every reader should have quoted");
+            }
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.github.hansonhsc.loan.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RootSolverTest {
+    private static final double EPSILON = 1e-12;
+
+    // f(x) = x^2 - 2, which has a root at the square root of 2
+    private static final DifferentiableFunction SQUARE_MINUS_2 = DifferentiableFunction.of(x -> x * x - 2, x -> 2 * x, x -> 2);
+
+    // f(x) = atan(x), where Newton-Raphson method diverges from x = 2 without bounds
+    private static final DifferentiableFunction ARCTANGENT = DifferentiableFunction.of(Math::atan, x -> 1 / (1 + x * x), x -> -2 * x / ((1 + x * x) * (1 + x * x)));
+
+    private static List<RootSolver> createSolvers() {
+        return Arrays.asList(
+                new NewtonRaphsonSolver(EPSILON, 100),
+                new HalleySolver(EPSILON, 100),
+                new BrentSolver(EPSILON, 100)
+        );
+    }
+
+    @Test
+    void testSquareRoot() {
+        for (final RootSolver solver : createSolvers()) {
+            final RootSolution solution = solver.solve(SQUARE_MINUS_2, 1.5, 0, 2);
+
+            assertTrue(solution.isConverged(), solver + " converged");
+            assertEquals(Math.sqrt(2), solution.getRoot(), 1e-12, solver + " found root");
+            assertTrue(solution.getIterations() > 0, solver + " iterated");
+        }
+    }
+
+    @Test
+    void testGuessIsRoot() {
+        for (final RootSolver solver : createSolvers()) {
+            final RootSolution solution = solver.solve(SQUARE_MINUS_2, 2, 0, 3);
+
+            // ensure the solution is overwritten when reused
+            solver.solve(ARCTANGENT, 0, -1, 1, solution);
+
+            assertTrue(solution.isConverged(), solver + " converged");
+            assertEquals(0, solution.getRoot(), solver + " found root");
+            assertEquals(0, solution.getIterations(), solver + " did not need to iterate");
+        }
+    }
+
+    @Test
+    void testHalleyNeedsFewerIterationsThanNewtonRaphson() {
+        final RootSolution newtonRaphson = new NewtonRaphsonSolver(EPSILON, 100).solve(SQUARE_MINUS_2, 100, 0, 200);
+        final RootSolution halley = new HalleySolver(EPSILON, 100).solve(SQUARE_MINUS_2, 100, 0, 200);
+
+        assertTrue(newtonRaphson.isConverged());
+        assertTrue(halley.isConverged());
+        assertTrue(halley.getIterations() < newtonRaphson.getIterations(), halley + " vs " + newtonRaphson);
+    }
+
+    @Test
+    void testNewtonRaphsonWithoutBounds() {
+        final RootSolution solution = new NewtonRaphsonSolver(EPSILON, 100).solve(SQUARE_MINUS_2, 1, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+        assertTrue(solution.isConverged());
+        assertEquals(Math.sqrt(2), solution.getRoot(), 1e-12);
+    }
+
+    @Test
+    void testBoundsPreventDivergence() {
+        final RootSolution unbounded = new NewtonRaphsonSolver(EPSILON, 100).solve(ARCTANGENT, 2, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+        assertFalse(unbounded.isConverged(), "Newton-Raphson method diverges for atan(x) from 2");
+
+        for (final RootSolver solver : createSolvers()) {
+            final RootSolution solution = solver.solve(ARCTANGENT, 2, -3, 3);
+
+            assertTrue(solution.isConverged(), solver + " converged");
+            assertEquals(0, solution.getRoot(), 1e-12, solver + " found root");
+        }
+    }
+
+    @Test
+    void testBrentWithoutBracket() {
+        final RootSolution solution = new BrentSolver(EPSILON, 100).solve(SQUARE_MINUS_2, Double.NaN, 2, 4);
+
+        assertFalse(solution.isConverged(), "Brent cannot converge if the root is not bracketed");
+        assertEquals(2, solution.getRoot(), "Brent gives the bound closest to a root");
+    }
+
+    @Test
+    void testBrentUsesGuessToNarrowBracket() {
+        final RootSolution withoutGuess = new BrentSolver(EPSILON, 100).solve(SQUARE_MINUS_2, Double.NaN, 0, 100);
+        final RootSolution withGuess = new BrentSolver(EPSILON, 100).solve(SQUARE_MINUS_2, 1.41, 0, 100);
+
+        assertTrue(withoutGuess.isConverged());
+        assertTrue(withGuess.isConverged());
+        assertTrue(withGuess.getIterations() < withoutGuess.getIterations(), withGuess + " vs " + withoutGuess);
+    }
+
+    @Test
+    void testMaximumIterations() {
+        for (final RootSolver solver : Arrays.asList(new NewtonRaphsonSolver(EPSILON, 2), new HalleySolver(EPSILON, 2), new BrentSolver(EPSILON, 2))) {
+            final RootSolution solution = solver.solve(SQUARE_MINUS_2, 100, 0, 200);
+
+            assertFalse(solution.isConverged(), solver + " gave up");
+            assertEquals(2, solution.getIterations(), solver + " iterated the maximum number of times");
+        }
+    }
+
+    @Test
+    void testInvalidTolerance() {
+        assertThrows(IllegalArgumentException.class, () -> new NewtonRaphsonSolver(-1, 100));
+        assertThrows(IllegalArgumentException.class, () -> new HalleySolver(EPSILON, -1));
+        assertThrows(IllegalArgumentException.class, () -> new BrentSolver(-1, 100));
+        assertThrows(IllegalArgumentException.class, () -> new BrentSolver(EPSILON, -1));
+    }
+}